@@ -205,7 +205,7 @@ def setup_local_environment()
   ENV.update({"WORKBENCH_ENV" => "local"})
   ENV["DB_HOST"] = "127.0.0.1"
   ENV["MYSQL_ROOT_PASSWORD"] = root_password
-  ENV["DB_CONNECTION_STRING"] = "jdbc:mysql://127.0.0.1/workbench?useSSL=false"
+  ENV["DB_CONNECTION_STRING"] = "jdbc:mysql://127.0.0.1/workbench?useSSL=false&rewriteBatchedStatements=true"
 end
 
 # TODO(RW-605): This command doesn't actually execute locally as it assumes a docker context.
@@ -2267,6 +2267,118 @@ Common.register_command({
   :fn => ->(*args) { list_runtimes("list-runtimes", *args) }
 })
 
+ES_SCRATCH_BUCKET = "all-of-us-workbench-test-elastic-exports"
+
+def set_es_scratch_bucket_lifecycle(cmd_name, *args)
+  op = WbOptionsParser.new(cmd_name, args)
+  op.parse.validate
+
+  # Deletes the intermediate exports of failed load-es-index runs which are never resumed.
+  common = Common.new
+  common.run_inline %W{
+    gsutil lifecycle set config/elastic_scratch_bucket_lifecycle.json gs://#{ES_SCRATCH_BUCKET}
+  }
+end
+
+Common.register_command({
+  :invocation => "set-es-scratch-bucket-lifecycle",
+  :description => "Sets the lifecycle rule of the GCS bucket load-es-index exports through",
+  :fn => ->(*args) { set_es_scratch_bucket_lifecycle("set-es-scratch-bucket-lifecycle", *args) }
+})
+
+def create_materialized_cohort_datasets(cmd_name, *args)
+  common = Common.new
+  op = WbOptionsParser.new(cmd_name, args)
+  op.opts.dry_run = false
+  op.add_typed_option(
+      "--dry_run=[dry_run]",
+      TrueClass,
+      ->(opts, v) { opts.dry_run = v},
+      "When true, print the commands instead of running them.")
+  gcc = GcloudContextV2.new(op)
+  op.parse.validate
+  gcc.validate()
+
+  dataset = get_config(gcc.project)["cdr"]["materializedCohortDataset"]
+  server_account = "#{get_server_config(gcc.project)["projectId"]}@appspot.gserviceaccount.com"
+  cdr_projects = get_cdr_config(gcc.project)["cdrVersions"]
+    .map { |v| v["bigqueryProject"] }
+    .reject { |p| p.nil? || p.empty? }
+    .uniq
+
+  cdr_projects.each do |cdr_project|
+    dataset_ref = "#{cdr_project}:#{dataset}"
+    if system("bq", "--project_id=#{cdr_project}", "show", dataset_ref, [:out, :err] => File::NULL)
+      common.status "#{dataset_ref} already exists"
+    else
+      # Matches the expiration MaterializedCohortService sets on each table it creates.
+      run_inline_or_log(op.opts.dry_run, %W{
+        bq --project_id=#{cdr_project} mk --dataset
+        --default_table_expiration=86400
+        --description=Cohort\ participant\ tables\ materialized\ by\ the\ Workbench\ API\ server
+        #{dataset_ref}
+      })
+    end
+    if op.opts.dry_run
+      common.status "Would grant #{server_account} WRITER on #{dataset_ref}"
+      next
+    end
+
+    dataset_info = JSON.parse(common.capture_stdout(%W{
+      bq --project_id=#{cdr_project} show --format=prettyjson #{dataset_ref}
+    }))
+    access = dataset_info["access"] || []
+    if access.any? { |a| a["userByEmail"] == server_account && a["role"] == "WRITER" }
+      next
+    end
+    access << { "role" => "WRITER", "userByEmail" => server_account }
+    Tempfile.create(["materialized-cohort-dataset", ".json"]) do |f|
+      f.write(JSON.generate({ "access" => access }))
+      f.flush
+      common.run_inline %W{bq --project_id=#{cdr_project} update --source #{f.path} #{dataset_ref}}
+    end
+  end
+end
+
+Common.register_command({
+  :invocation => "create-materialized-cohort-datasets",
+  :description => "Creates the scratch dataset for materialized cohort tables in each CDR project " +
+                  "of the given environment, writable by its API server",
+  :fn => ->(*args) { create_materialized_cohort_datasets("create-materialized-cohort-datasets", *args) }
+})
+
+def create_action_audit_spool_bucket(cmd_name, *args)
+  common = Common.new
+  op = WbOptionsParser.new(cmd_name, args)
+  op.opts.dry_run = false
+  op.add_typed_option(
+      "--dry_run=[dry_run]",
+      TrueClass,
+      ->(opts, v) { opts.dry_run = v},
+      "When true, print the commands instead of running them.")
+  gcc = GcloudContextV2.new(op)
+  op.parse.validate
+  gcc.validate()
+
+  bucket = "gs://#{get_config(gcc.project)["actionAudit"]["spoolBucketName"]}"
+  if system("gsutil", "ls", "-b", bucket, [:out, :err] => File::NULL)
+    common.status "#{bucket} already exists"
+    return
+  end
+  # The API server writes to it as the App Engine service account, an editor of its own project.
+  run_inline_or_log(op.opts.dry_run, %W{
+    gsutil mb -p #{get_server_config(gcc.project)["projectId"]} -c regional -l us-central1 -b on
+    #{bucket}
+  })
+end
+
+Common.register_command({
+  :invocation => "create-action-audit-spool-bucket",
+  :description => "Creates the bucket where the given environment's API server spools action " +
+                  "audit log entries while Cloud Logging is unavailable",
+  :fn => ->(*args) { create_action_audit_spool_bucket("create-action-audit-spool-bucket", *args) }
+})
+
 def load_es_index(cmd_name, *args)
   op = WbOptionsParser.new(cmd_name, args)
 
@@ -2293,6 +2405,21 @@ def load_es_index(cmd_name, *args)
       "sample of participants. For example, 1000 would index ~1/1000 of participants in the " +
       "target dataset. Defaults to 1K for local loads (~1K participants on the " +
       "1M participant synthetic CDR), defaults to 1 for any other GCP project.")
+  op.add_option(
+      "--parallel-ingest",
+      ->(opts, _) { opts.parallel_ingest = true},
+      "Read the exported GCS shards concurrently and keep several bulk " +
+      "requests in flight; faster for large CDRs.")
+  op.add_option(
+      "--checkpoint [PATH]",
+      ->(opts, v) { opts.checkpoint = v},
+      "Local path or gs:// URL to save parallel ingest progress to. Rerunning with " +
+      "the checkpoint of a failed run resumes it. Implies --parallel-ingest.")
+  op.add_option(
+      "--incremental",
+      ->(opts, _) { opts.incremental = true},
+      "Update the existing index, only re-sending changed persons, instead of " +
+      "replacing it. Implies --parallel-ingest.")
   op.parse.validate
 
   if op.opts.inverse_prob.nil?
@@ -2321,14 +2448,17 @@ def load_es_index(cmd_name, *args)
     ['--cdr-version', op.opts.cdr_version],
     ['--cdr-big-query-dataset', 'all-of-us-ehr-dev.synthetic_cdr20180606'],
     ['--scratch-big-query-dataset', 'all-of-us-ehr-dev.workbench_elastic'],
-    ['--scratch-gcs-bucket', 'all-of-us-workbench-test-elastic-exports'],
+    ['--scratch-gcs-bucket', ES_SCRATCH_BUCKET],
     ['--participant-inclusion-inverse-prob', op.opts.inverse_prob]
   ] + (auth_project.nil? ? [] : [
     ['--es-auth-project', auth_project]
-  ])).map { |kv| "#{kv[0]}=#{kv[1]}" } + [
-    '--delete-indices'
-    # Gradle args need to be single-quote wrapped.
-  ]).map { |f| "'#{f}'" }
+  ]) + (op.opts.checkpoint.nil? ? [] : [
+    ['--checkpoint', op.opts.checkpoint]
+  ])).map { |kv| "#{kv[0]}=#{kv[1]}" } +
+    (op.opts.incremental ? ['--incremental'] : ['--delete-indices']) +
+    (op.opts.parallel_ingest || op.opts.checkpoint || op.opts.incremental ? ['--parallel-ingest'] : [])
+  # Gradle args need to be single-quote wrapped.
+  ).map { |f| "'#{f}'" }
   ServiceAccountContext.new((auth_project or TEST_PROJECT)).run do
     common.run_inline %W{gradle elasticSearchIndexer -PappArgs=['create',#{create_flags.join(',')}]}
   end
@@ -2414,6 +2544,64 @@ Common.register_command({
   :fn => ->(*args) { update_review_demographics("update-review-demographics", *args)}
 })
 
+def benchmark_cohort_status_insert_local(cmd_name, *args)
+  ensure_docker_sync()
+  setup_local_environment
+  op = WbOptionsParser.new(cmd_name, args)
+  op.add_option(
+    "--cohort-review-id [id]",
+    ->(opts, v) { opts.cohort_review_id = v },
+    "Id of an existing cohort review with no participants in the local database. Benchmark " +
+    "rows are inserted under it and deleted after each run.")
+  op.add_validator ->(opts) { raise ArgumentError unless opts.cohort_review_id }
+  op.parse.validate
+  common = Common.new
+  common.run_inline %W{
+    docker-compose run --rm api-scripts ./gradlew benchmarkParticipantCohortStatusInsert
+    -PappArgs=[#{op.opts.cohort_review_id}]}
+end
+
+Common.register_command({
+  :invocation => "benchmark-cohort-status-insert-local",
+  :description => "Compares participant_cohort_status bulk insert strategies for 1k/10k/100k rows",
+  :fn => ->(*args) { benchmark_cohort_status_insert_local("benchmark-cohort-status-insert-local", *args)}
+})
+
+def benchmark_criteria_hierarchy_index_local(cmd_name, *args)
+  ensure_docker_sync()
+  setup_local_environment
+  op = WbOptionsParser.new(cmd_name, args)
+  op.opts.sample_size = 100
+  op.add_option(
+    "--domain [domain]",
+    ->(opts, v) { opts.domain = v },
+    "Criteria domain to index, e.g. CONDITION")
+  op.add_option(
+    "--type [type]",
+    ->(opts, v) { opts.type = v },
+    "Criteria type of the sampled groups, e.g. SNOMED or ICD9CM")
+  op.add_option(
+    "--standard [true|false]",
+    ->(opts, v) { opts.standard = v },
+    "Whether the sampled groups are standard concepts")
+  op.add_option(
+    "--sample-size [n]",
+    ->(opts, v) { opts.sample_size = v },
+    "Number of random criteria groups to expand (default 100)")
+  op.add_validator ->(opts) { raise ArgumentError unless opts.domain and opts.type and opts.standard }
+  op.parse.validate
+  common = Common.new
+  common.run_inline %W{
+    docker-compose run --rm api-scripts ./gradlew benchmarkCriteriaHierarchyIndex
+    -PappArgs=['#{op.opts.domain}','#{op.opts.type}','#{op.opts.standard}','#{op.opts.sample_size}']}
+end
+
+Common.register_command({
+  :invocation => "benchmark-criteria-hierarchy-index-local",
+  :description => "Compares MySQL path scans with the in-memory criteria hierarchy index for one domain",
+  :fn => ->(*args) { benchmark_criteria_hierarchy_index_local("benchmark-criteria-hierarchy-index-local", *args)}
+})
+
 def get_test_service_account()
   ServiceAccountContext.new(TEST_PROJECT).run do
     print "Service account key is now in sa-key.json"
@@ -27,6 +27,11 @@ import org.pmiops.workbench.cdr.model.DbSurveyModule;
 import org.pmiops.workbench.cohortbuilder.CohortBuilderService;
 import org.pmiops.workbench.cohortbuilder.CohortBuilderServiceImpl;
 import org.pmiops.workbench.cohortbuilder.CohortQueryBuilder;
+import org.pmiops.workbench.cohortbuilder.CriteriaHierarchyIndexService;
+import org.pmiops.workbench.cohortbuilder.CriteriaIndexCache;
+import org.pmiops.workbench.cohortbuilder.CriteriaSearchIndexService;
+import org.pmiops.workbench.cohortbuilder.ParticipantCountCache;
+import org.pmiops.workbench.cohortbuilder.ParticipantCountRouter;
 import org.pmiops.workbench.cohortbuilder.mapper.CohortBuilderMapper;
 import org.pmiops.workbench.cohortbuilder.mapper.CohortBuilderMapperImpl;
 import org.pmiops.workbench.config.WorkbenchConfig;
@@ -90,8 +95,13 @@ public class CohortBuilderControllerBQTest extends SpringTest {
 
   @BeforeEach
   public void setUp() {
+    CriteriaIndexCache criteriaIndexCache = new CriteriaIndexCache(configProvider);
     ElasticSearchService elasticSearchService =
-        new ElasticSearchService(cbCriteriaDao, cloudStorageClient, configProvider);
+        new ElasticSearchService(
+            cbCriteriaDao,
+            new CriteriaHierarchyIndexService(cbCriteriaDao, criteriaIndexCache),
+            cloudStorageClient,
+            configProvider);
 
     CohortBuilderService cohortBuilderService =
         new CohortBuilderServiceImpl(
@@ -105,10 +115,14 @@ public class CohortBuilderControllerBQTest extends SpringTest {
             personDao,
             surveyModuleDao,
             cohortBuilderMapper,
-            mySQLStopWordsProvider);
+            mySQLStopWordsProvider,
+            new ParticipantCountCache(),
+            new CriteriaSearchIndexService(cbCriteriaDao, criteriaIndexCache, configProvider));
     controller =
         new CohortBuilderController(
-            elasticSearchService, configProvider, cohortBuilderService, workspaceAuthService);
+            new ParticipantCountRouter(cohortBuilderService, elasticSearchService, configProvider),
+            cohortBuilderService,
+            workspaceAuthService);
 
     MySQLStopWords mySQLStopWords = new MySQLStopWords(Arrays.asList("about"));
     doReturn(mySQLStopWords).when(mySQLStopWordsProvider).get();
@@ -22,6 +22,7 @@ import org.pmiops.workbench.actionaudit.auditors.BillingProjectAuditor;
 import org.pmiops.workbench.billing.FreeTierBillingService;
 import org.pmiops.workbench.cohortbuilder.CohortBuilderService;
 import org.pmiops.workbench.cohortbuilder.CohortQueryBuilder;
+import org.pmiops.workbench.cohortbuilder.MaterializedCohortService;
 import org.pmiops.workbench.cohortbuilder.SearchGroupItemQueryBuilder;
 import org.pmiops.workbench.cohortreview.CohortReviewServiceImpl;
 import org.pmiops.workbench.cohortreview.ReviewQueryBuilder;
@@ -104,6 +105,7 @@ public class CohortReviewControllerBQTest extends BigQueryBaseTest {
     CohortReviewMapperImpl.class,
     CohortReviewController.class,
     CohortReviewServiceImpl.class,
+    MaterializedCohortService.class,
     CommonMappers.class,
     CommonMappers.class,
     ConceptSetMapperImpl.class,
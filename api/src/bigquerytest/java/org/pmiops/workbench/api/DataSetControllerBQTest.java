@@ -32,6 +32,7 @@ import org.pmiops.workbench.cdr.dao.DSDataDictionaryDao;
 import org.pmiops.workbench.cdr.dao.DSLinkingDao;
 import org.pmiops.workbench.cdr.model.DbDSLinking;
 import org.pmiops.workbench.cohortbuilder.CohortQueryBuilder;
+import org.pmiops.workbench.cohortbuilder.MaterializedCohortService;
 import org.pmiops.workbench.cohorts.CohortCloningService;
 import org.pmiops.workbench.cohorts.CohortService;
 import org.pmiops.workbench.conceptset.ConceptSetService;
@@ -39,6 +40,7 @@ import org.pmiops.workbench.conceptset.mapper.ConceptSetMapperImpl;
 import org.pmiops.workbench.config.WorkbenchConfig;
 import org.pmiops.workbench.dataset.DataSetService;
 import org.pmiops.workbench.dataset.DataSetServiceImpl;
+import org.pmiops.workbench.dataset.DomainQueryRunner;
 import org.pmiops.workbench.dataset.DatasetConfig;
 import org.pmiops.workbench.dataset.mapper.DataSetMapperImpl;
 import org.pmiops.workbench.db.dao.AccessTierDao;
@@ -104,6 +106,7 @@ public class DataSetControllerBQTest extends BigQueryBaseTest {
   @Autowired private CohortDao cohortDao;
   @Autowired private CohortService cohortService;
   @Autowired private CohortQueryBuilder cohortQueryBuilder;
+  @Autowired private MaterializedCohortService materializedCohortService;
   @Autowired private ConceptBigQueryService conceptBigQueryService;
   @Autowired private ConceptSetDao conceptSetDao;
   @Autowired private ConceptSetService conceptSetService;
@@ -153,6 +156,7 @@ public class DataSetControllerBQTest extends BigQueryBaseTest {
     ConceptBigQueryService.class,
     DataSetMapperImpl.class,
     DataSetServiceImpl.class,
+    MaterializedCohortService.class,
     TestBigQueryCdrSchemaConfig.class,
     WorkspaceAuthService.class
   })
@@ -221,7 +225,9 @@ public class DataSetControllerBQTest extends BigQueryBaseTest {
             conceptSetDao,
             conceptSetService,
             cohortQueryBuilder,
+            materializedCohortService,
             dataSetDao,
+            new DomainQueryRunner(bigQueryService),
             dsLinkingDao,
             dsDataDictionaryDao,
             dataSetMapper,
@@ -29,6 +29,7 @@ import org.pmiops.workbench.cohortbuilder.CohortBuilderService;
 import org.pmiops.workbench.cohortbuilder.CohortBuilderServiceImpl;
 import org.pmiops.workbench.cohortbuilder.CohortQueryBuilder;
 import org.pmiops.workbench.cohortbuilder.FieldSetQueryBuilder;
+import org.pmiops.workbench.cohortbuilder.ParticipantCountCache;
 import org.pmiops.workbench.cohortbuilder.SearchGroupItemQueryBuilder;
 import org.pmiops.workbench.cohortbuilder.mapper.CohortBuilderMapperImpl;
 import org.pmiops.workbench.cohortreview.AnnotationQueryBuilder;
@@ -71,6 +72,7 @@ import org.springframework.context.annotation.Import;
   TestJpaConfig.class,
   TestBigQueryCdrSchemaConfig.class,
   CohortBuilderServiceImpl.class,
+  ParticipantCountCache.class,
   CohortBuilderMapperImpl.class,
   AnnotationQueryBuilder.class,
   CdrBigQuerySchemaConfigService.class,
@@ -220,7 +222,7 @@ public class CohortMaterializationServiceBQTest extends BigQueryBaseTest {
   public void testMaterializeCohortOneMale() {
     MaterializeCohortResponse response =
         cohortMaterializationService.materializeCohort(
-            null, SearchRequests.males(), null, 0, makeRequest(1000));
+            null, SearchRequests.males(), null, makeRequest(1000));
     assertPersonIds(response, 1L);
     assertThat(response.getNextPageToken()).isNull();
   }
@@ -229,7 +231,7 @@ public class CohortMaterializationServiceBQTest extends BigQueryBaseTest {
   public void testMaterializeCohortICD9Group() {
     MaterializeCohortResponse response =
         cohortMaterializationService.materializeCohort(
-            null, SearchRequests.icd9CodesChildren(), null, 0, makeRequest(1000));
+            null, SearchRequests.icd9CodesChildren(), null, makeRequest(1000));
     assertPersonIds(response, 1L);
     assertThat(response.getNextPageToken()).isNull();
   }
@@ -238,7 +240,7 @@ public class CohortMaterializationServiceBQTest extends BigQueryBaseTest {
   public void testMaterializeCohortTemporalGroup() {
     MaterializeCohortResponse response =
         cohortMaterializationService.materializeCohort(
-            null, SearchRequests.temporalRequest(), null, 0, makeRequest(1000));
+            null, SearchRequests.temporalRequest(), null, makeRequest(1000));
     assertPersonIds(response, 1L);
     assertThat(response.getNextPageToken()).isNull();
   }
@@ -247,7 +249,7 @@ public class CohortMaterializationServiceBQTest extends BigQueryBaseTest {
   public void testMaterializeCohortWithReviewNullStatusFilter() {
     MaterializeCohortResponse response =
         cohortMaterializationService.materializeCohort(
-            cohortReview, SearchRequests.allGenders(), null, 0, makeRequest(2));
+            cohortReview, SearchRequests.allGenders(), null, makeRequest(2));
     // With a null status filter, everyone but excluded participants are returned.
     assertPersonIds(response, 1L, 102246L);
     assertThat(response.getNextPageToken()).isNull();
@@ -261,7 +263,7 @@ public class CohortMaterializationServiceBQTest extends BigQueryBaseTest {
             CohortStatus.NOT_REVIEWED, CohortStatus.INCLUDED, CohortStatus.NEEDS_FURTHER_REVIEW));
     MaterializeCohortResponse response =
         cohortMaterializationService.materializeCohort(
-            cohortReview, SearchRequests.allGenders(), null, 0, request);
+            cohortReview, SearchRequests.allGenders(), null, request);
     // With a not excluded status filter, ID 2 is not returned.
     assertPersonIds(response, 1L, 102246L);
     assertThat(response.getNextPageToken()).isNull();
@@ -273,7 +275,7 @@ public class CohortMaterializationServiceBQTest extends BigQueryBaseTest {
     request.setStatusFilter(ImmutableList.of(CohortStatus.EXCLUDED));
     MaterializeCohortResponse response =
         cohortMaterializationService.materializeCohort(
-            cohortReview, SearchRequests.allGenders(), null, 0, request);
+            cohortReview, SearchRequests.allGenders(), null, request);
     assertPersonIds(response, 2L);
     assertThat(response.getNextPageToken()).isNull();
   }
@@ -284,7 +286,7 @@ public class CohortMaterializationServiceBQTest extends BigQueryBaseTest {
     request.setStatusFilter(ImmutableList.of(CohortStatus.INCLUDED));
     MaterializeCohortResponse response =
         cohortMaterializationService.materializeCohort(
-            cohortReview, SearchRequests.allGenders(), null, 0, request);
+            cohortReview, SearchRequests.allGenders(), null, request);
     assertPersonIds(response, 1L);
     assertThat(response.getNextPageToken()).isNull();
   }
@@ -295,7 +297,7 @@ public class CohortMaterializationServiceBQTest extends BigQueryBaseTest {
     request.setStatusFilter(ImmutableList.of(CohortStatus.EXCLUDED, CohortStatus.INCLUDED));
     MaterializeCohortResponse response =
         cohortMaterializationService.materializeCohort(
-            cohortReview, SearchRequests.allGenders(), null, 0, request);
+            cohortReview, SearchRequests.allGenders(), null, request);
     assertPersonIds(response, 1L, 2L);
     assertThat(response.getNextPageToken()).isNull();
   }
@@ -306,7 +308,7 @@ public class CohortMaterializationServiceBQTest extends BigQueryBaseTest {
     request.setStatusFilter(ImmutableList.of(CohortStatus.NOT_REVIEWED));
     MaterializeCohortResponse response =
         cohortMaterializationService.materializeCohort(
-            cohortReview, SearchRequests.allGenders(), null, 0, request);
+            cohortReview, SearchRequests.allGenders(), null, request);
     assertPersonIds(response, 102246L);
     assertThat(response.getNextPageToken()).isNull();
   }
@@ -317,7 +319,7 @@ public class CohortMaterializationServiceBQTest extends BigQueryBaseTest {
     request.setStatusFilter(ImmutableList.of(CohortStatus.INCLUDED, CohortStatus.NOT_REVIEWED));
     MaterializeCohortResponse response =
         cohortMaterializationService.materializeCohort(
-            cohortReview, SearchRequests.allGenders(), null, 0, request);
+            cohortReview, SearchRequests.allGenders(), null, request);
     assertPersonIds(response, 1L, 102246L);
     assertThat(response.getNextPageToken()).isNull();
   }
@@ -329,7 +331,7 @@ public class CohortMaterializationServiceBQTest extends BigQueryBaseTest {
         ImmutableList.of(CohortStatus.NEEDS_FURTHER_REVIEW, CohortStatus.NOT_REVIEWED));
     MaterializeCohortResponse response =
         cohortMaterializationService.materializeCohort(
-            cohortReview, SearchRequests.allGenders(), null, 0, request);
+            cohortReview, SearchRequests.allGenders(), null, request);
     assertPersonIds(response, 102246L);
     assertThat(response.getNextPageToken()).isNull();
   }
@@ -340,7 +342,7 @@ public class CohortMaterializationServiceBQTest extends BigQueryBaseTest {
     request.setStatusFilter(ImmutableList.of(CohortStatus.EXCLUDED, CohortStatus.NOT_REVIEWED));
     MaterializeCohortResponse response =
         cohortMaterializationService.materializeCohort(
-            cohortReview, SearchRequests.allGenders(), null, 0, request);
+            cohortReview, SearchRequests.allGenders(), null, request);
     assertPersonIds(response, 2L, 102246L);
     assertThat(response.getNextPageToken()).isNull();
   }
@@ -356,13 +358,13 @@ public class CohortMaterializationServiceBQTest extends BigQueryBaseTest {
             CohortStatus.NEEDS_FURTHER_REVIEW));
     MaterializeCohortResponse response =
         cohortMaterializationService.materializeCohort(
-            cohortReview, SearchRequests.allGenders(), null, 0, request);
+            cohortReview, SearchRequests.allGenders(), null, request);
     assertPersonIds(response, 1L, 2L);
     assertThat(response.getNextPageToken()).isNotNull();
     request.setPageToken(response.getNextPageToken());
     MaterializeCohortResponse response2 =
         cohortMaterializationService.materializeCohort(
-            cohortReview, SearchRequests.allGenders(), null, 0, request);
+            cohortReview, SearchRequests.allGenders(), null, request);
     assertPersonIds(response2, 102246L);
     assertThat(response2.getNextPageToken()).isNull();
   }
@@ -372,13 +374,13 @@ public class CohortMaterializationServiceBQTest extends BigQueryBaseTest {
     MaterializeCohortRequest request = makeRequest(2);
     MaterializeCohortResponse response =
         cohortMaterializationService.materializeCohort(
-            null, SearchRequests.allGenders(), null, 0, request);
+            null, SearchRequests.allGenders(), null, request);
     assertPersonIds(response, 1L, 2L);
     assertThat(response.getNextPageToken()).isNotNull();
     request.setPageToken(response.getNextPageToken());
     MaterializeCohortResponse response2 =
         cohortMaterializationService.materializeCohort(
-            null, SearchRequests.allGenders(), null, 0, request);
+            null, SearchRequests.allGenders(), null, request);
     assertPersonIds(response2, 102246L);
     assertThat(response2.getNextPageToken()).isNull();
 
@@ -397,7 +399,7 @@ public class CohortMaterializationServiceBQTest extends BigQueryBaseTest {
     try {
       // Invalid offset, this should fail.
       cohortMaterializationService.materializeCohort(
-          null, SearchRequests.males(), null, 0, request);
+          null, SearchRequests.males(), null, request);
       fail("Exception expected");
     } catch (BadRequestException e) {
       // expected
@@ -413,7 +415,7 @@ public class CohortMaterializationServiceBQTest extends BigQueryBaseTest {
     fieldSet.setTableQuery(tableQuery);
     MaterializeCohortResponse response =
         cohortMaterializationService.materializeCohort(
-            null, SearchRequests.males(), null, 0, makeRequest(fieldSet, 1000));
+            null, SearchRequests.males(), null, makeRequest(fieldSet, 1000));
     assertPersonIds(response, 1L);
     assertThat(response.getNextPageToken()).isNull();
   }
@@ -431,7 +433,7 @@ public class CohortMaterializationServiceBQTest extends BigQueryBaseTest {
     fieldSet.setTableQuery(tableQuery);
     MaterializeCohortResponse response =
         cohortMaterializationService.materializeCohort(
-            null, SearchRequests.allGenders(), null, 0, makeRequest(fieldSet, 1000));
+            null, SearchRequests.allGenders(), null, makeRequest(fieldSet, 1000));
     assertPersonIds(response, 1L);
     assertThat(response.getNextPageToken()).isNull();
   }
@@ -451,7 +453,7 @@ public class CohortMaterializationServiceBQTest extends BigQueryBaseTest {
     fieldSet.setTableQuery(tableQuery);
     MaterializeCohortResponse response =
         cohortMaterializationService.materializeCohort(
-            null, SearchRequests.allGenders(), null, 0, makeRequest(fieldSet, 1000));
+            null, SearchRequests.allGenders(), null, makeRequest(fieldSet, 1000));
     assertPersonIds(response, 2L, 102246L);
     assertThat(response.getNextPageToken()).isNull();
   }
@@ -470,7 +472,7 @@ public class CohortMaterializationServiceBQTest extends BigQueryBaseTest {
     fieldSet.setTableQuery(tableQuery);
     MaterializeCohortResponse response =
         cohortMaterializationService.materializeCohort(
-            null, SearchRequests.allGenders(), null, 0, makeRequest(fieldSet, 1000));
+            null, SearchRequests.allGenders(), null, makeRequest(fieldSet, 1000));
     assertPersonIds(response, 102246L);
     assertThat(response.getNextPageToken()).isNull();
   }
@@ -489,7 +491,7 @@ public class CohortMaterializationServiceBQTest extends BigQueryBaseTest {
     fieldSet.setTableQuery(tableQuery);
     MaterializeCohortResponse response =
         cohortMaterializationService.materializeCohort(
-            null, SearchRequests.allGenders(), null, 0, makeRequest(fieldSet, 1000));
+            null, SearchRequests.allGenders(), null, makeRequest(fieldSet, 1000));
     assertPersonIds(response, 2L, 102246L);
     assertThat(response.getNextPageToken()).isNull();
   }
@@ -508,7 +510,7 @@ public class CohortMaterializationServiceBQTest extends BigQueryBaseTest {
     fieldSet.setTableQuery(tableQuery);
     MaterializeCohortResponse response =
         cohortMaterializationService.materializeCohort(
-            null, SearchRequests.allGenders(), null, 0, makeRequest(fieldSet, 1000));
+            null, SearchRequests.allGenders(), null, makeRequest(fieldSet, 1000));
     assertPersonIds(response, 1L);
     assertThat(response.getNextPageToken()).isNull();
   }
@@ -527,7 +529,7 @@ public class CohortMaterializationServiceBQTest extends BigQueryBaseTest {
     fieldSet.setTableQuery(tableQuery);
     MaterializeCohortResponse response =
         cohortMaterializationService.materializeCohort(
-            null, SearchRequests.allGenders(), null, 0, makeRequest(fieldSet, 1000));
+            null, SearchRequests.allGenders(), null, makeRequest(fieldSet, 1000));
     assertPersonIds(response, 1L, 2L);
     assertThat(response.getNextPageToken()).isNull();
   }
@@ -546,7 +548,7 @@ public class CohortMaterializationServiceBQTest extends BigQueryBaseTest {
     fieldSet.setTableQuery(tableQuery);
     MaterializeCohortResponse response =
         cohortMaterializationService.materializeCohort(
-            null, SearchRequests.allGenders(), null, 0, makeRequest(fieldSet, 1000));
+            null, SearchRequests.allGenders(), null, makeRequest(fieldSet, 1000));
     assertPersonIds(response, 1L, 102246L);
     assertThat(response.getNextPageToken()).isNull();
   }
@@ -565,7 +567,7 @@ public class CohortMaterializationServiceBQTest extends BigQueryBaseTest {
     fieldSet.setTableQuery(tableQuery);
     MaterializeCohortResponse response =
         cohortMaterializationService.materializeCohort(
-            null, SearchRequests.allGenders(), null, 0, makeRequest(fieldSet, 1000));
+            null, SearchRequests.allGenders(), null, makeRequest(fieldSet, 1000));
     assertPersonIds(response, 1L, 2L);
     assertThat(response.getNextPageToken()).isNull();
   }
@@ -583,7 +585,7 @@ public class CohortMaterializationServiceBQTest extends BigQueryBaseTest {
     fieldSet.setTableQuery(tableQuery);
     MaterializeCohortResponse response =
         cohortMaterializationService.materializeCohort(
-            null, SearchRequests.allGenders(), null, 0, makeRequest(fieldSet, 1000));
+            null, SearchRequests.allGenders(), null, makeRequest(fieldSet, 1000));
     assertPersonIds(response, 1L, 2L, 102246L);
     assertThat(response.getNextPageToken()).isNull();
   }
@@ -601,7 +603,7 @@ public class CohortMaterializationServiceBQTest extends BigQueryBaseTest {
     fieldSet.setTableQuery(tableQuery);
     MaterializeCohortResponse response =
         cohortMaterializationService.materializeCohort(
-            null, SearchRequests.allGenders(), null, 0, makeRequest(fieldSet, 1000));
+            null, SearchRequests.allGenders(), null, makeRequest(fieldSet, 1000));
     assertPersonIds(response, 1L, 2L);
     assertThat(response.getNextPageToken()).isNull();
   }
@@ -620,7 +622,7 @@ public class CohortMaterializationServiceBQTest extends BigQueryBaseTest {
     fieldSet.setTableQuery(tableQuery);
     MaterializeCohortResponse response =
         cohortMaterializationService.materializeCohort(
-            null, SearchRequests.allGenders(), null, 0, makeRequest(fieldSet, 1000));
+            null, SearchRequests.allGenders(), null, makeRequest(fieldSet, 1000));
     assertPersonIds(response, 1L, 2L);
     assertThat(response.getNextPageToken()).isNull();
   }
@@ -639,7 +641,7 @@ public class CohortMaterializationServiceBQTest extends BigQueryBaseTest {
     fieldSet.setTableQuery(tableQuery);
     MaterializeCohortResponse response =
         cohortMaterializationService.materializeCohort(
-            null, SearchRequests.allGenders(), null, 0, makeRequest(fieldSet, 1000));
+            null, SearchRequests.allGenders(), null, makeRequest(fieldSet, 1000));
     assertPersonIds(response);
     assertThat(response.getNextPageToken()).isNull();
   }
@@ -658,7 +660,7 @@ public class CohortMaterializationServiceBQTest extends BigQueryBaseTest {
     fieldSet.setTableQuery(tableQuery);
     MaterializeCohortResponse response =
         cohortMaterializationService.materializeCohort(
-            null, SearchRequests.allGenders(), null, 0, makeRequest(fieldSet, 1000));
+            null, SearchRequests.allGenders(), null, makeRequest(fieldSet, 1000));
     assertPersonIds(response, 102246L);
     assertThat(response.getNextPageToken()).isNull();
   }
@@ -677,7 +679,7 @@ public class CohortMaterializationServiceBQTest extends BigQueryBaseTest {
     fieldSet.setTableQuery(tableQuery);
     MaterializeCohortResponse response =
         cohortMaterializationService.materializeCohort(
-            null, SearchRequests.allGenders(), null, 0, makeRequest(fieldSet, 1000));
+            null, SearchRequests.allGenders(), null, makeRequest(fieldSet, 1000));
     assertPersonIds(response);
     assertThat(response.getNextPageToken()).isNull();
   }
@@ -696,7 +698,7 @@ public class CohortMaterializationServiceBQTest extends BigQueryBaseTest {
     fieldSet.setTableQuery(tableQuery);
     MaterializeCohortResponse response =
         cohortMaterializationService.materializeCohort(
-            null, SearchRequests.allGenders(), null, 0, makeRequest(fieldSet, 1000));
+            null, SearchRequests.allGenders(), null, makeRequest(fieldSet, 1000));
     assertPersonIds(response, 1L, 2L);
     assertThat(response.getNextPageToken()).isNull();
   }
@@ -711,7 +713,7 @@ public class CohortMaterializationServiceBQTest extends BigQueryBaseTest {
     fieldSet.setTableQuery(tableQuery);
     MaterializeCohortResponse response =
         cohortMaterializationService.materializeCohort(
-            null, SearchRequests.allGenders(), null, 0, makeRequest(fieldSet, 1000));
+            null, SearchRequests.allGenders(), null, makeRequest(fieldSet, 1000));
     ImmutableMap<String, Object> p1Map =
         ImmutableMap.of("person_id", 1L, "gender_concept_id", 8507L);
     ImmutableMap<String, Object> p2Map = ImmutableMap.of("person_id", 2L, "gender_concept_id", 2L);
@@ -731,7 +733,7 @@ public class CohortMaterializationServiceBQTest extends BigQueryBaseTest {
     fieldSet.setTableQuery(tableQuery);
     MaterializeCohortResponse response =
         cohortMaterializationService.materializeCohort(
-            null, SearchRequests.allGenders(), null, 0, makeRequest(fieldSet, 1000));
+            null, SearchRequests.allGenders(), null, makeRequest(fieldSet, 1000));
     ImmutableMap<String, Object> p1Map =
         ImmutableMap.of("person_id", 1L, "gender_concept_id", 8507L);
     ImmutableMap<String, Object> p2Map = ImmutableMap.of("person_id", 2L, "gender_concept_id", 2L);
@@ -755,7 +757,7 @@ public class CohortMaterializationServiceBQTest extends BigQueryBaseTest {
     fieldSet.setTableQuery(tableQuery);
     MaterializeCohortResponse response =
         cohortMaterializationService.materializeCohort(
-            null, SearchRequests.allGenders(), null, 0, makeRequest(fieldSet, 1000));
+            null, SearchRequests.allGenders(), null, makeRequest(fieldSet, 1000));
     assertPersonIds(response, 1L, 2L, 102246L);
     assertThat(response.getNextPageToken()).isNull();
   }
@@ -774,7 +776,7 @@ public class CohortMaterializationServiceBQTest extends BigQueryBaseTest {
     fieldSet.setTableQuery(tableQuery);
     MaterializeCohortResponse response =
         cohortMaterializationService.materializeCohort(
-            null, SearchRequests.allGenders(), null, 0, makeRequest(fieldSet, 1000));
+            null, SearchRequests.allGenders(), null, makeRequest(fieldSet, 1000));
     assertPersonIds(response);
     assertThat(response.getNextPageToken()).isNull();
   }
@@ -793,7 +795,7 @@ public class CohortMaterializationServiceBQTest extends BigQueryBaseTest {
     fieldSet.setTableQuery(tableQuery);
     MaterializeCohortResponse response =
         cohortMaterializationService.materializeCohort(
-            null, SearchRequests.allGenders(), null, 0, makeRequest(fieldSet, 1000));
+            null, SearchRequests.allGenders(), null, makeRequest(fieldSet, 1000));
     assertPersonIds(response, 1L, 2L, 102246L);
     assertThat(response.getNextPageToken()).isNull();
   }
@@ -811,7 +813,7 @@ public class CohortMaterializationServiceBQTest extends BigQueryBaseTest {
     fieldSet.setTableQuery(tableQuery);
     MaterializeCohortResponse response =
         cohortMaterializationService.materializeCohort(
-            null, SearchRequests.allGenders(), null, 0, makeRequest(fieldSet, 1000));
+            null, SearchRequests.allGenders(), null, makeRequest(fieldSet, 1000));
     assertPersonIds(response);
     assertThat(response.getNextPageToken()).isNull();
   }
@@ -832,7 +834,7 @@ public class CohortMaterializationServiceBQTest extends BigQueryBaseTest {
     fieldSet.setTableQuery(tableQuery);
     MaterializeCohortResponse response =
         cohortMaterializationService.materializeCohort(
-            null, SearchRequests.allGenders(), null, 0, makeRequest(fieldSet, 1000));
+            null, SearchRequests.allGenders(), null, makeRequest(fieldSet, 1000));
     assertPersonIds(response, 2L);
     assertThat(response.getNextPageToken()).isNull();
   }
@@ -853,7 +855,7 @@ public class CohortMaterializationServiceBQTest extends BigQueryBaseTest {
     fieldSet.setTableQuery(tableQuery);
     MaterializeCohortResponse response =
         cohortMaterializationService.materializeCohort(
-            null, SearchRequests.allGenders(), null, 0, makeRequest(fieldSet, 1000));
+            null, SearchRequests.allGenders(), null, makeRequest(fieldSet, 1000));
     assertPersonIds(response, 1L, 2L, 102246L);
     assertThat(response.getNextPageToken()).isNull();
   }
@@ -882,7 +884,7 @@ public class CohortMaterializationServiceBQTest extends BigQueryBaseTest {
     fieldSet.setTableQuery(tableQuery);
     MaterializeCohortResponse response =
         cohortMaterializationService.materializeCohort(
-            null, SearchRequests.allGenders(), null, 0, makeRequest(fieldSet, 1000));
+            null, SearchRequests.allGenders(), null, makeRequest(fieldSet, 1000));
     assertPersonIds(response, 1L, 2L);
     assertThat(response.getNextPageToken()).isNull();
   }
@@ -895,7 +897,7 @@ public class CohortMaterializationServiceBQTest extends BigQueryBaseTest {
     fieldSet.setTableQuery(tableQuery);
     MaterializeCohortResponse response =
         cohortMaterializationService.materializeCohort(
-            null, SearchRequests.males(), null, 0, makeRequest(fieldSet, 1000));
+            null, SearchRequests.males(), null, makeRequest(fieldSet, 1000));
     ImmutableMap<String, Object> p1Map =
         ImmutableMap.<String, Object>builder()
             .put("person_id", 1L)
@@ -928,7 +930,7 @@ public class CohortMaterializationServiceBQTest extends BigQueryBaseTest {
     fieldSet.setTableQuery(tableQuery);
     MaterializeCohortResponse response =
         cohortMaterializationService.materializeCohort(
-            null, SearchRequests.males(), null, 0, makeRequest(fieldSet, 1000));
+            null, SearchRequests.males(), null, makeRequest(fieldSet, 1000));
     ImmutableMap<String, Object> p1Map =
         ImmutableMap.<String, Object>builder()
             .put("observation_id", 5L)
@@ -961,7 +963,7 @@ public class CohortMaterializationServiceBQTest extends BigQueryBaseTest {
     fieldSet.setTableQuery(tableQuery);
     MaterializeCohortResponse response =
         cohortMaterializationService.materializeCohort(
-            null, SearchRequests.females(), null, 0, makeRequest(fieldSet, 1000));
+            null, SearchRequests.females(), null, makeRequest(fieldSet, 1000));
     assertResults(response);
     assertThat(response.getNextPageToken()).isNull();
   }
@@ -979,7 +981,7 @@ public class CohortMaterializationServiceBQTest extends BigQueryBaseTest {
     fieldSet.setTableQuery(tableQuery);
     MaterializeCohortResponse response =
         cohortMaterializationService.materializeCohort(
-            null, SearchRequests.males(), null, 0, makeRequest(fieldSet, 1000));
+            null, SearchRequests.males(), null, makeRequest(fieldSet, 1000));
     assertResults(response, ImmutableMap.of("observation_id", 5L));
     assertThat(response.getNextPageToken()).isNull();
   }
@@ -997,7 +999,7 @@ public class CohortMaterializationServiceBQTest extends BigQueryBaseTest {
     fieldSet.setTableQuery(tableQuery);
     MaterializeCohortResponse response =
         cohortMaterializationService.materializeCohort(
-            null, SearchRequests.males(), null, 0, makeRequest(fieldSet, 1000));
+            null, SearchRequests.males(), null, makeRequest(fieldSet, 1000));
     assertResults(response);
     assertThat(response.getNextPageToken()).isNull();
   }
@@ -1016,7 +1018,7 @@ public class CohortMaterializationServiceBQTest extends BigQueryBaseTest {
     fieldSet.setTableQuery(tableQuery);
     MaterializeCohortResponse response =
         cohortMaterializationService.materializeCohort(
-            null, SearchRequests.males(), null, 0, makeRequest(fieldSet, 1000));
+            null, SearchRequests.males(), null, makeRequest(fieldSet, 1000));
     assertResults(response, ImmutableMap.of("observation_id", 5L));
     assertThat(response.getNextPageToken()).isNull();
   }
@@ -1035,7 +1037,7 @@ public class CohortMaterializationServiceBQTest extends BigQueryBaseTest {
     fieldSet.setTableQuery(tableQuery);
     MaterializeCohortResponse response =
         cohortMaterializationService.materializeCohort(
-            null, SearchRequests.males(), null, 0, makeRequest(fieldSet, 1000));
+            null, SearchRequests.males(), null, makeRequest(fieldSet, 1000));
     assertResults(response, ImmutableMap.of("observation_id", 5L));
     assertThat(response.getNextPageToken()).isNull();
   }
@@ -1054,7 +1056,7 @@ public class CohortMaterializationServiceBQTest extends BigQueryBaseTest {
     fieldSet.setTableQuery(tableQuery);
     MaterializeCohortResponse response =
         cohortMaterializationService.materializeCohort(
-            null, SearchRequests.males(), null, 0, makeRequest(fieldSet, 1000));
+            null, SearchRequests.males(), null, makeRequest(fieldSet, 1000));
     assertResults(response, ImmutableMap.of("observation_id", 5L));
     assertThat(response.getNextPageToken()).isNull();
   }
@@ -1073,7 +1075,7 @@ public class CohortMaterializationServiceBQTest extends BigQueryBaseTest {
     fieldSet.setTableQuery(tableQuery);
     MaterializeCohortResponse response =
         cohortMaterializationService.materializeCohort(
-            null, SearchRequests.males(), null, 0, makeRequest(fieldSet, 1000));
+            null, SearchRequests.males(), null, makeRequest(fieldSet, 1000));
     assertResults(response, ImmutableMap.of("observation_id", 5L));
     assertThat(response.getNextPageToken()).isNull();
   }
@@ -1091,7 +1093,7 @@ public class CohortMaterializationServiceBQTest extends BigQueryBaseTest {
     fieldSet.setTableQuery(tableQuery);
     MaterializeCohortResponse response =
         cohortMaterializationService.materializeCohort(
-            null, SearchRequests.males(), null, 0, makeRequest(fieldSet, 1000));
+            null, SearchRequests.males(), null, makeRequest(fieldSet, 1000));
     assertResults(response, ImmutableMap.of("observation_id", 5L));
     assertThat(response.getNextPageToken()).isNull();
   }
@@ -1109,7 +1111,7 @@ public class CohortMaterializationServiceBQTest extends BigQueryBaseTest {
     fieldSet.setTableQuery(tableQuery);
     MaterializeCohortResponse response =
         cohortMaterializationService.materializeCohort(
-            null, SearchRequests.males(), null, 0, makeRequest(fieldSet, 1000));
+            null, SearchRequests.males(), null, makeRequest(fieldSet, 1000));
     assertResults(response);
     assertThat(response.getNextPageToken()).isNull();
   }
@@ -1128,7 +1130,7 @@ public class CohortMaterializationServiceBQTest extends BigQueryBaseTest {
     fieldSet.setTableQuery(tableQuery);
     MaterializeCohortResponse response =
         cohortMaterializationService.materializeCohort(
-            null, SearchRequests.males(), null, 0, makeRequest(fieldSet, 1000));
+            null, SearchRequests.males(), null, makeRequest(fieldSet, 1000));
     assertResults(response, ImmutableMap.of("observation_id", 5L));
     assertThat(response.getNextPageToken()).isNull();
   }
@@ -1147,7 +1149,7 @@ public class CohortMaterializationServiceBQTest extends BigQueryBaseTest {
     fieldSet.setTableQuery(tableQuery);
     MaterializeCohortResponse response =
         cohortMaterializationService.materializeCohort(
-            null, SearchRequests.males(), null, 0, makeRequest(fieldSet, 1000));
+            null, SearchRequests.males(), null, makeRequest(fieldSet, 1000));
     assertResults(response, ImmutableMap.of("observation_id", 5L));
     assertThat(response.getNextPageToken()).isNull();
   }
@@ -1166,7 +1168,7 @@ public class CohortMaterializationServiceBQTest extends BigQueryBaseTest {
     fieldSet.setTableQuery(tableQuery);
     MaterializeCohortResponse response =
         cohortMaterializationService.materializeCohort(
-            null, SearchRequests.males(), null, 0, makeRequest(fieldSet, 1000));
+            null, SearchRequests.males(), null, makeRequest(fieldSet, 1000));
     assertResults(response, ImmutableMap.of("observation_id", 5L));
     assertThat(response.getNextPageToken()).isNull();
   }
@@ -1185,7 +1187,7 @@ public class CohortMaterializationServiceBQTest extends BigQueryBaseTest {
     fieldSet.setTableQuery(tableQuery);
     MaterializeCohortResponse response =
         cohortMaterializationService.materializeCohort(
-            null, SearchRequests.males(), null, 0, makeRequest(fieldSet, 1000));
+            null, SearchRequests.males(), null, makeRequest(fieldSet, 1000));
     assertResults(response, ImmutableMap.of("observation_id", 5L));
     assertThat(response.getNextPageToken()).isNull();
   }
@@ -1214,7 +1216,7 @@ public class CohortMaterializationServiceBQTest extends BigQueryBaseTest {
     fieldSet.setTableQuery(tableQuery);
     MaterializeCohortResponse response =
         cohortMaterializationService.materializeCohort(
-            null, SearchRequests.allGenders(), null, 0, makeRequest(fieldSet, 1000));
+            null, SearchRequests.allGenders(), null, makeRequest(fieldSet, 1000));
     ImmutableMap<String, Object> p1Map =
         ImmutableMap.<String, Object>builder()
             .put("person_id", 1L)
@@ -1267,7 +1269,7 @@ public class CohortMaterializationServiceBQTest extends BigQueryBaseTest {
     fieldSet.setTableQuery(tableQuery);
     MaterializeCohortResponse response =
         cohortMaterializationService.materializeCohort(
-            null, SearchRequests.allGenders(), null, 0, makeRequest(fieldSet, 1000));
+            null, SearchRequests.allGenders(), null, makeRequest(fieldSet, 1000));
     ImmutableMap<String, Object> p1Map =
         ImmutableMap.<String, Object>builder()
             .put("person_id", 1L)
@@ -1319,7 +1321,7 @@ public class CohortMaterializationServiceBQTest extends BigQueryBaseTest {
     fieldSet.setTableQuery(tableQuery);
     MaterializeCohortResponse response =
         cohortMaterializationService.materializeCohort(
-            null, SearchRequests.allGenders(), null, 0, makeRequest(fieldSet, 1000));
+            null, SearchRequests.allGenders(), null, makeRequest(fieldSet, 1000));
     ImmutableMap<String, Object> p1Map =
         ImmutableMap.<String, Object>builder()
             .put("person_id", 1L)
@@ -1369,7 +1371,7 @@ public class CohortMaterializationServiceBQTest extends BigQueryBaseTest {
     fieldSet.setTableQuery(tableQuery);
     MaterializeCohortResponse response =
         cohortMaterializationService.materializeCohort(
-            null, SearchRequests.allGenders(), null, 0, makeRequest(fieldSet, 1000));
+            null, SearchRequests.allGenders(), null, makeRequest(fieldSet, 1000));
     ImmutableMap<String, Object> p1Map =
         ImmutableMap.<String, Object>builder()
             .put("person_id", 1L)
@@ -1420,7 +1422,7 @@ public class CohortMaterializationServiceBQTest extends BigQueryBaseTest {
     fieldSet.setTableQuery(tableQuery);
     MaterializeCohortResponse response =
         cohortMaterializationService.materializeCohort(
-            null, SearchRequests.allGenders(), null, 0, makeRequest(fieldSet, 1000));
+            null, SearchRequests.allGenders(), null, makeRequest(fieldSet, 1000));
     ImmutableMap<String, Object> p1Map =
         ImmutableMap.<String, Object>builder()
             .put("person_id", 1L)
@@ -1460,7 +1462,7 @@ public class CohortMaterializationServiceBQTest extends BigQueryBaseTest {
     fieldSet.setTableQuery(tableQuery);
     MaterializeCohortResponse response =
         cohortMaterializationService.materializeCohort(
-            null, SearchRequests.allGenders(), null, 0, makeRequest(fieldSet, 1000));
+            null, SearchRequests.allGenders(), null, makeRequest(fieldSet, 1000));
     assertPersonIds(response, 102246L);
     assertThat(response.getNextPageToken()).isNull();
   }
@@ -1476,7 +1478,7 @@ public class CohortMaterializationServiceBQTest extends BigQueryBaseTest {
     fieldSet.setTableQuery(tableQuery);
     MaterializeCohortResponse response =
         cohortMaterializationService.materializeCohort(
-            null, SearchRequests.allGenders(), null, 0, makeRequest(fieldSet, 1000));
+            null, SearchRequests.allGenders(), null, makeRequest(fieldSet, 1000));
     assertPersonIds(response, 102246L, 1L, 2L);
     assertThat(response.getNextPageToken()).isNull();
   }
@@ -1496,7 +1498,6 @@ public class CohortMaterializationServiceBQTest extends BigQueryBaseTest {
               null,
               SearchRequests.allGenders(),
               ImmutableSet.of(123456L),
-              0,
               makeRequest(fieldSet, 1000));
         });
   }
@@ -1512,7 +1513,7 @@ public class CohortMaterializationServiceBQTest extends BigQueryBaseTest {
     fieldSet.setTableQuery(tableQuery);
     MaterializeCohortResponse response =
         cohortMaterializationService.materializeCohort(
-            null, SearchRequests.allGenders(), ImmutableSet.of(2L), 0, makeRequest(fieldSet, 1000));
+            null, SearchRequests.allGenders(), ImmutableSet.of(2L), makeRequest(fieldSet, 1000));
     assertResults(response);
     assertThat(response.getNextPageToken()).isNull();
   }
@@ -1531,7 +1532,6 @@ public class CohortMaterializationServiceBQTest extends BigQueryBaseTest {
             null,
             SearchRequests.allGenders(),
             ImmutableSet.of(192819L),
-            0,
             makeRequest(fieldSet, 1000));
     assertConditionOccurrenceIds(response, 12751439L, 12751440L);
     assertThat(response.getNextPageToken()).isNull();
@@ -1561,11 +1561,7 @@ public class CohortMaterializationServiceBQTest extends BigQueryBaseTest {
     FieldSet fieldSet = new FieldSet();
     fieldSet.setTableQuery(tableQuery);
     return cohortMaterializationService.materializeCohort(
-        null,
-        SearchRequests.allGenders(),
-        ImmutableSet.of(44829697L),
-        0,
-        makeRequest(fieldSet, 1000));
+        null, SearchRequests.allGenders(), ImmutableSet.of(44829697L), makeRequest(fieldSet, 1000));
   }
 
   @Test
@@ -1581,7 +1577,6 @@ public class CohortMaterializationServiceBQTest extends BigQueryBaseTest {
             null,
             SearchRequests.allGenders(),
             ImmutableSet.of(192819L),
-            0,
             makeRequest(fieldSet, 1000));
     assertResults(response);
     assertThat(response.getNextPageToken()).isNull();
@@ -1606,7 +1601,6 @@ public class CohortMaterializationServiceBQTest extends BigQueryBaseTest {
             null,
             SearchRequests.allGenders(),
             ImmutableSet.of(1L, 6L, 7L, 192819L, 44829697L, 12345L),
-            0,
             request);
     assertConditionOccurrenceIds(response, 1L, 6L, 7L, 12751439L);
     assertThat(response.getNextPageToken()).isNotNull();
@@ -1616,7 +1610,6 @@ public class CohortMaterializationServiceBQTest extends BigQueryBaseTest {
             null,
             SearchRequests.allGenders(),
             ImmutableSet.of(1L, 6L, 7L, 192819L, 44829697L, 12345L),
-            0,
             request);
     assertConditionOccurrenceIds(response2, 12751440L);
     assertThat(response2.getNextPageToken()).isNull();
@@ -41,6 +41,15 @@ public interface AccessTierService {
    */
   void removeUserFromTier(DbUser user, DbAccessTier accessTier);
 
+  /**
+   * Bring each tier's Terra auth domain in line with the tier memberships in the database: users
+   * whose membership is ENABLED are added to the auth domain if missing, and users whose membership
+   * is DISABLED are removed from it if present. Each auth domain's members are fetched once, so
+   * only real changes result in further calls to Terra. Users without a membership row for a tier
+   * are left alone.
+   */
+  void reconcileAuthDomains();
+
   /**
    * Return the list of tiers a user has access to: those where a DbUserAccessTier exists with
    * status ENABLED
@@ -4,8 +4,11 @@ import java.sql.Timestamp;
 import java.time.Clock;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.stream.Collectors;
 import javax.inject.Provider;
@@ -16,7 +19,9 @@ import org.pmiops.workbench.db.model.DbAccessTier;
 import org.pmiops.workbench.db.model.DbUser;
 import org.pmiops.workbench.db.model.DbUserAccessTier;
 import org.pmiops.workbench.exceptions.ServerErrorException;
+import org.pmiops.workbench.exceptions.WorkbenchException;
 import org.pmiops.workbench.firecloud.FireCloudService;
+import org.pmiops.workbench.firecloud.model.FirecloudManagedGroupWithMembers;
 import org.pmiops.workbench.model.TierAccessStatus;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
@@ -149,6 +154,48 @@ public class AccessTierServiceImpl implements AccessTierService {
     }
   }
 
+  @Override
+  public void reconcileAuthDomains() {
+    for (DbAccessTier accessTier : getAllTiers()) {
+      final String authDomainName = accessTier.getAuthDomainName();
+      final FirecloudManagedGroupWithMembers group = fireCloudService.getGroup(authDomainName);
+      final Set<String> groupEmails = new HashSet<>(group.getMembersEmails());
+      groupEmails.addAll(group.getAdminsEmails());
+
+      int addedCount = 0;
+      int removedCount = 0;
+      int errorCount = 0;
+      for (DbUserAccessTier membership : userAccessTierDao.getAllByAccessTier(accessTier)) {
+        final String username = membership.getUser().getUsername();
+        final boolean enabled = membership.getTierAccessStatusEnum() == TierAccessStatus.ENABLED;
+        if (enabled == groupEmails.contains(username)) {
+          continue;
+        }
+        try {
+          if (enabled) {
+            fireCloudService.addUserToGroup(username, authDomainName);
+            addedCount++;
+          } else {
+            fireCloudService.removeUserFromGroup(username, authDomainName);
+            removedCount++;
+          }
+        } catch (WorkbenchException e) {
+          errorCount++;
+          log.log(
+              Level.SEVERE,
+              String.format(
+                  "Error reconciling user %s with auth domain for tier '%s'",
+                  username, accessTier.getShortName()),
+              e);
+        }
+      }
+      log.info(
+          String.format(
+              "Reconciled auth domain for tier '%s': added %d users, removed %d users, %d errors",
+              accessTier.getShortName(), addedCount, removedCount, errorCount));
+    }
+  }
+
   /**
    * Return the list of tiers a user has access to: those where a DbUserAccessTier exists with
    * status ENABLED
@@ -0,0 +1,319 @@
+package org.pmiops.workbench.access;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.util.concurrent.RateLimiter;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+import javax.annotation.PreDestroy;
+import javax.inject.Provider;
+import javax.servlet.http.HttpServletResponse;
+import org.pmiops.workbench.config.WorkbenchConfig;
+import org.pmiops.workbench.db.dao.UserDao;
+import org.pmiops.workbench.db.model.DbUser;
+import org.pmiops.workbench.exceptions.ServerErrorException;
+import org.pmiops.workbench.model.AccessModule;
+import org.pmiops.workbench.monitoring.GaugeDataCollector;
+import org.pmiops.workbench.monitoring.MeasurementBundle;
+import org.pmiops.workbench.monitoring.labels.MetricLabel;
+import org.pmiops.workbench.monitoring.views.GaugeMetric;
+import org.pmiops.workbench.utils.RequestScopeSnapshot;
+import org.pmiops.workbench.utils.ResponseCodeRetryPolicy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.retry.backoff.BackOffPolicy;
+import org.springframework.retry.support.RetryTemplate;
+import org.springframework.stereotype.Service;
+
+/**
+ * Syncs one access module for many users at once, e.g. from a cron job. Users are synced
+ * concurrently on a small bounded pool, calls to each upstream service are rate limited across
+ * all runs, and transient upstream failures are retried with jittered exponential backoff. One
+ * user's failure never stops the others from being synced.
+ *
+ * <p>Each user is loaded on the thread which syncs them, rather than handed over from the request
+ * thread's persistence context, and each sync runs in a request scope of its own (see {@link
+ * RequestScopeSnapshot}).
+ *
+ * <p>The totals from the last run for each module are logged and reported as gauges.
+ */
+@Service
+public class BulkAccessModuleSyncService implements GaugeDataCollector {
+
+  private static final Logger log = Logger.getLogger(BulkAccessModuleSyncService.class.getName());
+
+  private static final int SYNC_THREADS = 8;
+  private static final int SYNC_QUEUE_SIZE = 32;
+  private static final int MAX_ATTEMPTS = 3;
+
+  /** A service the syncs call, with the configured rate of calls we allow ourselves to make. */
+  public enum Upstream {
+    MOODLE(config -> config.offlineBatch.moodleSyncRequestsPerSecond),
+    TERRA(config -> config.offlineBatch.terraSyncRequestsPerSecond);
+
+    private final Function<WorkbenchConfig, Double> requestsPerSecond;
+
+    Upstream(Function<WorkbenchConfig, Double> requestsPerSecond) {
+      this.requestsPerSecond = requestsPerSecond;
+    }
+  }
+
+  /** What syncing one user amounted to. */
+  public enum Outcome {
+    CHANGED,
+    UNCHANGED,
+    // The user could not be synced, e.g. because they have never signed in.
+    SKIPPED,
+    FAILED
+  }
+
+  /** Waits for permission to make one call to the upstream service. */
+  @FunctionalInterface
+  public interface UpstreamLimiter {
+    void acquire();
+  }
+
+  /**
+   * Syncs a single user, returning whether anything changed. The limiter must be acquired right
+   * before each call to the upstream service, and not at all when no call is made.
+   *
+   * <p>Only failures of the upstream service itself are retried, which the upstream clients throw
+   * before anything is modified. Anything failing once the user has been modified, e.g. while
+   * saving them or updating their access tiers, fails the user outright, as the modified user can't
+   * be synced again safely.
+   */
+  @FunctionalInterface
+  public interface UserSync {
+    Outcome sync(DbUser user, UpstreamLimiter upstreamLimiter) throws Exception;
+  }
+
+  /** The number of users synced by a run, by outcome. */
+  public static class Summary {
+    private final Map<Outcome, AtomicInteger> counts = new EnumMap<>(Outcome.class);
+
+    private Summary() {
+      for (Outcome outcome : Outcome.values()) {
+        counts.put(outcome, new AtomicInteger());
+      }
+    }
+
+    private void add(Outcome outcome) {
+      counts.get(outcome).incrementAndGet();
+    }
+
+    public int getCount(Outcome outcome) {
+      return counts.get(outcome).get();
+    }
+
+    public int getUserCount() {
+      return counts.values().stream().mapToInt(AtomicInteger::get).sum();
+    }
+
+    @Override
+    public String toString() {
+      return String.format(
+          "checked %d users: %d changed, %d unchanged, %d skipped, %d failed",
+          getUserCount(),
+          getCount(Outcome.CHANGED),
+          getCount(Outcome.UNCHANGED),
+          getCount(Outcome.SKIPPED),
+          getCount(Outcome.FAILED));
+    }
+  }
+
+  /**
+   * Retries server errors from the upstream clients, and failures to fetch credentials. Workbench
+   * exceptions are never retried: calls through our own services have been retried already, and
+   * may have failed after the user was modified.
+   */
+  private static class SyncRetryPolicy extends ResponseCodeRetryPolicy {
+
+    public SyncRetryPolicy() {
+      super("Access module sync");
+      setMaxAttempts(MAX_ATTEMPTS);
+    }
+
+    @Override
+    protected int getResponseCode(Throwable lastException) {
+      if (lastException instanceof org.pmiops.workbench.moodle.ApiException) {
+        return ((org.pmiops.workbench.moodle.ApiException) lastException).getCode();
+      }
+      if (lastException instanceof org.pmiops.workbench.firecloud.ApiException) {
+        return ((org.pmiops.workbench.firecloud.ApiException) lastException).getCode();
+      }
+      if (lastException instanceof IOException) {
+        return HttpServletResponse.SC_SERVICE_UNAVAILABLE;
+      }
+      return HttpServletResponse.SC_BAD_REQUEST;
+    }
+
+    @Override
+    protected void logNoRetry(Throwable t, int responseCode) {
+      // The failure is logged once the sync gives up on the user.
+    }
+  }
+
+  private final ExecutorService syncExecutor;
+  private final RetryTemplate retryTemplate;
+  private final Provider<WorkbenchConfig> workbenchConfigProvider;
+  private final UserDao userDao;
+  private final Map<Upstream, RateLimiter> rateLimiters = new EnumMap<>(Upstream.class);
+  private final Map<AccessModule, Summary> lastSummaries = new ConcurrentHashMap<>();
+
+  @Autowired
+  public BulkAccessModuleSyncService(
+      BackOffPolicy backOffPolicy,
+      Provider<WorkbenchConfig> workbenchConfigProvider,
+      UserDao userDao) {
+    this(
+        // When the queue is full the request thread syncs the user itself, which bounds the
+        // number of outstanding syncs.
+        new ThreadPoolExecutor(
+            SYNC_THREADS,
+            SYNC_THREADS,
+            0L,
+            TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(SYNC_QUEUE_SIZE),
+            new ThreadFactoryBuilder()
+                .setNameFormat("access-module-sync-%d")
+                .setDaemon(true)
+                .build(),
+            new ThreadPoolExecutor.CallerRunsPolicy()),
+        backOffPolicy,
+        workbenchConfigProvider,
+        userDao);
+  }
+
+  @VisibleForTesting
+  public BulkAccessModuleSyncService(
+      ExecutorService syncExecutor,
+      BackOffPolicy backOffPolicy,
+      Provider<WorkbenchConfig> workbenchConfigProvider,
+      UserDao userDao) {
+    this.syncExecutor = syncExecutor;
+    this.workbenchConfigProvider = workbenchConfigProvider;
+    this.userDao = userDao;
+    for (Upstream upstream : Upstream.values()) {
+      // The configured rate is applied at the start of each run.
+      rateLimiters.put(upstream, RateLimiter.create(1));
+    }
+    this.retryTemplate = new RetryTemplate();
+    retryTemplate.setBackOffPolicy(backOffPolicy);
+    retryTemplate.setRetryPolicy(new SyncRetryPolicy());
+    retryTemplate.setThrowLastExceptionOnExhausted(true);
+  }
+
+  @PreDestroy
+  void shutdown() {
+    syncExecutor.shutdownNow();
+  }
+
+  /**
+   * Syncs the module for each of the users, and returns once all of them have been synced. Calls
+   * the syncs make to the upstream service are limited to its configured rate. Users who no
+   * longer exist by the time they are synced are skipped.
+   */
+  public Summary syncAll(
+      AccessModule module, Upstream upstream, Collection<Long> userIds, UserSync userSync) {
+    final RateLimiter rateLimiter = rateLimiters.get(upstream);
+    rateLimiter.setRate(upstream.requestsPerSecond.apply(workbenchConfigProvider.get()));
+    return syncAll(module, rateLimiter::acquire, userIds, userSync);
+  }
+
+  /**
+   * Syncs the module for each of the users without limiting their calls, for syncs which make no
+   * calls per user, e.g. because the upstream data was fetched in bulk.
+   */
+  public Summary syncAll(AccessModule module, Collection<Long> userIds, UserSync userSync) {
+    return syncAll(module, () -> {}, userIds, userSync);
+  }
+
+  private Summary syncAll(
+      AccessModule module,
+      UpstreamLimiter upstreamLimiter,
+      Collection<Long> userIds,
+      UserSync userSync) {
+    // The syncs read request scoped configuration, e.g. through UserService. It is resolved once,
+    // before fanning out, so that every sync sees this same configuration through the snapshot.
+    workbenchConfigProvider.get();
+    final RequestScopeSnapshot requestScope = RequestScopeSnapshot.capture();
+    final Summary summary = new Summary();
+
+    final List<Future<?>> futures = new ArrayList<>(userIds.size());
+    for (long userId : userIds) {
+      futures.add(
+          syncExecutor.submit(
+              requestScope.wrap(
+                  () -> {
+                    summary.add(syncUser(module, upstreamLimiter, userId, userSync));
+                    return null;
+                  })));
+    }
+    for (Future<?> future : futures) {
+      try {
+        future.get();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new ServerErrorException("Interrupted while syncing " + module, e);
+      } catch (ExecutionException e) {
+        throw new ServerErrorException("Failed to sync " + module, e.getCause());
+      }
+    }
+
+    lastSummaries.put(module, summary);
+    log.info(String.format("%s sync %s", module, summary));
+    return summary;
+  }
+
+  @Override
+  public Collection<MeasurementBundle> getGaugeData() {
+    return lastSummaries.entrySet().stream()
+        .flatMap(
+            e ->
+                Arrays.stream(Outcome.values())
+                    .map(
+                        outcome ->
+                            MeasurementBundle.builder()
+                                .addMeasurement(
+                                    GaugeMetric.ACCESS_MODULE_SYNC_USER_COUNT,
+                                    e.getValue().getCount(outcome))
+                                .addTag(MetricLabel.ACCESS_MODULE, e.getKey().toString())
+                                .addTag(MetricLabel.ACCESS_MODULE_SYNC_OUTCOME, outcome.toString())
+                                .build()))
+        .collect(Collectors.toList());
+  }
+
+  private Outcome syncUser(
+      AccessModule module, UpstreamLimiter upstreamLimiter, long userId, UserSync userSync) {
+    final Optional<DbUser> user = userDao.findById(userId);
+    if (!user.isPresent()) {
+      return Outcome.SKIPPED;
+    }
+    try {
+      return retryTemplate.execute(context -> userSync.sync(user.get(), upstreamLimiter));
+    } catch (Exception e) {
+      log.log(
+          Level.SEVERE,
+          String.format("Error syncing %s status for user %s", module, user.get().getUsername()),
+          e);
+      return Outcome.FAILED;
+    }
+  }
+}
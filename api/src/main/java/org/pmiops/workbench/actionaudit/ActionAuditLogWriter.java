@@ -0,0 +1,618 @@
+package org.pmiops.workbench.actionaudit;
+
+import com.google.cloud.MonitoredResource;
+import com.google.cloud.logging.LogEntry;
+import com.google.cloud.logging.Logging;
+import com.google.cloud.logging.Payload.JsonPayload;
+import com.google.cloud.logging.Severity;
+import com.google.cloud.logging.Synchronicity;
+import com.google.cloud.storage.Blob;
+import com.google.cloud.storage.BlobId;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Stopwatch;
+import com.google.common.cache.LoadingCache;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonParseException;
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import org.pmiops.workbench.config.CacheSpringConfiguration;
+import org.pmiops.workbench.exceptions.NotFoundException;
+import org.pmiops.workbench.google.CloudStorageClient;
+import org.pmiops.workbench.monitoring.GaugeDataCollector;
+import org.pmiops.workbench.monitoring.LogsBasedMetricService;
+import org.pmiops.workbench.monitoring.MeasurementBundle;
+import org.pmiops.workbench.monitoring.views.DistributionMetric;
+import org.pmiops.workbench.monitoring.views.GaugeMetric;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Service;
+
+/**
+ * Writes action audit log entries to Cloud Logging off the request thread.
+ *
+ * <p>Entries wait in a bounded in-memory buffer, and a background thread writes them in batches,
+ * either once a full batch is waiting or at a fixed interval. Each write waits for Cloud Logging to
+ * accept the batch. Entries are timestamped and given an insert ID when enqueued, so an entry which
+ * is written late keeps the time of the action it records, and one which is written twice is only
+ * stored once.
+ *
+ * <p>Entries which can't be held in memory go to a spool in GCS, which outlives the instance:
+ *
+ * <ul>
+ *   <li>a batch Cloud Logging fails to accept, after which background flushes back off;
+ *   <li>the whole buffer, written by the caller which finds it full; and
+ *   <li>anything still unwritten when the instance shuts down.
+ * </ul>
+ *
+ * Each flush first replays the spool, oldest object first, and writes nothing from the buffer
+ * until the spool is empty, so entries reach Cloud Logging in the order they were enqueued. Spooled
+ * objects are named after the enqueue time of their first entry, so any instance replays those
+ * left behind by another which went away. An entry is only lost if neither the spool nor Cloud
+ * Logging takes it, in which case it is logged in full to the server log and counted in a gauge.
+ */
+@Service
+public class ActionAuditLogWriter implements GaugeDataCollector {
+
+  private static final Logger log = Logger.getLogger(ActionAuditLogWriter.class.getName());
+
+  // Audit entries are around a kilobyte each, so a full buffer holds on to about 10MB, which an
+  // F1 instance's heap can spare.
+  private static final int BUFFER_CAPACITY = 10_000;
+  private static final int MAX_BATCH_SIZE = 200;
+  private static final long FLUSH_INTERVAL_MILLIS = TimeUnit.SECONDS.toMillis(1);
+  // Retries of a failed batch back off to at most this many flush intervals apart.
+  private static final long MAX_BACKOFF_INTERVALS = 64;
+  // How often to look for spooled entries this instance doesn't know about, such as those left by
+  // an instance which shut down before it could replay them.
+  private static final long SPOOL_SCAN_INTERVAL_MILLIS = TimeUnit.MINUTES.toMillis(5);
+  private static final String SPOOL_DIRECTORY = "spool";
+  private static final Gson GSON = new GsonBuilder().serializeNulls().create();
+
+  /** Where batches of entries are written; Cloud Logging in production. */
+  public interface Sink {
+    void write(List<LogEntry> entries);
+  }
+
+  /** Durable storage for entries which can't wait in memory; a GCS bucket in production. */
+  public interface Spool {
+    /** Lists the names of the spooled objects, in order. */
+    List<String> list();
+
+    /** Returns the object's contents, or null if it no longer exists. */
+    byte[] read(String name);
+
+    void write(String name, byte[] contents);
+
+    void delete(String name);
+  }
+
+  /** One line of a spooled object. */
+  private static class SpooledEntry {
+    private String insertId;
+    private String logName;
+    private Long timestamp;
+    private String severity;
+    private String resourceType;
+    private Map<String, String> resourceLabels;
+    private Map<String, Object> payload;
+  }
+
+  private final Sink sink;
+  private final Spool spool;
+  private final LogsBasedMetricService logsBasedMetricService;
+  private final Clock clock;
+  private final int bufferCapacity;
+  private final int maxBatchSize;
+  private final long flushIntervalMillis;
+  private final ScheduledExecutorService flusher;
+  private volatile boolean started;
+
+  // Tells this instance's spooled objects apart from another's.
+  private final String instanceId = UUID.randomUUID().toString();
+  // Guarded by buffer.
+  private final Deque<LogEntry> buffer = new ArrayDeque<>();
+  // The number of entries ever taken from the front of the buffer.
+  private long takenCount;
+  private final AtomicLong spooledCount = new AtomicLong();
+  private final AtomicLong droppedCount = new AtomicLong();
+  // Set whenever this instance spools entries; on startup, the spool may hold another's.
+  private volatile boolean spoolMayHaveEntries = true;
+  // Guarded by flushLock, which is held while flushing so that batches are written one at a time.
+  private final Object flushLock = new Object();
+  private List<LogEntry> head;
+  private long headSequence;
+  private long backoffMillis;
+  private long nextAttemptMillis;
+  private long nextSpoolScanMillis;
+  // The number of entries taken from the buffer which are still waiting to be written.
+  private volatile int heldCount;
+  private final AtomicBoolean flushRequested = new AtomicBoolean();
+
+  @Autowired
+  public ActionAuditLogWriter(
+      @Qualifier("ACTION_AUDIT_CLOUD_LOGGING") Logging cloudLogging,
+      CloudStorageClient cloudStorageClient,
+      @Qualifier("configCache") LoadingCache<String, Object> configCache,
+      LogsBasedMetricService logsBasedMetricService,
+      Clock clock) {
+    this(
+        cloudLoggingSink(cloudLogging),
+        cloudStorageSpool(cloudStorageClient, () -> getSpoolBucketName(configCache)),
+        logsBasedMetricService,
+        clock,
+        BUFFER_CAPACITY,
+        MAX_BATCH_SIZE,
+        FLUSH_INTERVAL_MILLIS);
+  }
+
+  @VisibleForTesting
+  public ActionAuditLogWriter(
+      Sink sink,
+      Spool spool,
+      LogsBasedMetricService logsBasedMetricService,
+      Clock clock,
+      int bufferCapacity,
+      int maxBatchSize,
+      long flushIntervalMillis) {
+    this.sink = sink;
+    this.spool = spool;
+    this.logsBasedMetricService = logsBasedMetricService;
+    this.clock = clock;
+    this.bufferCapacity = bufferCapacity;
+    this.maxBatchSize = maxBatchSize;
+    this.flushIntervalMillis = flushIntervalMillis;
+    this.flusher =
+        Executors.newSingleThreadScheduledExecutor(
+            new ThreadFactoryBuilder()
+                .setNameFormat("action-audit-writer")
+                .setDaemon(true)
+                .build());
+  }
+
+  /**
+   * Writes to Cloud Logging, waiting for each batch to be accepted. The client must be this
+   * writer's own: by default its writes only queue the entries to be sent, and never fail, so a
+   * batch Cloud Logging rejected would be lost rather than retried.
+   */
+  @VisibleForTesting
+  static Sink cloudLoggingSink(Logging cloudLogging) {
+    cloudLogging.setWriteSynchronicity(Synchronicity.SYNC);
+    return entries -> cloudLogging.write(entries);
+  }
+
+  /**
+   * Spools to a directory of the given bucket. The writer runs off the request thread, so the
+   * bucket's name can't come from the request-scoped config.
+   */
+  @VisibleForTesting
+  static Spool cloudStorageSpool(
+      CloudStorageClient cloudStorageClient, Supplier<String> bucketName) {
+    return new Spool() {
+      @Override
+      public List<String> list() {
+        // GCS lists objects in lexicographic order of their names.
+        return cloudStorageClient.getBlobsInDirectory(bucketName.get(), SPOOL_DIRECTORY).stream()
+            .map(Blob::getName)
+            .collect(Collectors.toList());
+      }
+
+      @Override
+      public byte[] read(String name) {
+        try {
+          return cloudStorageClient.getBlob(bucketName.get(), name).getContent();
+        } catch (NotFoundException e) {
+          return null;
+        }
+      }
+
+      @Override
+      public void write(String name, byte[] contents) {
+        cloudStorageClient.writeFile(bucketName.get(), name, contents);
+      }
+
+      @Override
+      public void delete(String name) {
+        cloudStorageClient.deleteBlob(BlobId.of(bucketName.get(), name));
+      }
+    };
+  }
+
+  private static String getSpoolBucketName(LoadingCache<String, Object> configCache) {
+    try {
+      return CacheSpringConfiguration.lookupWorkbenchConfig(configCache).actionAudit
+          .spoolBucketName;
+    } catch (ExecutionException e) {
+      throw new IllegalStateException("Failed to load the action audit spool bucket name", e);
+    }
+  }
+
+  /** Starts writing entries in the background; until then they are only written by flush(). */
+  @PostConstruct
+  public void start() {
+    flusher.scheduleWithFixedDelay(
+        this::flushInBackground, flushIntervalMillis, flushIntervalMillis, TimeUnit.MILLISECONDS);
+    started = true;
+  }
+
+  /** Writes whatever is waiting before the application stops, spooling what can't be written. */
+  @PreDestroy
+  void shutdown() {
+    flusher.shutdownNow();
+    synchronized (flushLock) {
+      try {
+        flush();
+      } catch (RuntimeException e) {
+        log.log(Level.SEVERE, "Failed to flush audit log entries on shutdown", e);
+      }
+      if (head != null) {
+        spoolOrWrite(head, headSequence);
+        head = null;
+      }
+      final List<LogEntry> unwritten;
+      final long sequence;
+      synchronized (buffer) {
+        unwritten = new ArrayList<>(buffer);
+        sequence = takenCount;
+        takenCount += unwritten.size();
+        buffer.clear();
+        heldCount = 0;
+      }
+      if (!unwritten.isEmpty()) {
+        spoolOrWrite(unwritten, sequence);
+      }
+    }
+  }
+
+  /**
+   * Buffers the entries to be written later. If they don't fit, the caller moves everything
+   * buffered to the spool, and so blocks on one write to GCS, but no entry is dropped.
+   */
+  public void enqueue(Collection<LogEntry> entries) {
+    final long now = clock.millis();
+    List<LogEntry> overflow = null;
+    long overflowSequence = 0;
+    final int depth;
+    synchronized (buffer) {
+      for (LogEntry entry : entries) {
+        final LogEntry.Builder stamped = entry.toBuilder();
+        if (entry.getTimestamp() == null) {
+          stamped.setTimestamp(now);
+        }
+        if (entry.getInsertId() == null) {
+          stamped.setInsertId(UUID.randomUUID().toString());
+        }
+        buffer.addLast(stamped.build());
+      }
+      if (buffer.size() + heldCount > bufferCapacity) {
+        overflow = new ArrayList<>(buffer);
+        overflowSequence = takenCount;
+        takenCount += overflow.size();
+        buffer.clear();
+      }
+      depth = buffer.size();
+    }
+    if (overflow != null) {
+      log.warning(
+          String.format("Audit log buffer is full, spooling %d entries", overflow.size()));
+      spoolOrWrite(overflow, overflowSequence);
+    } else if (depth >= maxBatchSize && flushRequested.compareAndSet(false, true)) {
+      runInBackground(this::flushInBackground);
+    }
+  }
+
+  private void runInBackground(Runnable task) {
+    if (!started) {
+      return;
+    }
+    try {
+      flusher.execute(task);
+    } catch (RejectedExecutionException e) {
+      // Shutting down; the final flush picks these entries up.
+    }
+  }
+
+  /**
+   * Replays the spool, then writes every buffered entry, in batches, on the calling thread,
+   * regardless of any backoff. Stops at the first batch Cloud Logging does not accept. A spooled
+   * batch stays in the spool, and one from the buffer is moved there, to be retried before
+   * anything else on the next flush.
+   */
+  public void flush() {
+    synchronized (flushLock) {
+      flushRequested.set(false);
+      while (true) {
+        if (head == null) {
+          // Again before each batch, in case a caller spooled the buffer meanwhile.
+          if (!replaySpool()) {
+            backOff();
+            return;
+          }
+          head = takeHeadBatch();
+          if (head == null) {
+            backoffMillis = 0;
+            return;
+          }
+        }
+        if (!write(head)) {
+          // Kept in memory only if it can't be spooled either.
+          if (spool(head, headSequence)) {
+            head = null;
+            heldCount = 0;
+          }
+          backOff();
+          return;
+        }
+        head = null;
+        heldCount = 0;
+      }
+    }
+  }
+
+  /** Flushes, unless backing off after a failed write. */
+  @VisibleForTesting
+  void flushInBackground() {
+    try {
+      synchronized (flushLock) {
+        if (clock.millis() < nextAttemptMillis) {
+          return;
+        }
+        flush();
+      }
+    } catch (RuntimeException e) {
+      // An exception would cancel the scheduled flushes; the entries stay put for the next one.
+      log.log(Level.SEVERE, "Failed to flush audit log entries", e);
+    }
+  }
+
+  @Override
+  public Collection<MeasurementBundle> getGaugeData() {
+    return ImmutableList.of(
+        MeasurementBundle.builder()
+            .addMeasurement(GaugeMetric.ACTION_AUDIT_DROPPED_COUNT, getDroppedCount())
+            .build(),
+        MeasurementBundle.builder()
+            .addMeasurement(GaugeMetric.ACTION_AUDIT_QUEUE_DEPTH, getQueueDepth())
+            .build(),
+        MeasurementBundle.builder()
+            .addMeasurement(GaugeMetric.ACTION_AUDIT_SPOOLED_COUNT, getSpooledCount())
+            .build());
+  }
+
+  @VisibleForTesting
+  int getQueueDepth() {
+    synchronized (buffer) {
+      return buffer.size() + heldCount;
+    }
+  }
+
+  @VisibleForTesting
+  long getSpooledCount() {
+    return spooledCount.get();
+  }
+
+  @VisibleForTesting
+  long getDroppedCount() {
+    return droppedCount.get();
+  }
+
+  private void backOff() {
+    backoffMillis =
+        Math.min(
+            Math.max(backoffMillis * 2, flushIntervalMillis),
+            flushIntervalMillis * MAX_BACKOFF_INTERVALS);
+    nextAttemptMillis = clock.millis() + backoffMillis;
+  }
+
+  /** Takes the next batch from the buffer, if any; it still counts toward the buffer's capacity. */
+  private List<LogEntry> takeHeadBatch() {
+    synchronized (buffer) {
+      if (buffer.isEmpty()) {
+        return null;
+      }
+      final List<LogEntry> batch = new ArrayList<>(Math.min(buffer.size(), maxBatchSize));
+      while (batch.size() < maxBatchSize && !buffer.isEmpty()) {
+        batch.add(buffer.removeFirst());
+      }
+      heldCount = batch.size();
+      headSequence = takenCount;
+      takenCount += batch.size();
+      return batch;
+    }
+  }
+
+  /**
+   * Writes and deletes each spooled object in turn, and returns whether the spool is now empty.
+   * The spool is only listed when this instance has spooled entries, or every few minutes.
+   */
+  private boolean replaySpool() {
+    final long now = clock.millis();
+    if (!spoolMayHaveEntries && now < nextSpoolScanMillis) {
+      return true;
+    }
+    // Cleared first, so that entries spooled while replaying are replayed by the next flush.
+    spoolMayHaveEntries = false;
+    nextSpoolScanMillis = now + SPOOL_SCAN_INTERVAL_MILLIS;
+    final List<String> names;
+    try {
+      names = spool.list();
+    } catch (RuntimeException e) {
+      // Rather than hold up the buffered entries behind a spool which can't be read, write them;
+      // they still carry the times of their actions.
+      log.log(Level.WARNING, "Failed to list spooled audit log entries", e);
+      spoolMayHaveEntries = true;
+      return true;
+    }
+    for (String name : names) {
+      final byte[] contents;
+      try {
+        contents = spool.read(name);
+      } catch (RuntimeException e) {
+        log.log(Level.WARNING, "Failed to read spooled audit log entries from " + name, e);
+        spoolMayHaveEntries = true;
+        return true;
+      }
+      if (contents == null) {
+        // Replayed by another instance.
+        continue;
+      }
+      // Cloud Logging ignores an entry it already has, so a partly replayed object is safe to
+      // replay again in full.
+      for (List<LogEntry> batch : Lists.partition(fromSpoolBytes(name, contents), maxBatchSize)) {
+        if (!write(batch)) {
+          spoolMayHaveEntries = true;
+          return false;
+        }
+      }
+      try {
+        spool.delete(name);
+      } catch (RuntimeException e) {
+        log.log(Level.WARNING, "Failed to delete replayed audit log entries in " + name, e);
+        spoolMayHaveEntries = true;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Spools the entries, or failing that writes them on the calling thread, giving up after the
+   * first batch Cloud Logging does not accept.
+   */
+  private void spoolOrWrite(List<LogEntry> entries, long sequence) {
+    if (spool(entries, sequence)) {
+      return;
+    }
+    boolean cloudLoggingDown = false;
+    for (List<LogEntry> batch : Lists.partition(entries, maxBatchSize)) {
+      if (cloudLoggingDown || !write(batch)) {
+        cloudLoggingDown = true;
+        // The server log is the last record of these entries.
+        log.severe(
+            String.format(
+                "Lost %d audit log entries; %d lost since startup: %s",
+                batch.size(),
+                droppedCount.addAndGet(batch.size()),
+                new String(toSpoolBytes(batch), StandardCharsets.UTF_8)));
+      }
+    }
+  }
+
+  /**
+   * Returns whether the entries were spooled. The sequence is the number of entries enqueued on
+   * this instance before the first of them.
+   */
+  private boolean spool(List<LogEntry> entries, long sequence) {
+    // Zero-padded, so that names sort by the time the first entry was enqueued, and then by the
+    // order in which this instance enqueued it.
+    final String name =
+        String.format(
+            "%s/%013d-%019d-%s.jsonl",
+            SPOOL_DIRECTORY, entries.get(0).getTimestamp(), sequence, instanceId);
+    try {
+      spool.write(name, toSpoolBytes(entries));
+    } catch (RuntimeException e) {
+      log.log(Level.SEVERE, "Failed to spool " + entries.size() + " audit log entries", e);
+      return false;
+    }
+    spooledCount.addAndGet(entries.size());
+    spoolMayHaveEntries = true;
+    return true;
+  }
+
+  /** Returns whether Cloud Logging accepted the batch. */
+  private boolean write(List<LogEntry> batch) {
+    // Includes the wait for Cloud Logging to accept the batch, as the sink doesn't return before.
+    final Stopwatch stopwatch = Stopwatch.createStarted();
+    try {
+      sink.write(batch);
+      return true;
+    } catch (RuntimeException e) {
+      log.log(Level.WARNING, "Failed to write " + batch.size() + " audit log entries", e);
+      return false;
+    } finally {
+      logsBasedMetricService.record(
+          MeasurementBundle.builder()
+              .addMeasurement(
+                  DistributionMetric.ACTION_AUDIT_WRITE_TIME,
+                  stopwatch.elapsed(TimeUnit.MILLISECONDS))
+              .build());
+    }
+  }
+
+  private static byte[] toSpoolBytes(List<LogEntry> entries) {
+    final StringBuilder lines = new StringBuilder();
+    entries.forEach(entry -> lines.append(toSpoolLine(entry)).append('\n'));
+    return lines.toString().getBytes(StandardCharsets.UTF_8);
+  }
+
+  private static List<LogEntry> fromSpoolBytes(String name, byte[] contents) {
+    final List<LogEntry> entries = new ArrayList<>();
+    for (String line : new String(contents, StandardCharsets.UTF_8).split("\n")) {
+      if (line.isEmpty()) {
+        continue;
+      }
+      try {
+        entries.add(fromSpoolLine(line));
+      } catch (JsonParseException | IllegalArgumentException e) {
+        log.log(Level.SEVERE, "Skipping unreadable audit log entry in " + name + ": " + line, e);
+      }
+    }
+    return entries;
+  }
+
+  private static String toSpoolLine(LogEntry entry) {
+    final SpooledEntry spooled = new SpooledEntry();
+    spooled.insertId = entry.getInsertId();
+    spooled.logName = entry.getLogName();
+    spooled.timestamp = entry.getTimestamp();
+    spooled.severity = entry.getSeverity().name();
+    if (entry.getResource() != null) {
+      spooled.resourceType = entry.getResource().getType();
+      spooled.resourceLabels = entry.getResource().getLabels();
+    }
+    spooled.payload = entry.<JsonPayload>getPayload().getDataAsMap();
+    return GSON.toJson(spooled);
+  }
+
+  private static LogEntry fromSpoolLine(String line) {
+    final SpooledEntry spooled = GSON.fromJson(line, SpooledEntry.class);
+    final LogEntry.Builder entry =
+        LogEntry.newBuilder(JsonPayload.of(spooled.payload))
+            .setInsertId(spooled.insertId)
+            .setTimestamp(spooled.timestamp)
+            .setSeverity(Severity.valueOf(spooled.severity));
+    if (spooled.logName != null) {
+      entry.setLogName(spooled.logName);
+    }
+    if (spooled.resourceType != null) {
+      entry.setResource(
+          MonitoredResource.newBuilder(spooled.resourceType)
+              .setLabels(spooled.resourceLabels)
+              .build());
+    }
+    return entry.build();
+  }
+}
@@ -15,14 +15,23 @@ import org.springframework.stereotype.Service
 
 @Service
 class ActionAuditServiceImpl @Autowired
-constructor(private val configProvider: Provider<WorkbenchConfig>, private val cloudLogging: Logging) : ActionAuditService {
+constructor(
+    private val configProvider: Provider<WorkbenchConfig>,
+    private val cloudLogging: Logging,
+    private val actionAuditLogWriter: ActionAuditLogWriter
+) : ActionAuditService {
 
     override fun send(events: Collection<ActionAuditEvent>) {
         try {
             val logEntries: List<LogEntry> = events
                     .map { this.auditEventToLogEntry(it) }
             if (logEntries.isNotEmpty()) {
-                cloudLogging.write(logEntries)
+                if (configProvider.get().featureFlags.enableBufferedActionAudit) {
+                    // Written in the background, so that auditing never holds up the request.
+                    actionAuditLogWriter.enqueue(logEntries)
+                } else {
+                    cloudLogging.write(logEntries)
+                }
             }
         } catch (e: RuntimeException) {
             serviceLogger.log(
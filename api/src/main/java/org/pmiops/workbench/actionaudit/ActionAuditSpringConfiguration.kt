@@ -2,10 +2,12 @@ package org.pmiops.workbench.audit
 
 import com.google.cloud.logging.Logging
 import com.google.cloud.logging.LoggingOptions
+import com.google.cloud.logging.Synchronicity
 import java.util.UUID
 import org.springframework.beans.factory.config.ConfigurableBeanFactory
 import org.springframework.context.annotation.Bean
 import org.springframework.context.annotation.Configuration
+import org.springframework.context.annotation.Primary
 import org.springframework.context.annotation.Scope
 
 @Configuration
@@ -13,8 +15,17 @@ open class ActionAuditSpringConfiguration {
 
     open val cloudLogging: Logging
         @Bean
+        @Primary
         get() = LoggingOptions.getDefaultInstance().service
 
+    // A client of its own, as the audit log writer waits on every write to see whether it failed,
+    // which the shared client's callers on request threads must not.
+    open val actionAuditCloudLogging: Logging
+        @Bean(name = ["ACTION_AUDIT_CLOUD_LOGGING"])
+        get() = LoggingOptions.getDefaultInstance().service.apply {
+            writeSynchronicity = Synchronicity.SYNC
+        }
+
     open val actionId: String
         @Bean(name = ["ACTION_ID"])
         @Scope(value = ConfigurableBeanFactory.SCOPE_PROTOTYPE)
@@ -8,18 +8,27 @@ import com.google.cloud.bigquery.FieldList;
 import com.google.cloud.bigquery.FieldValue;
 import com.google.cloud.bigquery.InsertAllRequest;
 import com.google.cloud.bigquery.InsertAllResponse;
+import com.google.cloud.bigquery.Job;
 import com.google.cloud.bigquery.JobInfo;
 import com.google.cloud.bigquery.QueryJobConfiguration;
 import com.google.cloud.bigquery.TableId;
 import com.google.cloud.bigquery.TableResult;
 import com.google.common.annotations.VisibleForTesting;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.stream.Collectors;
+import javax.annotation.Nullable;
 import javax.inject.Provider;
 import javax.servlet.http.HttpServletResponse;
 import org.joda.time.format.DateTimeFormat;
@@ -32,17 +41,35 @@ import org.pmiops.workbench.exceptions.ForbiddenException;
 import org.pmiops.workbench.exceptions.ServerErrorException;
 import org.pmiops.workbench.exceptions.ServerUnavailableException;
 import org.pmiops.workbench.model.Domain;
+import org.pmiops.workbench.monitoring.CacheStatsBundles;
+import org.pmiops.workbench.monitoring.GaugeDataCollector;
+import org.pmiops.workbench.monitoring.MeasurementBundle;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 @Service
-public class BigQueryService {
+public class BigQueryService implements GaugeDataCollector {
 
   private static final Logger logger = Logger.getLogger(BigQueryService.class.getName());
 
+  private static final String CDR_CLIENT_CACHE_NAME = "cdr_bigquery_client";
+  private static final long MAX_CDR_CLIENTS = 100;
+  private static final long CDR_CLIENT_IDLE_EXPIRY_HOURS = 24;
+
   @Autowired private Provider<WorkbenchConfig> workbenchConfigProvider;
   @Autowired private BigQuery defaultBigQuery;
 
+  // BigQuery clients are thread-safe and relatively expensive to build (credentials, transport), so
+  // one is kept per CDR project. Clients are keyed on the project rather than the CDR version, so
+  // a change to a cdr_version row's project picks up a new client on its next query and the old
+  // one ages out once idle.
+  private final LoadingCache<String, BigQuery> cdrBigQueryClients =
+      CacheBuilder.newBuilder()
+          .maximumSize(MAX_CDR_CLIENTS)
+          .expireAfterAccess(CDR_CLIENT_IDLE_EXPIRY_HOURS, TimeUnit.HOURS)
+          .recordStats()
+          .build(CacheLoader.from(this::newCdrBigQueryClient));
+
   @VisibleForTesting
   protected BigQuery getBigQueryService() {
     DbCdrVersion cdrVersion = CdrVersionContext.getCdrVersion();
@@ -52,10 +79,19 @@ public class BigQueryService {
     // If a query is being executed in the context of a CDR, it must be run within that project as
     // well. By default, the query would run in the Workbench App Engine project, which would
     // violate VPC-SC restrictions.
-    return BigQueryOptions.newBuilder()
-        .setProjectId(cdrVersion.getBigqueryProject())
-        .build()
-        .getService();
+    return cdrBigQueryClients.getUnchecked(cdrVersion.getBigqueryProject());
+  }
+
+  @VisibleForTesting
+  protected BigQuery newCdrBigQueryClient(String bigqueryProject) {
+    return BigQueryOptions.newBuilder().setProjectId(bigqueryProject).build().getService();
+  }
+
+  /** Reports construction (cache misses) and reuse (cache hits) of the per-CDR clients. */
+  @Override
+  public Collection<MeasurementBundle> getGaugeData() {
+    return Collections.singleton(
+        CacheStatsBundles.fromCache(CDR_CLIENT_CACHE_NAME, cdrBigQueryClients));
   }
 
   /** Execute the provided query using bigquery. */
@@ -65,12 +101,7 @@ public class BigQueryService {
 
   /** Execute the provided query using bigquery. */
   public TableResult executeQuery(QueryJobConfiguration query, long waitTime) {
-    if (workbenchConfigProvider.get().cdr.debugQueries) {
-      logger.log(
-          Level.INFO,
-          "Executing query ({0}) with parameters ({1})",
-          new Object[] {query.getQuery(), query.getNamedParameters()});
-    }
+    logQuery(query);
     try {
       return getBigQueryService()
           .create(JobInfo.of(query))
@@ -78,19 +109,99 @@ public class BigQueryService {
     } catch (InterruptedException e) {
       throw new BigQueryException(500, "Something went wrong with BigQuery: " + e.getMessage());
     } catch (BigQueryException e) {
-      if (e.getCode() == HttpServletResponse.SC_SERVICE_UNAVAILABLE) {
-        throw new ServerUnavailableException(
-            "BigQuery was temporarily unavailable, try again later", e);
-      } else if (e.getCode() == HttpServletResponse.SC_FORBIDDEN) {
-        throw new ForbiddenException("BigQuery access denied", e);
-      } else {
-        throw new ServerErrorException(
-            String.format(
-                "An unexpected error occurred querying against BigQuery with "
-                    + "query = (%s), params = (%s)",
-                query.getQuery(), query.getNamedParameters()),
-            e);
-      }
+      throw convertBigQueryException(query, e);
+    }
+  }
+
+  /**
+   * Start the provided query as a BigQuery job, without waiting for it to complete. Use {@link
+   * #getJob(String)} to poll for completion and {@link #getQueryResults(Job, long, String)} to
+   * fetch the results.
+   *
+   * <p>Only data set previews are run this way: they read raw rows from the largest CDR tables,
+   * and are the queries that run into the App Engine request deadline. Cohort counts, demographic
+   * charts and cohort review chart data stay on {@link #executeQuery}. Counts are cached per search
+   * request (see {@link org.pmiops.workbench.cohortbuilder.ParticipantCountCache}) or answered by
+   * Elasticsearch, and the charts aggregate to a bounded number of rows, so handing out job ids for
+   * them would bypass those caches and add a poll round trip to every cohort builder edit. A query
+   * which does outgrow the deadline can move over the same way previews did: start it here, return
+   * the job id, and add a poll endpoint like {@code DataSetController.getDataSetPreviewJob}.
+   */
+  public Job startQuery(QueryJobConfiguration query) {
+    logQuery(query);
+    try {
+      return getBigQueryService().create(JobInfo.of(query));
+    } catch (BigQueryException e) {
+      throw convertBigQueryException(query, e);
+    }
+  }
+
+  /** Wait up to waitTime milliseconds for a started query job and return its results. */
+  public TableResult waitForQueryResults(Job job, long waitTime) {
+    try {
+      return job.getQueryResults(BigQuery.QueryResultsOption.maxWaitTime(waitTime));
+    } catch (InterruptedException e) {
+      throw new BigQueryException(500, "Something went wrong with BigQuery: " + e.getMessage());
+    } catch (BigQueryException e) {
+      throw convertBigQueryException(job.getConfiguration(), e);
+    }
+  }
+
+  /** Look up a job previously started in the current CDR project. */
+  public Optional<Job> getJob(String jobId) {
+    return Optional.ofNullable(getBigQueryService().getJob(jobId));
+  }
+
+  /**
+   * Fetch a page of results of a completed query job.
+   *
+   * @param pageToken the token of the page to fetch, or null for the first page
+   */
+  public TableResult getQueryResults(Job job, long pageSize, @Nullable String pageToken) {
+    QueryJobConfiguration query = job.getConfiguration();
+    if (job.getStatus().getError() != null) {
+      throw new ServerErrorException(
+          String.format(
+              "BigQuery job %s failed: %s",
+              job.getJobId().getJob(), job.getStatus().getError().getMessage()));
+    }
+    List<BigQuery.QueryResultsOption> options = new ArrayList<>();
+    options.add(BigQuery.QueryResultsOption.pageSize(pageSize));
+    if (pageToken != null) {
+      options.add(BigQuery.QueryResultsOption.pageToken(pageToken));
+    }
+    try {
+      return job.getQueryResults(options.toArray(new BigQuery.QueryResultsOption[0]));
+    } catch (InterruptedException e) {
+      throw new BigQueryException(500, "Something went wrong with BigQuery: " + e.getMessage());
+    } catch (BigQueryException e) {
+      throw convertBigQueryException(query, e);
+    }
+  }
+
+  private void logQuery(QueryJobConfiguration query) {
+    if (workbenchConfigProvider.get().cdr.debugQueries) {
+      logger.log(
+          Level.INFO,
+          "Executing query ({0}) with parameters ({1})",
+          new Object[] {query.getQuery(), query.getNamedParameters()});
+    }
+  }
+
+  private RuntimeException convertBigQueryException(
+      QueryJobConfiguration query, BigQueryException e) {
+    if (e.getCode() == HttpServletResponse.SC_SERVICE_UNAVAILABLE) {
+      return new ServerUnavailableException(
+          "BigQuery was temporarily unavailable, try again later", e);
+    } else if (e.getCode() == HttpServletResponse.SC_FORBIDDEN) {
+      return new ForbiddenException("BigQuery access denied", e);
+    } else {
+      return new ServerErrorException(
+          String.format(
+              "An unexpected error occurred querying against BigQuery with "
+                  + "query = (%s), params = (%s)",
+              query.getQuery(), query.getNamedParameters()),
+          e);
     }
   }
 
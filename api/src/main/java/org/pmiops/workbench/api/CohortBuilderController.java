@@ -1,21 +1,10 @@
 package org.pmiops.workbench.api;
 
-import com.google.common.base.Strings;
-import com.google.common.collect.ImmutableList;
-import com.google.common.collect.Iterables;
-import java.io.IOException;
 import java.util.Arrays;
-import java.util.List;
 import java.util.Optional;
-import java.util.logging.Level;
-import java.util.logging.Logger;
-import java.util.stream.Collectors;
-import javax.inject.Provider;
 import org.pmiops.workbench.cohortbuilder.CohortBuilderService;
-import org.pmiops.workbench.cohortbuilder.ParticipantCriteria;
-import org.pmiops.workbench.config.WorkbenchConfig;
-import org.pmiops.workbench.db.model.DbCdrVersion;
-import org.pmiops.workbench.elasticsearch.ElasticSearchService;
+import org.pmiops.workbench.cohortbuilder.ParticipantCountRouter;
+import org.pmiops.workbench.elasticsearch.ElasticFilters;
 import org.pmiops.workbench.exceptions.BadRequestException;
 import org.pmiops.workbench.model.AgeType;
 import org.pmiops.workbench.model.AgeTypeCountListResponse;
@@ -24,7 +13,6 @@ import org.pmiops.workbench.model.CriteriaListResponse;
 import org.pmiops.workbench.model.CriteriaListWithCountResponse;
 import org.pmiops.workbench.model.CriteriaMenuListResponse;
 import org.pmiops.workbench.model.CriteriaRequest;
-import org.pmiops.workbench.model.CriteriaSubType;
 import org.pmiops.workbench.model.CriteriaType;
 import org.pmiops.workbench.model.DataFiltersResponse;
 import org.pmiops.workbench.model.DemoChartInfoListResponse;
@@ -33,8 +21,6 @@ import org.pmiops.workbench.model.DomainCount;
 import org.pmiops.workbench.model.DomainInfoResponse;
 import org.pmiops.workbench.model.GenderOrSexType;
 import org.pmiops.workbench.model.ParticipantDemographics;
-import org.pmiops.workbench.model.SearchGroup;
-import org.pmiops.workbench.model.SearchParameter;
 import org.pmiops.workbench.model.SearchRequest;
 import org.pmiops.workbench.model.SurveyCount;
 import org.pmiops.workbench.model.SurveyVersionListResponse;
@@ -48,23 +34,19 @@ import org.springframework.web.bind.annotation.RestController;
 @RestController
 public class CohortBuilderController implements CohortBuilderApiDelegate {
 
-  private static final Logger log = Logger.getLogger(CohortBuilderController.class.getName());
   private static final String BAD_REQUEST_MESSAGE =
       "Bad Request: Please provide a valid %s. %s is not valid.";
 
-  private final ElasticSearchService elasticSearchService;
-  private final Provider<WorkbenchConfig> configProvider;
+  private final ParticipantCountRouter participantCountRouter;
   private final CohortBuilderService cohortBuilderService;
   private final WorkspaceAuthService workspaceAuthService;
 
   @Autowired
   CohortBuilderController(
-      ElasticSearchService elasticSearchService,
-      Provider<WorkbenchConfig> configProvider,
+      ParticipantCountRouter participantCountRouter,
       CohortBuilderService cohortBuilderService,
       WorkspaceAuthService workspaceAuthService) {
-    this.elasticSearchService = elasticSearchService;
-    this.configProvider = configProvider;
+    this.participantCountRouter = participantCountRouter;
     this.cohortBuilderService = cohortBuilderService;
     this.workspaceAuthService = workspaceAuthService;
   }
@@ -126,21 +108,9 @@ public class CohortBuilderController implements CohortBuilderApiDelegate {
   @Override
   public ResponseEntity<Long> countParticipants(
       String workspaceNamespace, String workspaceId, SearchRequest request) {
-    DbCdrVersion cdrVersion =
-        workspaceAuthService
-            .getWorkspaceEnforceAccessLevelAndSetCdrVersion(
-                workspaceNamespace, workspaceId, WorkspaceAccessLevel.READER)
-            .getCdrVersion();
-    if (configProvider.get().elasticsearch.enableElasticsearchBackend
-        && !Strings.isNullOrEmpty(cdrVersion.getElasticIndexBaseName())
-        && !isApproximate(request)) {
-      try {
-        return ResponseEntity.ok(elasticSearchService.count(request));
-      } catch (IOException e) {
-        log.log(Level.SEVERE, "Elastic request failed, falling back to BigQuery", e);
-      }
-    }
-    return ResponseEntity.ok(cohortBuilderService.countParticipants(request));
+    workspaceAuthService.getWorkspaceEnforceAccessLevelAndSetCdrVersion(
+        workspaceNamespace, workspaceId, WorkspaceAccessLevel.READER);
+    return ResponseEntity.ok(participantCountRouter.countParticipants(request));
   }
 
   @Override
@@ -210,31 +180,17 @@ public class CohortBuilderController implements CohortBuilderApiDelegate {
       String genderOrSex,
       String age,
       SearchRequest request) {
-    DbCdrVersion cdrVersion =
-        workspaceAuthService
-            .getWorkspaceEnforceAccessLevelAndSetCdrVersion(
-                workspaceNamespace, workspaceId, WorkspaceAccessLevel.READER)
-            .getCdrVersion();
+    workspaceAuthService.getWorkspaceEnforceAccessLevelAndSetCdrVersion(
+        workspaceNamespace, workspaceId, WorkspaceAccessLevel.READER);
     GenderOrSexType genderOrSexType = validateGenderOrSexType(genderOrSex);
     AgeType ageType = validateAgeType(age);
     DemoChartInfoListResponse response = new DemoChartInfoListResponse();
     if (request.getIncludes().isEmpty()) {
       return ResponseEntity.ok(response);
     }
-    if (configProvider.get().elasticsearch.enableElasticsearchBackend
-        && !Strings.isNullOrEmpty(cdrVersion.getElasticIndexBaseName())
-        && !isApproximate(request)) {
-      try {
-        return ResponseEntity.ok(
-            response.items(
-                elasticSearchService.demoChartInfo(
-                    new ParticipantCriteria(request, genderOrSexType, ageType))));
-      } catch (IOException e) {
-        log.log(Level.SEVERE, "Elastic request failed, falling back to BigQuery", e);
-      }
-    }
     return ResponseEntity.ok(
-        response.items(cohortBuilderService.findDemoChartInfo(genderOrSexType, ageType, request)));
+        response.items(
+            participantCountRouter.findDemoChartInfo(genderOrSexType, ageType, request)));
   }
 
   @Override
@@ -345,15 +301,7 @@ public class CohortBuilderController implements CohortBuilderApiDelegate {
    * fallback to the BQ implementation.
    */
   protected boolean isApproximate(SearchRequest request) {
-    List<SearchGroup> allGroups =
-        ImmutableList.copyOf(Iterables.concat(request.getIncludes(), request.getExcludes()));
-    List<SearchParameter> allParams =
-        allGroups.stream()
-            .flatMap(sg -> sg.getItems().stream())
-            .flatMap(sgi -> sgi.getSearchParameters().stream())
-            .collect(Collectors.toList());
-    return allGroups.stream().anyMatch(SearchGroup::getTemporal)
-        || allParams.stream().anyMatch(sp -> CriteriaSubType.BP.toString().equals(sp.getSubtype()));
+    return ElasticFilters.isApproximate(request);
   }
 
   private void validateDomain(String domain) {
@@ -127,13 +127,11 @@ public class CohortReviewController implements CohortReviewApiDelegate {
               cohortId, cdrVersionId));
     }
 
-    List<DbParticipantCohortStatus> participantCohortStatuses =
-        cohortReviewService.createDbParticipantCohortStatusesList(
+    Iterable<DbParticipantCohortStatus> participantCohortStatuses =
+        cohortReviewService.createDbParticipantCohortStatuses(
             cohort, request.getSize(), cohortReview.getCohortReviewId());
 
-    cohortReview
-        .reviewSize((long) participantCohortStatuses.size())
-        .reviewStatus(ReviewStatus.CREATED);
+    cohortReview.reviewStatus(ReviewStatus.CREATED);
 
     // when saving ParticipantCohortStatuses to the database the long value of birthdate is mutated.
     cohortReviewService.saveFullCohortReview(cohortReview, participantCohortStatuses);
@@ -321,7 +319,7 @@ public class CohortReviewController implements CohortReviewApiDelegate {
 
   /**
    * Get all participants for the specified cohortId and cdrVersionId. This endpoint does pagination
-   * based on page, pageSize, sortOrder and sortColumn.
+   * based on page, pageSize, sortOrder and sortColumn, or on pageToken when the caller has one.
    */
   @Override
   public ResponseEntity<CohortReviewWithCountResponse> getParticipantCohortStatuses(
@@ -339,13 +337,21 @@ public class CohortReviewController implements CohortReviewApiDelegate {
     DbCohort cohort = cohortReviewService.findCohort(dbWorkspace.getWorkspaceId(), cohortId);
     PageRequest pageRequest = createPageRequest(request);
     convertGenderRaceEthnicitySortOrder(pageRequest);
+    String nextPageToken = null;
 
     try {
       cohortReview =
           cohortReviewService.findCohortReview(
               cohort.getCohortId(), dbWorkspace.getCdrVersion().getCdrVersionId());
+      if (request.getPageToken() != null) {
+        cohortReviewService.applyPageToken(
+            cohortReview.getCohortReviewId(), pageRequest, request.getPageToken());
+      }
       participantCohortStatuses =
           cohortReviewService.findAll(cohortReview.getCohortReviewId(), pageRequest);
+      nextPageToken =
+          cohortReviewService.getNextPageToken(
+              cohortReview.getCohortReviewId(), pageRequest, participantCohortStatuses);
     } catch (NotFoundException nfe) {
       cohortReview = cohortReviewService.initializeCohortReview(cdrVersionId, cohort);
     }
@@ -361,7 +367,8 @@ public class CohortReviewController implements CohortReviewApiDelegate {
                 pageRequest.getFilters().isEmpty()
                     ? cohortReview.getReviewSize()
                     : cohortReviewService.findCount(
-                        cohortReview.getCohortReviewId(), pageRequest)));
+                        cohortReview.getCohortReviewId(), pageRequest))
+            .nextPageToken(nextPageToken));
   }
 
   @Override
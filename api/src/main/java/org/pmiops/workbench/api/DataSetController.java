@@ -2,6 +2,7 @@ package org.pmiops.workbench.api;
 
 import com.google.cloud.bigquery.Field;
 import com.google.cloud.bigquery.FieldValueList;
+import com.google.cloud.bigquery.JobStatus;
 import com.google.cloud.bigquery.LegacySQLTypeName;
 import com.google.cloud.bigquery.TableResult;
 import com.google.common.annotations.VisibleForTesting;
@@ -27,6 +28,7 @@ import org.pmiops.workbench.cdr.CdrVersionContext;
 import org.pmiops.workbench.cdr.CdrVersionService;
 import org.pmiops.workbench.config.WorkbenchConfig;
 import org.pmiops.workbench.dataset.BigQueryTableInfo;
+import org.pmiops.workbench.dataset.DataSetPreviewJobResult;
 import org.pmiops.workbench.dataset.DataSetService;
 import org.pmiops.workbench.db.model.DbCdrVersion;
 import org.pmiops.workbench.db.model.DbDataset;
@@ -40,8 +42,13 @@ import org.pmiops.workbench.genomics.GenomicExtractionService;
 import org.pmiops.workbench.model.DataDictionaryEntry;
 import org.pmiops.workbench.model.DataSet;
 import org.pmiops.workbench.model.DataSetCodeResponse;
+import org.pmiops.workbench.model.DataSetDomainPreview;
+import org.pmiops.workbench.model.DataSetDomainsPreviewRequest;
+import org.pmiops.workbench.model.DataSetDomainsPreviewResponse;
 import org.pmiops.workbench.model.DataSetExportRequest;
 import org.pmiops.workbench.model.DataSetListResponse;
+import org.pmiops.workbench.model.DataSetPreviewJob;
+import org.pmiops.workbench.model.DataSetPreviewJobResponse;
 import org.pmiops.workbench.model.DataSetPreviewRequest;
 import org.pmiops.workbench.model.DataSetPreviewResponse;
 import org.pmiops.workbench.model.DataSetPreviewValueList;
@@ -55,6 +62,7 @@ import org.pmiops.workbench.model.GenomicExtractionJobListResponse;
 import org.pmiops.workbench.model.KernelTypeEnum;
 import org.pmiops.workbench.model.MarkDataSetRequest;
 import org.pmiops.workbench.model.PrePackagedConceptSetEnum;
+import org.pmiops.workbench.model.QueryJobStatus;
 import org.pmiops.workbench.model.ReadOnlyNotebookResponse;
 import org.pmiops.workbench.model.ResourceType;
 import org.pmiops.workbench.model.WorkspaceAccessLevel;
@@ -146,9 +154,103 @@ public class DataSetController implements DataSetApiDelegate {
     dataSetService.validateDataSetPreviewRequestResources(
         dbWorkspace.getWorkspaceId(), dataSetPreviewRequest);
 
-    List<DataSetPreviewValueList> valuePreviewList = new ArrayList<>();
     TableResult queryResponse = dataSetService.previewBigQueryJobConfig(dataSetPreviewRequest);
+    List<DataSetPreviewValueList> valuePreviewList =
+        toPreviewValueList(queryResponse, dataSetPreviewRequest.getValues());
+    return ResponseEntity.ok(
+        new DataSetPreviewResponse()
+            .domain(dataSetPreviewRequest.getDomain())
+            .values(valuePreviewList));
+  }
+
+  @Override
+  public ResponseEntity<DataSetPreviewJob> startDataSetPreviewJob(
+      String workspaceNamespace, String workspaceId, DataSetPreviewRequest dataSetPreviewRequest) {
+    DbWorkspace dbWorkspace =
+        workspaceAuthService.getWorkspaceEnforceAccessLevelAndSetCdrVersion(
+            workspaceNamespace, workspaceId, WorkspaceAccessLevel.READER);
+    dataSetService.validateDataSetPreviewRequestResources(
+        dbWorkspace.getWorkspaceId(), dataSetPreviewRequest);
+
+    return ResponseEntity.ok(
+        new DataSetPreviewJob()
+            .jobId(
+                dataSetService.startPreviewJob(
+                    dataSetPreviewRequest, dbWorkspace.getWorkspaceId())));
+  }
+
+  @Override
+  public ResponseEntity<DataSetPreviewJobResponse> getDataSetPreviewJob(
+      String workspaceNamespace, String workspaceId, String jobId) {
+    DbWorkspace dbWorkspace =
+        workspaceAuthService.getWorkspaceEnforceAccessLevelAndSetCdrVersion(
+            workspaceNamespace, workspaceId, WorkspaceAccessLevel.READER);
 
+    DataSetPreviewJobResult jobResult =
+        dataSetService.getPreviewJobResult(jobId, dbWorkspace.getWorkspaceId());
+    DataSetPreviewJobResponse response =
+        new DataSetPreviewJobResponse().status(toQueryJobStatus(jobResult.getState()));
+    jobResult
+        .getTableResult()
+        .ifPresent(
+            tableResult ->
+                response.preview(
+                    new DataSetPreviewResponse()
+                        .domain(jobResult.getDomain())
+                        .values(toPreviewValueList(tableResult, jobResult.getValues()))));
+    return ResponseEntity.ok(response);
+  }
+
+  @Override
+  public ResponseEntity<DataSetDomainsPreviewResponse> previewDataSetDomains(
+      String workspaceNamespace,
+      String workspaceId,
+      DataSetDomainsPreviewRequest dataSetDomainsPreviewRequest) {
+    DbWorkspace dbWorkspace =
+        workspaceAuthService.getWorkspaceEnforceAccessLevelAndSetCdrVersion(
+            workspaceNamespace, workspaceId, WorkspaceAccessLevel.READER);
+    dataSetDomainsPreviewRequest
+        .getItems()
+        .forEach(
+            request ->
+                dataSetService.validateDataSetPreviewRequestResources(
+                    dbWorkspace.getWorkspaceId(), request));
+
+    DataSetDomainsPreviewResponse response = new DataSetDomainsPreviewResponse();
+    for (DataSetPreviewJobResult jobResult :
+        dataSetService.previewDomains(
+            dataSetDomainsPreviewRequest.getItems(), dbWorkspace.getWorkspaceId())) {
+      DataSetDomainPreview domainPreview =
+          new DataSetDomainPreview()
+              .domain(jobResult.getDomain())
+              .jobId(jobResult.getJobId())
+              .status(toQueryJobStatus(jobResult.getState()));
+      jobResult
+          .getTableResult()
+          .ifPresent(
+              tableResult ->
+                  domainPreview.preview(
+                      new DataSetPreviewResponse()
+                          .domain(jobResult.getDomain())
+                          .values(toPreviewValueList(tableResult, jobResult.getValues()))));
+      response.addItemsItem(domainPreview);
+    }
+    return ResponseEntity.ok(response);
+  }
+
+  private static QueryJobStatus toQueryJobStatus(JobStatus.State state) {
+    if (state == JobStatus.State.DONE) {
+      return QueryJobStatus.DONE;
+    } else if (state == JobStatus.State.RUNNING) {
+      return QueryJobStatus.RUNNING;
+    }
+    return QueryJobStatus.PENDING;
+  }
+
+  /** Converts the query results to preview columns, in the order their values were requested. */
+  private List<DataSetPreviewValueList> toPreviewValueList(
+      TableResult queryResponse, List<String> requestedValues) {
+    List<DataSetPreviewValueList> valuePreviewList = new ArrayList<>();
     if (queryResponse.getTotalRows() != 0) {
       valuePreviewList.addAll(
           queryResponse.getSchema().getFields().stream()
@@ -165,15 +267,10 @@ public class DataSetController implements DataSetApiDelegate {
           .getSchema()
           .getFields()
           .forEach(fields -> formatTimestampValues(valuePreviewList, fields));
-
-      Collections.sort(
-          valuePreviewList,
-          Comparator.comparing(item -> dataSetPreviewRequest.getValues().indexOf(item.getValue())));
     }
-    return ResponseEntity.ok(
-        new DataSetPreviewResponse()
-            .domain(dataSetPreviewRequest.getDomain())
-            .values(valuePreviewList));
+    Collections.sort(
+        valuePreviewList, Comparator.comparing(item -> requestedValues.indexOf(item.getValue())));
+    return valuePreviewList;
   }
 
   @VisibleForTesting
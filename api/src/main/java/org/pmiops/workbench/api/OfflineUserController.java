@@ -1,15 +1,17 @@
 package org.pmiops.workbench.api;
 
 import com.google.common.collect.ImmutableMap;
-import java.io.IOException;
 import java.sql.Timestamp;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.function.Function;
-import java.util.logging.Level;
 import java.util.logging.Logger;
 import org.pmiops.workbench.access.AccessTierService;
+import org.pmiops.workbench.access.BulkAccessModuleSyncService;
+import org.pmiops.workbench.access.BulkAccessModuleSyncService.Outcome;
+import org.pmiops.workbench.access.BulkAccessModuleSyncService.Summary;
+import org.pmiops.workbench.access.BulkAccessModuleSyncService.Upstream;
 import org.pmiops.workbench.actionaudit.Agent;
 import org.pmiops.workbench.cloudtasks.TaskQueueService;
 import org.pmiops.workbench.db.dao.UserService;
@@ -33,6 +35,7 @@ public class OfflineUserController implements OfflineUserApiDelegate {
           AccessModule.TWO_FACTOR_AUTH, "Two-factor auth");
 
   private final AccessTierService accessTierService;
+  private final BulkAccessModuleSyncService bulkAccessModuleSyncService;
   private final UserService userService;
   private final DirectoryService directoryService;
   private final TaskQueueService taskQueueService;
@@ -40,10 +43,12 @@ public class OfflineUserController implements OfflineUserApiDelegate {
   @Autowired
   public OfflineUserController(
       AccessTierService accessTierService,
+      BulkAccessModuleSyncService bulkAccessModuleSyncService,
       UserService userService,
       DirectoryService directoryService,
       TaskQueueService taskQueueService) {
     this.accessTierService = accessTierService;
+    this.bulkAccessModuleSyncService = bulkAccessModuleSyncService;
     this.userService = userService;
     this.directoryService = directoryService;
     this.taskQueueService = taskQueueService;
@@ -68,33 +73,26 @@ public class OfflineUserController implements OfflineUserApiDelegate {
    */
   @Override
   public ResponseEntity<Void> bulkSyncComplianceTrainingStatus() {
-    int errorCount = 0;
-    int userCount = 0;
-    int completionChangeCount = 0;
-    int accessLevelChangeCount = 0;
-
-    for (DbUser user : userService.getAllUsersExcludingDisabled()) {
-      userCount++;
-      try {
-        Timestamp oldTime = user.getComplianceTrainingCompletionTime();
-        List<String> oldTiers = accessTierService.getAccessTierShortNamesForUser(user);
-
-        DbUser updatedUser = userService.syncComplianceTrainingStatusV2(user, Agent.asSystem());
-
-        Timestamp newTime = updatedUser.getComplianceTrainingCompletionTime();
-        List<String> newTiers = accessTierService.getAccessTierShortNamesForUser(user);
-
-        completionChangeCount +=
-            logCompletionChange(user, oldTime, newTime, AccessModule.COMPLIANCE_TRAINING);
-        accessLevelChangeCount += logAccessTierChange(user, oldTiers, newTiers);
-      } catch (org.pmiops.workbench.moodle.ApiException | NotFoundException e) {
-        errorCount++;
-        logSyncError(user, e, AccessModule.COMPLIANCE_TRAINING);
-      }
-    }
-
-    logChangeTotals(userCount, completionChangeCount, accessLevelChangeCount);
-    throwIfErrors(errorCount, AccessModule.COMPLIANCE_TRAINING);
+    Summary summary =
+        bulkAccessModuleSyncService.syncAll(
+            AccessModule.COMPLIANCE_TRAINING,
+            Upstream.MOODLE,
+            userService.getAllUserIdsExcludingDisabled(),
+            (user, moodleLimiter) -> {
+              Timestamp oldTime = user.getComplianceTrainingCompletionTime();
+              List<String> oldTiers = accessTierService.getAccessTierShortNamesForUser(user);
+
+              moodleLimiter.acquire();
+              DbUser updatedUser =
+                  userService.syncComplianceTrainingStatusV2(user, Agent.asSystem());
+
+              Timestamp newTime = updatedUser.getComplianceTrainingCompletionTime();
+              List<String> newTiers = accessTierService.getAccessTierShortNamesForUser(user);
+
+              return logChanges(
+                  user, oldTime, newTime, oldTiers, newTiers, AccessModule.COMPLIANCE_TRAINING);
+            });
+    throwIfErrors(summary, AccessModule.COMPLIANCE_TRAINING);
 
     return ResponseEntity.noContent().build();
   }
@@ -106,47 +104,33 @@ public class OfflineUserController implements OfflineUserApiDelegate {
    */
   @Override
   public ResponseEntity<Void> bulkSyncEraCommonsStatus() {
-    int errorCount = 0;
-    int userCount = 0;
-    int completionChangeCount = 0;
-    int accessLevelChangeCount = 0;
-
-    for (DbUser user : userService.getAllUsersExcludingDisabled()) {
-      userCount++;
-      try {
-        // User accounts are registered with Terra on first sign-in. Users who have never signed in
-        // are therefore unusable for impersonated calls to Terra to check on their eRA commons
-        // status.
-        if (user.getFirstSignInTime() == null) {
-          continue;
-        }
-
-        Timestamp oldTime = user.getEraCommonsCompletionTime();
-        List<String> oldTiers = accessTierService.getAccessTierShortNamesForUser(user);
-
-        DbUser updatedUser =
-            userService.syncEraCommonsStatusUsingImpersonation(user, Agent.asSystem());
-
-        Timestamp newTime = updatedUser.getEraCommonsCompletionTime();
-        List<String> newTiers = accessTierService.getAccessTierShortNamesForUser(user);
-
-        completionChangeCount +=
-            logCompletionChange(user, oldTime, newTime, AccessModule.ERA_COMMONS);
-        accessLevelChangeCount += logAccessTierChange(user, oldTiers, newTiers);
-      } catch (org.pmiops.workbench.firecloud.ApiException e) {
-        errorCount++;
-        logSyncError(user, e, AccessModule.ERA_COMMONS);
-      } catch (IOException e) {
-        errorCount++;
-        log.severe(
-            String.format(
-                "Error fetching impersonated creds for user %s: %s",
-                user.getUsername(), e.getMessage()));
-      }
-    }
-
-    logChangeTotals(userCount, completionChangeCount, accessLevelChangeCount);
-    throwIfErrors(errorCount, AccessModule.ERA_COMMONS);
+    Summary summary =
+        bulkAccessModuleSyncService.syncAll(
+            AccessModule.ERA_COMMONS,
+            Upstream.TERRA,
+            userService.getAllUserIdsExcludingDisabled(),
+            (user, terraLimiter) -> {
+              // User accounts are registered with Terra on first sign-in. Users who have never
+              // signed in are therefore unusable for impersonated calls to Terra to check on their
+              // eRA commons status.
+              if (user.getFirstSignInTime() == null) {
+                return Outcome.SKIPPED;
+              }
+
+              Timestamp oldTime = user.getEraCommonsCompletionTime();
+              List<String> oldTiers = accessTierService.getAccessTierShortNamesForUser(user);
+
+              terraLimiter.acquire();
+              DbUser updatedUser =
+                  userService.syncEraCommonsStatusUsingImpersonation(user, Agent.asSystem());
+
+              Timestamp newTime = updatedUser.getEraCommonsCompletionTime();
+              List<String> newTiers = accessTierService.getAccessTierShortNamesForUser(user);
+
+              return logChanges(
+                  user, oldTime, newTime, oldTiers, newTiers, AccessModule.ERA_COMMONS);
+            });
+    throwIfErrors(summary, AccessModule.ERA_COMMONS);
 
     return ResponseEntity.noContent().build();
   }
@@ -158,41 +142,32 @@ public class OfflineUserController implements OfflineUserApiDelegate {
    */
   @Override
   public ResponseEntity<Void> bulkSyncTwoFactorAuthStatus() {
-    int errorCount = 0;
-    int userCount = 0;
-    int completionChangeCount = 0;
-    int accessLevelChangeCount = 0;
-
+    // Statuses are fetched in bulk up front, so syncing a user makes no further calls to GSuite.
     Map<String, Boolean> twoFactorAuthStatuses = directoryService.getAllTwoFactorAuthStatuses();
-    for (DbUser user : userService.getAllUsersExcludingDisabled()) {
-      userCount++;
-      if (!twoFactorAuthStatuses.containsKey(user.getUsername())) {
-        log.warning(
-            String.format("user %s does not exist in gsuite, skipping", user.getUsername()));
-        errorCount++;
-        continue;
-      }
-      try {
-        Timestamp oldTime = user.getTwoFactorAuthCompletionTime();
-        List<String> oldTiers = accessTierService.getAccessTierShortNamesForUser(user);
-        DbUser updatedUser =
-            userService.syncTwoFactorAuthStatus(
-                user, Agent.asSystem(), twoFactorAuthStatuses.get(user.getUsername()));
-
-        Timestamp newTime = updatedUser.getTwoFactorAuthCompletionTime();
-        List<String> newTiers = accessTierService.getAccessTierShortNamesForUser(user);
-
-        completionChangeCount +=
-            logCompletionChange(user, oldTime, newTime, AccessModule.TWO_FACTOR_AUTH);
-        accessLevelChangeCount += logAccessTierChange(user, oldTiers, newTiers);
-      } catch (Exception e) {
-        errorCount++;
-        logSyncError(user, e, AccessModule.TWO_FACTOR_AUTH);
-      }
-    }
-
-    logChangeTotals(userCount, completionChangeCount, accessLevelChangeCount);
-    throwIfErrors(errorCount, AccessModule.TWO_FACTOR_AUTH);
+    Summary summary =
+        bulkAccessModuleSyncService.syncAll(
+            AccessModule.TWO_FACTOR_AUTH,
+            userService.getAllUserIdsExcludingDisabled(),
+            (user, unusedLimiter) -> {
+              Boolean isEnrolledIn2FA = twoFactorAuthStatuses.get(user.getUsername());
+              if (isEnrolledIn2FA == null) {
+                throw new NotFoundException(
+                    String.format("user %s does not exist in gsuite", user.getUsername()));
+              }
+
+              Timestamp oldTime = user.getTwoFactorAuthCompletionTime();
+              List<String> oldTiers = accessTierService.getAccessTierShortNamesForUser(user);
+
+              DbUser updatedUser =
+                  userService.syncTwoFactorAuthStatus(user, Agent.asSystem(), isEnrolledIn2FA);
+
+              Timestamp newTime = updatedUser.getTwoFactorAuthCompletionTime();
+              List<String> newTiers = accessTierService.getAccessTierShortNamesForUser(user);
+
+              return logChanges(
+                  user, oldTime, newTime, oldTiers, newTiers, AccessModule.TWO_FACTOR_AUTH);
+            });
+    throwIfErrors(summary, AccessModule.TWO_FACTOR_AUTH);
 
     return ResponseEntity.noContent().build();
   }
@@ -218,6 +193,9 @@ public class OfflineUserController implements OfflineUserApiDelegate {
               // If a user is no longer compliant it will remove them from an access tier
               userService.updateUserWithRetries(Function.identity(), user, Agent.asSystem());
             });
+    // Tier updates above only touch the Terra Auth Domains of tiers a user gained or lost, so
+    // finally correct any drift between the DB memberships and the Auth Domains.
+    accessTierService.reconcileAuthDomains();
     return ResponseEntity.noContent().build();
   }
 
@@ -227,45 +205,33 @@ public class OfflineUserController implements OfflineUserApiDelegate {
     return ResponseEntity.noContent().build();
   }
 
-  private int logCompletionChange(
-      DbUser user, Timestamp oldTime, Timestamp newTime, AccessModule module) {
-    return logChange(user, oldTime, newTime, accessModuleLogText.get(module) + " completion");
+  private Outcome logChanges(
+      DbUser user,
+      Timestamp oldTime,
+      Timestamp newTime,
+      List<String> oldTiers,
+      List<String> newTiers,
+      AccessModule module) {
+    boolean completionChanged =
+        logChange(user, oldTime, newTime, accessModuleLogText.get(module) + " completion");
+    boolean tiersChanged = logChange(user, oldTiers, newTiers, "Data access tiers");
+    return completionChanged || tiersChanged ? Outcome.CHANGED : Outcome.UNCHANGED;
   }
 
-  private int logAccessTierChange(DbUser user, List<String> oldTiers, List<String> newTiers) {
-    return logChange(user, oldTiers, newTiers, "Data access tiers");
-  }
-
-  private int logChange(DbUser user, Object oldValue, Object newValue, String initialText) {
+  private boolean logChange(DbUser user, Object oldValue, Object newValue, String initialText) {
     if (!Objects.equals(oldValue, newValue)) {
       log.info(
           String.format(
               "%s changed for user %s. Old %s, new %s",
               initialText, user.getUsername(), oldValue, newValue));
-      return 1;
+      return true;
     }
 
-    return 0;
-  }
-
-  private void logSyncError(DbUser user, Exception e, AccessModule module) {
-    log.log(
-        Level.SEVERE,
-        String.format(
-            "Error syncing %s status for user %s",
-            accessModuleLogText.get(module), user.getUsername()),
-        e);
-  }
-
-  private void logChangeTotals(
-      int userCount, int completionChangeCount, int accessLevelChangeCount) {
-    log.info(
-        String.format(
-            "Checked %d users, updated %d completion times, updated %d access levels",
-            userCount, completionChangeCount, accessLevelChangeCount));
+    return false;
   }
 
-  private void throwIfErrors(int errorCount, AccessModule module) {
+  private void throwIfErrors(Summary summary, AccessModule module) {
+    int errorCount = summary.getCount(Outcome.FAILED);
     if (errorCount > 0) {
       throw new ServerErrorException(
           String.format(
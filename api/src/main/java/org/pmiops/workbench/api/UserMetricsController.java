@@ -6,8 +6,6 @@ import com.google.common.base.Joiner;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Streams;
-import java.util.AbstractMap;
-import java.util.AbstractMap.SimpleImmutableEntry;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
@@ -39,6 +37,7 @@ import org.pmiops.workbench.model.WorkspaceResource;
 import org.pmiops.workbench.model.WorkspaceResourceResponse;
 import org.pmiops.workbench.utils.mappers.CommonMappers;
 import org.pmiops.workbench.utils.mappers.FirecloudMapper;
+import org.pmiops.workbench.workspaces.WorkspaceAccessResolver;
 import org.pmiops.workbench.workspaces.WorkspaceAuthService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
@@ -49,12 +48,12 @@ public class UserMetricsController implements UserMetricsApiDelegate {
 
   private static final Logger logger = Logger.getLogger(UserMetricsController.class.getName());
 
-  private static final int MAX_RECENT_NOTEBOOKS = 8;
   private static final Logger log = Logger.getLogger(UserMetricsController.class.getName());
   private final Provider<DbUser> userProvider;
   private final UserRecentResourceService userRecentResourceService;
   private final WorkspaceDao workspaceDao;
   private final WorkspaceAuthService workspaceAuthService;
+  private final WorkspaceAccessResolver workspaceAccessResolver;
   private final FireCloudService fireCloudService;
   private final CloudStorageClient cloudStorageClient;
   private final CommonMappers commonMappers;
@@ -120,6 +119,7 @@ public class UserMetricsController implements UserMetricsApiDelegate {
       UserRecentResourceService userRecentResourceService,
       WorkspaceDao workspaceDao,
       WorkspaceAuthService workspaceAuthService,
+      WorkspaceAccessResolver workspaceAccessResolver,
       FireCloudService fireCloudService,
       CloudStorageClient cloudStorageClient,
       CommonMappers commonMappers,
@@ -128,6 +128,7 @@ public class UserMetricsController implements UserMetricsApiDelegate {
     this.userRecentResourceService = userRecentResourceService;
     this.workspaceDao = workspaceDao;
     this.workspaceAuthService = workspaceAuthService;
+    this.workspaceAccessResolver = workspaceAccessResolver;
     this.fireCloudService = fireCloudService;
     this.cloudStorageClient = cloudStorageClient;
     this.commonMappers = commonMappers;
@@ -190,34 +191,12 @@ public class UserMetricsController implements UserMetricsApiDelegate {
             .collect(Collectors.toList());
 
     final Map<Long, DbWorkspace> idToDbWorkspace =
-        workspaceIdList.stream()
-            .map(
-                id ->
-                    workspaceDao
-                        .findActiveByWorkspaceId(id)
-                        .map(
-                            dbWorkspace ->
-                                new AbstractMap.SimpleImmutableEntry<>(
-                                    dbWorkspace.getWorkspaceId(), dbWorkspace)))
-            .flatMap(Streams::stream)
-            .collect(
-                ImmutableMap.toImmutableMap(
-                    SimpleImmutableEntry::getKey, SimpleImmutableEntry::getValue));
+        workspaceDao.findAllByWorkspaceIdIn(workspaceIdList).stream()
+            .filter(DbWorkspace::isActive)
+            .collect(ImmutableMap.toImmutableMap(DbWorkspace::getWorkspaceId, Function.identity()));
 
     final Map<Long, FirecloudWorkspaceResponse> idToFirecloudWorkspace =
-        idToDbWorkspace.entrySet().stream()
-            .map(
-                entry ->
-                    fireCloudService
-                        .getWorkspace(entry.getValue())
-                        .map(
-                            workspaceResponse ->
-                                new AbstractMap.SimpleImmutableEntry<>(
-                                    entry.getKey(), workspaceResponse)))
-            .flatMap(Streams::stream)
-            .collect(
-                ImmutableMap.toImmutableMap(
-                    SimpleImmutableEntry::getKey, SimpleImmutableEntry::getValue));
+        workspaceAccessResolver.getWorkspaces(idToDbWorkspace.values());
 
     final ImmutableList<DbUserRecentResource> workspaceFilteredResources =
         userRecentResourceList.stream()
@@ -226,19 +205,18 @@ public class UserMetricsController implements UserMetricsApiDelegate {
             .collect(ImmutableList.toImmutableList());
 
     // Check for existence of recent notebooks. Notebooks reside in GCS so they may be arbitrarily
-    // deleted or renamed without notification to the Workbench. This makes a batch of GCS requests
-    // so it will scale fairly well, but limit to the first N notebooks to avoid excess GCS traffic.
+    // deleted or renamed without notification to the Workbench. A user has at most
+    // UserRecentResourceService.USER_ENTRY_COUNT recent resources, so every recent notebook is
+    // checked in a single batch of GCS requests.
     // TODO: If we find a non-existent notebook, expunge from the cache.
     // TODO(jaycarlton) I'm not sure whether it's right to do this here or in a cron job. I don't
-    // personally like GET endpoints to have side effects, and besides, we're not touching enough
-    // of the notebooks to keep the cache up-to-date from here.
+    // personally like GET endpoints to have side effects.
     final Set<BlobId> foundBlobIds =
         cloudStorageClient.getExistingBlobIdsIn(
             workspaceFilteredResources.stream()
                 .map(DbUserRecentResource::getNotebookName)
                 .map(this::uriToBlobId)
                 .flatMap(Streams::stream)
-                .limit(MAX_RECENT_NOTEBOOKS)
                 .collect(Collectors.toList()));
 
     final ImmutableList<WorkspaceResource> userVisibleRecentResources =
@@ -78,6 +78,7 @@ import org.pmiops.workbench.model.WorkspaceResourceResponse;
 import org.pmiops.workbench.model.WorkspaceResourcesRequest;
 import org.pmiops.workbench.model.WorkspaceResponse;
 import org.pmiops.workbench.model.WorkspaceResponseListResponse;
+import org.pmiops.workbench.model.WorkspaceResponsePage;
 import org.pmiops.workbench.model.WorkspaceUserRolesResponse;
 import org.pmiops.workbench.monitoring.LogsBasedMetricService;
 import org.pmiops.workbench.monitoring.MeasurementBundle;
@@ -90,6 +91,7 @@ import org.pmiops.workbench.utils.mappers.WorkspaceMapper;
 import org.pmiops.workbench.workspaces.WorkspaceAuthService;
 import org.pmiops.workbench.workspaces.WorkspaceService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Sort;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.RestController;
 
@@ -101,6 +103,9 @@ public class WorkspacesController implements WorkspacesApiDelegate {
   private static final int NUM_RANDOM_CHARS = 20;
   private static final Level OPERATION_TIME_LOG_LEVEL = Level.FINE;
   private static final String RANDOM_CHARS = "abcdefghijklmnopqrstuvwxyz";
+  private static final int DEFAULT_WORKSPACE_PAGE_SIZE = 20;
+  private static final int MAX_WORKSPACE_PAGE_SIZE = 200;
+  private static final String DEFAULT_WORKSPACE_SORT_COLUMN = "name";
 
   private final BillingProjectBufferService billingProjectBufferService;
   private final CdrVersionDao cdrVersionDao;
@@ -343,6 +348,49 @@ public class WorkspacesController implements WorkspacesApiDelegate {
     return ResponseEntity.ok(response);
   }
 
+  @Override
+  public ResponseEntity<WorkspaceResponsePage> getWorkspacesPage(
+      String pageToken,
+      Integer pageSize,
+      String sortColumn,
+      String sortOrder,
+      String accessLevel,
+      Boolean published,
+      String cdrVersionId) {
+    final int size = Optional.ofNullable(pageSize).orElse(DEFAULT_WORKSPACE_PAGE_SIZE);
+    if (size < 1 || size > MAX_WORKSPACE_PAGE_SIZE) {
+      throw new BadRequestException(
+          String.format("Page size must be between 1 and %d", MAX_WORKSPACE_PAGE_SIZE));
+    }
+    final WorkspaceAccessLevel access;
+    if (accessLevel == null) {
+      access = null;
+    } else {
+      access = WorkspaceAccessLevel.fromValue(accessLevel);
+      if (access == null) {
+        throw new BadRequestException(String.format("Invalid access level: %s", accessLevel));
+      }
+    }
+    final Long cdrVersion;
+    try {
+      cdrVersion = cdrVersionId == null ? null : Long.valueOf(cdrVersionId);
+    } catch (NumberFormatException e) {
+      throw new BadRequestException(String.format("Invalid CDR version ID: %s", cdrVersionId));
+    }
+    return ResponseEntity.ok(
+        recordOperationTime(
+            () ->
+                workspaceService.getWorkspacesPage(
+                    pageToken,
+                    size,
+                    Optional.ofNullable(sortColumn).orElse(DEFAULT_WORKSPACE_SORT_COLUMN),
+                    Sort.Direction.fromOptionalString(sortOrder).orElse(Sort.Direction.ASC),
+                    access,
+                    published,
+                    cdrVersion),
+            "getWorkspacesPage"));
+  }
+
   @Override
   public ResponseEntity<Workspace> updateWorkspace(
       String workspaceNamespace, String workspaceId, UpdateWorkspaceRequest request)
@@ -356,7 +404,7 @@ public class WorkspacesController implements WorkspacesApiDelegate {
   private Workspace updateWorkspaceImpl(
       String workspaceNamespace, String workspaceId, UpdateWorkspaceRequest request) {
     DbWorkspace dbWorkspace = workspaceDao.getRequired(workspaceNamespace, workspaceId);
-    workspaceAuthService.enforceWorkspaceAccessLevel(
+    workspaceAuthService.enforceWorkspaceAccessLevelStrict(
         workspaceNamespace, workspaceId, WorkspaceAccessLevel.OWNER);
     Workspace workspace = request.getWorkspace();
     FirecloudWorkspace fcWorkspace =
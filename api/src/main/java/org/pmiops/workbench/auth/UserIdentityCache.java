@@ -0,0 +1,143 @@
+package org.pmiops.workbench.auth;
+
+import com.google.api.services.oauth2.model.Userinfoplus;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.hash.Hashing;
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import org.pmiops.workbench.monitoring.CacheStatsBundles;
+import org.pmiops.workbench.monitoring.GaugeDataCollector;
+import org.pmiops.workbench.monitoring.MeasurementBundle;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+/**
+ * Remembers which user a bearer token belongs to, so that AuthInterceptor can skip the OAuth2
+ * userinfo round trip (and, for pet service accounts, the FireCloud /me lookup) on repeat requests
+ * with the same token.
+ *
+ * <p>Tokens are keyed by their SHA-256 hash, so raw credentials are never held in memory beyond
+ * the request. Each entry expires when its token does, according to the tokeninfo endpoint, but
+ * never more than {@link #TOKEN_EXPIRY_MINUTES} minutes after it was cached. A token that Google
+ * revokes before it expires can therefore keep working here for up to that long.
+ */
+@Service
+public class UserIdentityCache implements GaugeDataCollector {
+
+  private static final String CACHE_NAME = "auth_token_identity";
+  private static final long MAX_TOKENS = 10000;
+  @VisibleForTesting static final long TOKEN_EXPIRY_MINUTES = 10;
+
+  /** The result of resolving a token: the userinfo response and the user it maps to. */
+  public static class Identity {
+    private final Userinfoplus userInfo;
+    private final String userName;
+    private final long userId;
+
+    public Identity(Userinfoplus userInfo, String userName, long userId) {
+      this.userInfo = userInfo;
+      this.userName = userName;
+      this.userId = userId;
+    }
+
+    public Userinfoplus getUserInfo() {
+      return userInfo;
+    }
+
+    /** The Workbench username, which differs from the userinfo email for pet service accounts. */
+    public String getUserName() {
+      return userName;
+    }
+
+    public long getUserId() {
+      return userId;
+    }
+  }
+
+  /** An identity along with the time its token stops being accepted. */
+  private static class CachedIdentity {
+    private final Identity identity;
+    private final Instant expiresAt;
+
+    private CachedIdentity(Identity identity, Instant expiresAt) {
+      this.identity = identity;
+      this.expiresAt = expiresAt;
+    }
+  }
+
+  private final Clock clock;
+
+  // expireAfterWrite only bounds how long an entry is kept; whether it is still served depends on
+  // its own token's expiry, which get() checks.
+  private final Cache<String, CachedIdentity> identitiesByTokenHash =
+      CacheBuilder.newBuilder()
+          .maximumSize(MAX_TOKENS)
+          .expireAfterWrite(TOKEN_EXPIRY_MINUTES, TimeUnit.MINUTES)
+          .recordStats()
+          .build();
+
+  @Autowired
+  public UserIdentityCache(Clock clock) {
+    this.clock = clock;
+  }
+
+  public Optional<Identity> get(String token) {
+    final String tokenHash = hash(token);
+    final CachedIdentity cached = identitiesByTokenHash.getIfPresent(tokenHash);
+    if (cached == null) {
+      return Optional.empty();
+    }
+    if (!clock.instant().isBefore(cached.expiresAt)) {
+      identitiesByTokenHash.invalidate(tokenHash);
+      return Optional.empty();
+    }
+    return Optional.of(cached.identity);
+  }
+
+  /**
+   * Caches the identity a token resolved to, until the token expires or for {@link
+   * #TOKEN_EXPIRY_MINUTES} minutes, whichever comes first.
+   *
+   * @param expiresIn how much longer the token is valid for, per the tokeninfo endpoint
+   */
+  public void put(String token, Identity identity, Duration expiresIn) {
+    final Duration maxExpiry = Duration.ofMinutes(TOKEN_EXPIRY_MINUTES);
+    final Duration expiry = expiresIn.compareTo(maxExpiry) < 0 ? expiresIn : maxExpiry;
+    identitiesByTokenHash.put(
+        hash(token), new CachedIdentity(identity, clock.instant().plus(expiry)));
+  }
+
+  public void invalidate(String token) {
+    identitiesByTokenHash.invalidate(hash(token));
+  }
+
+  /** Drops every token of the given user, e.g. once they are disabled. */
+  public void invalidateUser(long userId) {
+    identitiesByTokenHash
+        .asMap()
+        .values()
+        .removeIf(cached -> cached.identity.getUserId() == userId);
+  }
+
+  @VisibleForTesting
+  public void invalidateAll() {
+    identitiesByTokenHash.invalidateAll();
+  }
+
+  @Override
+  public Collection<MeasurementBundle> getGaugeData() {
+    return Collections.singleton(CacheStatsBundles.fromCache(CACHE_NAME, identitiesByTokenHash));
+  }
+
+  private static String hash(String token) {
+    return Hashing.sha256().hashString(token, StandardCharsets.UTF_8).toString();
+  }
+}
@@ -4,6 +4,7 @@ import com.google.api.client.googleapis.auth.oauth2.GoogleCredential;
 import com.google.api.client.http.HttpTransport;
 import com.google.api.client.json.JsonFactory;
 import com.google.api.services.oauth2.Oauth2;
+import com.google.api.services.oauth2.model.Tokeninfo;
 import com.google.api.services.oauth2.model.Userinfoplus;
 import org.pmiops.workbench.google.GoogleRetryHandler;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -34,4 +35,13 @@ public class UserInfoService {
             .build();
     return retryHandler.run((context) -> oauth2.userinfo().get().execute());
   }
+
+  /** Looks up the token itself, e.g. how many seconds it remains valid for (expires_in). */
+  public Tokeninfo getTokenInfo(String token) {
+    Oauth2 oauth2 =
+        new Oauth2.Builder(httpTransport, jsonFactory, null)
+            .setApplicationName(APPLICATION_NAME)
+            .build();
+    return retryHandler.run((context) -> oauth2.tokeninfo().setAccessToken(token).execute());
+  }
 }
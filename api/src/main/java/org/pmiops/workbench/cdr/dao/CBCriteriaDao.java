@@ -4,7 +4,10 @@ import java.util.Collection;
 import java.util.List;
 import java.util.Set;
 import org.pmiops.workbench.cdr.model.DbCriteria;
+import org.pmiops.workbench.cdr.model.DbCriteriaHierarchyNode;
 import org.pmiops.workbench.cdr.model.DbCriteriaLookup;
+import org.pmiops.workbench.cdr.model.DbCriteriaSearchDocument;
+import org.pmiops.workbench.cdr.model.DbSurveyQuestionPath;
 import org.pmiops.workbench.cdr.model.DbSurveyVersion;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
@@ -126,6 +129,36 @@ public interface CBCriteriaDao extends CrudRepository<DbCriteria, Long> {
       @Param("type") String type,
       @Param("parentIds") List<Long> parentIds);
 
+  /** Every node of a domain's criteria trees, in id order, for CriteriaHierarchyIndex. */
+  @Query(
+      value =
+          "select c.id as id, c.parentId as parentId, c.conceptId as conceptId, c.type as type, c.standard as standard "
+              + "from DbCriteria c where c.domainId = :domain order by c.id")
+  List<DbCriteriaHierarchyNode> findHierarchyNodesByDomain(@Param("domain") String domain);
+
+  /** The ids of a domain's rank1 criteria, for CriteriaHierarchyIndex. */
+  @Query(
+      value =
+          "select c.id from DbCriteria c where c.domainId = :domain and "
+              + "match(c.fullText, concat('+[', :domain, '_rank1]')) > 0")
+  List<Long> findRank1IdsByDomain(@Param("domain") String domain);
+
+  /** The searchable columns of a domain's rank1 criteria, for CriteriaSearchIndex. */
+  @Query(
+      value =
+          "select c.id as id, c.conceptId as conceptId, c.code as code, c.name as name, c.fullText as fullText, "
+              + "c.count as estCount, c.type as type, c.standard as standard, c.hierarchy as hierarchy "
+              + "from DbCriteria c where c.domainId = :domain and "
+              + "match(c.fullText, concat('+[', :domain, '_rank1]')) > 0")
+  List<DbCriteriaSearchDocument> findSearchDocumentsByDomain(@Param("domain") String domain);
+
+  /** Every survey question and its path, for the survey counts in CriteriaSearchIndex. */
+  @Query(
+      value =
+          "select c.conceptId as conceptId, c.path as path from DbCriteria c "
+              + "where c.domainId = 'SURVEY' and c.subtype = 'QUESTION'")
+  List<DbSurveyQuestionPath> findSurveyQuestionPaths();
+
   @Query(
       value = "select concept_id_2 from cb_criteria_relationship where concept_id_1 = :conceptId",
       nativeQuery = true)
@@ -0,0 +1,15 @@
+package org.pmiops.workbench.cdr.model;
+
+/** The columns of a cb_criteria row needed to place it in a criteria tree. */
+public interface DbCriteriaHierarchyNode {
+
+  Long getId();
+
+  Long getParentId();
+
+  String getConceptId();
+
+  String getType();
+
+  Boolean getStandard();
+}
@@ -0,0 +1,23 @@
+package org.pmiops.workbench.cdr.model;
+
+/** The columns of a rank1 cb_criteria row needed to search it by name, synonym or code. */
+public interface DbCriteriaSearchDocument {
+
+  Long getId();
+
+  String getConceptId();
+
+  String getCode();
+
+  String getName();
+
+  String getFullText();
+
+  Long getEstCount();
+
+  String getType();
+
+  Boolean getStandard();
+
+  Boolean getHierarchy();
+}
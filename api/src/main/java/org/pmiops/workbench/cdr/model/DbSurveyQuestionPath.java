@@ -0,0 +1,9 @@
+package org.pmiops.workbench.cdr.model;
+
+/** The concept and tree path of a survey question in cb_criteria. */
+public interface DbSurveyQuestionPath {
+
+  String getConceptId();
+
+  String getPath();
+}
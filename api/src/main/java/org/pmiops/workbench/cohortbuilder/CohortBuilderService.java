@@ -4,6 +4,7 @@ import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.function.Supplier;
 import org.pmiops.workbench.db.model.DbConceptSetConceptId;
 import org.pmiops.workbench.model.AgeType;
 import org.pmiops.workbench.model.AgeTypeCount;
@@ -100,4 +101,15 @@ public interface CohortBuilderService {
 
   List<SurveyVersion> findSurveyVersionByQuestionConceptIdAndAnswerConceptId(
       Long surveyConceptId, Long questionConceptId, Long answerConceptId);
+
+  /**
+   * Starts the BigQuery participant count for the given request, bypassing the count cache, and
+   * returns a supplier that waits for its result. The query is started in the calling thread's CDR
+   * version context, so the supplier itself may be called from any thread.
+   */
+  Supplier<Long> startCountParticipants(SearchRequest request);
+
+  /** As {@link #startCountParticipants}, for {@link #findDemoChartInfo}. */
+  Supplier<List<DemoChartInfo>> startFindDemoChartInfo(
+      GenderOrSexType genderOrSexType, AgeType ageType, SearchRequest request);
 }
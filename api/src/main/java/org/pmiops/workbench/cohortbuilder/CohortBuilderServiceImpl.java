@@ -6,18 +6,23 @@ import static org.pmiops.workbench.model.FilterColumns.RACE;
 import static org.pmiops.workbench.model.FilterColumns.SEXATBIRTH;
 
 import com.google.cloud.bigquery.FieldValue;
+import com.google.cloud.bigquery.Job;
 import com.google.cloud.bigquery.QueryJobConfiguration;
 import com.google.cloud.bigquery.TableResult;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Ordering;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Collection;
 import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
+import java.util.function.Function;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 import java.util.stream.StreamSupport;
@@ -64,6 +69,8 @@ public class CohortBuilderServiceImpl implements CohortBuilderService {
 
   private static final Integer DEFAULT_TREE_SEARCH_LIMIT = 100;
   private static final Integer DEFAULT_CRITERIA_SEARCH_LIMIT = 250;
+  // Matches BigQueryService#executeQuery's default wait.
+  private static final long QUERY_WAIT_MILLIS = 60000L;
   private static final ImmutableList<String> MYSQL_FULL_TEXT_CHARS =
       ImmutableList.of("\"", "+", "-", "*", "(", ")");
 
@@ -78,6 +85,8 @@ public class CohortBuilderServiceImpl implements CohortBuilderService {
   private final SurveyModuleDao surveyModuleDao;
   private final CohortBuilderMapper cohortBuilderMapper;
   private final Provider<MySQLStopWords> mySQLStopWordsProvider;
+  private final ParticipantCountCache participantCountCache;
+  private final CriteriaSearchIndexService criteriaSearchIndexService;
 
   @Autowired
   public CohortBuilderServiceImpl(
@@ -91,7 +100,9 @@ public class CohortBuilderServiceImpl implements CohortBuilderService {
       PersonDao personDao,
       SurveyModuleDao surveyModuleDao,
       CohortBuilderMapper cohortBuilderMapper,
-      Provider<MySQLStopWords> mySQLStopWordsProvider) {
+      Provider<MySQLStopWords> mySQLStopWordsProvider,
+      ParticipantCountCache participantCountCache,
+      CriteriaSearchIndexService criteriaSearchIndexService) {
     this.bigQueryService = bigQueryService;
     this.cohortQueryBuilder = cohortQueryBuilder;
     this.cbCriteriaAttributeDao = cbCriteriaAttributeDao;
@@ -103,6 +114,8 @@ public class CohortBuilderServiceImpl implements CohortBuilderService {
     this.surveyModuleDao = surveyModuleDao;
     this.cohortBuilderMapper = cohortBuilderMapper;
     this.mySQLStopWordsProvider = mySQLStopWordsProvider;
+    this.participantCountCache = participantCountCache;
+    this.criteriaSearchIndexService = criteriaSearchIndexService;
   }
 
   @Override
@@ -180,10 +193,27 @@ public class CohortBuilderServiceImpl implements CohortBuilderService {
 
   @Override
   public Long countParticipants(SearchRequest request) {
-    QueryJobConfiguration qjc =
-        bigQueryService.filterBigQueryConfig(
-            cohortQueryBuilder.buildParticipantCounterQuery(new ParticipantCriteria(request)));
-    TableResult result = bigQueryService.executeQuery(qjc);
+    return participantCountCache.get(request, () -> queryParticipantCount(request));
+  }
+
+  // Counts and demographic charts wait for their query on the request thread; see
+  // BigQueryService#startQuery for why they aren't run as polled jobs.
+  private Long queryParticipantCount(SearchRequest request) {
+    return toParticipantCount(bigQueryService.executeQuery(buildParticipantCountQuery(request)));
+  }
+
+  @Override
+  public Supplier<Long> startCountParticipants(SearchRequest request) {
+    Job job = bigQueryService.startQuery(buildParticipantCountQuery(request));
+    return () -> toParticipantCount(bigQueryService.waitForQueryResults(job, QUERY_WAIT_MILLIS));
+  }
+
+  private QueryJobConfiguration buildParticipantCountQuery(SearchRequest request) {
+    return bigQueryService.filterBigQueryConfig(
+        cohortQueryBuilder.buildParticipantCounterQuery(new ParticipantCriteria(request)));
+  }
+
+  private Long toParticipantCount(TableResult result) {
     Map<String, Integer> rm = bigQueryService.getResultMapper(result);
     List<FieldValue> row = result.iterateAll().iterator().next();
     return bigQueryService.getLong(row, rm.get("count"));
@@ -210,6 +240,26 @@ public class CohortBuilderServiceImpl implements CohortBuilderService {
       String domain, String term, String type, Boolean standard, Integer limit) {
     PageRequest pageRequest =
         PageRequest.of(0, Optional.ofNullable(limit).orElse(DEFAULT_TREE_SEARCH_LIMIT));
+    Optional<CriteriaSearchIndex> index = findSearchIndex(domain, term);
+    if (index.isPresent()) {
+      List<Long> ids =
+          index
+              .get()
+              .topIds(
+                  index.get().filter(matchTerm(index.get(), term), type, standard, true),
+                  pageRequest.getPageSize());
+      if (ids.isEmpty()) {
+        ids =
+            index
+                .get()
+                .topIds(
+                    index.get().filter(index.get().matchCode(term), type, standard, true),
+                    pageRequest.getPageSize());
+      }
+      return findCriteriaInOrder(ids).stream()
+          .map(cohortBuilderMapper::dbModelToClient)
+          .collect(Collectors.toList());
+    }
     List<DbCriteria> criteriaList =
         cbCriteriaDao.findCriteriaByDomainAndTypeAndStandardAndFullText(
             domain, type, standard, modifyTermMatch(term), pageRequest);
@@ -290,6 +340,19 @@ public class CohortBuilderServiceImpl implements CohortBuilderService {
           .totalCount(dbCriteriaPage.getTotalElements());
     }
 
+    Optional<CriteriaSearchIndex> index = findSearchIndex(domain, term);
+    if (index.isPresent()) {
+      BitSet matches = index.get().matchCode(term);
+      if (matches.isEmpty() && !term.contains(".")) {
+        matches = matchTerm(index.get(), term);
+      }
+      return new CriteriaListWithCountResponse()
+          .items(
+              findCriteriaInOrder(index.get().topIds(matches, pageRequest.getPageSize())).stream()
+                  .map(cohortBuilderMapper::dbModelToClient)
+                  .collect(Collectors.toList()))
+          .totalCount((long) matches.cardinality());
+    }
     Page<DbCriteria> dbCriteriaPage =
         cbCriteriaDao.findCriteriaByDomainAndTypeAndCode(
             domain, term.replaceAll("[()+\"*-]", ""), pageRequest);
@@ -322,11 +385,26 @@ public class CohortBuilderServiceImpl implements CohortBuilderService {
   @Override
   public List<DemoChartInfo> findDemoChartInfo(
       GenderOrSexType genderOrSexType, AgeType ageType, SearchRequest request) {
-    QueryJobConfiguration qjc =
-        bigQueryService.filterBigQueryConfig(
-            cohortQueryBuilder.buildDemoChartInfoCounterQuery(
-                new ParticipantCriteria(request, genderOrSexType, ageType)));
-    TableResult result = bigQueryService.executeQuery(qjc);
+    return toDemoChartInfos(
+        bigQueryService.executeQuery(buildDemoChartInfoQuery(genderOrSexType, ageType, request)));
+  }
+
+  @Override
+  public Supplier<List<DemoChartInfo>> startFindDemoChartInfo(
+      GenderOrSexType genderOrSexType, AgeType ageType, SearchRequest request) {
+    Job job =
+        bigQueryService.startQuery(buildDemoChartInfoQuery(genderOrSexType, ageType, request));
+    return () -> toDemoChartInfos(bigQueryService.waitForQueryResults(job, QUERY_WAIT_MILLIS));
+  }
+
+  private QueryJobConfiguration buildDemoChartInfoQuery(
+      GenderOrSexType genderOrSexType, AgeType ageType, SearchRequest request) {
+    return bigQueryService.filterBigQueryConfig(
+        cohortQueryBuilder.buildDemoChartInfoCounterQuery(
+            new ParticipantCriteria(request, genderOrSexType, ageType)));
+  }
+
+  private List<DemoChartInfo> toDemoChartInfos(TableResult result) {
     Map<String, Integer> rm = bigQueryService.getResultMapper(result);
 
     List<DemoChartInfo> demoChartInfos = new ArrayList<>();
@@ -344,6 +422,11 @@ public class CohortBuilderServiceImpl implements CohortBuilderService {
   @Override
   public Long findDomainCount(String domain, String term) {
     Domain domainToCount = Domain.valueOf(domain);
+    Optional<CriteriaSearchIndex> index = findSearchIndex(domain, term);
+    if (index.isPresent()) {
+      BitSet matches = index.get().matchCode(term);
+      return (long) (matches.isEmpty() ? matchTerm(index.get(), term) : matches).cardinality();
+    }
     Long count = cbCriteriaDao.findDomainCountOnCode(term, domain);
     return count == 0 ? cbCriteriaDao.findDomainCount(modifyTermMatch(term), domain) : count;
   }
@@ -433,6 +516,10 @@ public class CohortBuilderServiceImpl implements CohortBuilderService {
 
   @Override
   public Long findSurveyCount(String name, String term) {
+    Optional<CriteriaSearchIndex> index = findSearchIndex(Domain.SURVEY.toString(), term);
+    if (index.isPresent()) {
+      return index.get().countSurveyQuestions(matchTerm(index.get(), term), name);
+    }
     return cbCriteriaDao.findSurveyCount(name, modifyTermMatch(term));
   }
 
@@ -461,6 +548,52 @@ public class CohortBuilderServiceImpl implements CohortBuilderService {
         .collect(Collectors.toList());
   }
 
+  /**
+   * Returns the search index of the domain, unless it is unavailable or the term uses MySQL
+   * boolean operators, which only the full text queries understand.
+   */
+  private Optional<CriteriaSearchIndex> findSearchIndex(String domain, String term) {
+    if (term == null || MYSQL_FULL_TEXT_CHARS.stream().anyMatch(term::contains)) {
+      return Optional.empty();
+    }
+    return criteriaSearchIndexService.get(domain);
+  }
+
+  /**
+   * The index equivalent of matching modifyTermMatch(term) in MySQL: every word but the last must
+   * appear exactly and the last is a prefix, with stop words and one letter words dropped.
+   */
+  private BitSet matchTerm(CriteriaSearchIndex index, String term) {
+    String[] keywords = removeStopWords(term).split("\\W+");
+    List<String> exactWords = new ArrayList<>();
+    String prefix = null;
+    for (int i = 0; i < keywords.length; i++) {
+      if (keywords[i].length() < 2) {
+        continue;
+      }
+      if (i + 1 == keywords.length) {
+        prefix = keywords[i];
+      } else {
+        exactWords.add(keywords[i]);
+      }
+    }
+    return index.matchText(exactWords, prefix);
+  }
+
+  /** Reads the given criteria from MySQL by primary key, keeping the order of ids. */
+  private List<DbCriteria> findCriteriaInOrder(List<Long> ids) {
+    if (ids.isEmpty()) {
+      return new ArrayList<>();
+    }
+    Map<Long, DbCriteria> criteriaById =
+        StreamSupport.stream(cbCriteriaDao.findAllById(ids).spliterator(), false)
+            .collect(Collectors.toMap(DbCriteria::getId, Function.identity()));
+    return ids.stream()
+        .map(criteriaById::get)
+        .filter(Objects::nonNull)
+        .collect(Collectors.toList());
+  }
+
   private String modifyTermMatch(String term) {
     term = removeStopWords(term);
     if (MYSQL_FULL_TEXT_CHARS.stream().anyMatch(term::contains)) {
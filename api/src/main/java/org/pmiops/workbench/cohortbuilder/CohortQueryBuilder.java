@@ -74,6 +74,9 @@ public class CohortQueryBuilder {
 
   private static final String INCLUDE_SQL_TEMPLATE = "${mainTable}.person_id in (${includeSql})\n";
 
+  private static final String MATERIALIZED_SQL_TEMPLATE =
+      "${mainTable}.person_id in (select person_id from `${materializedTable}`)\n";
+
   private static final String PERSON_ID_WHITELIST_PARAM = "person_id_whitelist";
   private static final String PERSON_ID_BLACKLIST_PARAM = "person_id_blacklist";
 
@@ -222,14 +225,24 @@ public class CohortQueryBuilder {
             "Invalid SearchRequest: includes[] and excludes[] cannot both be empty");
       }
 
-      // build query for included search groups
-      StringJoiner joiner = buildQuery(request.getIncludes(), mainTable, params, false);
-
-      // if includes is empty then don't add the excludes clause
-      if (joiner.toString().isEmpty()) {
-        joiner.merge(buildQuery(request.getExcludes(), mainTable, params, false));
+      StringJoiner joiner;
+      if (participantCriteria.getMaterializedTable() != null) {
+        // the search groups have already been evaluated into this table
+        joiner = new StringJoiner("and ");
+        joiner.add(
+            MATERIALIZED_SQL_TEMPLATE
+                .replace("${mainTable}", mainTable)
+                .replace("${materializedTable}", participantCriteria.getMaterializedTable()));
       } else {
-        joiner.merge(buildQuery(request.getExcludes(), mainTable, params, true));
+        // build query for included search groups
+        joiner = buildQuery(request.getIncludes(), mainTable, params, false);
+
+        // if includes is empty then don't add the excludes clause
+        if (joiner.toString().isEmpty()) {
+          joiner.merge(buildQuery(request.getExcludes(), mainTable, params, false));
+        } else {
+          joiner.merge(buildQuery(request.getExcludes(), mainTable, params, true));
+        }
       }
       Set<Long> participantIdsToExclude = participantCriteria.getParticipantIdsToExclude();
       if (!participantIdsToExclude.isEmpty()) {
@@ -0,0 +1,259 @@
+package org.pmiops.workbench.cohortbuilder;
+
+import com.google.common.primitives.Longs;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import org.pmiops.workbench.cdr.model.DbCriteriaHierarchyNode;
+
+/**
+ * An immutable, in-memory copy of the shape of one domain's criteria trees in a CDR's cb_criteria
+ * table: for every node its id, parent, concept id, type and standard flag, plus which nodes carry
+ * the domain's rank1 marker (see {@link org.pmiops.workbench.cdr.dao.CBCriteriaDao}).
+ *
+ * <p>Nodes are held in primitive arrays sorted by criteria id, with each node's children stored as
+ * a contiguous range of one shared array, so descendant expansion is a walk over int arrays rather
+ * than a {@code path like '%id%'} scan. The CDR criteria tables never change once published, so
+ * an index can be reused for as long as its CDR version is live.
+ */
+public final class CriteriaHierarchyIndex implements CriteriaIndexCache.Index {
+
+  private static final int NO_NODE = -1;
+  private static final long NO_CONCEPT = -1;
+
+  // Node i is described by position i of each of these arrays.
+  private final long[] ids;
+  private final int[] parents;
+  private final long[] conceptIds;
+  private final byte[] typeOrdinals;
+  private final BitSet standard;
+
+  // The children of node i are childNodes[childOffsets[i]] to childNodes[childOffsets[i + 1] - 1].
+  private final int[] childOffsets;
+  private final int[] childNodes;
+
+  // Rank1 nodes, sorted by concept id, so the nodes for a concept are a contiguous range.
+  private final long[] rank1ConceptIds;
+  private final int[] rank1Nodes;
+
+  private final String[] types;
+
+  private CriteriaHierarchyIndex(
+      long[] ids,
+      int[] parents,
+      long[] conceptIds,
+      byte[] typeOrdinals,
+      BitSet standard,
+      int[] childOffsets,
+      int[] childNodes,
+      long[] rank1ConceptIds,
+      int[] rank1Nodes,
+      String[] types) {
+    this.ids = ids;
+    this.parents = parents;
+    this.conceptIds = conceptIds;
+    this.typeOrdinals = typeOrdinals;
+    this.standard = standard;
+    this.childOffsets = childOffsets;
+    this.childNodes = childNodes;
+    this.rank1ConceptIds = rank1ConceptIds;
+    this.rank1Nodes = rank1Nodes;
+    this.types = types;
+  }
+
+  /**
+   * Builds an index from every node of a domain and the ids of that domain's rank1 nodes. Nodes
+   * must be ordered by id; a node whose parent is not among them is treated as a root.
+   */
+  public static CriteriaHierarchyIndex build(
+      List<? extends DbCriteriaHierarchyNode> nodes, Collection<Long> rank1Ids) {
+    final int size = nodes.size();
+    final long[] ids = new long[size];
+    final long[] conceptIds = new long[size];
+    final byte[] typeOrdinals = new byte[size];
+    final BitSet standard = new BitSet(size);
+    final List<String> types = new ArrayList<>();
+    for (int i = 0; i < size; i++) {
+      final DbCriteriaHierarchyNode node = nodes.get(i);
+      ids[i] = node.getId();
+      if (i > 0 && ids[i] <= ids[i - 1]) {
+        throw new IllegalArgumentException("Criteria nodes must be sorted by unique id");
+      }
+      final Long conceptId =
+          Optional.ofNullable(node.getConceptId()).map(Longs::tryParse).orElse(null);
+      conceptIds[i] = conceptId == null ? NO_CONCEPT : conceptId;
+      int typeOrdinal = types.indexOf(node.getType());
+      if (typeOrdinal < 0) {
+        typeOrdinal = types.size();
+        types.add(node.getType());
+      }
+      typeOrdinals[i] = (byte) typeOrdinal;
+      standard.set(i, Boolean.TRUE.equals(node.getStandard()));
+    }
+    if (types.size() > Byte.MAX_VALUE) {
+      throw new IllegalArgumentException("Too many criteria types: " + types.size());
+    }
+
+    // Resolve parents and count children, then lay the children out by parent.
+    final int[] parents = new int[size];
+    final int[] childOffsets = new int[size + 1];
+    for (int i = 0; i < size; i++) {
+      final Long parentId = nodes.get(i).getParentId();
+      parents[i] = parentId == null ? NO_NODE : nodeOf(ids, parentId);
+      if (parents[i] != NO_NODE) {
+        childOffsets[parents[i] + 1]++;
+      }
+    }
+    for (int i = 0; i < size; i++) {
+      childOffsets[i + 1] += childOffsets[i];
+    }
+    final int[] childNodes = new int[childOffsets[size]];
+    final int[] nextChild = Arrays.copyOf(childOffsets, size);
+    for (int i = 0; i < size; i++) {
+      if (parents[i] != NO_NODE) {
+        childNodes[nextChild[parents[i]]++] = i;
+      }
+    }
+
+    final int[] rank1Nodes =
+        rank1Ids.stream()
+            .map(id -> nodeOf(ids, id))
+            .filter(node -> node != NO_NODE && conceptIds[node] != NO_CONCEPT)
+            .sorted(Comparator.comparingLong(node -> conceptIds[node]))
+            .mapToInt(Integer::intValue)
+            .toArray();
+    final long[] rank1ConceptIds =
+        Arrays.stream(rank1Nodes).mapToLong(node -> conceptIds[node]).toArray();
+
+    return new CriteriaHierarchyIndex(
+        ids,
+        parents,
+        conceptIds,
+        typeOrdinals,
+        standard,
+        childOffsets,
+        childNodes,
+        rank1ConceptIds,
+        rank1Nodes,
+        types.toArray(new String[0]));
+  }
+
+  /** The number of criteria nodes in this index. */
+  public int size() {
+    return ids.length;
+  }
+
+  /**
+   * Returns the concept ids of every descendant, at any depth and of any type, of the rank1 nodes
+   * for the given concept with the given type and standard flag. Concepts in excludedConceptIds
+   * are left out, as are nodes without a concept.
+   *
+   * <p>This is the expansion that {@link
+   * org.pmiops.workbench.cdr.dao.CBCriteriaDao#findCriteriaLeavesAndParentsByPath} gives, without
+   * the false matches of one id being a substring of another in the path.
+   */
+  public Set<Long> findDescendantConceptIds(
+      long parentConceptId, String type, Boolean isStandard, Set<Long> excludedConceptIds) {
+    final Set<Long> descendants = new HashSet<>();
+    final BitSet visited = new BitSet(size());
+    int[] stack = new int[16];
+    for (int parent : findRank1Nodes(parentConceptId, type, isStandard)) {
+      int depth = 0;
+      stack[depth++] = parent;
+      while (depth > 0) {
+        final int node = stack[--depth];
+        for (int c = childOffsets[node]; c < childOffsets[node + 1]; c++) {
+          final int child = childNodes[c];
+          if (visited.get(child)) {
+            continue;
+          }
+          visited.set(child);
+          addConcept(descendants, child, excludedConceptIds);
+          if (depth == stack.length) {
+            stack = Arrays.copyOf(stack, depth * 2);
+          }
+          stack[depth++] = child;
+        }
+      }
+    }
+    return descendants;
+  }
+
+  /**
+   * Returns the concept ids of the direct children, of the same type, of the rank1 nodes for the
+   * given concept with the given type and standard flag. Concepts in excludedConceptIds are left
+   * out, as are nodes without a concept.
+   *
+   * <p>This is the expansion that {@link
+   * org.pmiops.workbench.cdr.dao.CBCriteriaDao#findCriteriaLeavesAndParentsByDomainAndTypeAndParentIds}
+   * gives for ICD9 parents.
+   */
+  public Set<Long> findChildConceptIds(
+      long parentConceptId, String type, Boolean isStandard, Set<Long> excludedConceptIds) {
+    final Set<Long> children = new HashSet<>();
+    for (int parent : findRank1Nodes(parentConceptId, type, isStandard)) {
+      for (int c = childOffsets[parent]; c < childOffsets[parent + 1]; c++) {
+        final int child = childNodes[c];
+        if (typeOrdinals[child] == typeOrdinals[parent]) {
+          addConcept(children, child, excludedConceptIds);
+        }
+      }
+    }
+    return children;
+  }
+
+  /** An estimate of the heap this index occupies, for footprint reporting and cache weighing. */
+  @Override
+  public long estimatedSizeBytes() {
+    return ids.length * (long) Long.BYTES
+        + parents.length * (long) Integer.BYTES
+        + conceptIds.length * (long) Long.BYTES
+        + typeOrdinals.length
+        + standard.size() / Byte.SIZE
+        + childOffsets.length * (long) Integer.BYTES
+        + childNodes.length * (long) Integer.BYTES
+        + rank1ConceptIds.length * (long) Long.BYTES
+        + rank1Nodes.length * (long) Integer.BYTES;
+  }
+
+  private List<Integer> findRank1Nodes(long conceptId, String type, Boolean isStandard) {
+    final List<Integer> nodes = new ArrayList<>();
+    if (isStandard == null) {
+      // Mirrors "standard = null" in SQL, which matches nothing.
+      return nodes;
+    }
+    int r = Arrays.binarySearch(rank1ConceptIds, conceptId);
+    if (r < 0) {
+      return nodes;
+    }
+    while (r > 0 && rank1ConceptIds[r - 1] == conceptId) {
+      r--;
+    }
+    for (; r < rank1ConceptIds.length && rank1ConceptIds[r] == conceptId; r++) {
+      final int node = rank1Nodes[r];
+      if (Objects.equals(types[typeOrdinals[node]], type) && standard.get(node) == isStandard) {
+        nodes.add(node);
+      }
+    }
+    return nodes;
+  }
+
+  private void addConcept(Set<Long> concepts, int node, Set<Long> excludedConceptIds) {
+    final long conceptId = conceptIds[node];
+    if (conceptId != NO_CONCEPT && !excludedConceptIds.contains(conceptId)) {
+      concepts.add(conceptId);
+    }
+  }
+
+  private static int nodeOf(long[] ids, long id) {
+    final int node = Arrays.binarySearch(ids, id);
+    return node < 0 ? NO_NODE : node;
+  }
+}
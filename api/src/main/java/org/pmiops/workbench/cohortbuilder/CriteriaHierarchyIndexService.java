@@ -0,0 +1,54 @@
+package org.pmiops.workbench.cohortbuilder;
+
+import com.google.common.base.Stopwatch;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+import org.pmiops.workbench.cdr.dao.CBCriteriaDao;
+import org.pmiops.workbench.cohortbuilder.CriteriaIndexCache.Kind;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+/**
+ * Loads {@link CriteriaHierarchyIndex}es, one per CDR version and domain, from the current CDR's
+ * cb_criteria table, and keeps them in the shared {@link CriteriaIndexCache}.
+ */
+@Service
+public class CriteriaHierarchyIndexService {
+
+  private static final Logger log = Logger.getLogger(CriteriaHierarchyIndexService.class.getName());
+
+  private final CBCriteriaDao cbCriteriaDao;
+  private final CriteriaIndexCache criteriaIndexCache;
+
+  @Autowired
+  public CriteriaHierarchyIndexService(
+      CBCriteriaDao cbCriteriaDao, CriteriaIndexCache criteriaIndexCache) {
+    this.cbCriteriaDao = cbCriteriaDao;
+    this.criteriaIndexCache = criteriaIndexCache;
+  }
+
+  /**
+   * Returns the index of the given domain in the current CDR version, loading it on a miss. No
+   * index is available outside of a CDR version context, or when it is too large to cache.
+   */
+  public Optional<CriteriaHierarchyIndex> get(String domain) {
+    return criteriaIndexCache.get(Kind.HIERARCHY, domain, () -> load(domain));
+  }
+
+  private CriteriaHierarchyIndex load(String domain) {
+    Stopwatch stopwatch = Stopwatch.createStarted();
+    CriteriaHierarchyIndex index =
+        CriteriaHierarchyIndex.build(
+            cbCriteriaDao.findHierarchyNodesByDomain(domain),
+            cbCriteriaDao.findRank1IdsByDomain(domain));
+    log.info(
+        String.format(
+            "Loaded %s criteria hierarchy index: %d nodes, ~%d KiB, in %d ms",
+            domain,
+            index.size(),
+            index.estimatedSizeBytes() / 1024,
+            stopwatch.elapsed(TimeUnit.MILLISECONDS)));
+    return index;
+  }
+}
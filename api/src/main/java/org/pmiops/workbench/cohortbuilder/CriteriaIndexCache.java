@@ -0,0 +1,169 @@
+package org.pmiops.workbench.cohortbuilder;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.ImmutableList;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.logging.Logger;
+import javax.inject.Provider;
+import org.pmiops.workbench.cdr.CdrVersionContext;
+import org.pmiops.workbench.config.WorkbenchConfig;
+import org.pmiops.workbench.db.model.DbCdrVersion;
+import org.pmiops.workbench.exceptions.ServerErrorException;
+import org.pmiops.workbench.monitoring.CacheStatsBundles;
+import org.pmiops.workbench.monitoring.GaugeDataCollector;
+import org.pmiops.workbench.monitoring.MeasurementBundle;
+import org.pmiops.workbench.monitoring.views.GaugeMetric;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+/**
+ * Instance-wide cache of the in-memory criteria indexes, one per kind, CDR version and domain.
+ * Every kind of index shares one budget, weighed by the indexes' estimated sizes, so that the
+ * indexes together stay within the heap the instance class can spare (see the cdr config's
+ * criteriaIndexCacheMegabytes).
+ *
+ * <p>An index is loaded the first time it is asked for, on the calling thread so that the CDR data
+ * source routes to the right database. An index too large for the whole budget is not kept, and is
+ * not loaded again for the life of the instance; callers fall back to querying the database.
+ */
+@Service
+public class CriteriaIndexCache implements GaugeDataCollector {
+
+  private static final Logger log = Logger.getLogger(CriteriaIndexCache.class.getName());
+
+  private static final String CACHE_NAME = "criteria_index";
+  // Fits the smallest (F1) instance class, for configs which don't size the cache.
+  private static final long DEFAULT_CACHE_MEGABYTES = 16;
+  private static final long EXPIRY_HOURS = 24;
+
+  /** An index held in this cache. */
+  public interface Index {
+    /** An estimate of the heap this index occupies, used to weigh it against the budget. */
+    long estimatedSizeBytes();
+  }
+
+  public enum Kind {
+    HIERARCHY("hierarchy", GaugeMetric.CRITERIA_HIERARCHY_INDEX_BYTES),
+    SEARCH("search", GaugeMetric.CRITERIA_SEARCH_INDEX_BYTES);
+
+    private final String label;
+    private final GaugeMetric bytesMetric;
+
+    Kind(String label, GaugeMetric bytesMetric) {
+      this.label = label;
+      this.bytesMetric = bytesMetric;
+    }
+  }
+
+  private final Provider<WorkbenchConfig> workbenchConfigProvider;
+  // Keys of indexes which didn't fit in the budget.
+  private final Set<String> oversizedKeys = ConcurrentHashMap.newKeySet();
+
+  // Built on first use, since the budget is read from the request scoped config.
+  private volatile Cache<String, Index> cache;
+  private volatile long maxBytes;
+
+  @Autowired
+  public CriteriaIndexCache(Provider<WorkbenchConfig> workbenchConfigProvider) {
+    this.workbenchConfigProvider = workbenchConfigProvider;
+  }
+
+  /**
+   * Returns the index of the given kind and domain in the current CDR version, loading it on a
+   * miss. No index is available outside of a CDR version context, or when it is too large for the
+   * budget.
+   */
+  public <T extends Index> Optional<T> get(Kind kind, String domain, Supplier<T> loader) {
+    DbCdrVersion cdrVersion = CdrVersionContext.getCdrVersion();
+    if (cdrVersion == null) {
+      return Optional.empty();
+    }
+    String key = kind + ":" + cdrVersion.getCdrVersionId() + ":" + domain;
+    if (oversizedKeys.contains(key)) {
+      return Optional.empty();
+    }
+    Cache<String, Index> indexes = getCache();
+    Index index;
+    try {
+      index = indexes.get(key, loader::get);
+    } catch (ExecutionException | UncheckedExecutionException e) {
+      throw new ServerErrorException(
+          String.format("Failed to load the criteria %s index for domain %s", kind.label, domain),
+          e.getCause());
+    }
+    if (index.estimatedSizeBytes() > maxBytes) {
+      indexes.invalidate(key);
+      oversizedKeys.add(key);
+      log.warning(
+          String.format(
+              "%s criteria %s index (~%d KiB) exceeds the %d KiB budget, not caching it",
+              domain, kind.label, index.estimatedSizeBytes() / 1024, maxBytes / 1024));
+      return Optional.empty();
+    }
+    @SuppressWarnings("unchecked")
+    T typed = (T) index;
+    return Optional.of(typed);
+  }
+
+  @Override
+  public Collection<MeasurementBundle> getGaugeData() {
+    Cache<String, Index> indexes = cache;
+    if (indexes == null) {
+      return ImmutableList.of();
+    }
+    ImmutableList.Builder<MeasurementBundle> bundles = ImmutableList.builder();
+    bundles.add(CacheStatsBundles.fromCache(CACHE_NAME, indexes));
+    for (Kind kind : Kind.values()) {
+      long bytes = 0;
+      for (Map.Entry<String, Index> entry : indexes.asMap().entrySet()) {
+        if (entry.getKey().startsWith(kind + ":")) {
+          bytes += entry.getValue().estimatedSizeBytes();
+        }
+      }
+      bundles.add(MeasurementBundle.builder().addMeasurement(kind.bytesMetric, bytes).build());
+    }
+    return bundles.build();
+  }
+
+  @VisibleForTesting
+  long getMaxBytes() {
+    getCache();
+    return maxBytes;
+  }
+
+  private Cache<String, Index> getCache() {
+    Cache<String, Index> indexes = cache;
+    if (indexes == null) {
+      synchronized (this) {
+        indexes = cache;
+        if (indexes == null) {
+          long megabytes = workbenchConfigProvider.get().cdr.criteriaIndexCacheMegabytes;
+          maxBytes = (megabytes > 0 ? megabytes : DEFAULT_CACHE_MEGABYTES) * 1024 * 1024;
+          indexes =
+              CacheBuilder.newBuilder()
+                  // One segment, so that the whole budget is available to a single index.
+                  .concurrencyLevel(1)
+                  .maximumWeight(maxBytes)
+                  .weigher(
+                      (String key, Index index) ->
+                          (int) Math.min(Integer.MAX_VALUE, index.estimatedSizeBytes()))
+                  .expireAfterAccess(EXPIRY_HOURS, TimeUnit.HOURS)
+                  .recordStats()
+                  .build();
+          cache = indexes;
+        }
+      }
+    }
+    return indexes;
+  }
+}
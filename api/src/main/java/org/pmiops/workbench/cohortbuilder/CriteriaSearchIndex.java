@@ -0,0 +1,391 @@
+package org.pmiops.workbench.cohortbuilder;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.primitives.Longs;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.regex.Pattern;
+import javax.annotation.Nullable;
+import org.pmiops.workbench.cdr.model.DbCriteriaSearchDocument;
+import org.pmiops.workbench.cdr.model.DbSurveyQuestionPath;
+
+/**
+ * An immutable, in-memory inverted index over one domain's rank1 criteria in a CDR's cb_criteria
+ * table, answering the name, synonym and code lookups of cohort builder search and autocomplete
+ * without MySQL full text queries.
+ *
+ * <p>Criteria are numbered in result order (est_count descending, then name, then id), so the
+ * first matches in a {@link BitSet} of criteria numbers are the top results and its cardinality is
+ * the total count. The words of each criteria's full_text (its name and synonyms) are kept as a
+ * sorted vocabulary with a posting list per word, so word and prefix lookups are binary searches.
+ * Codes are kept sorted for prefix lookups in the same way.
+ */
+public final class CriteriaSearchIndex implements CriteriaIndexCache.Index {
+
+  // Splits full_text into words roughly as MySQL's full text parser does.
+  private static final Pattern WORD_SEPARATOR = Pattern.compile("[^\\p{L}\\p{N}_]+");
+  // full_text also carries the [domain_rank1] markers, which are not searchable words.
+  private static final String RANK1_SUFFIX = "_rank1";
+
+  // Criteria i, in result order, is described by position i of each of these arrays.
+  private final long[] ids;
+  private final long[] conceptIds;
+  private final byte[] typeOrdinals;
+  private final BitSet standard;
+  private final BitSet hierarchy;
+  private final String[] types;
+
+  // The criteria containing words[w] are postings[postingOffsets[w]] up to postingOffsets[w + 1].
+  private final String[] words;
+  private final int[] postingOffsets;
+  private final int[] postings;
+
+  // Upper-cased codes, sorted, and the criteria each belongs to.
+  private final String[] codes;
+  private final int[] codeCriteria;
+
+  // Survey questions (which need not be rank1) by concept id, and the survey each is part of.
+  private final long[] questionConceptIds;
+  private final String[] questionSurveyNames;
+
+  private CriteriaSearchIndex(
+      long[] ids,
+      long[] conceptIds,
+      byte[] typeOrdinals,
+      BitSet standard,
+      BitSet hierarchy,
+      String[] types,
+      String[] words,
+      int[] postingOffsets,
+      int[] postings,
+      String[] codes,
+      int[] codeCriteria,
+      long[] questionConceptIds,
+      String[] questionSurveyNames) {
+    this.ids = ids;
+    this.conceptIds = conceptIds;
+    this.typeOrdinals = typeOrdinals;
+    this.standard = standard;
+    this.hierarchy = hierarchy;
+    this.types = types;
+    this.words = words;
+    this.postingOffsets = postingOffsets;
+    this.postings = postings;
+    this.codes = codes;
+    this.codeCriteria = codeCriteria;
+    this.questionConceptIds = questionConceptIds;
+    this.questionSurveyNames = questionSurveyNames;
+  }
+
+  /** Builds an index of the given rank1 criteria, with no survey questions. */
+  public static CriteriaSearchIndex build(List<? extends DbCriteriaSearchDocument> documents) {
+    return build(documents, ImmutableList.of(), ImmutableMap.of());
+  }
+
+  /**
+   * Builds an index of the given rank1 criteria. For the survey domain, questions are all survey
+   * question criteria and surveyNamesById names the surveys at the roots of their paths.
+   */
+  public static CriteriaSearchIndex build(
+      List<? extends DbCriteriaSearchDocument> documents,
+      List<? extends DbSurveyQuestionPath> questions,
+      Map<Long, String> surveyNamesById) {
+    final List<DbCriteriaSearchDocument> sorted = new ArrayList<>(documents);
+    sorted.sort(
+        Comparator.comparing(
+                (DbCriteriaSearchDocument d) -> Optional.ofNullable(d.getEstCount()).orElse(0L))
+            .reversed()
+            .thenComparing(
+                DbCriteriaSearchDocument::getName,
+                Comparator.nullsLast(String.CASE_INSENSITIVE_ORDER))
+            .thenComparing(DbCriteriaSearchDocument::getId));
+
+    final int size = sorted.size();
+    final long[] ids = new long[size];
+    final long[] conceptIds = new long[size];
+    final byte[] typeOrdinals = new byte[size];
+    final BitSet standard = new BitSet(size);
+    final BitSet hierarchy = new BitSet(size);
+    final List<String> types = new ArrayList<>();
+    final Map<String, Integer> wordIds = new HashMap<>();
+    final List<String> wordList = new ArrayList<>();
+    final IntList wordCounts = new IntList();
+    // Pairs of (word id, criteria), flattened.
+    final IntList occurrences = new IntList();
+    final List<String> codeList = new ArrayList<>();
+    final IntList codeCriteriaList = new IntList();
+    for (int i = 0; i < size; i++) {
+      final DbCriteriaSearchDocument document = sorted.get(i);
+      ids[i] = document.getId();
+      conceptIds[i] = parseConceptId(document.getConceptId());
+      int typeOrdinal = types.indexOf(document.getType());
+      if (typeOrdinal < 0) {
+        typeOrdinal = types.size();
+        types.add(document.getType());
+      }
+      typeOrdinals[i] = (byte) typeOrdinal;
+      standard.set(i, Boolean.TRUE.equals(document.getStandard()));
+      hierarchy.set(i, Boolean.TRUE.equals(document.getHierarchy()));
+      for (String word : wordsOf(document.getFullText())) {
+        final int wordId =
+            wordIds.computeIfAbsent(
+                word,
+                w -> {
+                  wordList.add(w);
+                  wordCounts.add(0);
+                  return wordList.size() - 1;
+                });
+        wordCounts.set(wordId, wordCounts.get(wordId) + 1);
+        occurrences.add(wordId);
+        occurrences.add(i);
+      }
+      if (document.getCode() != null) {
+        codeList.add(document.getCode().toUpperCase(Locale.ROOT));
+        codeCriteriaList.add(i);
+      }
+    }
+    if (types.size() > Byte.MAX_VALUE) {
+      throw new IllegalArgumentException("Too many criteria types: " + types.size());
+    }
+
+    // Sort the vocabulary, then lay the postings out in vocabulary order. Occurrences were added
+    // in criteria order, so each posting list comes out sorted.
+    final Integer[] wordOrder = new Integer[wordList.size()];
+    Arrays.setAll(wordOrder, w -> w);
+    Arrays.sort(wordOrder, Comparator.comparing(wordList::get));
+    final String[] words = new String[wordOrder.length];
+    final int[] rankOfWord = new int[wordOrder.length];
+    final int[] postingOffsets = new int[wordOrder.length + 1];
+    for (int rank = 0; rank < wordOrder.length; rank++) {
+      words[rank] = wordList.get(wordOrder[rank]);
+      rankOfWord[wordOrder[rank]] = rank;
+      postingOffsets[rank + 1] = postingOffsets[rank] + wordCounts.get(wordOrder[rank]);
+    }
+    final int[] postings = new int[postingOffsets[wordOrder.length]];
+    final int[] nextPosting = Arrays.copyOf(postingOffsets, wordOrder.length);
+    for (int o = 0; o < occurrences.size(); o += 2) {
+      postings[nextPosting[rankOfWord[occurrences.get(o)]]++] = occurrences.get(o + 1);
+    }
+
+    final Integer[] codeOrder = new Integer[codeList.size()];
+    Arrays.setAll(codeOrder, c -> c);
+    Arrays.sort(codeOrder, Comparator.comparing(codeList::get));
+    final String[] codes = new String[codeOrder.length];
+    final int[] codeCriteria = new int[codeOrder.length];
+    for (int c = 0; c < codeOrder.length; c++) {
+      codes[c] = codeList.get(codeOrder[c]);
+      codeCriteria[c] = codeCriteriaList.get(codeOrder[c]);
+    }
+
+    final long[] questionConceptIds = new long[questions.size()];
+    final String[] questionSurveyNames = new String[questions.size()];
+    for (int q = 0; q < questions.size(); q++) {
+      final DbSurveyQuestionPath question = questions.get(q);
+      questionConceptIds[q] = parseConceptId(question.getConceptId());
+      questionSurveyNames[q] = surveyNamesById.get(surveyIdOf(question.getPath()));
+    }
+
+    return new CriteriaSearchIndex(
+        ids,
+        conceptIds,
+        typeOrdinals,
+        standard,
+        hierarchy,
+        types.toArray(new String[0]),
+        words,
+        postingOffsets,
+        postings,
+        codes,
+        codeCriteria,
+        questionConceptIds,
+        questionSurveyNames);
+  }
+
+  /** The number of criteria in this index. */
+  public int size() {
+    return ids.length;
+  }
+
+  /**
+   * Returns the criteria whose full_text contains every one of exactWords, plus a word starting
+   * with prefix when one is given. With no words and no prefix, every criteria matches.
+   */
+  public BitSet matchText(List<String> exactWords, @Nullable String prefix) {
+    final BitSet matches = new BitSet(size());
+    matches.set(0, size());
+    for (String word : exactWords) {
+      final int w = Arrays.binarySearch(words, word.toLowerCase(Locale.ROOT));
+      matches.and(w < 0 ? new BitSet() : postingsOf(w, w + 1));
+    }
+    if (prefix != null) {
+      final String lowerPrefix = prefix.toLowerCase(Locale.ROOT);
+      final int from = lowerBound(words, lowerPrefix);
+      matches.and(postingsOf(from, lowerBound(words, lowerPrefix + Character.MAX_VALUE)));
+    }
+    return matches;
+  }
+
+  /** Returns the criteria whose code starts with the given prefix, ignoring case. */
+  public BitSet matchCode(String prefix) {
+    final String upperPrefix = prefix.toUpperCase(Locale.ROOT);
+    final BitSet matches = new BitSet(size());
+    final int to = lowerBound(codes, upperPrefix + Character.MAX_VALUE);
+    for (int c = lowerBound(codes, upperPrefix); c < to; c++) {
+      matches.set(codeCriteria[c]);
+    }
+    return matches;
+  }
+
+  /**
+   * Narrows matches, in place, to criteria of the given type and standard flag, and to those with
+   * a hierarchy when hierarchyOnly is set. A null type or standard flag matches nothing, as it
+   * would in SQL.
+   */
+  public BitSet filter(
+      BitSet matches, @Nullable String type, @Nullable Boolean isStandard, boolean hierarchyOnly) {
+    if (type == null || isStandard == null) {
+      matches.clear();
+      return matches;
+    }
+    for (int i = matches.nextSetBit(0); i >= 0; i = matches.nextSetBit(i + 1)) {
+      if (!Objects.equals(types[typeOrdinals[i]], type)) {
+        matches.clear(i);
+      }
+    }
+    if (isStandard) {
+      matches.and(standard);
+    } else {
+      matches.andNot(standard);
+    }
+    if (hierarchyOnly) {
+      matches.and(hierarchy);
+    }
+    return matches;
+  }
+
+  /** Returns the criteria ids of the first limit matches, in result order. */
+  public List<Long> topIds(BitSet matches, int limit) {
+    final List<Long> topIds = new ArrayList<>(Math.min(limit, matches.cardinality()));
+    for (int i = matches.nextSetBit(0); i >= 0 && topIds.size() < limit; ) {
+      topIds.add(ids[i]);
+      i = matches.nextSetBit(i + 1);
+    }
+    return topIds;
+  }
+
+  /**
+   * Counts the questions of the named survey whose concept is among the matches, as {@link
+   * org.pmiops.workbench.cdr.dao.CBCriteriaDao#findSurveyCount} does.
+   */
+  public long countSurveyQuestions(BitSet matches, String surveyName) {
+    final Set<Long> matchedConceptIds = new HashSet<>();
+    for (int i = matches.nextSetBit(0); i >= 0; i = matches.nextSetBit(i + 1)) {
+      matchedConceptIds.add(conceptIds[i]);
+    }
+    long count = 0;
+    for (int q = 0; q < questionConceptIds.length; q++) {
+      if (surveyName.equals(questionSurveyNames[q])
+          && matchedConceptIds.contains(questionConceptIds[q])) {
+        count++;
+      }
+    }
+    return count;
+  }
+
+  /**
+   * An estimate of the heap this index occupies, for footprint reporting and cache weighing.
+   * Strings are counted at 40 bytes of overhead plus one byte per (Latin-1) character.
+   */
+  @Override
+  public long estimatedSizeBytes() {
+    long bytes =
+        ids.length * (long) Long.BYTES
+            + conceptIds.length * (long) Long.BYTES
+            + typeOrdinals.length
+            + (standard.size() + hierarchy.size()) / Byte.SIZE
+            + postingOffsets.length * (long) Integer.BYTES
+            + postings.length * (long) Integer.BYTES
+            + codeCriteria.length * (long) Integer.BYTES
+            + questionConceptIds.length * (long) Long.BYTES
+            + questionSurveyNames.length * (long) Integer.BYTES;
+    for (String word : words) {
+      bytes += 40 + word.length();
+    }
+    for (String code : codes) {
+      bytes += 40 + code.length();
+    }
+    return bytes;
+  }
+
+  private BitSet postingsOf(int fromWord, int toWord) {
+    final BitSet criteria = new BitSet(size());
+    for (int p = postingOffsets[fromWord]; p < postingOffsets[toWord]; p++) {
+      criteria.set(postings[p]);
+    }
+    return criteria;
+  }
+
+  private static Set<String> wordsOf(@Nullable String fullText) {
+    final Set<String> wordSet = new HashSet<>();
+    if (fullText != null) {
+      for (String word : WORD_SEPARATOR.split(fullText.toLowerCase(Locale.ROOT))) {
+        if (!word.isEmpty() && !word.endsWith(RANK1_SUFFIX)) {
+          wordSet.add(word);
+        }
+      }
+    }
+    return wordSet;
+  }
+
+  private static long parseConceptId(@Nullable String conceptId) {
+    final Long parsed = conceptId == null ? null : Longs.tryParse(conceptId);
+    return parsed == null ? -1 : parsed;
+  }
+
+  @Nullable
+  private static Long surveyIdOf(@Nullable String path) {
+    return path == null ? null : Longs.tryParse(path.split("\\.", 2)[0]);
+  }
+
+  /** The first index of sorted whose value is not less than key. */
+  private static int lowerBound(String[] sorted, String key) {
+    final int i = Arrays.binarySearch(sorted, key);
+    return i < 0 ? -i - 1 : i;
+  }
+
+  /** A growable int array, to avoid boxing while the index is built. */
+  private static final class IntList {
+    private int[] values = new int[64];
+    private int size;
+
+    void add(int value) {
+      if (size == values.length) {
+        values = Arrays.copyOf(values, size * 2);
+      }
+      values[size++] = value;
+    }
+
+    int get(int i) {
+      return values[i];
+    }
+
+    void set(int i, int value) {
+      values[i] = value;
+    }
+
+    int size() {
+      return size;
+    }
+  }
+}
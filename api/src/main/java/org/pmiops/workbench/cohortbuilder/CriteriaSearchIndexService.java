@@ -0,0 +1,99 @@
+package org.pmiops.workbench.cohortbuilder;
+
+import com.google.common.base.Stopwatch;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.primitives.Longs;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+import java.util.stream.StreamSupport;
+import javax.inject.Provider;
+import org.pmiops.workbench.cdr.dao.CBCriteriaDao;
+import org.pmiops.workbench.cdr.model.DbCriteria;
+import org.pmiops.workbench.cdr.model.DbSurveyQuestionPath;
+import org.pmiops.workbench.cohortbuilder.CriteriaIndexCache.Kind;
+import org.pmiops.workbench.config.WorkbenchConfig;
+import org.pmiops.workbench.model.Domain;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+/**
+ * Loads {@link CriteriaSearchIndex}es, one per CDR version and domain, from the current CDR's
+ * cb_criteria table, and keeps them in the shared {@link CriteriaIndexCache}.
+ */
+@Service
+public class CriteriaSearchIndexService {
+
+  private static final Logger log = Logger.getLogger(CriteriaSearchIndexService.class.getName());
+
+  private final CBCriteriaDao cbCriteriaDao;
+  private final CriteriaIndexCache criteriaIndexCache;
+  private final Provider<WorkbenchConfig> workbenchConfigProvider;
+
+  @Autowired
+  public CriteriaSearchIndexService(
+      CBCriteriaDao cbCriteriaDao,
+      CriteriaIndexCache criteriaIndexCache,
+      Provider<WorkbenchConfig> workbenchConfigProvider) {
+    this.cbCriteriaDao = cbCriteriaDao;
+    this.criteriaIndexCache = criteriaIndexCache;
+    this.workbenchConfigProvider = workbenchConfigProvider;
+  }
+
+  /**
+   * Returns the index of the given domain in the current CDR version, loading it on a miss. No
+   * index is available outside of a CDR version context, when it is too large to cache, or when
+   * the index is turned off.
+   */
+  public Optional<CriteriaSearchIndex> get(String domain) {
+    if (!workbenchConfigProvider.get().featureFlags.enableCriteriaSearchIndex) {
+      return Optional.empty();
+    }
+    return criteriaIndexCache.get(Kind.SEARCH, domain, () -> load(domain));
+  }
+
+  private CriteriaSearchIndex load(String domain) {
+    Stopwatch stopwatch = Stopwatch.createStarted();
+    CriteriaSearchIndex index;
+    if (Domain.SURVEY.toString().equals(domain)) {
+      List<DbSurveyQuestionPath> questions = cbCriteriaDao.findSurveyQuestionPaths();
+      index =
+          CriteriaSearchIndex.build(
+              cbCriteriaDao.findSearchDocumentsByDomain(domain),
+              questions,
+              findSurveyNames(questions));
+    } else {
+      index = CriteriaSearchIndex.build(cbCriteriaDao.findSearchDocumentsByDomain(domain));
+    }
+    log.info(
+        String.format(
+            "Loaded %s criteria search index: %d criteria, ~%d KiB, in %d ms",
+            domain,
+            index.size(),
+            index.estimatedSizeBytes() / 1024,
+            stopwatch.elapsed(TimeUnit.MILLISECONDS)));
+    return index;
+  }
+
+  /** Names the surveys at the roots of the questions' paths. */
+  private Map<Long, String> findSurveyNames(List<DbSurveyQuestionPath> questions) {
+    Set<Long> surveyIds =
+        questions.stream()
+            .map(DbSurveyQuestionPath::getPath)
+            .filter(Objects::nonNull)
+            .map(path -> Longs.tryParse(path.split("\\.", 2)[0]))
+            .filter(Objects::nonNull)
+            .collect(Collectors.toSet());
+    if (surveyIds.isEmpty()) {
+      return ImmutableMap.of();
+    }
+    return StreamSupport.stream(cbCriteriaDao.findAllById(surveyIds).spliterator(), false)
+        .filter(survey -> survey.getName() != null)
+        .collect(Collectors.toMap(DbCriteria::getId, DbCriteria::getName));
+  }
+}
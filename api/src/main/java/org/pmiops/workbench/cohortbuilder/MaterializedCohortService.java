@@ -0,0 +1,223 @@
+package org.pmiops.workbench.cohortbuilder;
+
+import com.google.cloud.bigquery.Job;
+import com.google.cloud.bigquery.JobStatus;
+import com.google.cloud.bigquery.QueryJobConfiguration;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Ticker;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.inject.Provider;
+import org.pmiops.workbench.api.BigQueryService;
+import org.pmiops.workbench.cdr.CdrVersionContext;
+import org.pmiops.workbench.config.WorkbenchConfig;
+import org.pmiops.workbench.db.model.DbCdrVersion;
+import org.pmiops.workbench.model.SearchRequest;
+import org.pmiops.workbench.monitoring.CacheStatsBundles;
+import org.pmiops.workbench.monitoring.GaugeDataCollector;
+import org.pmiops.workbench.monitoring.MeasurementBundle;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+/**
+ * Evaluates cohort search requests once into scratch BigQuery tables, so that repeated queries
+ * over the same cohort (cohort review counts, samples and charts, data set previews) read a list
+ * of person IDs instead of re-running the cohort's criteria.
+ *
+ * <p>Tables live in the configured dataset of the CDR version's own BigQuery project, and are named
+ * after the CDR version and the canonical hash of the search request (see {@link
+ * SearchRequestNormalizer}). A table is therefore never stale: editing a cohort's criteria changes
+ * its hash, and so its table. Each table is created with an expiration time, after which BigQuery
+ * drops it; this instance forgets about a table well before then.
+ *
+ * <p>Tables are created in the background, so that no request waits on one. The first request for
+ * a cohort starts the query job which creates its table, and runs against the cohort's criteria as
+ * before. Later requests check on the job, and read the table once the job is done.
+ *
+ * <p>Only use this for queries the server runs itself. Code generated for researchers must not
+ * reference scratch tables, which they cannot read and which disappear.
+ */
+@Service
+public class MaterializedCohortService implements GaugeDataCollector {
+
+  private static final Logger log = Logger.getLogger(MaterializedCohortService.class.getName());
+
+  private static final String CACHE_NAME = "materialized_cohort";
+  private static final long MAX_ENTRIES = 10000;
+  @VisibleForTesting static final long TABLE_EXPIRY_HOURS = 24;
+  // Leaves time for queries started against a table just before it is forgotten to finish.
+  private static final long CACHE_EXPIRY_HOURS = TABLE_EXPIRY_HOURS - 1;
+  // A job still running after this long is forgotten, and started again by the next request.
+  private static final long PENDING_JOB_EXPIRY_MINUTES = 30;
+  @VisibleForTesting static final long FAILURE_BACKOFF_MINUTES = 10;
+
+  private static final String CREATE_TABLE_SQL_TEMPLATE =
+      "create or replace table `${table}`\n"
+          + "options(expiration_timestamp = timestamp_add(current_timestamp(), interval "
+          + TABLE_EXPIRY_HOURS
+          + " hour)) as\n";
+
+  private final BigQueryService bigQueryService;
+  private final CohortQueryBuilder cohortQueryBuilder;
+  private final Provider<WorkbenchConfig> workbenchConfigProvider;
+
+  // Fully qualified names of the tables this instance has materialized, keyed on the table name.
+  private final Cache<String, String> tables;
+  // IDs of the jobs creating tables which aren't ready yet, keyed on the table name.
+  private final Cache<String, String> pendingJobs;
+  // Datasets in which a table recently failed to be created, most likely because the dataset is
+  // missing or the server can't write to it. Those datasets are left alone for a while rather than
+  // spending every request on another doomed query.
+  private final Cache<String, Boolean> failedDatasets;
+
+  @Autowired
+  public MaterializedCohortService(
+      BigQueryService bigQueryService,
+      CohortQueryBuilder cohortQueryBuilder,
+      Provider<WorkbenchConfig> workbenchConfigProvider) {
+    this(bigQueryService, cohortQueryBuilder, workbenchConfigProvider, Ticker.systemTicker());
+  }
+
+  @VisibleForTesting
+  MaterializedCohortService(
+      BigQueryService bigQueryService,
+      CohortQueryBuilder cohortQueryBuilder,
+      Provider<WorkbenchConfig> workbenchConfigProvider,
+      Ticker ticker) {
+    this.bigQueryService = bigQueryService;
+    this.cohortQueryBuilder = cohortQueryBuilder;
+    this.workbenchConfigProvider = workbenchConfigProvider;
+    this.tables =
+        CacheBuilder.newBuilder()
+            .maximumSize(MAX_ENTRIES)
+            .expireAfterWrite(CACHE_EXPIRY_HOURS, TimeUnit.HOURS)
+            .ticker(ticker)
+            .recordStats()
+            .build();
+    this.pendingJobs =
+        CacheBuilder.newBuilder()
+            .maximumSize(MAX_ENTRIES)
+            .expireAfterWrite(PENDING_JOB_EXPIRY_MINUTES, TimeUnit.MINUTES)
+            .ticker(ticker)
+            .build();
+    this.failedDatasets =
+        CacheBuilder.newBuilder()
+            .expireAfterWrite(FAILURE_BACKOFF_MINUTES, TimeUnit.MINUTES)
+            .ticker(ticker)
+            .build();
+  }
+
+  /**
+   * Returns criteria equivalent to those given which read the search request's participants from a
+   * materialized table, if its table is ready. Otherwise starts creating the table, unless that is
+   * already under way, and returns the given criteria unchanged. They are also returned unchanged
+   * if materialization is disabled, they have no search request, or a table could not be created in
+   * the last few minutes.
+   */
+  public ParticipantCriteria materialize(ParticipantCriteria criteria) {
+    final WorkbenchConfig config = workbenchConfigProvider.get();
+    final DbCdrVersion cdrVersion = CdrVersionContext.getCdrVersion();
+    final SearchRequest request = criteria.getSearchRequest();
+    if (!config.featureFlags.enableMaterializedCohorts
+        || config.cdr.materializedCohortDataset == null
+        || cdrVersion == null
+        || request == null
+        || criteria.getMaterializedTable() != null) {
+      return criteria;
+    }
+
+    final String dataset =
+        String.format(
+            "%s.%s", cdrVersion.getBigqueryProject(), config.cdr.materializedCohortDataset);
+    if (failedDatasets.getIfPresent(dataset) != null) {
+      return criteria;
+    }
+    final String table =
+        String.format("%s.%s", dataset, tableName(cdrVersion.getCdrVersionId(), request));
+    final String readyTable = tables.getIfPresent(table);
+    if (readyTable != null) {
+      return criteria.withMaterializedTable(readyTable);
+    }
+    try {
+      // Concurrent requests for the same cohort share a single job.
+      final String jobId = pendingJobs.get(table, () -> startCreateTable(table, request));
+      return isCreated(table, jobId) ? criteria.withMaterializedTable(table) : criteria;
+    } catch (ExecutionException | UncheckedExecutionException | MaterializationFailedException e) {
+      pendingJobs.invalidate(table);
+      failedDatasets.put(dataset, true);
+      log.log(
+          Level.WARNING,
+          String.format(
+              "Failed to materialize cohort into %s; not trying %s again for %d minutes",
+              table, dataset, FAILURE_BACKOFF_MINUTES),
+          e instanceof MaterializationFailedException ? e : e.getCause());
+      return criteria;
+    }
+  }
+
+  /** A job creating a table finished without creating it. */
+  private static class MaterializationFailedException extends Exception {
+    private MaterializationFailedException(String message) {
+      super(message);
+    }
+  }
+
+  @Override
+  public Collection<MeasurementBundle> getGaugeData() {
+    return Collections.singleton(CacheStatsBundles.fromCache(CACHE_NAME, tables));
+  }
+
+  @VisibleForTesting
+  static String tableName(long cdrVersionId, SearchRequest request) {
+    // Data filters are applied on top of the table, so they are not part of its identity.
+    final SearchRequest searchGroups =
+        SearchRequestNormalizer.normalize(request).dataFilters(new ArrayList<>());
+    return String.format("cohort_%d_%s", cdrVersionId, SearchRequestNormalizer.hash(searchGroups));
+  }
+
+  /** Starts the job which creates the table, and returns its ID without waiting for it. */
+  private String startCreateTable(String table, SearchRequest request) {
+    // Only the search groups are materialized, so that the table can be shared by criteria with
+    // different exclusions or data filters.
+    final QueryJobConfiguration participantIdQuery =
+        bigQueryService.filterBigQueryConfig(
+            cohortQueryBuilder.buildParticipantIdQuery(new ParticipantCriteria(request)));
+    return bigQueryService
+        .startQuery(
+            participantIdQuery.toBuilder()
+                .setQuery(
+                    CREATE_TABLE_SQL_TEMPLATE.replace("${table}", table)
+                        + participantIdQuery.getQuery())
+                .build())
+        .getJobId()
+        .getJob();
+  }
+
+  /** Returns whether the job has created the table, remembering it if so. */
+  private boolean isCreated(String table, String jobId) throws MaterializationFailedException {
+    final Optional<Job> job = bigQueryService.getJob(jobId);
+    if (!job.isPresent()) {
+      throw new MaterializationFailedException("BigQuery job " + jobId + " not found");
+    }
+    final JobStatus status = job.get().getStatus();
+    if (status.getState() != JobStatus.State.DONE) {
+      return false;
+    }
+    if (status.getError() != null) {
+      throw new MaterializationFailedException(
+          String.format("BigQuery job %s failed: %s", jobId, status.getError().getMessage()));
+    }
+    pendingJobs.invalidate(table);
+    tables.put(table, table);
+    return true;
+  }
+}
@@ -0,0 +1,70 @@
+package org.pmiops.workbench.cohortbuilder;
+
+import com.google.common.base.Throwables;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import org.pmiops.workbench.cdr.CdrVersionContext;
+import org.pmiops.workbench.db.model.DbCdrVersion;
+import org.pmiops.workbench.exceptions.ServerErrorException;
+import org.pmiops.workbench.model.SearchRequest;
+import org.pmiops.workbench.monitoring.CacheStatsBundles;
+import org.pmiops.workbench.monitoring.GaugeDataCollector;
+import org.pmiops.workbench.monitoring.MeasurementBundle;
+import org.springframework.stereotype.Service;
+
+/**
+ * Instance-wide cache of cohort participant counts, keyed on the CDR version and the canonical
+ * hash of the search request (see {@link SearchRequestNormalizer}). CDR versions are immutable, so
+ * a cached count stays correct for as long as its CDR version exists; the expiry only bounds how
+ * long entries for a retired CDR version can linger.
+ */
+@Service
+public class ParticipantCountCache implements GaugeDataCollector {
+
+  private static final String CACHE_NAME = "participant_count";
+  private static final long MAX_ENTRIES = 10000;
+  private static final long EXPIRY_HOURS = 24;
+
+  private final Cache<String, Long> cache =
+      CacheBuilder.newBuilder()
+          .maximumSize(MAX_ENTRIES)
+          .expireAfterWrite(EXPIRY_HOURS, TimeUnit.HOURS)
+          .recordStats()
+          .build();
+
+  /**
+   * Returns the cached count for the request in the current CDR version, computing and caching it
+   * with countSupplier on a miss. Requests made outside of a CDR version context are not cached.
+   */
+  public Long get(SearchRequest request, Supplier<Long> countSupplier) {
+    DbCdrVersion cdrVersion = CdrVersionContext.getCdrVersion();
+    if (cdrVersion == null) {
+      return countSupplier.get();
+    }
+    // The key is computed before running the query, in case the request is modified downstream.
+    String key = cacheKey(cdrVersion.getCdrVersionId(), request);
+    try {
+      // Concurrent requests for the same count wait on a single query.
+      return cache.get(key, countSupplier::get);
+    } catch (ExecutionException | UncheckedExecutionException e) {
+      // Keep the query's own error, e.g. a bad request, rather than reporting a server error.
+      Throwables.throwIfUnchecked(e.getCause());
+      throw new ServerErrorException("Failed to count participants", e.getCause());
+    }
+  }
+
+  @Override
+  public Collection<MeasurementBundle> getGaugeData() {
+    return Collections.singleton(CacheStatsBundles.fromCache(CACHE_NAME, cache));
+  }
+
+  private static String cacheKey(long cdrVersionId, SearchRequest request) {
+    return cdrVersionId + ":" + SearchRequestNormalizer.hash(request);
+  }
+}
@@ -0,0 +1,267 @@
+package org.pmiops.workbench.cohortbuilder;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Strings;
+import com.google.common.collect.HashMultiset;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiPredicate;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+import javax.inject.Provider;
+import org.pmiops.workbench.cdr.CdrVersionContext;
+import org.pmiops.workbench.config.WorkbenchConfig;
+import org.pmiops.workbench.db.model.DbCdrVersion;
+import org.pmiops.workbench.elasticsearch.ElasticFilters;
+import org.pmiops.workbench.elasticsearch.ElasticSearchService;
+import org.pmiops.workbench.model.AgeType;
+import org.pmiops.workbench.model.DemoChartInfo;
+import org.pmiops.workbench.model.GenderOrSexType;
+import org.pmiops.workbench.model.SearchRequest;
+import org.pmiops.workbench.monitoring.GaugeDataCollector;
+import org.pmiops.workbench.monitoring.MeasurementBundle;
+import org.pmiops.workbench.monitoring.labels.MetricLabel;
+import org.pmiops.workbench.monitoring.views.GaugeMetric;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+/**
+ * Answers cohort builder participant counts and demographic charts from Elasticsearch when the
+ * backend is enabled, the current CDR version has a person index and every criterion in the
+ * request is supported there (see {@link ElasticFilters#isSupported}), and from BigQuery
+ * otherwise, including when the Elasticsearch request fails.
+ *
+ * <p>A sample of the Elasticsearch answers, set by elasticsearch.shadowComparisonSampleRate, is
+ * checked against BigQuery. The BigQuery job is started on the request thread, which needs the CDR
+ * version context, and its result is awaited and compared on a small background pool so the
+ * response is not held up. A place on the pool is reserved before the job is started, so that no
+ * job is paid for whose result would go unchecked. Comparison outcomes are reported as gauges;
+ * mismatches are also logged.
+ */
+@Service
+public class ParticipantCountRouter implements GaugeDataCollector {
+
+  private static final Logger log = Logger.getLogger(ParticipantCountRouter.class.getName());
+
+  /** The outcome of comparing one Elasticsearch answer with BigQuery's. */
+  public enum ShadowResult {
+    MATCH,
+    MISMATCH,
+    // The BigQuery query failed.
+    ERROR,
+    // The comparison pool was full, so no BigQuery query was run.
+    DROPPED
+  }
+
+  @VisibleForTesting static final String COUNT_OPERATION = "count_participants";
+  @VisibleForTesting static final String DEMO_CHART_OPERATION = "find_demo_chart_info";
+
+  private static final int SHADOW_THREADS = 2;
+  private static final int SHADOW_QUEUE_SIZE = 20;
+
+  private final CohortBuilderService cohortBuilderService;
+  private final ElasticSearchService elasticSearchService;
+  private final Provider<WorkbenchConfig> configProvider;
+  private final ExecutorService shadowExecutor;
+  // One permit per comparison the executor can run or queue.
+  private final Semaphore shadowCapacity;
+  private final Map<String, Map<ShadowResult, AtomicLong>> shadowResultCounts;
+
+  @Autowired
+  public ParticipantCountRouter(
+      CohortBuilderService cohortBuilderService,
+      ElasticSearchService elasticSearchService,
+      Provider<WorkbenchConfig> configProvider) {
+    this(
+        cohortBuilderService,
+        elasticSearchService,
+        configProvider,
+        new ThreadPoolExecutor(
+            SHADOW_THREADS,
+            SHADOW_THREADS,
+            0L,
+            TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(SHADOW_QUEUE_SIZE),
+            new ThreadFactoryBuilder()
+                .setNameFormat("elastic-shadow-comparison-%d")
+                .setDaemon(true)
+                .build(),
+            new ThreadPoolExecutor.AbortPolicy()),
+        SHADOW_THREADS + SHADOW_QUEUE_SIZE);
+  }
+
+  @VisibleForTesting
+  ParticipantCountRouter(
+      CohortBuilderService cohortBuilderService,
+      ElasticSearchService elasticSearchService,
+      Provider<WorkbenchConfig> configProvider,
+      ExecutorService shadowExecutor,
+      int shadowCapacity) {
+    this.cohortBuilderService = cohortBuilderService;
+    this.elasticSearchService = elasticSearchService;
+    this.configProvider = configProvider;
+    this.shadowExecutor = shadowExecutor;
+    this.shadowCapacity = new Semaphore(shadowCapacity);
+    this.shadowResultCounts =
+        ImmutableList.of(COUNT_OPERATION, DEMO_CHART_OPERATION).stream()
+            .collect(
+                ImmutableMap.toImmutableMap(
+                    Function.identity(),
+                    operation ->
+                        Arrays.stream(ShadowResult.values())
+                            .collect(
+                                ImmutableMap.toImmutableMap(
+                                    Function.identity(), result -> new AtomicLong()))));
+  }
+
+  /** Counts the participants matching the request. */
+  public Long countParticipants(SearchRequest request) {
+    if (useElastic(request)) {
+      try {
+        Long count = elasticSearchService.count(request);
+        maybeCompareWithBigQuery(
+            COUNT_OPERATION,
+            count,
+            () -> cohortBuilderService.startCountParticipants(request),
+            Objects::equals);
+        return count;
+      } catch (IOException e) {
+        log.log(Level.SEVERE, "Elastic request failed, falling back to BigQuery", e);
+      }
+    }
+    return cohortBuilderService.countParticipants(request);
+  }
+
+  /** Breaks down the participants matching the request by gender or sex, age and race. */
+  public List<DemoChartInfo> findDemoChartInfo(
+      GenderOrSexType genderOrSexType, AgeType ageType, SearchRequest request) {
+    if (useElastic(request)) {
+      try {
+        List<DemoChartInfo> demoChartInfos =
+            elasticSearchService.demoChartInfo(
+                new ParticipantCriteria(request, genderOrSexType, ageType));
+        maybeCompareWithBigQuery(
+            DEMO_CHART_OPERATION,
+            demoChartInfos,
+            () -> cohortBuilderService.startFindDemoChartInfo(genderOrSexType, ageType, request),
+            // Bucket order is not significant.
+            (elastic, bigQuery) ->
+                HashMultiset.create(elastic).equals(HashMultiset.create(bigQuery)));
+        return demoChartInfos;
+      } catch (IOException e) {
+        log.log(Level.SEVERE, "Elastic request failed, falling back to BigQuery", e);
+      }
+    }
+    return cohortBuilderService.findDemoChartInfo(genderOrSexType, ageType, request);
+  }
+
+  private boolean useElastic(SearchRequest request) {
+    DbCdrVersion cdrVersion = CdrVersionContext.getCdrVersion();
+    return configProvider.get().elasticsearch.enableElasticsearchBackend
+        && cdrVersion != null
+        && !Strings.isNullOrEmpty(cdrVersion.getElasticIndexBaseName())
+        && ElasticFilters.isSupported(request);
+  }
+
+  private <T> void maybeCompareWithBigQuery(
+      String operation,
+      T elasticResult,
+      Supplier<Supplier<T>> startBigQuery,
+      BiPredicate<T, T> matches) {
+    if (ThreadLocalRandom.current().nextDouble()
+        >= configProvider.get().elasticsearch.shadowComparisonSampleRate) {
+      return;
+    }
+    if (!shadowCapacity.tryAcquire()) {
+      increment(operation, ShadowResult.DROPPED);
+      return;
+    }
+    final Supplier<T> bigQueryResult;
+    try {
+      bigQueryResult = startBigQuery.get();
+    } catch (RuntimeException e) {
+      shadowCapacity.release();
+      log.log(Level.WARNING, "Failed to start BigQuery shadow query for " + operation, e);
+      increment(operation, ShadowResult.ERROR);
+      return;
+    }
+    try {
+      shadowExecutor.execute(
+          () -> {
+            try {
+              compare(operation, elasticResult, bigQueryResult, matches);
+            } finally {
+              shadowCapacity.release();
+            }
+          });
+    } catch (RejectedExecutionException e) {
+      // Only once the executor is shut down, as the permits never exceed what it can hold.
+      shadowCapacity.release();
+      increment(operation, ShadowResult.DROPPED);
+    }
+  }
+
+  private <T> void compare(
+      String operation, T elasticResult, Supplier<T> bigQueryResult, BiPredicate<T, T> matches) {
+    final T expected;
+    try {
+      expected = bigQueryResult.get();
+    } catch (RuntimeException e) {
+      log.log(Level.WARNING, "BigQuery shadow query failed for " + operation, e);
+      increment(operation, ShadowResult.ERROR);
+      return;
+    }
+    if (matches.test(elasticResult, expected)) {
+      increment(operation, ShadowResult.MATCH);
+    } else {
+      log.warning(
+          String.format(
+              "Elasticsearch %s disagrees with BigQuery: %s vs %s",
+              operation, elasticResult, expected));
+      increment(operation, ShadowResult.MISMATCH);
+    }
+  }
+
+  private void increment(String operation, ShadowResult result) {
+    shadowResultCounts.get(operation).get(result).incrementAndGet();
+  }
+
+  /** Cumulative shadow comparison outcomes, per operation. */
+  @Override
+  public Collection<MeasurementBundle> getGaugeData() {
+    return shadowResultCounts.entrySet().stream()
+        .flatMap(
+            byOperation ->
+                byOperation.getValue().entrySet().stream()
+                    .map(
+                        byResult ->
+                            MeasurementBundle.builder()
+                                .addMeasurement(
+                                    GaugeMetric.COHORT_ELASTIC_SHADOW_COMPARISON_COUNT,
+                                    byResult.getValue().get())
+                                .addTag(MetricLabel.OPERATION_NAME, byOperation.getKey())
+                                .addTag(
+                                    MetricLabel.ELASTIC_SHADOW_RESULT,
+                                    byResult.getKey().toString())
+                                .build()))
+        .collect(Collectors.toList());
+  }
+}
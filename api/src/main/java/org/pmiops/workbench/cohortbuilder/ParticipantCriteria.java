@@ -29,6 +29,9 @@ public class ParticipantCriteria {
   private final Set<Long> participantIdsToExclude;
   private final GenderOrSexType genderOrSexType;
   private final AgeType ageType;
+  // Fully qualified BigQuery table holding the participants matched by the search request, if it
+  // has been materialized; see MaterializedCohortService.
+  private final String materializedTable;
 
   public ParticipantCriteria(SearchRequest searchRequest) {
     this(searchRequest, NO_PARTICIPANTS_TO_EXCLUDE);
@@ -41,6 +44,7 @@ public class ParticipantCriteria {
     this.participantIdsToInclude = null;
     this.genderOrSexType = genderOrSexType;
     this.ageType = ageType;
+    this.materializedTable = null;
   }
 
   public ParticipantCriteria(SearchRequest searchRequest, Set<Long> participantIdsToExclude) {
@@ -49,6 +53,7 @@ public class ParticipantCriteria {
     this.participantIdsToInclude = null;
     this.genderOrSexType = null;
     this.ageType = null;
+    this.materializedTable = null;
   }
 
   public ParticipantCriteria(Set<Long> participantIdsToInclude) {
@@ -57,6 +62,25 @@ public class ParticipantCriteria {
     this.participantIdsToExclude = null;
     this.genderOrSexType = null;
     this.ageType = null;
+    this.materializedTable = null;
+  }
+
+  private ParticipantCriteria(ParticipantCriteria criteria, String materializedTable) {
+    this.searchRequest = criteria.searchRequest;
+    this.participantIdsToInclude = criteria.participantIdsToInclude;
+    this.participantIdsToExclude = criteria.participantIdsToExclude;
+    this.genderOrSexType = criteria.genderOrSexType;
+    this.ageType = criteria.ageType;
+    this.materializedTable = materializedTable;
+  }
+
+  /**
+   * Returns a copy of these criteria which selects the search request's participants from the given
+   * table, rather than evaluating the request's search groups. Exclusions and data filters still
+   * apply on top of the table.
+   */
+  public ParticipantCriteria withMaterializedTable(String materializedTable) {
+    return new ParticipantCriteria(this, materializedTable);
   }
 
   @Nullable
@@ -84,10 +108,20 @@ public class ParticipantCriteria {
     return ageType;
   }
 
+  @Nullable
+  public String getMaterializedTable() {
+    return materializedTable;
+  }
+
   @Override
   public int hashCode() {
     return Objects.hash(
-        searchRequest, participantIdsToExclude, participantIdsToExclude, genderOrSexType, ageType);
+        searchRequest,
+        participantIdsToExclude,
+        participantIdsToExclude,
+        genderOrSexType,
+        ageType,
+        materializedTable);
   }
 
   @Override
@@ -100,6 +134,7 @@ public class ParticipantCriteria {
         && Objects.equals(this.participantIdsToExclude, that.participantIdsToExclude)
         && Objects.equals(this.participantIdsToInclude, that.participantIdsToInclude)
         && Objects.equals(this.genderOrSexType, that.genderOrSexType)
-        && Objects.equals(this.ageType, that.ageType);
+        && Objects.equals(this.ageType, that.ageType)
+        && Objects.equals(this.materializedTable, that.materializedTable);
   }
 }
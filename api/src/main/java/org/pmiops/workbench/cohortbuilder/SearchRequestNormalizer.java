@@ -0,0 +1,96 @@
+package org.pmiops.workbench.cohortbuilder;
+
+import com.google.common.hash.Hashing;
+import com.google.gson.Gson;
+import java.nio.charset.StandardCharsets;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+import org.pmiops.workbench.model.SearchGroup;
+import org.pmiops.workbench.model.SearchGroupItem;
+import org.pmiops.workbench.model.SearchParameter;
+import org.pmiops.workbench.model.SearchRequest;
+
+/**
+ * Puts a {@link SearchRequest} into a canonical form so that equivalent cohort definitions can be
+ * recognized regardless of the order in which the UI assembled them.
+ *
+ * <p>Include and exclude groups are ANDed together, the items of a group are ORed together and
+ * the parameters of an item are unioned, so each of these lists is sorted. Attribute and modifier
+ * operands are left alone, as their order is significant (e.g. the bounds of a BETWEEN). The
+ * client-generated group, item and parameter ids do not affect the query and are dropped.
+ *
+ * <p>SearchRequest.hashCode() cannot be used for this, since it includes enum hash codes which
+ * are not stable across JVMs (see [RW-1149]).
+ */
+public final class SearchRequestNormalizer {
+
+  private static final Gson GSON = new Gson();
+  private static final Comparator<Object> BY_JSON = Comparator.comparing(o -> GSON.toJson(o));
+
+  private SearchRequestNormalizer() {}
+
+  /** Returns a normalized deep copy of the request; the original is not modified. */
+  public static SearchRequest normalize(SearchRequest request) {
+    SearchRequest copy = GSON.fromJson(GSON.toJson(request), SearchRequest.class);
+    copy.setIncludes(normalizeGroups(copy.getIncludes()));
+    copy.setExcludes(normalizeGroups(copy.getExcludes()));
+    if (copy.getDataFilters() != null) {
+      copy.setDataFilters(
+          copy.getDataFilters().stream().sorted().distinct().collect(Collectors.toList()));
+    }
+    return copy;
+  }
+
+  /** Returns the JSON of the normalized request. */
+  public static String toCanonicalJson(SearchRequest request) {
+    return GSON.toJson(normalize(request));
+  }
+
+  /**
+   * Returns a hex encoded SHA-256 hash of the canonical JSON. This is stable across JVMs and
+   * releases for as long as the SearchRequest schema is unchanged.
+   */
+  public static String hash(SearchRequest request) {
+    return Hashing.sha256().hashString(toCanonicalJson(request), StandardCharsets.UTF_8).toString();
+  }
+
+  private static List<SearchGroup> normalizeGroups(List<SearchGroup> groups) {
+    if (groups == null) {
+      return null;
+    }
+    groups.forEach(
+        group -> {
+          group.setId(null);
+          group.setItems(normalizeItems(group.getItems()));
+        });
+    return sortByJson(groups);
+  }
+
+  private static List<SearchGroupItem> normalizeItems(List<SearchGroupItem> items) {
+    if (items == null) {
+      return null;
+    }
+    items.forEach(
+        item -> {
+          item.setId(null);
+          item.setSearchParameters(normalizeParameters(item.getSearchParameters()));
+          if (item.getModifiers() != null) {
+            item.setModifiers(sortByJson(item.getModifiers()));
+          }
+        });
+    return sortByJson(items);
+  }
+
+  private static List<SearchParameter> normalizeParameters(List<SearchParameter> parameters) {
+    if (parameters == null) {
+      return null;
+    }
+    parameters.forEach(parameter -> parameter.setParameterId(null));
+    return sortByJson(parameters);
+  }
+
+  private static <T> List<T> sortByJson(List<T> values) {
+    return values.stream().sorted(BY_JSON).collect(Collectors.toList());
+  }
+}
@@ -4,6 +4,7 @@ import static org.pmiops.workbench.cohortbuilder.util.Validation.from;
 import static org.pmiops.workbench.cohortbuilder.util.ValidationPredicates.isEmpty;
 
 import com.google.api.client.util.Sets;
+import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Iterables;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
@@ -12,11 +13,14 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Optional;
 import java.util.Set;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 import org.pmiops.workbench.cdr.dao.CBCriteriaDao;
 import org.pmiops.workbench.cdr.model.DbCriteriaLookup;
+import org.pmiops.workbench.cohortbuilder.CriteriaHierarchyIndex;
+import org.pmiops.workbench.cohortbuilder.CriteriaHierarchyIndexService;
 import org.pmiops.workbench.model.CriteriaSubType;
 import org.pmiops.workbench.model.CriteriaType;
 import org.pmiops.workbench.model.Domain;
@@ -35,6 +39,7 @@ import org.pmiops.workbench.model.SearchRequest;
 public final class CriteriaLookupUtil {
 
   private final CBCriteriaDao cbCriteriaDao;
+  private final CriteriaHierarchyIndexService criteriaHierarchyIndexService;
 
   private static class FullTreeType {
     final Domain domain;
@@ -77,7 +82,17 @@ public final class CriteriaLookupUtil {
   }
 
   public CriteriaLookupUtil(CBCriteriaDao cbCriteriaDao) {
+    this(cbCriteriaDao, null);
+  }
+
+  /**
+   * Tree groups are expanded with the in-memory hierarchy index when one is given (and a CDR
+   * version is in context), instead of with path scans in MySQL. Ancestor lookups always use MySQL.
+   */
+  public CriteriaLookupUtil(
+      CBCriteriaDao cbCriteriaDao, CriteriaHierarchyIndexService criteriaHierarchyIndexService) {
     this.cbCriteriaDao = cbCriteriaDao;
+    this.criteriaHierarchyIndexService = criteriaHierarchyIndexService;
   }
 
   /**
@@ -152,6 +167,11 @@ public final class CriteriaLookupUtil {
     // Now we get the child concept IDs for each batch.
     for (CriteriaLookupUtil.FullTreeType treeType : childrenByParentConcept.keySet()) {
       Map<Long, Set<Long>> byParent = childrenByParentConcept.get(treeType);
+      Optional<CriteriaHierarchyIndex> index = findHierarchyIndex(treeType.domain);
+      if (index.isPresent()) {
+        putChildrenOnParent(index.get(), treeType, byParent);
+        continue;
+      }
       Set<String> parentConceptIds =
           byParent.keySet().stream().map(c -> c.toString()).collect(Collectors.toSet());
 
@@ -235,6 +255,34 @@ public final class CriteriaLookupUtil {
     return builder;
   }
 
+  private Optional<CriteriaHierarchyIndex> findHierarchyIndex(Domain domain) {
+    return criteriaHierarchyIndexService == null
+        ? Optional.empty()
+        : criteriaHierarchyIndexService.get(domain.toString());
+  }
+
+  /**
+   * Index equivalent of the tree lookups below: ICD9 groups expand to their direct ICD9 children,
+   * all other groups to every descendant.
+   */
+  private void putChildrenOnParent(
+      CriteriaHierarchyIndex index,
+      CriteriaLookupUtil.FullTreeType treeType,
+      Map<Long, Set<Long>> byParent) {
+    Set<Long> parentConceptIds = ImmutableSet.copyOf(byParent.keySet());
+    String type = treeType.type.toString();
+    for (Long parentConceptId : parentConceptIds) {
+      byParent
+          .get(parentConceptId)
+          .addAll(
+              treeType.type.equals(CriteriaType.ICD9CM)
+                  ? index.findChildConceptIds(
+                      parentConceptId, type, treeType.isStandard, parentConceptIds)
+                  : index.findDescendantConceptIds(
+                      parentConceptId, type, treeType.isStandard, parentConceptIds));
+    }
+  }
+
   private void putLeavesOnParent(
       Map<Long, Set<Long>> byParent,
       List<DbCriteriaLookup> parents,
@@ -43,10 +43,11 @@ public interface CohortReviewService {
   CohortReview saveCohortReview(CohortReview cohortReview, DbUser creator);
 
   /**
-   * Save the {@link DbCohortReview} as well as the collection of {@link DbParticipantCohortStatus}.
+   * Save the {@link DbParticipantCohortStatus}es as well as the {@link DbCohortReview}, setting the
+   * review size to the number of statuses saved.
    */
   void saveFullCohortReview(
-      CohortReview cohortReview, List<DbParticipantCohortStatus> participantCohortStatuses);
+      CohortReview cohortReview, Iterable<DbParticipantCohortStatus> participantCohortStatuses);
 
   CohortReview updateCohortReview(
       CohortReview cohortReview, Long cohortReviewId, Timestamp lastModified);
@@ -66,9 +67,27 @@ public interface CohortReviewService {
    */
   List<ParticipantCohortStatus> findAll(Long cohortReviewId, PageRequest pageRequest);
 
-  /** Find count for the specified cohortReviewId, filtering and paging. */
+  /**
+   * Find count for the specified cohortReviewId, filtering and paging. Counts are cached per review
+   * and set of filters, and invalidated when a participant status in the review changes.
+   */
   Long findCount(Long cohortReviewId, PageRequest pageRequest);
 
+  /**
+   * Positions the page request after the row recorded in pageToken, which must have been issued by
+   * {@link #getNextPageToken} for the same review, sort and filters.
+   */
+  void applyPageToken(Long cohortReviewId, PageRequest pageRequest, String pageToken);
+
+  /**
+   * Returns a token for the page following participantCohortStatuses, or null if that was the last
+   * page or the sort column doesn't support seek pagination.
+   */
+  String getNextPageToken(
+      Long cohortReviewId,
+      PageRequest pageRequest,
+      List<ParticipantCohortStatus> participantCohortStatuses);
+
   /** Save the specified {@link ParticipantCohortAnnotation}. */
   ParticipantCohortAnnotation saveParticipantCohortAnnotation(
       Long cohortReviewId, ParticipantCohortAnnotation participantCohortAnnotation);
@@ -101,10 +120,10 @@ public interface CohortReviewService {
   CohortReview initializeCohortReview(Long cdrVersionId, DbCohort dbCohort);
 
   /**
-   * Create a list of {@link DbParticipantCohortStatus} for the specified cohort, requestSize and
-   * review id.
+   * Create the {@link DbParticipantCohortStatus}es for the specified cohort, requestSize and review
+   * id. The returned iterable is backed by the BigQuery result and can only be consumed once.
    */
-  List<DbParticipantCohortStatus> createDbParticipantCohortStatusesList(
+  Iterable<DbParticipantCohortStatus> createDbParticipantCohortStatuses(
       DbCohort dbCohort, Integer requestSize, Long cohortReviewId);
 
   /** Find a list of {@link CohortChartData} for the specified cohort and domain. */
@@ -29,7 +29,10 @@ import com.google.cloud.bigquery.BigQueryException;
 import com.google.cloud.bigquery.FieldValue;
 import com.google.cloud.bigquery.TableResult;
 import com.google.common.base.Strings;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Iterables;
 import com.google.gson.Gson;
 import java.sql.Date;
 import java.sql.Timestamp;
@@ -41,6 +44,7 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 import javax.persistence.OptimisticLockException;
 import org.apache.commons.lang3.StringUtils;
@@ -49,16 +53,19 @@ import org.pmiops.workbench.api.BigQueryService;
 import org.pmiops.workbench.api.Etags;
 import org.pmiops.workbench.cohortbuilder.CohortBuilderService;
 import org.pmiops.workbench.cohortbuilder.CohortQueryBuilder;
+import org.pmiops.workbench.cohortbuilder.MaterializedCohortService;
 import org.pmiops.workbench.cohortbuilder.ParticipantCriteria;
 import org.pmiops.workbench.cohortreview.mapper.CohortReviewMapper;
 import org.pmiops.workbench.cohortreview.mapper.ParticipantCohortAnnotationMapper;
 import org.pmiops.workbench.cohortreview.mapper.ParticipantCohortStatusMapper;
 import org.pmiops.workbench.cohortreview.util.PageRequest;
+import org.pmiops.workbench.cohortreview.util.ParticipantCohortStatusPageToken;
 import org.pmiops.workbench.db.dao.CohortAnnotationDefinitionDao;
 import org.pmiops.workbench.db.dao.CohortDao;
 import org.pmiops.workbench.db.dao.CohortReviewDao;
 import org.pmiops.workbench.db.dao.ParticipantCohortAnnotationDao;
 import org.pmiops.workbench.db.dao.ParticipantCohortStatusDao;
+import org.pmiops.workbench.db.dao.ParticipantCohortStatusDaoImpl;
 import org.pmiops.workbench.db.model.DbCohort;
 import org.pmiops.workbench.db.model.DbCohortAnnotationDefinition;
 import org.pmiops.workbench.db.model.DbCohortAnnotationEnumValue;
@@ -76,6 +83,7 @@ import org.pmiops.workbench.model.CohortChartData;
 import org.pmiops.workbench.model.CohortReview;
 import org.pmiops.workbench.model.CohortStatus;
 import org.pmiops.workbench.model.Domain;
+import org.pmiops.workbench.model.FilterColumns;
 import org.pmiops.workbench.model.ModifyParticipantCohortAnnotationRequest;
 import org.pmiops.workbench.model.ParticipantChartData;
 import org.pmiops.workbench.model.ParticipantCohortAnnotation;
@@ -85,6 +93,7 @@ import org.pmiops.workbench.model.ReviewStatus;
 import org.pmiops.workbench.model.SearchRequest;
 import org.pmiops.workbench.model.Vocabulary;
 import org.pmiops.workbench.model.WorkspaceActiveStatus;
+import org.pmiops.workbench.monitoring.CacheStatsBundles;
 import org.pmiops.workbench.monitoring.GaugeDataCollector;
 import org.pmiops.workbench.monitoring.MeasurementBundle;
 import org.pmiops.workbench.monitoring.views.GaugeMetric;
@@ -95,6 +104,12 @@ import org.springframework.transaction.annotation.Transactional;
 @Service
 public class CohortReviewServiceImpl implements CohortReviewService, GaugeDataCollector {
 
+  private static final String FILTERED_COUNT_CACHE_NAME = "cohort_review_filtered_count";
+  private static final long FILTERED_COUNT_MAX_ENTRIES = 10000;
+  // Entries are invalidated when a status changes on this instance; the expiry bounds how stale a
+  // count can be when the change was made through another instance.
+  private static final long FILTERED_COUNT_EXPIRY_MINUTES = 5;
+
   private BigQueryService bigQueryService;
   private CohortAnnotationDefinitionDao cohortAnnotationDefinitionDao;
   private CohortBuilderService cohortBuilderService;
@@ -102,6 +117,7 @@ public class CohortReviewServiceImpl implements CohortReviewService, GaugeDataCo
   private CohortReviewDao cohortReviewDao;
   private CohortReviewMapper cohortReviewMapper;
   private CohortQueryBuilder cohortQueryBuilder;
+  private MaterializedCohortService materializedCohortService;
   private ParticipantCohortAnnotationDao participantCohortAnnotationDao;
   private ParticipantCohortAnnotationMapper participantCohortAnnotationMapper;
   private ParticipantCohortStatusDao participantCohortStatusDao;
@@ -109,6 +125,14 @@ public class CohortReviewServiceImpl implements CohortReviewService, GaugeDataCo
   private ReviewQueryBuilder reviewQueryBuilder;
   private Clock clock;
 
+  // Filtered participant counts, keyed on the review id and the filters applied.
+  private final Cache<String, Long> filteredCountCache =
+      CacheBuilder.newBuilder()
+          .maximumSize(FILTERED_COUNT_MAX_ENTRIES)
+          .expireAfterWrite(FILTERED_COUNT_EXPIRY_MINUTES, TimeUnit.MINUTES)
+          .recordStats()
+          .build();
+
   @Autowired
   public CohortReviewServiceImpl(
       BigQueryService bigQueryService,
@@ -118,6 +142,7 @@ public class CohortReviewServiceImpl implements CohortReviewService, GaugeDataCo
       CohortReviewDao cohortReviewDao,
       CohortReviewMapper cohortReviewMapper,
       CohortQueryBuilder cohortQueryBuilder,
+      MaterializedCohortService materializedCohortService,
       ParticipantCohortAnnotationDao participantCohortAnnotationDao,
       ParticipantCohortAnnotationMapper participantCohortAnnotationMapper,
       ParticipantCohortStatusDao participantCohortStatusDao,
@@ -131,6 +156,7 @@ public class CohortReviewServiceImpl implements CohortReviewService, GaugeDataCo
     this.cohortReviewDao = cohortReviewDao;
     this.cohortReviewMapper = cohortReviewMapper;
     this.cohortQueryBuilder = cohortQueryBuilder;
+    this.materializedCohortService = materializedCohortService;
     this.participantCohortAnnotationDao = participantCohortAnnotationDao;
     this.participantCohortAnnotationMapper = participantCohortAnnotationMapper;
     this.participantCohortStatusDao = participantCohortStatusDao;
@@ -187,6 +213,7 @@ public class CohortReviewServiceImpl implements CohortReviewService, GaugeDataCo
   @Override
   public void deleteCohortReview(Long cohortReviewId) {
     cohortReviewDao.deleteById(cohortReviewId);
+    invalidateFilteredCounts(cohortReviewId);
   }
 
   @Override
@@ -210,9 +237,11 @@ public class CohortReviewServiceImpl implements CohortReviewService, GaugeDataCo
   @Override
   @Transactional
   public void saveFullCohortReview(
-      CohortReview cohortReview, List<DbParticipantCohortStatus> participantCohortStatuses) {
+      CohortReview cohortReview, Iterable<DbParticipantCohortStatus> participantCohortStatuses) {
+    int reviewSize =
+        participantCohortStatusDao.saveParticipantCohortStatusesCustom(participantCohortStatuses);
+    cohortReview.reviewSize((long) reviewSize);
     cohortReviewDao.save(cohortReviewMapper.clientToDbModel(cohortReview));
-    participantCohortStatusDao.saveParticipantCohortStatusesCustom(participantCohortStatuses);
   }
 
   public CohortReview updateCohortReview(
@@ -258,9 +287,11 @@ public class CohortReviewServiceImpl implements CohortReviewService, GaugeDataCo
               cohortReviewId, participantId));
     }
     dbParticipantCohortStatus.setStatusEnum(status);
+    DbParticipantCohortStatus savedStatus =
+        participantCohortStatusDao.save(dbParticipantCohortStatus);
+    invalidateFilteredCounts(cohortReviewId);
     return participantCohortStatusMapper.dbModelToClient(
-        participantCohortStatusDao.save(dbParticipantCohortStatus),
-        cohortBuilderService.findAllDemographicsMap());
+        savedStatus, cohortBuilderService.findAllDemographicsMap());
   }
 
   @Override
@@ -291,7 +322,70 @@ public class CohortReviewServiceImpl implements CohortReviewService, GaugeDataCo
 
   @Override
   public Long findCount(Long cohortReviewId, PageRequest pageRequest) {
-    return participantCohortStatusDao.findCount(cohortReviewId, pageRequest);
+    String key = filteredCountCacheKey(cohortReviewId, pageRequest);
+    Long count = filteredCountCache.getIfPresent(key);
+    if (count == null) {
+      count = participantCohortStatusDao.findCount(cohortReviewId, pageRequest);
+      filteredCountCache.put(key, count);
+    }
+    return count;
+  }
+
+  @Override
+  public void applyPageToken(Long cohortReviewId, PageRequest pageRequest, String pageToken) {
+    ParticipantCohortStatusPageToken token = ParticipantCohortStatusPageToken.fromBase64(pageToken);
+    if (!token.matchesParameters(pageTokenParameters(cohortReviewId, pageRequest))) {
+      throw new BadRequestException(
+          "Bad Request: page token does not match the requested review, sort and filters.");
+    }
+    pageRequest
+        .lastSortValue(token.getLastSortValue())
+        .lastParticipantId(token.getLastParticipantId());
+  }
+
+  @Override
+  public String getNextPageToken(
+      Long cohortReviewId,
+      PageRequest pageRequest,
+      List<ParticipantCohortStatus> participantCohortStatuses) {
+    if (!ParticipantCohortStatusDaoImpl.supportsSeekPagination(pageRequest.getSortColumn())
+        || participantCohortStatuses.size() < pageRequest.getPageSize()) {
+      return null;
+    }
+    ParticipantCohortStatus last = Iterables.getLast(participantCohortStatuses);
+    String lastSortValue;
+    if (pageRequest.getSortColumn().equals(FilterColumns.STATUS.name())) {
+      lastSortValue = last.getStatus().name();
+    } else if (pageRequest.getSortColumn().equals(FilterColumns.BIRTHDATE.name())) {
+      lastSortValue = last.getBirthDate();
+    } else {
+      lastSortValue = null;
+    }
+    return ParticipantCohortStatusPageToken.of(
+            lastSortValue,
+            last.getParticipantId(),
+            pageTokenParameters(cohortReviewId, pageRequest))
+        .toBase64();
+  }
+
+  private static Object[] pageTokenParameters(Long cohortReviewId, PageRequest pageRequest) {
+    // Only values with stable hash codes (strings and boxed numbers) may go into the token hash,
+    // since the token can be redeemed on any instance.
+    return new Object[] {
+      cohortReviewId,
+      pageRequest.getSortColumn(),
+      pageRequest.getSortOrder().name(),
+      new Gson().toJson(pageRequest.getFilters())
+    };
+  }
+
+  private static String filteredCountCacheKey(Long cohortReviewId, PageRequest pageRequest) {
+    return cohortReviewId + ":" + new Gson().toJson(pageRequest.getFilters());
+  }
+
+  private void invalidateFilteredCounts(Long cohortReviewId) {
+    String keyPrefix = cohortReviewId + ":";
+    filteredCountCache.asMap().keySet().removeIf(key -> key.startsWith(keyPrefix));
   }
 
   @Override
@@ -380,7 +474,8 @@ public class CohortReviewServiceImpl implements CohortReviewService, GaugeDataCo
     TableResult result =
         bigQueryService.executeQuery(
             bigQueryService.filterBigQueryConfig(
-                cohortQueryBuilder.buildParticipantCounterQuery(new ParticipantCriteria(request))));
+                cohortQueryBuilder.buildParticipantCounterQuery(
+                    materializedCohortService.materialize(new ParticipantCriteria(request)))));
     Map<String, Integer> rm = bigQueryService.getResultMapper(result);
     List<FieldValue> row = result.iterateAll().iterator().next();
     long cohortCount = bigQueryService.getLong(row, rm.get("count"));
@@ -389,7 +484,7 @@ public class CohortReviewServiceImpl implements CohortReviewService, GaugeDataCo
   }
 
   @Override
-  public List<DbParticipantCohortStatus> createDbParticipantCohortStatusesList(
+  public Iterable<DbParticipantCohortStatus> createDbParticipantCohortStatuses(
       DbCohort dbCohort, Integer requestSize, Long cohortReviewId) {
     SearchRequest searchRequest =
         new Gson().fromJson(getCohortDefinition(dbCohort), SearchRequest.class);
@@ -397,26 +492,31 @@ public class CohortReviewServiceImpl implements CohortReviewService, GaugeDataCo
         bigQueryService.executeQuery(
             bigQueryService.filterBigQueryConfig(
                 cohortQueryBuilder.buildRandomParticipantQuery(
-                    new ParticipantCriteria(searchRequest), requestSize, 0L)));
+                    materializedCohortService.materialize(new ParticipantCriteria(searchRequest)),
+                    requestSize,
+                    0L)));
     Map<String, Integer> rm = bigQueryService.getResultMapper(result);
-    List<DbParticipantCohortStatus> participantCohortStatuses = new ArrayList<>();
-    for (List<FieldValue> row : result.iterateAll()) {
-      participantCohortStatuses.add(
-          new DbParticipantCohortStatus()
-              .participantKey(
-                  new DbParticipantCohortStatusKey(
-                      cohortReviewId, bigQueryService.getLong(row, rm.get("person_id"))))
-              .status(DbStorageEnums.cohortStatusToStorage(CohortStatus.NOT_REVIEWED))
-              .birthDate(getBirthDate(rm, row))
-              .genderConceptId(bigQueryService.getLong(row, rm.get("gender_concept_id")))
-              .raceConceptId(bigQueryService.getLong(row, rm.get("race_concept_id")))
-              .ethnicityConceptId(bigQueryService.getLong(row, rm.get("ethnicity_concept_id")))
-              .sexAtBirthConceptId(bigQueryService.getLong(row, rm.get("sex_at_birth_concept_id")))
-              .deceased(bigQueryService.getBoolean(row, rm.get("deceased"))));
-    }
-    return participantCohortStatuses;
-  }
-
+    // Rows are converted as they are paged in from BigQuery, so the whole review is never held in
+    // memory at once.
+    return Iterables.transform(
+        result.iterateAll(),
+        row ->
+            new DbParticipantCohortStatus()
+                .participantKey(
+                    new DbParticipantCohortStatusKey(
+                        cohortReviewId, bigQueryService.getLong(row, rm.get("person_id"))))
+                .status(DbStorageEnums.cohortStatusToStorage(CohortStatus.NOT_REVIEWED))
+                .birthDate(getBirthDate(rm, row))
+                .genderConceptId(bigQueryService.getLong(row, rm.get("gender_concept_id")))
+                .raceConceptId(bigQueryService.getLong(row, rm.get("race_concept_id")))
+                .ethnicityConceptId(bigQueryService.getLong(row, rm.get("ethnicity_concept_id")))
+                .sexAtBirthConceptId(
+                    bigQueryService.getLong(row, rm.get("sex_at_birth_concept_id")))
+                .deceased(bigQueryService.getBoolean(row, rm.get("deceased"))));
+  }
+
+  // Chart data waits for its query on the request thread; see BigQueryService#startQuery for why
+  // it isn't run as a polled job.
   @Override
   public List<CohortChartData> findCohortChartData(DbCohort dbCohort, Domain domain, int limit) {
     SearchRequest searchRequest =
@@ -426,7 +526,9 @@ public class CohortReviewServiceImpl implements CohortReviewService, GaugeDataCo
         bigQueryService.executeQuery(
             bigQueryService.filterBigQueryConfig(
                 cohortQueryBuilder.buildDomainChartInfoCounterQuery(
-                    new ParticipantCriteria(searchRequest), domain, limit)));
+                    materializedCohortService.materialize(new ParticipantCriteria(searchRequest)),
+                    domain,
+                    limit)));
     Map<String, Integer> rm = bigQueryService.getResultMapper(result);
 
     List<CohortChartData> cohortChartData = new ArrayList<>();
@@ -708,6 +810,7 @@ public class CohortReviewServiceImpl implements CohortReviewService, GaugeDataCo
             .build(),
         MeasurementBundle.builder()
             .addMeasurement(GaugeMetric.COHORT_REVIEW_COUNT, cohortReviewDao.count())
-            .build());
+            .build(),
+        CacheStatsBundles.fromCache(FILTERED_COUNT_CACHE_NAME, filteredCountCache));
   }
 }
@@ -13,6 +13,8 @@ public class PageRequest {
   private SortOrder sortOrder;
   private String sortColumn;
   private List<Filter> filters = new ArrayList<>();
+  private String lastSortValue;
+  private Long lastParticipantId;
 
   public PageRequest page(Integer page) {
     this.page = page;
@@ -104,6 +106,44 @@ public class PageRequest {
     this.filters = filters;
   }
 
+  public PageRequest lastSortValue(String lastSortValue) {
+    this.lastSortValue = lastSortValue;
+    return this;
+  }
+
+  /**
+   * The sort column value of the last row of the previous page, for seek pagination. May be null
+   * when that row had no value for the sort column.
+   *
+   * @return lastSortValue
+   */
+  public String getLastSortValue() {
+    return lastSortValue;
+  }
+
+  public void setLastSortValue(String lastSortValue) {
+    this.lastSortValue = lastSortValue;
+  }
+
+  public PageRequest lastParticipantId(Long lastParticipantId) {
+    this.lastParticipantId = lastParticipantId;
+    return this;
+  }
+
+  /**
+   * The participant id of the last row of the previous page. When set, the page starts after that
+   * row rather than at page * pageSize.
+   *
+   * @return lastParticipantId
+   */
+  public Long getLastParticipantId() {
+    return lastParticipantId;
+  }
+
+  public void setLastParticipantId(Long lastParticipantId) {
+    this.lastParticipantId = lastParticipantId;
+  }
+
   @Override
   public boolean equals(java.lang.Object o) {
     if (this == o) {
@@ -117,12 +157,15 @@ public class PageRequest {
         && Objects.equals(this.pageSize, pageRequest.pageSize)
         && Objects.equals(this.sortOrder, pageRequest.sortOrder)
         && Objects.equals(this.sortColumn, pageRequest.sortColumn)
-        && Objects.equals(this.filters, pageRequest.filters);
+        && Objects.equals(this.filters, pageRequest.filters)
+        && Objects.equals(this.lastSortValue, pageRequest.lastSortValue)
+        && Objects.equals(this.lastParticipantId, pageRequest.lastParticipantId);
   }
 
   @Override
   public int hashCode() {
-    return Objects.hash(page, pageSize, sortOrder, sortColumn, filters);
+    return Objects.hash(
+        page, pageSize, sortOrder, sortColumn, filters, lastSortValue, lastParticipantId);
   }
 
   @Override
@@ -135,6 +178,8 @@ public class PageRequest {
     sb.append("    sortOrder: ").append(toIndentedString(sortOrder)).append("\n");
     sb.append("    sortColumn: ").append(toIndentedString(sortColumn)).append("\n");
     sb.append("    filters: ").append(toIndentedString(filters)).append("\n");
+    sb.append("    lastSortValue: ").append(toIndentedString(lastSortValue)).append("\n");
+    sb.append("    lastParticipantId: ").append(toIndentedString(lastParticipantId)).append("\n");
     sb.append("}");
     return sb.toString();
   }
@@ -0,0 +1,65 @@
+package org.pmiops.workbench.cohortreview.util;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonSyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Objects;
+import org.pmiops.workbench.exceptions.BadRequestException;
+
+/**
+ * Opaque token for seek pagination of cohort review participants. Instead of an offset, it holds
+ * the position of the last row returned: its sort column value and participant id. The parameter
+ * hash ties the token to the review, sort and filters it was issued for; see {@link
+ * org.pmiops.workbench.utils.PaginationToken} for the offset-based equivalent.
+ */
+public final class ParticipantCohortStatusPageToken {
+
+  private String lastSortValue;
+  private long lastParticipantId;
+  private int parameterHash;
+
+  public ParticipantCohortStatusPageToken(
+      String lastSortValue, long lastParticipantId, int parameterHash) {
+    this.lastSortValue = lastSortValue;
+    this.lastParticipantId = lastParticipantId;
+    this.parameterHash = parameterHash;
+  }
+
+  public String toBase64() {
+    return Base64.getEncoder()
+        .encodeToString(new Gson().toJson(this).getBytes(StandardCharsets.UTF_8));
+  }
+
+  public String getLastSortValue() {
+    return lastSortValue;
+  }
+
+  public long getLastParticipantId() {
+    return lastParticipantId;
+  }
+
+  public boolean matchesParameters(Object... parameters) {
+    return Objects.hash(parameters) == parameterHash;
+  }
+
+  public static ParticipantCohortStatusPageToken of(
+      String lastSortValue, long lastParticipantId, Object... parameters) {
+    return new ParticipantCohortStatusPageToken(
+        lastSortValue, lastParticipantId, Objects.hash(parameters));
+  }
+
+  public static ParticipantCohortStatusPageToken fromBase64(String str) {
+    try {
+      String json = new String(Base64.getDecoder().decode(str), StandardCharsets.UTF_8);
+      ParticipantCohortStatusPageToken result =
+          new Gson().fromJson(json, ParticipantCohortStatusPageToken.class);
+      if (result == null) {
+        throw new BadRequestException(String.format("Invalid pagination token: %s", str));
+      }
+      return result;
+    } catch (IllegalArgumentException | JsonSyntaxException e) {
+      throw new BadRequestException(String.format("Invalid pagination token: %s", str));
+    }
+  }
+}
@@ -16,7 +16,6 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
-import java.util.Objects;
 import java.util.Set;
 import java.util.function.Function;
 import java.util.stream.Collectors;
@@ -27,6 +26,7 @@ import org.pmiops.workbench.cohortbuilder.CohortBuilderService;
 import org.pmiops.workbench.cohortbuilder.CohortBuilderService.ConceptIds;
 import org.pmiops.workbench.cohortbuilder.FieldSetQueryBuilder;
 import org.pmiops.workbench.cohortbuilder.ParticipantCriteria;
+import org.pmiops.workbench.cohortbuilder.SearchRequestNormalizer;
 import org.pmiops.workbench.cohortbuilder.TableQueryAndConfig;
 import org.pmiops.workbench.cohortreview.AnnotationQueryBuilder;
 import org.pmiops.workbench.config.CdrBigQuerySchemaConfig;
@@ -356,8 +356,7 @@ public class CohortMaterializationService {
     } catch (JsonSyntaxException e) {
       throw new BadRequestException("Invalid cohort spec");
     }
-    return materializeCohort(
-        cohortReview, searchRequest, conceptIds, Objects.hash(cohortSpec, conceptIds), request);
+    return materializeCohort(cohortReview, searchRequest, conceptIds, request);
   }
 
   /**
@@ -368,8 +367,6 @@ public class CohortMaterializationService {
    * @param searchRequest {@link SearchRequest} representing the cohort criteria
    * @param conceptIds an optional set of IDs for concepts used to filter results by * (in addition
    *     to the filtering specified in {@param searchRequest})
-   * @param requestHash a number representing a stable hash of the request; used to enforce that
-   *     pagination tokens are used appropriately
    * @param request {@link MaterializeCohortRequest} representing the request
    * @return {@link MaterializeCohortResponse} containing the results of cohort materialization
    */
@@ -378,7 +375,6 @@ public class CohortMaterializationService {
       @Nullable DbCohortReview cohortReview,
       SearchRequest searchRequest,
       @Nullable Set<Long> conceptIds,
-      int requestHash,
       MaterializeCohortRequest request) {
     long offset = 0L;
     FieldSet fieldSet = request.getFieldSet();
@@ -386,11 +382,13 @@ public class CohortMaterializationService {
     String paginationToken = request.getPageToken();
     int pageSize = request.getPageSize();
     // TODO: add CDR version ID here
-    // We require the client to specify requestHash here instead of hashing searchRequest itself,
-    // and use String.valueOf(statusFilter) instead of just statusFilter;
-    // both searchRequest and statusFilter contain enums, which do not have stable has codes across
-    // JVMs (see [RW-1149]).
-    Object[] paginationParameters = new Object[] {requestHash, String.valueOf(statusFilter)};
+    // We use the canonical hash of searchRequest and String.valueOf(statusFilter) instead of the
+    // objects themselves; both contain enums, which do not have stable hash codes across JVMs (see
+    // [RW-1149]). The canonical hash also lets equivalent requests share pagination tokens.
+    Object[] paginationParameters =
+        new Object[] {
+          SearchRequestNormalizer.hash(searchRequest), conceptIds, String.valueOf(statusFilter)
+        };
 
     if (paginationToken != null) {
       PaginationToken token = PaginationToken.fromBase64(paginationToken);
@@ -170,6 +170,12 @@ public class WorkbenchConfig {
 
   public static class CdrConfig {
     public boolean debugQueries;
+    // Dataset, within each CDR version's BigQuery project, which holds cohort participant sets
+    // materialized by the server. Tables there expire on their own; see MaterializedCohortService.
+    public String materializedCohortDataset;
+    // Heap shared by the in-memory criteria indexes of all CDR versions and domains; see
+    // CriteriaIndexCache. Sized to the environment's App Engine instance class.
+    public long criteriaIndexCacheMegabytes;
   }
 
   public static class GoogleCloudStorageServiceConfig {
@@ -210,6 +216,9 @@ public class WorkbenchConfig {
     public String baseUrl;
     public boolean enableBasicAuth;
     public boolean enableElasticsearchBackend;
+    // Fraction of the counts answered by Elasticsearch that are also run against BigQuery, in the
+    // background, to check that the two backends agree.
+    public double shadowComparisonSampleRate;
   }
 
   public static class MoodleConfig {
@@ -274,6 +283,27 @@ public class WorkbenchConfig {
     public boolean enableAccessModuleRewrite;
     // If true, cohort and concept set will show source domains and standard domains options
     public boolean enableStandardSourceDomains;
+    // If true, expand criteria groups in cohort searches using the in-memory criteria hierarchy
+    // index instead of MySQL path scans.
+    public boolean enableCriteriaHierarchyIndex;
+    // If true, answer criteria search, autocomplete and domain counts from the in-memory criteria
+    // search index instead of MySQL full text queries, where the search term allows it.
+    public boolean enableCriteriaSearchIndex;
+    // If true, remember each user's workspace access levels for a short while, rather than asking
+    // Terra on every workspace-scoped request.
+    public boolean enableWorkspaceAccessCache;
+    // If true, evaluate each cohort's criteria once into a scratch BigQuery table and run cohort
+    // review and data set preview queries against that table. Only enable this once
+    // `./project.rb create-materialized-cohort-datasets` has created cdr.materializedCohortDataset
+    // in each of the environment's CDR projects.
+    public boolean enableMaterializedCohorts;
+    // If true, briefly cache the listing of the notebook files in each workspace bucket's
+    // notebooks directory.
+    public boolean enableNotebookListingCache;
+    // If true, write action audit log entries to Cloud Logging in the background, from a bounded
+    // in-memory buffer, rather than on the request thread. Entries which can't be written or
+    // held in memory are spooled to actionAudit.spoolBucketName.
+    public boolean enableBufferedActionAudit;
   }
 
   public static class ActionAuditConfig {
@@ -293,6 +323,10 @@ public class WorkbenchConfig {
     // Table in the BigQuery dataset that receives log events. Currently named the same as the
     // dataset, but this could change in the future.
     public String bigQueryTable;
+    // GCS bucket where entries are spooled while Cloud Logging is unavailable, when
+    // featureFlags.enableBufferedActionAudit is set. Created by
+    // `./project.rb create-action-audit-spool-bucket`.
+    public String spoolBucketName;
   }
 
   public static class RdrExportConfig {
@@ -315,6 +349,12 @@ public class WorkbenchConfig {
     // possible is 10000, though around 2500 may be the most Workspace rows we can load into memory
     // on the smallest App Engine machine.
     public Integer maxRowsPerInsert;
+    // Threads streaming rows into BigQuery while the next batch is read from MySQL. With 0 or 1,
+    // every table is uploaded serially on the request thread.
+    public Integer uploadThreads;
+    // Stream rows of the batched MySQL queries to the row mapper instead of buffering each result
+    // set in the driver. Only supported by MySQL Connector/J.
+    public boolean streamQueryResults;
   }
 
   /** RAS(Researcher Auth Service) configurations. */
@@ -344,5 +384,9 @@ public class WorkbenchConfig {
     // with the task queue configuration to affect the overall concurrency of the offline batch
     // process.
     public Integer usersPerAuditTask;
+    // Maximum rates of calls the bulk access module sync crons make to each upstream service,
+    // shared by all concurrent syncs on an instance.
+    public Double moodleSyncRequestsPerSecond;
+    public Double terraSyncRequestsPerSecond;
   }
 }
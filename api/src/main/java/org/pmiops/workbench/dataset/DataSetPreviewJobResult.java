@@ -0,0 +1,52 @@
+package org.pmiops.workbench.dataset;
+
+import com.google.cloud.bigquery.JobStatus;
+import com.google.cloud.bigquery.TableResult;
+import java.util.List;
+import java.util.Optional;
+import javax.annotation.Nullable;
+import org.pmiops.workbench.model.Domain;
+
+/** State of an asynchronous data set preview query, along with its rows once it has finished. */
+public class DataSetPreviewJobResult {
+
+  private final String jobId;
+  private final Domain domain;
+  private final List<String> values;
+  private final JobStatus.State state;
+  @Nullable private final TableResult tableResult;
+
+  public DataSetPreviewJobResult(
+      String jobId,
+      Domain domain,
+      List<String> values,
+      JobStatus.State state,
+      @Nullable TableResult tableResult) {
+    this.jobId = jobId;
+    this.domain = domain;
+    this.values = values;
+    this.state = state;
+    this.tableResult = tableResult;
+  }
+
+  public String getJobId() {
+    return jobId;
+  }
+
+  public Domain getDomain() {
+    return domain;
+  }
+
+  /** The values the preview selects, in the order they were requested. */
+  public List<String> getValues() {
+    return values;
+  }
+
+  public JobStatus.State getState() {
+    return state;
+  }
+
+  public Optional<TableResult> getTableResult() {
+    return Optional.ofNullable(tableResult);
+  }
+}
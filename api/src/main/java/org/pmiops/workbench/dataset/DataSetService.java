@@ -30,6 +30,19 @@ public interface DataSetService {
 
   TableResult previewBigQueryJobConfig(DataSetPreviewRequest dataSetPreviewRequest);
 
+  /** Starts the preview query without waiting for it and returns the BigQuery job id. */
+  String startPreviewJob(DataSetPreviewRequest dataSetPreviewRequest, long workspaceId);
+
+  DataSetPreviewJobResult getPreviewJobResult(String jobId, long workspaceId);
+
+  /**
+   * Starts the preview query of each domain, sharing the cohort SQL between them, and waits for
+   * them concurrently. Queries which do not finish in time are returned without results, to be
+   * polled with {@link #getPreviewJobResult(String, long)}.
+   */
+  List<DataSetPreviewJobResult> previewDomains(
+      List<DataSetPreviewRequest> dataSetPreviewRequests, long workspaceId);
+
   Map<String, QueryJobConfiguration> domainToBigQueryConfig(DataSetRequest dataSet);
 
   List<String> generateCodeCells(
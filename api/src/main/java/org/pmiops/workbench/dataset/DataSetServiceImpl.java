@@ -3,7 +3,10 @@ package org.pmiops.workbench.dataset;
 import static com.google.cloud.bigquery.StandardSQLTypeName.ARRAY;
 import static org.pmiops.workbench.model.PrePackagedConceptSetEnum.SURVEY;
 
+import com.google.cloud.bigquery.Field;
 import com.google.cloud.bigquery.FieldList;
+import com.google.cloud.bigquery.Job;
+import com.google.cloud.bigquery.JobStatus;
 import com.google.cloud.bigquery.QueryJobConfiguration;
 import com.google.cloud.bigquery.QueryParameterValue;
 import com.google.cloud.bigquery.TableResult;
@@ -20,6 +23,8 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -42,7 +47,9 @@ import org.pmiops.workbench.cdr.dao.DSLinkingDao;
 import org.pmiops.workbench.cdr.model.DbDSDataDictionary;
 import org.pmiops.workbench.cdr.model.DbDSLinking;
 import org.pmiops.workbench.cohortbuilder.CohortQueryBuilder;
+import org.pmiops.workbench.cohortbuilder.MaterializedCohortService;
 import org.pmiops.workbench.cohortbuilder.ParticipantCriteria;
+import org.pmiops.workbench.cohortbuilder.SearchRequestNormalizer;
 import org.pmiops.workbench.cohorts.CohortService;
 import org.pmiops.workbench.conceptset.ConceptSetService;
 import org.pmiops.workbench.config.WorkbenchConfig;
@@ -106,7 +113,10 @@ public class DataSetServiceImpl implements DataSetService, GaugeDataCollector {
           KernelTypeEnum.R, R_CDR_ENV_VARIABLE, KernelTypeEnum.PYTHON, PYTHON_CDR_ENV_VARIABLE);
   private static final String PREVIEW_QUERY =
       "SELECT ${columns} \nFROM `${projectId}.${dataSetId}.${tableName}`";
-  private static final String LIMIT_20 = " LIMIT 20";
+  private static final long PREVIEW_ROW_LIMIT = 20L;
+  private static final String LIMIT_20 = " LIMIT " + PREVIEW_ROW_LIMIT;
+  @VisibleForTesting static final String PREVIEW_JOB_WORKSPACE_LABEL = "workbench_workspace_id";
+  @VisibleForTesting static final String PREVIEW_JOB_DOMAIN_LABEL = "workbench_preview_domain";
   private static final String PERSON_ID_COLUMN_NAME = "PERSON_ID";
   private static final ImmutableList<Domain> OUTER_QUERY_DOMAIN =
       ImmutableList.of(
@@ -213,7 +223,9 @@ public class DataSetServiceImpl implements DataSetService, GaugeDataCollector {
   private final ConceptSetDao conceptSetDao;
   private final ConceptSetService conceptSetService;
   private final CohortQueryBuilder cohortQueryBuilder;
+  private final MaterializedCohortService materializedCohortService;
   private final DataSetDao dataSetDao;
+  private final DomainQueryRunner domainQueryRunner;
   private final DSLinkingDao dsLinkingDao;
   private final DSDataDictionaryDao dsDataDictionaryDao;
   private final DataSetMapper dataSetMapper;
@@ -232,7 +244,9 @@ public class DataSetServiceImpl implements DataSetService, GaugeDataCollector {
       ConceptSetDao conceptSetDao,
       ConceptSetService conceptSetService,
       CohortQueryBuilder cohortQueryBuilder,
+      MaterializedCohortService materializedCohortService,
       DataSetDao dataSetDao,
+      DomainQueryRunner domainQueryRunner,
       DSLinkingDao dsLinkingDao,
       DSDataDictionaryDao dsDataDictionaryDao,
       DataSetMapper dataSetMapper,
@@ -247,7 +261,9 @@ public class DataSetServiceImpl implements DataSetService, GaugeDataCollector {
     this.conceptSetDao = conceptSetDao;
     this.conceptSetService = conceptSetService;
     this.cohortQueryBuilder = cohortQueryBuilder;
+    this.materializedCohortService = materializedCohortService;
     this.dataSetDao = dataSetDao;
+    this.domainQueryRunner = domainQueryRunner;
     this.dsLinkingDao = dsLinkingDao;
     this.dsDataDictionaryDao = dsDataDictionaryDao;
     this.dataSetMapper = dataSetMapper;
@@ -314,6 +330,126 @@ public class DataSetServiceImpl implements DataSetService, GaugeDataCollector {
 
   @Override
   public TableResult previewBigQueryJobConfig(DataSetPreviewRequest request) {
+    return bigQueryService.executeQuery(
+        buildPreviewQueryJobConfig(request, getPreviewCohortQueries(request)),
+        APP_ENGINE_HARD_TIMEOUT_MSEC_MINUS_FIVE_SEC);
+  }
+
+  @Override
+  public String startPreviewJob(DataSetPreviewRequest request, long workspaceId) {
+    return startPreviewQuery(request, getPreviewCohortQueries(request), workspaceId)
+        .getJobId()
+        .getJob();
+  }
+
+  @Override
+  public List<DataSetPreviewJobResult> previewDomains(
+      List<DataSetPreviewRequest> requests, long workspaceId) {
+    // Every domain of a data set filters on the same cohorts, so each distinct selection of cohorts
+    // is materialized and turned into SQL once rather than once per domain.
+    final Map<List<Long>, ImmutableList<QueryAndParameters>> cohortQueriesBySelection =
+        new HashMap<>();
+    final Map<Domain, DataSetPreviewRequest> requestsByDomain = new LinkedHashMap<>();
+    final Map<Domain, Job> jobsByDomain = new LinkedHashMap<>();
+    for (DataSetPreviewRequest request : requests) {
+      if (requestsByDomain.put(request.getDomain(), request) != null) {
+        throw new BadRequestException("Domain " + request.getDomain() + " was requested twice");
+      }
+      final ImmutableList<QueryAndParameters> cohortQueries =
+          request.getIncludesAllParticipants()
+              ? ImmutableList.of()
+              : cohortQueriesBySelection.computeIfAbsent(
+                  request.getCohortIds(), this::getMaterializedCohortQueries);
+      // Jobs are started here, on the request thread, which holds the CDR version and config.
+      jobsByDomain.put(request.getDomain(), startPreviewQuery(request, cohortQueries, workspaceId));
+    }
+
+    final Map<Domain, TableResult> results = domainQueryRunner.awaitResults(jobsByDomain);
+    return requestsByDomain.values().stream()
+        .map(
+            request -> {
+              final TableResult result = results.get(request.getDomain());
+              return new DataSetPreviewJobResult(
+                  jobsByDomain.get(request.getDomain()).getJobId().getJob(),
+                  request.getDomain(),
+                  request.getValues(),
+                  result == null ? JobStatus.State.RUNNING : JobStatus.State.DONE,
+                  result);
+            })
+        .collect(Collectors.toList());
+  }
+
+  private Job startPreviewQuery(
+      DataSetPreviewRequest request,
+      ImmutableList<QueryAndParameters> cohortQueries,
+      long workspaceId) {
+    final QueryJobConfiguration previewQueryJobConfig =
+        buildPreviewQueryJobConfig(request, cohortQueries)
+            .toBuilder()
+            .setLabels(
+                ImmutableMap.of(
+                    PREVIEW_JOB_WORKSPACE_LABEL,
+                    String.valueOf(workspaceId),
+                    PREVIEW_JOB_DOMAIN_LABEL,
+                    request.getDomain().toString().toLowerCase()))
+            .build();
+    return bigQueryService.startQuery(previewQueryJobConfig);
+  }
+
+  @Override
+  public DataSetPreviewJobResult getPreviewJobResult(String jobId, long workspaceId) {
+    // Jobs are labeled with the workspace that started them, so that a job id can't be used to
+    // read results from another workspace with the same CDR version.
+    final Job job =
+        bigQueryService
+            .getJob(jobId)
+            .filter(j -> j.getConfiguration() instanceof QueryJobConfiguration)
+            .filter(
+                j ->
+                    String.valueOf(workspaceId)
+                        .equals(getJobLabels(j).get(PREVIEW_JOB_WORKSPACE_LABEL)))
+            .orElseThrow(
+                () ->
+                    new NotFoundException(
+                        String.format("Data set preview job %s was not found", jobId)));
+    final Domain domain =
+        Domain.valueOf(getJobLabels(job).get(PREVIEW_JOB_DOMAIN_LABEL).toUpperCase());
+    if (job.getStatus().getState() != JobStatus.State.DONE) {
+      return new DataSetPreviewJobResult(
+          jobId, domain, Collections.emptyList(), job.getStatus().getState(), null);
+    }
+    // The query selects the values in the order they were requested, so its columns keep it.
+    final TableResult result = bigQueryService.getQueryResults(job, PREVIEW_ROW_LIMIT, null);
+    return new DataSetPreviewJobResult(
+        jobId, domain, getColumnNames(result), JobStatus.State.DONE, result);
+  }
+
+  private static List<String> getColumnNames(TableResult result) {
+    return Optional.ofNullable(result.getSchema())
+        .map(
+            schema ->
+                schema.getFields().stream().map(Field::getName).collect(Collectors.toList()))
+        .orElse(Collections.emptyList());
+  }
+
+  private static Map<String, String> getJobLabels(Job job) {
+    return Optional.ofNullable(((QueryJobConfiguration) job.getConfiguration()).getLabels())
+        .orElse(Collections.emptyMap());
+  }
+
+  /**
+   * Returns the participant queries of the preview's cohorts, reading materialized cohorts where
+   * possible, or no queries if the preview includes all participants.
+   */
+  private ImmutableList<QueryAndParameters> getPreviewCohortQueries(
+      DataSetPreviewRequest request) {
+    return request.getIncludesAllParticipants()
+        ? ImmutableList.of()
+        : getMaterializedCohortQueries(request.getCohortIds());
+  }
+
+  private QueryJobConfiguration buildPreviewQueryJobConfig(
+      DataSetPreviewRequest request, ImmutableList<QueryAndParameters> cohortQueries) {
     final Domain domain = request.getDomain();
     final List<String> values = request.getValues();
     Map<String, QueryParameterValue> mergedQueryParameterValues = new HashMap<>();
@@ -383,13 +519,8 @@ public class DataSetServiceImpl implements DataSetService, GaugeDataCollector {
     }
 
     if (!request.getIncludesAllParticipants()) {
-      final ImmutableList<QueryAndParameters> queryMapEntries =
-          cohortDao.findAllByCohortIdIn(request.getCohortIds()).stream()
-              .map(this::getCohortQueryStringAndCollectNamedParameters)
-              .collect(ImmutableList.toImmutableList());
-
       final String unionedCohortQuery =
-          queryMapEntries.stream()
+          cohortQueries.stream()
               .map(QueryAndParameters::getQuery)
               .collect(Collectors.joining(" UNION DISTINCT "));
       queryBuilder.append(
@@ -399,7 +530,7 @@ public class DataSetServiceImpl implements DataSetService, GaugeDataCollector {
 
       // now merge all the individual maps from each configuration
       mergedQueryParameterValues.putAll(
-          queryMapEntries.stream()
+          cohortQueries.stream()
               .map(QueryAndParameters::getNamedParameterValues)
               .flatMap(m -> m.entrySet().stream())
               .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue)));
@@ -407,11 +538,7 @@ public class DataSetServiceImpl implements DataSetService, GaugeDataCollector {
     queryBuilder.append(LIMIT_20);
     QueryJobConfiguration previewBigQueryJobConfig =
         buildQueryJobConfiguration(mergedQueryParameterValues, queryBuilder.toString());
-    TableResult queryResponse =
-        bigQueryService.executeQuery(
-            bigQueryService.filterBigQueryConfig(previewBigQueryJobConfig),
-            APP_ENGINE_HARD_TIMEOUT_MSEC_MINUS_FIVE_SEC);
-    return queryResponse;
+    return bigQueryService.filterBigQueryConfig(previewBigQueryJobConfig);
   }
 
   @Override
@@ -450,7 +577,7 @@ public class DataSetServiceImpl implements DataSetService, GaugeDataCollector {
 
     // Below constructs the union of all cohort queries
     final ImmutableList<QueryAndParameters> queryMapEntries =
-        cohortsSelected.stream()
+        distinctByCohortDefinition(cohortsSelected).stream()
             .map(this::getCohortQueryStringAndCollectNamedParameters)
             .collect(ImmutableList.toImmutableList());
 
@@ -518,8 +645,45 @@ public class DataSetServiceImpl implements DataSetService, GaugeDataCollector {
         && prePackagedConceptSet.get(0).equals(PrePackagedConceptSetEnum.NONE);
   }
 
+  /**
+   * Drops cohorts whose criteria are equivalent to those of an earlier cohort in the list (see
+   * {@link SearchRequestNormalizer}), so the same participant query is not unioned in twice.
+   * Cohorts without criteria are kept, so that they fail in the usual way downstream.
+   */
+  private List<DbCohort> distinctByCohortDefinition(List<DbCohort> cohorts) {
+    final Set<String> cohortHashes = new HashSet<>();
+    return cohorts.stream()
+        .filter(
+            cohort ->
+                cohort.getCriteria() == null
+                    || cohortHashes.add(
+                        SearchRequestNormalizer.hash(
+                            new Gson().fromJson(cohort.getCriteria(), SearchRequest.class))))
+        .collect(Collectors.toList());
+  }
+
+  /**
+   * Returns the participant query of each distinct cohort, reading materialized cohorts where
+   * possible; only for queries the server runs itself.
+   */
+  private ImmutableList<QueryAndParameters> getMaterializedCohortQueries(
+      Collection<Long> cohortIds) {
+    return distinctByCohortDefinition(cohortDao.findAllByCohortIdIn(cohortIds)).stream()
+        .map(cohort -> getCohortQueryStringAndCollectNamedParameters(cohort, true))
+        .collect(ImmutableList.toImmutableList());
+  }
+
   @VisibleForTesting
   public QueryAndParameters getCohortQueryStringAndCollectNamedParameters(DbCohort cohortDbModel) {
+    return getCohortQueryStringAndCollectNamedParameters(cohortDbModel, false);
+  }
+
+  /**
+   * @param materialize whether the query may read a materialized copy of the cohort; this must be
+   *     false for queries handed to researchers, who cannot read the server's scratch tables
+   */
+  private QueryAndParameters getCohortQueryStringAndCollectNamedParameters(
+      DbCohort cohortDbModel, boolean materialize) {
     String cohortDefinition = cohortDbModel.getCriteria();
     if (cohortDefinition == null) {
       throw new NotFoundException(
@@ -528,8 +692,12 @@ public class DataSetServiceImpl implements DataSetService, GaugeDataCollector {
               cohortDbModel.getCohortId()));
     }
     final SearchRequest searchRequest = new Gson().fromJson(cohortDefinition, SearchRequest.class);
+    final ParticipantCriteria participantCriteria = new ParticipantCriteria(searchRequest);
     final QueryJobConfiguration participantIdQuery =
-        cohortQueryBuilder.buildParticipantIdQuery(new ParticipantCriteria(searchRequest));
+        cohortQueryBuilder.buildParticipantIdQuery(
+            materialize
+                ? materializedCohortService.materialize(participantCriteria)
+                : participantCriteria);
     final AtomicReference<String> participantQuery =
         new AtomicReference<>(participantIdQuery.getQuery());
     final ImmutableMap.Builder<String, QueryParameterValue> cohortNamedParametersBuilder =
@@ -1184,29 +1352,39 @@ public class DataSetServiceImpl implements DataSetService, GaugeDataCollector {
 
   @Override
   public List<String> getPersonIdsWithWholeGenome(DbDataset dataSet) {
-    List<ParticipantCriteria> participantCriteriaList;
-    if (Boolean.TRUE.equals(dataSet.getIncludesAllParticipants())) {
-      // Select all participants with WGS data.
-      participantCriteriaList =
-          ImmutableList.of(
-              new ParticipantCriteria(
-                  new SearchRequest().addIncludesItem(createHasWgsSearchGroup())));
-    } else {
-      participantCriteriaList =
-          this.cohortDao.findAllByCohortIdIn(dataSet.getCohortIds()).stream()
-              .map(
-                  cohort -> {
-                    final SearchRequest searchRequest =
-                        new Gson().fromJson(cohort.getCriteria(), SearchRequest.class);
-                    // AND the existing search criteria with participants having genomics data.
-                    searchRequest.addIncludesItem(createHasWgsSearchGroup());
-                    return new ParticipantCriteria(searchRequest);
-                  })
-              .collect(Collectors.toList());
-    }
+    // Select all participants with WGS data.
+    final QueryJobConfiguration wgsParticipantIdQuery =
+        cohortQueryBuilder.buildParticipantIdQuery(
+            new ParticipantCriteria(
+                new SearchRequest().addIncludesItem(createHasWgsSearchGroup())));
+
+    QueryJobConfiguration participantIdQuery = wgsParticipantIdQuery;
+    if (!Boolean.TRUE.equals(dataSet.getIncludesAllParticipants())) {
+      // AND the cohorts' participants in here rather than adding the WGS group to each cohort's
+      // criteria, so that each cohort reads the same materialized table as its other queries.
+      final ImmutableList<QueryAndParameters> queryMapEntries =
+          getMaterializedCohortQueries(dataSet.getCohortIds());
+      final String unionedCohortQuery =
+          queryMapEntries.stream()
+              .map(QueryAndParameters::getQuery)
+              .collect(Collectors.joining(" UNION DISTINCT "));
 
-    final QueryJobConfiguration participantIdQuery =
-        cohortQueryBuilder.buildUnionedParticipantIdQuery(participantCriteriaList);
+      // Cohort parameters are renamed after their cohort, so they can't clash with the WGS ones.
+      final Map<String, QueryParameterValue> mergedQueryParameterValues =
+          new HashMap<>(wgsParticipantIdQuery.getNamedParameters());
+      queryMapEntries.forEach(
+          entry -> mergedQueryParameterValues.putAll(entry.getNamedParameterValues()));
+      participantIdQuery =
+          wgsParticipantIdQuery.toBuilder()
+              .setQuery(
+                  "SELECT person_id FROM ("
+                      + wgsParticipantIdQuery.getQuery()
+                      + ") WHERE person_id IN ("
+                      + unionedCohortQuery
+                      + ")")
+              .setNamedParameters(mergedQueryParameterValues)
+              .build();
+    }
 
     return Streams.stream(
             bigQueryService
@@ -0,0 +1,121 @@
+package org.pmiops.workbench.dataset;
+
+import com.google.cloud.bigquery.Job;
+import com.google.cloud.bigquery.TableResult;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.annotation.PreDestroy;
+import org.pmiops.workbench.api.BigQueryService;
+import org.pmiops.workbench.model.Domain;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+/**
+ * Waits for the query jobs of several data set domains at once. The jobs are started by the caller,
+ * on the request thread, so they already run concurrently in BigQuery; waiting for them on a small
+ * bounded pool lets each domain have its own deadline, rather than one slow domain using up the
+ * time of those after it. A domain whose query fails or misses its deadline is left out of the
+ * results rather than failing the others, and its job keeps running in BigQuery.
+ */
+@Service
+public class DomainQueryRunner {
+
+  private static final Logger log = Logger.getLogger(DomainQueryRunner.class.getName());
+
+  private static final int WAIT_THREADS = 8;
+  private static final int WAIT_QUEUE_SIZE = 32;
+  // Leaves time to build the response within the App Engine request deadline.
+  private static final long DOMAIN_DEADLINE_MILLIS = TimeUnit.SECONDS.toMillis(45);
+
+  private final BigQueryService bigQueryService;
+  private final ExecutorService waitExecutor;
+  private final long deadlineMillis;
+
+  @Autowired
+  public DomainQueryRunner(BigQueryService bigQueryService) {
+    this(
+        bigQueryService,
+        // When the queue is full the domain is not waited for at all, and its caller polls for
+        // the results instead; the request thread never waits without a deadline.
+        new ThreadPoolExecutor(
+            WAIT_THREADS,
+            WAIT_THREADS,
+            0L,
+            TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(WAIT_QUEUE_SIZE),
+            new ThreadFactoryBuilder()
+                .setNameFormat("domain-query-wait-%d")
+                .setDaemon(true)
+                .build(),
+            new ThreadPoolExecutor.AbortPolicy()),
+        DOMAIN_DEADLINE_MILLIS);
+  }
+
+  @VisibleForTesting
+  public DomainQueryRunner(
+      BigQueryService bigQueryService, ExecutorService waitExecutor, long deadlineMillis) {
+    this.bigQueryService = bigQueryService;
+    this.waitExecutor = waitExecutor;
+    this.deadlineMillis = deadlineMillis;
+  }
+
+  @PreDestroy
+  void shutdown() {
+    waitExecutor.shutdownNow();
+  }
+
+  /**
+   * Waits for each domain's started query job, up to the deadline, and returns the results of
+   * those which finished in time.
+   */
+  public Map<Domain, TableResult> awaitResults(Map<Domain, Job> jobsByDomain) {
+    final long deadline = System.currentTimeMillis() + deadlineMillis;
+    final Map<Domain, Future<TableResult>> waits = new LinkedHashMap<>();
+    for (Map.Entry<Domain, Job> entry : jobsByDomain.entrySet()) {
+      final Job job = entry.getValue();
+      try {
+        waits.put(
+            entry.getKey(),
+            waitExecutor.submit(() -> bigQueryService.waitForQueryResults(job, deadlineMillis)));
+      } catch (RejectedExecutionException e) {
+        log.warning(
+            String.format(
+                "Too many domain queries in flight, not waiting for the %s query",
+                entry.getKey()));
+      }
+    }
+
+    final ImmutableMap.Builder<Domain, TableResult> results = ImmutableMap.builder();
+    for (Map.Entry<Domain, Future<TableResult>> entry : waits.entrySet()) {
+      final Future<TableResult> wait = entry.getValue();
+      try {
+        results.put(
+            entry.getKey(),
+            wait.get(Math.max(0, deadline - System.currentTimeMillis()), TimeUnit.MILLISECONDS));
+      } catch (TimeoutException e) {
+        wait.cancel(true);
+        log.info(String.format("%s query did not finish within the deadline", entry.getKey()));
+      } catch (ExecutionException e) {
+        log.log(Level.WARNING, String.format("%s query failed", entry.getKey()), e.getCause());
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        waits.values().forEach(w -> w.cancel(true));
+        break;
+      }
+    }
+    return results.build();
+  }
+}
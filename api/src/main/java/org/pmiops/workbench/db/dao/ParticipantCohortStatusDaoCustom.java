@@ -5,14 +5,22 @@ import org.pmiops.workbench.cohortreview.util.PageRequest;
 import org.pmiops.workbench.db.model.DbParticipantCohortStatus;
 
 /**
- * This implementation manually creates batched sql statements. For unknown reasons Spring JPA nor
- * JDBC batching works in appengine running in the cloud. It's old school but it solves our batching
- * issue and can handle inserts up to 10,000 participants.
+ * This implementation manually creates batched sql statements. Spring JPA batching doesn't work in
+ * appengine running in the cloud, so inserts go through a JDBC PreparedStatement batch instead;
+ * with rewriteBatchedStatements=true on the connection string, each batch is sent to MySQL as a
+ * single multi-row insert.
  */
 public interface ParticipantCohortStatusDaoCustom {
 
-  void saveParticipantCohortStatusesCustom(
-      List<DbParticipantCohortStatus> participantCohortStatuses);
+  /**
+   * Inserts the statuses as NOT_REVIEWED, consuming the iterable as it goes so that callers can
+   * stream rows in without materializing a list. Returns the number of rows inserted.
+   */
+  int saveParticipantCohortStatusesCustom(
+      Iterable<DbParticipantCohortStatus> participantCohortStatuses);
+
+  int saveParticipantCohortStatusesCustom(
+      Iterable<DbParticipantCohortStatus> participantCohortStatuses, int batchSize);
 
   List<DbParticipantCohortStatus> findAll(Long cohortReviewId, PageRequest pageRequest);
 
@@ -2,9 +2,11 @@ package org.pmiops.workbench.db.dao;
 
 import com.google.common.collect.ImmutableList;
 import java.sql.Connection;
+import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.sql.Types;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.logging.Level;
@@ -13,8 +15,12 @@ import org.pmiops.workbench.cohortreview.util.PageRequest;
 import org.pmiops.workbench.cohortreview.util.ParticipantCohortStatusDbInfo;
 import org.pmiops.workbench.db.model.DbParticipantCohortStatus;
 import org.pmiops.workbench.db.model.DbParticipantCohortStatusKey;
+import org.pmiops.workbench.db.model.DbStorageEnums;
+import org.pmiops.workbench.exceptions.BadRequestException;
+import org.pmiops.workbench.model.CohortStatus;
 import org.pmiops.workbench.model.Filter;
 import org.pmiops.workbench.model.FilterColumns;
+import org.pmiops.workbench.model.SortOrder;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.jdbc.core.BeanPropertyRowMapper;
 import org.springframework.jdbc.core.JdbcTemplate;
@@ -51,13 +57,16 @@ public class ParticipantCohortStatusDaoImpl implements ParticipantCohortStatusDa
 
   private static final String LIMIT_SQL_TEMPLATE = "limit %d, %d";
 
-  private static final String INSERT_SQL_TEMPLATE =
+  private static final String SEEK_LIMIT_SQL_TEMPLATE = "limit %d";
+
+  private static final String INSERT_SQL =
       "insert into participant_cohort_status("
           + "birth_date, ethnicity_concept_id, gender_concept_id, race_concept_id, sex_at_birth_concept_id,"
           + "status, cohort_review_id, participant_id, deceased) "
-          + "values";
-  private static final String NEXT_INSERT = " (%s, %d, %d, %d, %d, %d, %d, %d, %s)";
-  private static final int BATCH_SIZE = 50;
+          + "values (?, ?, ?, ?, ?, ?, ?, ?, ?)";
+  // With rewriteBatchedStatements=true on the connection, MySQL Connector/J sends each batch as a
+  // single multi-row insert.
+  private static final int DEFAULT_BATCH_SIZE = 500;
 
   @Autowired private JdbcTemplate jdbcTemplate;
 
@@ -67,47 +76,42 @@ public class ParticipantCohortStatusDaoImpl implements ParticipantCohortStatusDa
       Logger.getLogger(ParticipantCohortStatusDaoImpl.class.getName());
 
   @Override
-  public void saveParticipantCohortStatusesCustom(
-      List<DbParticipantCohortStatus> participantCohortStatuses) {
-    Statement statement = null;
+  public int saveParticipantCohortStatusesCustom(
+      Iterable<DbParticipantCohortStatus> participantCohortStatuses) {
+    return saveParticipantCohortStatusesCustom(participantCohortStatuses, DEFAULT_BATCH_SIZE);
+  }
+
+  @Override
+  public int saveParticipantCohortStatusesCustom(
+      Iterable<DbParticipantCohortStatus> participantCohortStatuses, int batchSize) {
+    PreparedStatement statement = null;
     Connection connection = null;
     int index = 0;
-    String sqlStatement = INSERT_SQL_TEMPLATE;
 
     try {
       connection = jdbcTemplate.getDataSource().getConnection();
-      statement = connection.createStatement();
+      statement = connection.prepareStatement(INSERT_SQL);
       connection.setAutoCommit(false);
 
       for (DbParticipantCohortStatus pcs : participantCohortStatuses) {
-        String birthDate =
-            pcs.getBirthDate() == null ? "NULL" : "'" + pcs.getBirthDate().toString() + "'";
-        String nextSql =
-            String.format(
-                NEXT_INSERT,
-                birthDate,
-                pcs.getEthnicityConceptId(),
-                pcs.getGenderConceptId(),
-                pcs.getRaceConceptId(),
-                pcs.getSexAtBirthConceptId(),
-                // this represents NOT_REVIEWED
-                3,
-                pcs.getParticipantKey().getCohortReviewId(),
-                pcs.getParticipantKey().getParticipantId(),
-                pcs.getDeceased());
-        sqlStatement =
-            sqlStatement.equals(INSERT_SQL_TEMPLATE)
-                ? sqlStatement + nextSql
-                : sqlStatement + ", " + nextSql;
-
-        if (++index % BATCH_SIZE == 0) {
-          statement.execute(sqlStatement);
-          sqlStatement = INSERT_SQL_TEMPLATE;
+        statement.setDate(1, pcs.getBirthDate());
+        setNullableLong(statement, 2, pcs.getEthnicityConceptId());
+        setNullableLong(statement, 3, pcs.getGenderConceptId());
+        setNullableLong(statement, 4, pcs.getRaceConceptId());
+        setNullableLong(statement, 5, pcs.getSexAtBirthConceptId());
+        statement.setShort(6, DbStorageEnums.cohortStatusToStorage(CohortStatus.NOT_REVIEWED));
+        statement.setLong(7, pcs.getParticipantKey().getCohortReviewId());
+        statement.setLong(8, pcs.getParticipantKey().getParticipantId());
+        statement.setBoolean(9, pcs.getDeceased());
+        statement.addBatch();
+
+        if (++index % batchSize == 0) {
+          statement.executeBatch();
         }
       }
 
-      if (!sqlStatement.equals(INSERT_SQL_TEMPLATE)) {
-        statement.execute(sqlStatement);
+      if (index % batchSize != 0) {
+        statement.executeBatch();
       }
 
       connection.commit();
@@ -121,6 +125,16 @@ public class ParticipantCohortStatusDaoImpl implements ParticipantCohortStatusDa
       close(statement);
       close(connection);
     }
+    return index;
+  }
+
+  private void setNullableLong(PreparedStatement statement, int parameterIndex, Long value)
+      throws SQLException {
+    if (value == null) {
+      statement.setNull(parameterIndex, Types.BIGINT);
+    } else {
+      statement.setLong(parameterIndex, value);
+    }
   }
 
   @Override
@@ -128,14 +142,25 @@ public class ParticipantCohortStatusDaoImpl implements ParticipantCohortStatusDa
     MapSqlParameterSource parameters = new MapSqlParameterSource();
     parameters.addValue("cohortReviewId", cohortReviewId);
 
-    String sqlStatement =
-        SELECT_SQL_TEMPLATE
-            + buildFilteringSql(pageRequest.getFilters(), parameters)
-            + String.format(ORDERBY_SQL_TEMPLATE, getSortColumn(pageRequest))
-            + String.format(
-                LIMIT_SQL_TEMPLATE,
-                pageRequest.getPage() * pageRequest.getPageSize(),
-                pageRequest.getPageSize());
+    String sqlStatement;
+    if (pageRequest.getLastParticipantId() == null) {
+      sqlStatement =
+          SELECT_SQL_TEMPLATE
+              + buildFilteringSql(pageRequest.getFilters(), parameters)
+              + String.format(ORDERBY_SQL_TEMPLATE, getSortColumn(pageRequest))
+              + String.format(
+                  LIMIT_SQL_TEMPLATE,
+                  pageRequest.getPage() * pageRequest.getPageSize(),
+                  pageRequest.getPageSize());
+    } else {
+      sqlStatement =
+          SELECT_SQL_TEMPLATE
+              + buildFilteringSql(pageRequest.getFilters(), parameters)
+              + " and "
+              + buildSeekSql(pageRequest, parameters)
+              + String.format(ORDERBY_SQL_TEMPLATE, getSortColumn(pageRequest))
+              + String.format(SEEK_LIMIT_SQL_TEMPLATE, pageRequest.getPageSize());
+    }
 
     return namedParameterJdbcTemplate.query(
         sqlStatement, parameters, new ParticipantCohortStatusRowMapper());
@@ -152,6 +177,53 @@ public class ParticipantCohortStatusDaoImpl implements ParticipantCohortStatusDa
     return namedParameterJdbcTemplate.queryForObject(sqlStatement, parameters, Long.class);
   }
 
+  /**
+   * Seek pagination is supported when sorting on a plain column, since the position of the last row
+   * can then be expressed as a comparison on (sort column, participant_id).
+   */
+  public static boolean supportsSeekPagination(String sortColumn) {
+    return NON_GENDER_RACE_ETHNICITY_TYPES.contains(sortColumn);
+  }
+
+  /**
+   * Builds the condition for rows that come after the last row of the previous page, in the order
+   * produced by getSortColumn: the sort column in the requested direction and then participant_id
+   * ascending. MySQL sorts nulls first in ascending order and last in descending order.
+   */
+  private String buildSeekSql(PageRequest pageRequest, MapSqlParameterSource parameters) {
+    String sortColumn = pageRequest.getSortColumn();
+    if (!supportsSeekPagination(sortColumn)) {
+      throw new BadRequestException(
+          String.format(
+              "Bad Request: page tokens are not supported when sorting by %s", sortColumn));
+    }
+    String participantId = ParticipantCohortStatusDbInfo.PARTICIPANT_ID.getDbName();
+    String comparison = pageRequest.getSortOrder() == SortOrder.ASC ? ">" : "<";
+    parameters.addValue("lastParticipantId", pageRequest.getLastParticipantId());
+    if (sortColumn.equals(FilterColumns.PARTICIPANTID.name())) {
+      return String.format("%s %s :lastParticipantId\n", participantId, comparison);
+    }
+
+    String column = ParticipantCohortStatusDbInfo.getDbName(sortColumn);
+    if (pageRequest.getLastSortValue() == null) {
+      String remainingNulls =
+          String.format("%s is null and %s > :lastParticipantId", column, participantId);
+      return pageRequest.getSortOrder() == SortOrder.ASC
+          ? String.format("((%s) or %s is not null)\n", remainingNulls, column)
+          : String.format("(%s)\n", remainingNulls);
+    }
+    parameters.addValue(
+        "lastSortValue",
+        ParticipantCohortStatusDbInfo.applyFunction(sortColumn, pageRequest.getLastSortValue()));
+    String seek =
+        String.format(
+            "%s %s :lastSortValue or (%s = :lastSortValue and %s > :lastParticipantId)",
+            column, comparison, column, participantId);
+    return pageRequest.getSortOrder() == SortOrder.ASC
+        ? String.format("(%s)\n", seek)
+        : String.format("(%s or %s is null)\n", seek, column);
+  }
+
   private String getSortColumn(PageRequest pageRequest) {
     String sortColumn = pageRequest.getSortColumn();
     if (NON_GENDER_RACE_ETHNICITY_TYPES.contains(sortColumn)) {
@@ -30,6 +30,9 @@ public interface UserDao extends CrudRepository<DbUser, Long> {
   @Query("SELECT user FROM DbUser user WHERE user.disabled = FALSE")
   List<DbUser> findUsersExcludingDisabled();
 
+  @Query("SELECT user.id FROM DbUser user WHERE user.disabled = FALSE")
+  List<Long> findUserIdsExcludingDisabled();
+
   /** Returns the user with their authorities loaded. */
   @Query("SELECT user FROM DbUser user LEFT JOIN FETCH user.authorities WHERE user.userId = :id")
   DbUser findUserWithAuthorities(@Param("id") long id);
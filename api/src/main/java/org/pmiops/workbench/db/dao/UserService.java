@@ -77,6 +77,8 @@ public interface UserService {
 
   List<DbUser> getAllUsersExcludingDisabled();
 
+  List<Long> getAllUserIdsExcludingDisabled();
+
   @Deprecated // use or create an auditor in org.pmiops.workbench.actionaudit.auditors
   void logAdminUserAction(long targetUserId, String targetAction, Object oldValue, Object newValue);
 
@@ -109,11 +111,21 @@ public interface UserService {
   DbUser syncComplianceTrainingStatusV2()
       throws org.pmiops.workbench.moodle.ApiException, NotFoundException;
 
+  /**
+   * Syncs the compliance training status of the target user from Moodle, acting as the provided
+   * agent. If the status has not changed, the user is returned as is, without being saved or having
+   * their access tiers updated. This can be called administratively, or from an offline cron.
+   */
   DbUser syncComplianceTrainingStatusV2(DbUser user, Agent agent)
       throws org.pmiops.workbench.moodle.ApiException, NotFoundException;
 
   DbUser syncEraCommonsStatus();
 
+  /**
+   * Syncs the eRA Commons status of the target user from Terra, impersonating them and acting as
+   * the provided agent. If the status has not changed, the user is returned as is, without being
+   * saved or having their access tiers updated.
+   */
   DbUser syncEraCommonsStatusUsingImpersonation(DbUser user, Agent agent)
       throws IOException, org.pmiops.workbench.firecloud.ApiException;
 
@@ -139,6 +151,9 @@ public interface UserService {
    * <p>This method is provided to allow for optimization to the lookup of the enrolled 2FA status,
    * enables batch 2FA synchronization to be implemented without repeated calls to Gsuite. The
    * source value for isEnrolledIn2FA should always be Gsuite.
+   *
+   * <p>If the status has not changed, the user is returned as is, without being saved or having
+   * their access tiers updated.
    */
   DbUser syncTwoFactorAuthStatus(DbUser targetUser, Agent agent, boolean isEnrolledIn2FA);
 
@@ -15,6 +15,7 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.Random;
 import java.util.Set;
@@ -34,6 +35,7 @@ import org.pmiops.workbench.access.AccessTierService;
 import org.pmiops.workbench.actionaudit.Agent;
 import org.pmiops.workbench.actionaudit.auditors.UserServiceAuditor;
 import org.pmiops.workbench.actionaudit.targetproperties.BypassTimeTargetProperty;
+import org.pmiops.workbench.auth.UserIdentityCache;
 import org.pmiops.workbench.compliance.ComplianceService;
 import org.pmiops.workbench.config.WorkbenchConfig;
 import org.pmiops.workbench.config.WorkbenchConfig.AccessConfig;
@@ -108,6 +110,7 @@ public class UserServiceImpl implements UserService, GaugeDataCollector {
   private final DirectoryService directoryService;
   private final FireCloudService fireCloudService;
   private final MailService mailService;
+  private final UserIdentityCache userIdentityCache;
 
   private static final Logger log = Logger.getLogger(UserServiceImpl.class.getName());
 
@@ -127,7 +130,8 @@ public class UserServiceImpl implements UserService, GaugeDataCollector {
       ComplianceService complianceService,
       DirectoryService directoryService,
       AccessTierService accessTierService,
-      MailService mailService) {
+      MailService mailService,
+      UserIdentityCache userIdentityCache) {
     this.configProvider = configProvider;
     this.userProvider = userProvider;
     this.clock = clock;
@@ -143,6 +147,7 @@ public class UserServiceImpl implements UserService, GaugeDataCollector {
     this.directoryService = directoryService;
     this.accessTierService = accessTierService;
     this.mailService = mailService;
+    this.userIdentityCache = userIdentityCache;
   }
 
   @VisibleForTesting
@@ -230,13 +235,17 @@ public class UserServiceImpl implements UserService, GaugeDataCollector {
           dbUser, previousAccessTiers, newAccessTiers, agent);
     }
 
-    // add user to each Access Tier DB table and the tiers' Terra Auth Domains
-    newAccessTiers.forEach(tier -> accessTierService.addUserToTier(dbUser, tier));
+    // Only tiers the user is entering or leaving touch the DB and the tiers' Terra Auth Domains.
+    // Memberships which are unchanged are left alone; any drift between the DB and the Auth
+    // Domains is corrected in bulk by AccessTierService.reconcileAuthDomains().
 
-    // remove user from all other Access Tier DB tables and the tiers' Terra Auth Domains
-    final List<DbAccessTier> tiersForRemoval =
-        Lists.difference(accessTierService.getAllTiers(), newAccessTiers);
-    tiersForRemoval.forEach(tier -> accessTierService.removeUserFromTier(dbUser, tier));
+    // add user to each newly gained Access Tier DB table and the tier's Terra Auth Domain
+    Lists.difference(newAccessTiers, previousAccessTiers)
+        .forEach(tier -> accessTierService.addUserToTier(dbUser, tier));
+
+    // remove user from each lost Access Tier DB table and the tier's Terra Auth Domain
+    Lists.difference(previousAccessTiers, newAccessTiers)
+        .forEach(tier -> accessTierService.removeUserFromTier(dbUser, tier));
   }
 
   private class ModuleTimes {
@@ -690,13 +699,20 @@ public class UserServiceImpl implements UserService, GaugeDataCollector {
   @Override
   public DbUser setDisabledStatus(Long userId, boolean disabled) {
     DbUser user = userDao.findUserByUserId(userId);
-    return updateUserWithRetries(
-        (u) -> {
-          u.setDisabled(disabled);
-          return u;
-        },
-        user,
-        Agent.asAdmin(userProvider.get()));
+    user =
+        updateUserWithRetries(
+            (u) -> {
+              u.setDisabled(disabled);
+              return u;
+            },
+            user,
+            Agent.asAdmin(userProvider.get()));
+    if (disabled) {
+      // Cached tokens would still be rejected once the user row is loaded, but there's no reason
+      // to keep them around.
+      userIdentityCache.invalidateUser(userId);
+    }
+    return user;
   }
 
   @Override
@@ -714,6 +730,11 @@ public class UserServiceImpl implements UserService, GaugeDataCollector {
     return userDao.findUsersExcludingDisabled();
   }
 
+  @Override
+  public List<Long> getAllUserIdsExcludingDisabled() {
+    return userDao.findUserIdsExcludingDisabled();
+  }
+
   @Override
   public void logAdminUserAction(
       long targetUserId, String targetAction, Object oldValue, Object newValue) {
@@ -776,7 +797,13 @@ public class UserServiceImpl implements UserService, GaugeDataCollector {
   public DbUser syncComplianceTrainingStatusV2()
       throws org.pmiops.workbench.moodle.ApiException, NotFoundException {
     DbUser user = userProvider.get();
-    return syncComplianceTrainingStatusV2(user, Agent.asUser(user));
+    return syncComplianceTrainingStatusV2(user, Agent.asUser(user), false);
+  }
+
+  @Override
+  public DbUser syncComplianceTrainingStatusV2(DbUser dbUser, Agent agent)
+      throws org.pmiops.workbench.moodle.ApiException, NotFoundException {
+    return syncComplianceTrainingStatusV2(dbUser, agent, true);
   }
 
   /**
@@ -789,9 +816,11 @@ public class UserServiceImpl implements UserService, GaugeDataCollector {
    * valid, we store their completion/expiration dates in the database. If they are marked invalid,
    * we clear the completion/expiration dates from the database as the user will need to complete a
    * new training.
+   *
+   * <p>If skipIfUnchanged is set and the dates would not change, the user is returned as is. Users
+   * syncing themselves are always saved, which also brings their access tiers up to date.
    */
-  @Override
-  public DbUser syncComplianceTrainingStatusV2(DbUser dbUser, Agent agent)
+  private DbUser syncComplianceTrainingStatusV2(DbUser dbUser, Agent agent, boolean skipIfUnchanged)
       throws org.pmiops.workbench.moodle.ApiException, NotFoundException {
     // Skip sync for service account user rows.
     if (isServiceAccount(dbUser)) {
@@ -835,6 +864,14 @@ public class UserServiceImpl implements UserService, GaugeDataCollector {
         newComplianceTrainingExpirationTime = null;
       }
 
+      if (skipIfUnchanged
+          && Objects.equals(
+              newComplianceTrainingCompletionTime, dbUser.getComplianceTrainingCompletionTime())
+          && Objects.equals(
+              newComplianceTrainingExpirationTime, dbUser.getComplianceTrainingExpirationTime())) {
+        return dbUser;
+      }
+
       return updateUserWithRetries(
           u -> {
             u.setComplianceTrainingCompletionTime(newComplianceTrainingCompletionTime);
@@ -939,6 +976,9 @@ public class UserServiceImpl implements UserService, GaugeDataCollector {
     NihApi api = new NihApi(apiClient);
     try {
       FirecloudNihStatus nihStatus = api.nihStatus();
+      if (isEraCommonsStatusUnchanged(user, nihStatus)) {
+        return user;
+      }
       return setEraCommonsStatus(user, nihStatus, agent);
     } catch (org.pmiops.workbench.firecloud.ApiException e) {
       if (e.getCode() == HttpStatusCodes.STATUS_CODE_NOT_FOUND) {
@@ -952,6 +992,20 @@ public class UserServiceImpl implements UserService, GaugeDataCollector {
     }
   }
 
+  /** Returns true if setEraCommonsStatus would leave the user's eRA Commons fields as they are. */
+  private boolean isEraCommonsStatusUnchanged(DbUser user, FirecloudNihStatus nihStatus) {
+    if (nihStatus == null) {
+      return user.getEraCommonsLinkedNihUsername() == null
+          && user.getEraCommonsLinkExpireTime() == null
+          && user.getEraCommonsCompletionTime() == null;
+    }
+    return Objects.equals(nihStatus.getLinkedNihUsername(), user.getEraCommonsLinkedNihUsername())
+        && Timestamp.from(Instant.ofEpochSecond(nihStatus.getLinkExpireTime()))
+            .equals(user.getEraCommonsLinkExpireTime())
+        && (nihStatus.getLinkedNihUsername() == null)
+            == (user.getEraCommonsCompletionTime() == null);
+  }
+
   @Override
   public void syncTwoFactorAuthStatus() {
     DbUser user = userProvider.get();
@@ -961,15 +1015,27 @@ public class UserServiceImpl implements UserService, GaugeDataCollector {
   @Override
   public DbUser syncTwoFactorAuthStatus(DbUser targetUser, Agent agent) {
     return syncTwoFactorAuthStatus(
-        targetUser, agent, directoryService.getUser(targetUser.getUsername()).getIsEnrolledIn2Sv());
+        targetUser,
+        agent,
+        directoryService.getUser(targetUser.getUsername()).getIsEnrolledIn2Sv(),
+        false);
   }
 
   @Override
   public DbUser syncTwoFactorAuthStatus(DbUser targetUser, Agent agent, boolean isEnrolledIn2FA) {
+    return syncTwoFactorAuthStatus(targetUser, agent, isEnrolledIn2FA, true);
+  }
+
+  private DbUser syncTwoFactorAuthStatus(
+      DbUser targetUser, Agent agent, boolean isEnrolledIn2FA, boolean skipIfUnchanged) {
     if (isServiceAccount(targetUser)) {
       // Skip sync for service account user rows.
       return targetUser;
     }
+    if (skipIfUnchanged
+        && isEnrolledIn2FA == (targetUser.getTwoFactorAuthCompletionTime() != null)) {
+      return targetUser;
+    }
 
     return updateUserWithRetries(
         user -> {
@@ -5,6 +5,7 @@ import java.util.List;
 import java.util.Optional;
 import java.util.Set;
 import java.util.logging.Logger;
+import javax.annotation.Nullable;
 import org.pmiops.workbench.db.model.DbAccessTier;
 import org.pmiops.workbench.db.model.DbStorageEnums;
 import org.pmiops.workbench.db.model.DbUser;
@@ -13,6 +14,8 @@ import org.pmiops.workbench.db.model.DbWorkspace.BillingMigrationStatus;
 import org.pmiops.workbench.exceptions.NotFoundException;
 import org.pmiops.workbench.model.BillingStatus;
 import org.pmiops.workbench.model.WorkspaceActiveStatus;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.CrudRepository;
 import org.springframework.data.repository.query.Param;
@@ -27,6 +30,13 @@ public interface WorkspaceDao extends CrudRepository<DbWorkspace, Long>, Workspa
 
   Logger log = Logger.getLogger(WorkspaceDao.class.getName());
 
+  String WORKSPACE_PAGE_CONDITIONS =
+      " WHERE w.firecloudUuid IN (:uuids)"
+          + " AND (w.published = false OR w.firecloudUuid IN (:publishedUuids))"
+          + " AND w.activeStatus = (:status)"
+          + " AND (:published IS NULL OR w.published = (:published))"
+          + " AND (:cdrVersionId IS NULL OR v.cdrVersionId = (:cdrVersionId))";
+
   default DbWorkspace get(String ns, String firecloudName) {
     return findByWorkspaceNamespaceAndFirecloudNameAndActiveStatus(
         ns,
@@ -86,6 +96,38 @@ public interface WorkspaceDao extends CrudRepository<DbWorkspace, Long>, Workspa
 
   List<DbWorkspace> findAllByWorkspaceIdIn(Collection<Long> dbIds);
 
+  /**
+   * Returns one page of the active workspaces among firecloudUuids. Published workspaces are only
+   * included if their UUID is also in publishedFirecloudUuids; neither collection may be empty.
+   */
+  default Page<DbWorkspace> findActivePage(
+      Collection<String> firecloudUuids,
+      Collection<String> publishedFirecloudUuids,
+      @Nullable Boolean published,
+      @Nullable Long cdrVersionId,
+      Pageable pageable) {
+    return findPageByFirecloudUuidInAndActiveStatus(
+        firecloudUuids,
+        publishedFirecloudUuids,
+        published,
+        cdrVersionId,
+        DbStorageEnums.workspaceActiveStatusToStorage(WorkspaceActiveStatus.ACTIVE),
+        pageable);
+  }
+
+  @Query(
+      value = "SELECT w FROM DbWorkspace w LEFT JOIN w.cdrVersion v" + WORKSPACE_PAGE_CONDITIONS,
+      countQuery =
+          "SELECT COUNT(w) FROM DbWorkspace w LEFT JOIN w.cdrVersion v"
+              + WORKSPACE_PAGE_CONDITIONS)
+  Page<DbWorkspace> findPageByFirecloudUuidInAndActiveStatus(
+      @Param("uuids") Collection<String> firecloudUuids,
+      @Param("publishedUuids") Collection<String> publishedFirecloudUuids,
+      @Param("published") Boolean published,
+      @Param("cdrVersionId") Long cdrVersionId,
+      @Param("status") short status,
+      Pageable pageable);
+
   default Optional<DbWorkspace> findActiveByWorkspaceId(long workspaceId) {
     DbWorkspace workspace = findById(workspaceId).orElse(null);
     if (workspace == null || !workspace.isActive()) {
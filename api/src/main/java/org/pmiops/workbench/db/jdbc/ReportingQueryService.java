@@ -2,8 +2,10 @@ package org.pmiops.workbench.db.jdbc;
 
 import java.util.Iterator;
 import java.util.List;
+import java.util.NoSuchElementException;
 import java.util.function.BiFunction;
 import java.util.function.Consumer;
+import java.util.function.Function;
 import java.util.stream.Stream;
 import java.util.stream.StreamSupport;
 import org.pmiops.workbench.model.ReportingCohort;
@@ -34,38 +36,41 @@ public interface ReportingQueryService {
 
   List<ReportingWorkspaceFreeTierUsage> getWorkspaceFreeTierUsage();
 
-  List<ReportingWorkspace> getWorkspaces(long limit, long offset);
+  /** Returns up to {@code limit} workspaces with IDs above {@code afterWorkspaceId}, by ID. */
+  List<ReportingWorkspace> getWorkspaces(long limit, long afterWorkspaceId);
 
   int getWorkspacesCount();
 
   default Stream<List<ReportingWorkspace>> getWorkspacesStream() {
-    return getStream(this::getWorkspaces);
+    return getStream(this::getWorkspaces, ReportingWorkspace::getWorkspaceId);
   }
 
-  List<ReportingUser> getUsers(long limit, long offset);
+  /** Returns up to {@code limit} users with IDs above {@code afterUserId}, by ID. */
+  List<ReportingUser> getUsers(long limit, long afterUserId);
 
   default Stream<List<ReportingUser>> getUserStream() {
-    return getStream(this::getUsers);
+    return getStream(this::getUsers, ReportingUser::getUserId);
   }
 
   int getUserCount();
 
-  default <T> List<T> getBatchByIndex(BiFunction<Long, Long, List<T>> getter, long batchIndex) {
-    final long offset = getQueryBatchSize() * batchIndex;
-    return getter.apply(getQueryBatchSize(), offset);
-  }
-
   /**
-   * Get an iterator to batches of rows
+   * Get an iterator to batches of rows. Batches are paged by key (keyset pagination) rather than
+   * by offset, so each query starts at the last key of the previous batch instead of rescanning
+   * every earlier row.
    *
-   * @param getter - method to retrieve a batch, typically a method reference against this interface
+   * @param getter - method to retrieve up to a limit of rows with keys greater than the given key,
+   *     in key order; typically a method reference against this interface
+   * @param keyGetter - returns the key (the table's auto-increment ID) of a row
    * @param <T> - DTO type
    * @return
    */
-  default <T> Iterator<List<T>> getBatchIterator(BiFunction<Long, Long, List<T>> getter) {
+  default <T> Iterator<List<T>> getBatchIterator(
+      BiFunction<Long, Long, List<T>> getter, Function<T, Long> keyGetter) {
     return new Iterator<List<T>>() {
-      private long batchIndex = 0;
-      private long lastResultSetSize = -1; // first call to hasNext() should return true
+      private long lastKey = 0; // auto-increment IDs start at 1
+      private List<T> nextBatch = null; // fetched by hasNext(), handed out by next()
+      private boolean exhausted = false;
 
       @Override
       public void remove() {
@@ -79,34 +84,40 @@ public interface ReportingQueryService {
         }
       }
 
-      /** @return */
       @Override
       public boolean hasNext() {
-        if (lastResultSetSize < 0) {
-          // query for one row. lastResultSetSize will be updated if there's at least one row and we
-          // call next().
-          final List<T> upToOneRow = getter.apply(1L, 0L);
-          return !upToOneRow.isEmpty();
-        } else {
-          return lastResultSetSize == getQueryBatchSize();
+        if (nextBatch == null && !exhausted) {
+          final List<T> batch = getter.apply(getQueryBatchSize(), lastKey);
+          if (batch.isEmpty()) {
+            exhausted = true;
+          } else {
+            nextBatch = batch;
+            lastKey = keyGetter.apply(batch.get(batch.size() - 1));
+          }
         }
+        return nextBatch != null;
       }
 
       @Override
       public List<T> next() {
-        final List<T> result = getBatchByIndex(getter, batchIndex++);
-        lastResultSetSize = result.size();
+        if (!hasNext()) {
+          throw new NoSuchElementException();
+        }
+        final List<T> result = nextBatch;
+        nextBatch = null;
+        // A short batch is the last one, so skip the query that would come back empty.
+        exhausted = result.size() < getQueryBatchSize();
         return result;
       }
     };
   }
 
   default Iterator<List<ReportingWorkspace>> getWorkspaceBatchIterator() {
-    return getBatchIterator(this::getWorkspaces);
+    return getBatchIterator(this::getWorkspaces, ReportingWorkspace::getWorkspaceId);
   }
 
   default Iterator<List<ReportingUser>> getUserBatchIterator() {
-    return getBatchIterator(this::getUsers);
+    return getBatchIterator(this::getUsers, ReportingUser::getUserId);
   }
 
   /** Use the maximum batch to get in single batch */
@@ -115,14 +126,17 @@ public interface ReportingQueryService {
   }
 
   /**
-   * Construct a Stream of batches from one of the query methods that takes a limit and offset
+   * Construct a Stream of batches from one of the query methods that takes a limit and a key to
+   * start after
    *
-   * @param getter - limit & offset version of query method (currently just getWorkspaces())
+   * @param getter - limit & key version of query method (e.g. getWorkspaces())
+   * @param keyGetter - returns the key of a row
    * @param <T> - DTO type
    * @return
    */
-  default <T> Stream<List<T>> getStream(BiFunction<Long, Long, List<T>> getter) {
-    final Iterator<List<T>> batchIterator = getBatchIterator(getter);
+  default <T> Stream<List<T>> getStream(
+      BiFunction<Long, Long, List<T>> getter, Function<T, Long> keyGetter) {
+    final Iterator<List<T>> batchIterator = getBatchIterator(getter, keyGetter);
     final Iterable<List<T>> iterable = () -> batchIterator;
     return StreamSupport.stream(iterable.spliterator(), false);
   }
@@ -31,6 +31,7 @@ import org.pmiops.workbench.model.ReportingUser;
 import org.pmiops.workbench.model.ReportingWorkspace;
 import org.pmiops.workbench.model.ReportingWorkspaceFreeTierUsage;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
 import org.springframework.stereotype.Service;
 
 @Service
@@ -169,102 +170,102 @@ public class ReportingQueryServiceImpl implements ReportingQueryService {
   }
 
   @Override
-  public List<ReportingUser> getUsers(long limit, long offset) {
-    return jdbcTemplate.query(
-        String.format(
-            "SELECT \n"
-                + "  u.user_id,\n"
-                + "  u.area_of_research,\n"
-                + "  u.compliance_training_bypass_time,\n"
-                + "  u.compliance_training_completion_time,\n"
-                + "  u.compliance_training_expiration_time,\n"
-                + "  u.contact_email,\n"
-                + "  u.creation_time,\n"
-                + "  u.data_use_agreement_bypass_time,\n"
-                + "  u.data_use_agreement_completion_time,\n"
-                + "  u.data_use_agreement_signed_version,\n"
-                + "  u.demographic_survey_completion_time,\n"
-                + "  u.disabled,\n"
-                + "  u.era_commons_bypass_time,\n"
-                + "  u.era_commons_completion_time,\n"
-                + "  u.family_name,\n"
-                // temporary solution to RW-6566
-                + "  uat.first_enabled AS first_registration_completion_time,\n"
-                + "  u.first_sign_in_time,\n"
-                + "  u.free_tier_credits_limit_dollars_override,\n"
-                + "  u.given_name,\n"
-                + "  u.last_modified_time,\n"
-                + "  u.professional_url,\n"
-                + "  u.two_factor_auth_bypass_time,\n"
-                + "  u.two_factor_auth_completion_time,\n"
-                + "  u.email AS username,\n"
-                + "  a.city,\n"
-                + "  a.country,\n"
-                + "  a.state,\n"
-                + "  a.street_address_1,\n"
-                + "  a.street_address_2,\n"
-                + "  a.zip_code,\n"
-                + "  via.institution_id AS institution_id,\n"
-                + "  via.institutional_role_enum,\n"
-                + "  via.institutional_role_other_text,\n"
-                + "  dm.degrees,\n"
-                + "  dm.ethnicity,\n"
-                + "  dm.year_of_birth,\n"
-                + "  dm.disability,\n"
-                + "  dm.education,\n"
-                + "  dm.identifies_as_lgbtq,\n"
-                + "  dm.lgbtq_identity,\n"
-                + "  dm.gender_identity,\n"
-                + "  dm.race,\n"
-                + "  dm.sex_at_birth,\n"
-                + "  t.access_tier_short_names\n"
-                + "FROM user u"
-                + "  LEFT OUTER JOIN address AS a ON u.user_id = a.user_id\n"
-                + "  LEFT OUTER JOIN user_verified_institutional_affiliation AS via on u.user_id = via.user_id\n"
-                + "  LEFT OUTER JOIN "
-                + "  ( "
-                + "       SELECT \n"
-                + "             demo.user_id, "
-                + "             GROUP_CONCAT(DISTINCT ud.degree) as degrees, "
-                + "             GROUP_CONCAT(DISTINCT demo.ethnicity) as ethnicity, "
-                + "             GROUP_CONCAT(DISTINCT demo.year_of_birth) as year_of_birth, "
-                + "             GROUP_CONCAT(DISTINCT demo.education) as education, "
-                + "             GROUP_CONCAT(DISTINCT demo.disability) as disability, "
-                + "             GROUP_CONCAT(DISTINCT demo.identifies_as_lgbtq) as identifies_as_lgbtq, "
-                + "             GROUP_CONCAT(DISTINCT demo.lgbtq_identity) as lgbtq_identity, "
-                + "             GROUP_CONCAT(DISTINCT di.gender_identity) as gender_identity, "
-                + "             GROUP_CONCAT(DISTINCT dr.race) as race, "
-                + "             GROUP_CONCAT(DISTINCT ds.sex_at_birth) as sex_at_birth"
-                + "       FROM demographic_survey as demo "
-                + "         LEFT OUTER JOIN demographic_survey_gender_identity as di "
-                + "             ON demo.demographic_survey_id = di.demographic_survey_id\n"
-                + "         LEFT OUTER JOIN demographic_survey_race as dr "
-                + "             ON demo.demographic_survey_id = dr.demographic_survey_id\n"
-                + "         LEFT OUTER JOIN demographic_survey_sex_at_birth as ds "
-                + "             ON demo.demographic_survey_id = ds.demographic_survey_id\n"
-                + "         LEFT OUTER JOIN user_degree AS ud on demo.user_id = ud.user_id "
-                + "         GROUP BY demo.user_id "
-                + "  ) AS dm on u.user_id = dm.user_id"
-                + "  LEFT OUTER JOIN ("
-                + "    SELECT u.user_id, GROUP_CONCAT(DISTINCT a.short_name) AS access_tier_short_names "
-                + "    FROM user u "
-                + "      JOIN user_access_tier uat ON u.user_id = uat.user_id "
-                + "      JOIN access_tier a ON a.access_tier_id = uat.access_tier_id "
-                + "      WHERE uat.access_status = 1 " // ENABLED
-                + "      GROUP BY u.user_id"
-                + "  ) as t ON t.user_id = u.user_id "
-                // temporary solution to RW-6566: retrieve first_enabled from user_access_tier
-                // for 'registered' entries as a substitute for first_registration_completion_time
-                + "  LEFT OUTER JOIN ( "
-                + "    SELECT uat.user_id, uat.first_enabled FROM user_access_tier uat "
-                + "    JOIN access_tier at ON at.access_tier_id = uat.access_tier_id "
-                + "    WHERE uat.access_status = 1 AND at.short_name = 'registered' "
-                + "  ) uat ON u.user_id = uat.user_id "
-                // end temporary solution for RW-6566
-                + "  ORDER BY u.user_id"
-                + "  LIMIT %d\n"
-                + "  OFFSET %d",
-            limit, offset),
+  public List<ReportingUser> getUsers(long limit, long afterUserId) {
+    return queryBatch(
+        "SELECT \n"
+            + "  u.user_id,\n"
+            + "  u.area_of_research,\n"
+            + "  u.compliance_training_bypass_time,\n"
+            + "  u.compliance_training_completion_time,\n"
+            + "  u.compliance_training_expiration_time,\n"
+            + "  u.contact_email,\n"
+            + "  u.creation_time,\n"
+            + "  u.data_use_agreement_bypass_time,\n"
+            + "  u.data_use_agreement_completion_time,\n"
+            + "  u.data_use_agreement_signed_version,\n"
+            + "  u.demographic_survey_completion_time,\n"
+            + "  u.disabled,\n"
+            + "  u.era_commons_bypass_time,\n"
+            + "  u.era_commons_completion_time,\n"
+            + "  u.family_name,\n"
+            // temporary solution to RW-6566
+            + "  uat.first_enabled AS first_registration_completion_time,\n"
+            + "  u.first_sign_in_time,\n"
+            + "  u.free_tier_credits_limit_dollars_override,\n"
+            + "  u.given_name,\n"
+            + "  u.last_modified_time,\n"
+            + "  u.professional_url,\n"
+            + "  u.two_factor_auth_bypass_time,\n"
+            + "  u.two_factor_auth_completion_time,\n"
+            + "  u.email AS username,\n"
+            + "  a.city,\n"
+            + "  a.country,\n"
+            + "  a.state,\n"
+            + "  a.street_address_1,\n"
+            + "  a.street_address_2,\n"
+            + "  a.zip_code,\n"
+            + "  via.institution_id AS institution_id,\n"
+            + "  via.institutional_role_enum,\n"
+            + "  via.institutional_role_other_text,\n"
+            + "  dm.degrees,\n"
+            + "  dm.ethnicity,\n"
+            + "  dm.year_of_birth,\n"
+            + "  dm.disability,\n"
+            + "  dm.education,\n"
+            + "  dm.identifies_as_lgbtq,\n"
+            + "  dm.lgbtq_identity,\n"
+            + "  dm.gender_identity,\n"
+            + "  dm.race,\n"
+            + "  dm.sex_at_birth,\n"
+            + "  t.access_tier_short_names\n"
+            + "FROM user u"
+            + "  LEFT OUTER JOIN address AS a ON u.user_id = a.user_id\n"
+            + "  LEFT OUTER JOIN user_verified_institutional_affiliation AS via on u.user_id = via.user_id\n"
+            + "  LEFT OUTER JOIN "
+            + "  ( "
+            + "       SELECT \n"
+            + "             demo.user_id, "
+            + "             GROUP_CONCAT(DISTINCT ud.degree) as degrees, "
+            + "             GROUP_CONCAT(DISTINCT demo.ethnicity) as ethnicity, "
+            + "             GROUP_CONCAT(DISTINCT demo.year_of_birth) as year_of_birth, "
+            + "             GROUP_CONCAT(DISTINCT demo.education) as education, "
+            + "             GROUP_CONCAT(DISTINCT demo.disability) as disability, "
+            + "             GROUP_CONCAT(DISTINCT demo.identifies_as_lgbtq) as identifies_as_lgbtq, "
+            + "             GROUP_CONCAT(DISTINCT demo.lgbtq_identity) as lgbtq_identity, "
+            + "             GROUP_CONCAT(DISTINCT di.gender_identity) as gender_identity, "
+            + "             GROUP_CONCAT(DISTINCT dr.race) as race, "
+            + "             GROUP_CONCAT(DISTINCT ds.sex_at_birth) as sex_at_birth"
+            + "       FROM demographic_survey as demo "
+            + "         LEFT OUTER JOIN demographic_survey_gender_identity as di "
+            + "             ON demo.demographic_survey_id = di.demographic_survey_id\n"
+            + "         LEFT OUTER JOIN demographic_survey_race as dr "
+            + "             ON demo.demographic_survey_id = dr.demographic_survey_id\n"
+            + "         LEFT OUTER JOIN demographic_survey_sex_at_birth as ds "
+            + "             ON demo.demographic_survey_id = ds.demographic_survey_id\n"
+            + "         LEFT OUTER JOIN user_degree AS ud on demo.user_id = ud.user_id "
+            + "         GROUP BY demo.user_id "
+            + "  ) AS dm on u.user_id = dm.user_id"
+            + "  LEFT OUTER JOIN ("
+            + "    SELECT u.user_id, GROUP_CONCAT(DISTINCT a.short_name) AS access_tier_short_names "
+            + "    FROM user u "
+            + "      JOIN user_access_tier uat ON u.user_id = uat.user_id "
+            + "      JOIN access_tier a ON a.access_tier_id = uat.access_tier_id "
+            + "      WHERE uat.access_status = 1 " // ENABLED
+            + "      GROUP BY u.user_id"
+            + "  ) as t ON t.user_id = u.user_id "
+            // temporary solution to RW-6566: retrieve first_enabled from user_access_tier
+            // for 'registered' entries as a substitute for first_registration_completion_time
+            + "  LEFT OUTER JOIN ( "
+            + "    SELECT uat.user_id, uat.first_enabled FROM user_access_tier uat "
+            + "    JOIN access_tier at ON at.access_tier_id = uat.access_tier_id "
+            + "    WHERE uat.access_status = 1 AND at.short_name = 'registered' "
+            + "  ) uat ON u.user_id = uat.user_id "
+            // end temporary solution for RW-6566
+            + "  WHERE u.user_id > ?\n"
+            + "  ORDER BY u.user_id"
+            + "  LIMIT ?",
+        afterUserId,
+        limit,
         (rs, unused) ->
             new ReportingUser()
                 .areaOfResearch(rs.getString("area_of_research"))
@@ -335,53 +336,53 @@ public class ReportingQueryServiceImpl implements ReportingQueryService {
   }
 
   @Override
-  public List<ReportingWorkspace> getWorkspaces(long limit, long offset) {
-    return jdbcTemplate.query(
-        String.format(
-            "SELECT \n"
-                + "  billing_account_type,\n"
-                + "  billing_status,\n"
-                + "  w.cdr_version_id AS cdr_version_id,\n"
-                + "  w.creation_time AS creation_time,\n"
-                + "  creator_id,\n"
-                + "  disseminate_research_other,\n"
-                + "  last_accessed_time,\n"
-                + "  last_modified_time,\n"
-                + "  w.name AS name,\n"
-                + "  needs_rp_review_prompt,\n"
-                + "  published,\n"
-                + "  rp_additional_notes,\n"
-                + "  rp_ancestry,\n"
-                + "  rp_anticipated_findings,\n"
-                + "  rp_approved,\n"
-                + "  rp_commercial_purpose,\n"
-                + "  rp_control_set,\n"
-                + "  rp_disease_focused_research,\n"
-                + "  rp_disease_of_focus,\n"
-                + "  rp_drug_development,\n"
-                + "  rp_educational,\n"
-                + "  rp_ethics,\n"
-                + "  rp_intended_study,\n"
-                + "  rp_methods_development,\n"
-                + "  rp_other_population_details,\n"
-                + "  rp_other_purpose,\n"
-                + "  rp_other_purpose_details,\n"
-                + "  rp_population_health,\n"
-                + "  rp_reason_for_all_of_us,\n"
-                + "  rp_review_requested,\n"
-                + "  rp_scientific_approach,\n"
-                + "  rp_social_behavioral,\n"
-                + "  rp_time_requested,\n"
-                + "  workspace_id,\n"
-                + "  workspace_namespace,\n"
-                + "  a.short_name AS access_tier_short_name\n"
-                + "FROM workspace w\n"
-                + "  JOIN cdr_version c ON w.cdr_version_id = c.cdr_version_id\n"
-                + "  JOIN access_tier a ON c.access_tier = a.access_tier_id\n"
-                + "ORDER BY workspace_id\n"
-                + "LIMIT %d\n"
-                + "OFFSET %d",
-            limit, offset),
+  public List<ReportingWorkspace> getWorkspaces(long limit, long afterWorkspaceId) {
+    return queryBatch(
+        "SELECT \n"
+            + "  billing_account_type,\n"
+            + "  billing_status,\n"
+            + "  w.cdr_version_id AS cdr_version_id,\n"
+            + "  w.creation_time AS creation_time,\n"
+            + "  creator_id,\n"
+            + "  disseminate_research_other,\n"
+            + "  last_accessed_time,\n"
+            + "  last_modified_time,\n"
+            + "  w.name AS name,\n"
+            + "  needs_rp_review_prompt,\n"
+            + "  published,\n"
+            + "  rp_additional_notes,\n"
+            + "  rp_ancestry,\n"
+            + "  rp_anticipated_findings,\n"
+            + "  rp_approved,\n"
+            + "  rp_commercial_purpose,\n"
+            + "  rp_control_set,\n"
+            + "  rp_disease_focused_research,\n"
+            + "  rp_disease_of_focus,\n"
+            + "  rp_drug_development,\n"
+            + "  rp_educational,\n"
+            + "  rp_ethics,\n"
+            + "  rp_intended_study,\n"
+            + "  rp_methods_development,\n"
+            + "  rp_other_population_details,\n"
+            + "  rp_other_purpose,\n"
+            + "  rp_other_purpose_details,\n"
+            + "  rp_population_health,\n"
+            + "  rp_reason_for_all_of_us,\n"
+            + "  rp_review_requested,\n"
+            + "  rp_scientific_approach,\n"
+            + "  rp_social_behavioral,\n"
+            + "  rp_time_requested,\n"
+            + "  workspace_id,\n"
+            + "  workspace_namespace,\n"
+            + "  a.short_name AS access_tier_short_name\n"
+            + "FROM workspace w\n"
+            + "  JOIN cdr_version c ON w.cdr_version_id = c.cdr_version_id\n"
+            + "  JOIN access_tier a ON c.access_tier = a.access_tier_id\n"
+            + "WHERE w.workspace_id > ?\n"
+            + "ORDER BY w.workspace_id\n"
+            + "LIMIT ?",
+        afterWorkspaceId,
+        limit,
         (rs, unused) ->
             new ReportingWorkspace()
                 .accessTierShortName(rs.getString("access_tier_short_name"))
@@ -433,6 +434,26 @@ public class ReportingQueryServiceImpl implements ReportingQueryService {
     return jdbcTemplate.queryForObject("SELECT count(*) FROM user", Integer.class);
   }
 
+  /**
+   * Runs one keyset-paginated batch query, whose two parameters are the key to start after and the
+   * row limit. With reporting.streamQueryResults, MySQL Connector/J streams the rows to the mapper
+   * one at a time (the Integer.MIN_VALUE fetch size) instead of buffering the whole result set in
+   * the driver first, so a batch is only held in memory once, as mapped DTOs.
+   */
+  private <T> List<T> queryBatch(String sql, long afterKey, long limit, RowMapper<T> rowMapper) {
+    final boolean streamResults = workbenchConfigProvider.get().reporting.streamQueryResults;
+    return jdbcTemplate.query(
+        sql,
+        ps -> {
+          if (streamResults) {
+            ps.setFetchSize(Integer.MIN_VALUE);
+          }
+          ps.setLong(1, afterKey);
+          ps.setLong(2, limit);
+        },
+        rowMapper);
+  }
+
   /** Converts aggregated storage enums to String value. e.g. 0. 8 -> BA, MS. */
   private static String convertListEnumFromStorage(
       String stringEnums, Function<Short, String> convertDbEnum) {
@@ -4,13 +4,20 @@ import com.google.cloud.bigquery.FieldValue;
 import com.google.cloud.bigquery.FieldValueList;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Maps;
+import com.google.common.hash.Hashing;
+import com.google.gson.Gson;
+import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
 import com.google.gson.JsonParser;
+import com.google.gson.JsonPrimitive;
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
 import java.util.Map;
 import java.util.Objects;
 import java.util.stream.Collectors;
+import java.util.stream.StreamSupport;
 import org.elasticsearch.common.xcontent.XContentBuilder;
 import org.elasticsearch.common.xcontent.XContentFactory;
 import org.elasticsearch.common.xcontent.XContentType;
@@ -97,16 +104,34 @@ public class ElasticDocument {
           .put("events", NESTED_FOREIGN_SCHEMA)
           .build();
 
+  // Hash of the rest of the document's source, used to skip unchanged persons on incremental
+  // re-indexing. Stored but not indexed, and not part of PERSON_SCHEMA since it is not a BigQuery
+  // column.
+  public static final String CONTENT_HASH_FIELD = "content_hash";
+
+  /** The field mapping of the person index: PERSON_SCHEMA plus the content hash. */
+  public static final Map<String, Object> PERSON_INDEX_PROPERTIES =
+      ImmutableMap.<String, Object>builder()
+          .putAll(PERSON_SCHEMA)
+          .put(CONTENT_HASH_FIELD, contentHashType())
+          .build();
+
   private static Map<String, Object> esType(ElasticType t) {
     return ImmutableMap.of("type", t.lower());
   }
 
+  static Map<String, Object> contentHashType() {
+    return ImmutableMap.of("type", ElasticType.KEYWORD.lower(), "index", false);
+  }
+
   public final String id;
   public final XContentBuilder source;
+  public final String contentHash;
 
-  private ElasticDocument(String id, XContentBuilder source) {
+  private ElasticDocument(String id, XContentBuilder source, String contentHash) {
     this.id = id;
     this.source = source;
+    this.contentHash = contentHash;
   }
 
   @Override
@@ -130,9 +155,11 @@ public class ElasticDocument {
   public static ElasticDocument fromBigQueryJson(String line) throws IOException {
     JsonObject doc = new JsonParser().parse(line).getAsJsonObject();
     String id = doc.remove("_id").getAsString();
+    String hash = contentHash(doc);
+    doc.addProperty(CONTENT_HASH_FIELD, hash);
     XContentBuilder builder = XContentFactory.contentBuilder(XContentType.JSON);
     builder.rawValue(new ByteArrayInputStream(doc.toString().getBytes()), XContentType.JSON);
-    return new ElasticDocument(id, builder);
+    return new ElasticDocument(id, builder, hash);
   }
 
   /** Converts a row of BigQuery results to an Elasticsearch document suitable for indexing. */
@@ -141,16 +168,54 @@ public class ElasticDocument {
     // BigQuery JSON results.
     String id = fvl.get("_id").getStringValue();
     Map<String, Object> source = bqToElasticSchema(fvl, PERSON_SCHEMA);
+    String hash = contentHash(new Gson().toJsonTree(source));
+    source.put(CONTENT_HASH_FIELD, hash);
     try {
       XContentBuilder builder = XContentFactory.contentBuilder(XContentType.JSON);
       builder.map(source);
-      return new ElasticDocument(id, builder);
+      return new ElasticDocument(id, builder, hash);
     } catch (IOException e) {
       // This shouldn't happen since we create the input map in memory, there is no IO here.
       throw new RuntimeException(e);
     }
   }
 
+  /**
+   * Hashes a canonical form of the given document, with object keys and array elements sorted:
+   * BigQuery does not guarantee the order of aggregated arrays, and the order is not significant
+   * for search. The form is the same whether the document came from a JSON export or from query
+   * results: null fields are left out, and primitives are compared as strings, since exports
+   * write integers as strings where query results have numbers.
+   */
+  private static String contentHash(JsonElement doc) {
+    return Hashing.sha256().hashString(canonicalJson(doc), StandardCharsets.UTF_8).toString();
+  }
+
+  private static String canonicalJson(JsonElement e) {
+    if (e.isJsonObject()) {
+      return e.getAsJsonObject().entrySet().stream()
+          .filter(entry -> !entry.getValue().isJsonNull())
+          .sorted(Map.Entry.comparingByKey())
+          .map(entry -> new JsonPrimitive(entry.getKey()) + ":" + canonicalJson(entry.getValue()))
+          .collect(Collectors.joining(",", "{", "}"));
+    }
+    if (e.isJsonArray()) {
+      return StreamSupport.stream(e.getAsJsonArray().spliterator(), false)
+          .map(ElasticDocument::canonicalJson)
+          .sorted()
+          .collect(Collectors.joining(",", "[", "]"));
+    }
+    if (e.isJsonPrimitive()) {
+      JsonPrimitive primitive = e.getAsJsonPrimitive();
+      String value =
+          primitive.isNumber()
+              ? new BigDecimal(primitive.getAsString()).stripTrailingZeros().toPlainString()
+              : primitive.getAsString();
+      return new JsonPrimitive(value).toString();
+    }
+    return e.toString();
+  }
+
   /**
    * Recursively convert BigQuery results into a format consumable by Elastic. BigQuery result
    * columns must exactly match the target Elasticsearch schema, and the resulting documents are
@@ -4,6 +4,7 @@ import com.google.api.client.util.Sets;
 import com.google.common.base.Preconditions;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Iterables;
 import com.google.common.collect.Lists;
 import java.util.List;
@@ -17,10 +18,12 @@ import org.elasticsearch.index.query.QueryBuilder;
 import org.elasticsearch.index.query.QueryBuilders;
 import org.elasticsearch.index.query.RangeQueryBuilder;
 import org.pmiops.workbench.cdr.dao.CBCriteriaDao;
+import org.pmiops.workbench.cohortbuilder.CriteriaHierarchyIndexService;
 import org.pmiops.workbench.cohortbuilder.util.CriteriaLookupUtil;
 import org.pmiops.workbench.exceptions.BadRequestException;
 import org.pmiops.workbench.model.AttrName;
 import org.pmiops.workbench.model.Attribute;
+import org.pmiops.workbench.model.CriteriaSubType;
 import org.pmiops.workbench.model.CriteriaType;
 import org.pmiops.workbench.model.Domain;
 import org.pmiops.workbench.model.Modifier;
@@ -40,10 +43,92 @@ public final class ElasticFilters {
 
   /** Translates a Cohort Builder search request into an Elasticsearch filter. */
   public static QueryBuilder fromCohortSearch(CBCriteriaDao cbCriteriaDao, SearchRequest req) {
-    ElasticFilters f = new ElasticFilters(cbCriteriaDao);
+    return fromCohortSearch(cbCriteriaDao, null, req);
+  }
+
+  /**
+   * As above, expanding criteria groups with the in-memory hierarchy index when
+   * criteriaHierarchyIndexService is non-null.
+   */
+  public static QueryBuilder fromCohortSearch(
+      CBCriteriaDao cbCriteriaDao,
+      CriteriaHierarchyIndexService criteriaHierarchyIndexService,
+      SearchRequest req) {
+    ElasticFilters f = new ElasticFilters(cbCriteriaDao, criteriaHierarchyIndexService);
     return f.process(req);
   }
 
+  /**
+   * Returns true if the request can only be approximated by Elasticsearch and must fall back to
+   * the BigQuery implementation: temporal groups and blood pressure criteria are not indexed.
+   */
+  public static boolean isApproximate(SearchRequest req) {
+    return allGroups(req).stream().anyMatch(SearchGroup::getTemporal)
+        || allParams(req).stream()
+            .anyMatch(sp -> CriteriaSubType.BP.toString().equals(sp.getSubtype()));
+  }
+
+  /**
+   * Returns true if every criterion in the request has a counterpart in the person index, so that
+   * Elasticsearch counts it exactly as BigQuery would. Requests that are not supported should be
+   * answered by BigQuery.
+   */
+  public static boolean isSupported(SearchRequest req) {
+    return !isApproximate(req) && allParams(req).stream().allMatch(ElasticFilters::isSupported);
+  }
+
+  private static boolean isSupported(SearchParameter param) {
+    if (Domain.PERSON.toString().equals(param.getDomain())) {
+      if (!SUPPORTED_PERSON_TYPES.contains(param.getType())) {
+        return false;
+      }
+    } else if (!SUPPORTED_EVENT_DOMAINS.contains(param.getDomain())) {
+      return false;
+    }
+    return param.getAttributes().stream()
+        .allMatch(attr -> SUPPORTED_ATTR_NAMES.contains(attr.getName()));
+  }
+
+  private static List<SearchGroup> allGroups(SearchRequest req) {
+    return ImmutableList.copyOf(Iterables.concat(req.getIncludes(), req.getExcludes()));
+  }
+
+  private static List<SearchParameter> allParams(SearchRequest req) {
+    return allGroups(req).stream()
+        .flatMap(sg -> sg.getItems().stream())
+        .flatMap(sgi -> sgi.getSearchParameters().stream())
+        .collect(Collectors.toList());
+  }
+
+  // Event domains exported to the nested events of the person index by es_person.sql.
+  private static final Set<String> SUPPORTED_EVENT_DOMAINS =
+      ImmutableSet.of(
+              Domain.CONDITION,
+              Domain.DRUG,
+              Domain.MEASUREMENT,
+              Domain.OBSERVATION,
+              Domain.PHYSICAL_MEASUREMENT,
+              Domain.PHYSICAL_MEASUREMENT_CSS,
+              Domain.PROCEDURE,
+              Domain.SURVEY,
+              Domain.VISIT)
+          .stream()
+          .map(Domain::toString)
+          .collect(ImmutableSet.toImmutableSet());
+  // Person criteria with a top level field (or, for AGE and DECEASED, an attribute) in the index.
+  private static final Set<String> SUPPORTED_PERSON_TYPES =
+      ImmutableSet.of(
+              CriteriaType.AGE,
+              CriteriaType.DECEASED,
+              CriteriaType.ETHNICITY,
+              CriteriaType.GENDER,
+              CriteriaType.RACE)
+          .stream()
+          .map(CriteriaType::toString)
+          .collect(ImmutableSet.toImmutableSet());
+  private static final Set<AttrName> SUPPORTED_ATTR_NAMES =
+      ImmutableSet.of(
+          AttrName.AGE, AttrName.AGE_AT_CDR, AttrName.AGE_AT_CONSENT, AttrName.CAT, AttrName.NUM);
   private static Map<String, String> NON_NESTED_FIELDS =
       ImmutableMap.of(
           CriteriaType.GENDER.toString(), "gender_concept_id",
@@ -57,8 +142,9 @@ public final class ElasticFilters {
   private boolean processed = false;
   private Map<SearchParameter, Set<Long>> childrenByCriteriaGroup;
 
-  private ElasticFilters(CBCriteriaDao cbCriteriaDao) {
-    this.criteriaLookupUtil = new CriteriaLookupUtil(cbCriteriaDao);
+  private ElasticFilters(
+      CBCriteriaDao cbCriteriaDao, CriteriaHierarchyIndexService criteriaHierarchyIndexService) {
+    this.criteriaLookupUtil = new CriteriaLookupUtil(cbCriteriaDao, criteriaHierarchyIndexService);
   }
 
   private QueryBuilder process(SearchRequest req) {
@@ -28,6 +28,7 @@ import org.elasticsearch.search.builder.SearchSourceBuilder;
 import org.json.JSONObject;
 import org.pmiops.workbench.cdr.CdrVersionContext;
 import org.pmiops.workbench.cdr.dao.CBCriteriaDao;
+import org.pmiops.workbench.cohortbuilder.CriteriaHierarchyIndexService;
 import org.pmiops.workbench.cohortbuilder.ParticipantCriteria;
 import org.pmiops.workbench.config.WorkbenchConfig;
 import org.pmiops.workbench.config.WorkbenchConfig.ElasticsearchConfig;
@@ -45,15 +46,18 @@ public class ElasticSearchService {
   private static final Logger log = Logger.getLogger(ElasticSearchService.class.getName());
   private RestHighLevelClient client;
   private CBCriteriaDao cbCriteriaDao;
+  private CriteriaHierarchyIndexService criteriaHierarchyIndexService;
   private CloudStorageClient cloudStorageClient;
   private Provider<WorkbenchConfig> configProvider;
 
   @Autowired
   public ElasticSearchService(
       CBCriteriaDao cbCriteriaDao,
+      CriteriaHierarchyIndexService criteriaHierarchyIndexService,
       CloudStorageClient cloudStorageClient,
       Provider<WorkbenchConfig> configProvider) {
     this.cbCriteriaDao = cbCriteriaDao;
+    this.criteriaHierarchyIndexService = criteriaHierarchyIndexService;
     this.cloudStorageClient = cloudStorageClient;
     this.configProvider = configProvider;
   }
@@ -62,7 +66,7 @@ public class ElasticSearchService {
   public Long count(SearchRequest req) throws IOException {
     String personIndex =
         ElasticUtils.personIndexName(CdrVersionContext.getCdrVersion().getElasticIndexBaseName());
-    QueryBuilder filter = ElasticFilters.fromCohortSearch(cbCriteriaDao, req);
+    QueryBuilder filter = toElasticFilter(req);
     log.info("Elastic filter: " + filter.toString());
     return client()
         .count(
@@ -79,7 +83,7 @@ public class ElasticSearchService {
     AgeType ageType = participantCriteria.getAgeType();
     String personIndex =
         ElasticUtils.personIndexName(CdrVersionContext.getCdrVersion().getElasticIndexBaseName());
-    QueryBuilder filter = ElasticFilters.fromCohortSearch(cbCriteriaDao, req);
+    QueryBuilder filter = toElasticFilter(req);
     log.info("Elastic filter: " + filter.toString());
     SearchResponse searchResponse =
         client()
@@ -100,6 +104,15 @@ public class ElasticSearchService {
     return unwrapDemoChartBuckets(searchResponse, RANGE_18_44, RANGE_45_64, RANGE_GT_65);
   }
 
+  private QueryBuilder toElasticFilter(SearchRequest req) {
+    return ElasticFilters.fromCohortSearch(
+        cbCriteriaDao,
+        configProvider.get().featureFlags.enableCriteriaHierarchyIndex
+            ? criteriaHierarchyIndexService
+            : null,
+        req);
+  }
+
   /**
    * Implementing RestHighLevelClient init here because injecting Provider<WorkbenchConfig> into a
    * Configuration singleton class was causing a BeanInstantiationException due to WorkbenchConfig
@@ -19,6 +19,7 @@ import java.util.logging.Logger;
 import org.elasticsearch.action.admin.indices.create.CreateIndexRequest;
 import org.elasticsearch.action.admin.indices.delete.DeleteIndexRequest;
 import org.elasticsearch.action.admin.indices.get.GetIndexRequest;
+import org.elasticsearch.action.admin.indices.mapping.put.PutMappingRequest;
 import org.elasticsearch.action.bulk.BulkItemResponse;
 import org.elasticsearch.action.bulk.BulkRequest;
 import org.elasticsearch.action.bulk.BulkResponse;
@@ -36,7 +37,7 @@ public final class ElasticUtils {
   // These parameters were determined experimentally, and work fairly well on the default Elastic
   // Cloud cluster configuration, but are likely not optimal.
   // - 4/12/19 run: synthetic 1m dataset took 1h54m @ ~8.3K docs/min
-  private static final int BATCH_SIZE = 200;
+  static final int BATCH_SIZE = 200;
   private static final int BATCH_POOL_SIZE = 3;
 
   // Elastic timeout is ~30s, this allows for several attempts.
@@ -74,11 +75,34 @@ public final class ElasticUtils {
                     ImmutableMap.of(
                         // Do not allow new fields to appear in the mapping, this would indicate a
                         // programming error.
-                        "dynamic", "strict", "properties", ElasticDocument.PERSON_SCHEMA)),
+                        "dynamic",
+                        "strict",
+                        "properties",
+                        ElasticDocument.PERSON_INDEX_PROPERTIES)),
             REQ_OPTS);
     log.info("created person index: " + indexName);
   }
 
+  /**
+   * Adds the content hash field to the mapping of an existing person index, which may predate it.
+   * A no-op if the field is already mapped.
+   */
+  public static void putContentHashMapping(RestHighLevelClient client, String indexName)
+      throws IOException {
+    client
+        .indices()
+        .putMapping(
+            new PutMappingRequest(indexName)
+                .type(INDEX_TYPE)
+                .source(
+                    ImmutableMap.of(
+                        "properties",
+                        ImmutableMap.of(
+                            ElasticDocument.CONTENT_HASH_FIELD,
+                            ElasticDocument.contentHashType()))),
+            REQ_OPTS);
+  }
+
   /**
    * Ingests the given Elasticsearch documents using bulk ingestion. If documents of the same ID
    * already exist in the index, they will instead be updated. Uses a threadpool to dispatch
@@ -0,0 +1,145 @@
+package org.pmiops.workbench.elasticsearch;
+
+import com.google.gson.Gson;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import javax.annotation.Nullable;
+
+/**
+ * Records how far a {@link ParallelDocumentIngester} run has got, so that a restarted run can skip
+ * the work already done: the shards that were fully indexed, and for the others the number of
+ * leading lines whose documents were all indexed. Also remembers which export is being ingested,
+ * so a restart can reuse it rather than exporting again, and the parameters of the ingest, so that
+ * it is never resumed by an ingest of something else.
+ *
+ * <p>Thread safe; saved as JSON to a {@link Store}.
+ */
+public class IngestCheckpoint {
+
+  /** Where a checkpoint is persisted, e.g. a local file or a GCS object. */
+  public interface Store {
+    /** Returns the saved checkpoint, or null if there is none. */
+    @Nullable
+    String read() throws IOException;
+
+    void write(String checkpoint) throws IOException;
+
+    void delete() throws IOException;
+  }
+
+  private transient Store store;
+
+  private Map<String, String> parameters;
+  private String exportLocation;
+  private long expectedDocs = -1;
+  private final Map<String, Long> committedLines = new HashMap<>();
+  private final Set<String> completedShards = new HashSet<>();
+
+  private IngestCheckpoint() {}
+
+  /** Loads the checkpoint saved in the given store, or starts an empty one. */
+  public static IngestCheckpoint load(Store store) throws IOException {
+    String json = store.read();
+    IngestCheckpoint checkpoint =
+        json == null ? new IngestCheckpoint() : new Gson().fromJson(json, IngestCheckpoint.class);
+    checkpoint.store = store;
+    return checkpoint;
+  }
+
+  /** A store backed by a local file, which is replaced atomically on each write. */
+  public static Store localFile(Path path) {
+    return new Store() {
+      @Override
+      public String read() throws IOException {
+        if (!Files.exists(path)) {
+          return null;
+        }
+        return new String(Files.readAllBytes(path), StandardCharsets.UTF_8);
+      }
+
+      @Override
+      public void write(String checkpoint) throws IOException {
+        Path tmp = path.resolveSibling(path.getFileName() + ".tmp");
+        Files.write(tmp, checkpoint.getBytes(StandardCharsets.UTF_8));
+        Files.move(
+            tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+      }
+
+      @Override
+      public void delete() throws IOException {
+        Files.deleteIfExists(path);
+      }
+    };
+  }
+
+  /**
+   * Records the parameters of the ingest, e.g. its source and target index. If the checkpoint
+   * already has progress, instead checks that it was saved by an ingest with the same parameters.
+   *
+   * @throws IllegalArgumentException if the checkpoint belongs to an ingest with other parameters
+   */
+  public synchronized void checkParameters(Map<String, String> parameters) {
+    if (isEmpty()) {
+      this.parameters = new HashMap<>(parameters);
+    } else if (!parameters.equals(this.parameters)) {
+      throw new IllegalArgumentException(
+          String.format(
+              "The checkpoint was saved by an ingest of %s, not %s; delete it to start over",
+              this.parameters, parameters));
+    }
+  }
+
+  public synchronized boolean isEmpty() {
+    return exportLocation == null && committedLines.isEmpty() && completedShards.isEmpty();
+  }
+
+  /** The export being ingested, in whatever form the caller chose; null if not yet recorded. */
+  @Nullable
+  public synchronized String getExportLocation() {
+    return exportLocation;
+  }
+
+  /** The number of documents in the export, or -1 if unknown. */
+  public synchronized long getExpectedDocs() {
+    return expectedDocs;
+  }
+
+  public synchronized void setExport(String exportLocation, long expectedDocs) {
+    this.exportLocation = exportLocation;
+    this.expectedDocs = expectedDocs;
+  }
+
+  public synchronized boolean isComplete(String shard) {
+    return completedShards.contains(shard);
+  }
+
+  /** The number of leading lines of the shard that are known to be indexed. */
+  public synchronized long committedLines(String shard) {
+    return committedLines.getOrDefault(shard, 0L);
+  }
+
+  synchronized void commit(String shard, long lines) {
+    committedLines.put(shard, lines);
+  }
+
+  synchronized void complete(String shard) {
+    committedLines.remove(shard);
+    completedShards.add(shard);
+  }
+
+  public synchronized void save() throws IOException {
+    store.write(new Gson().toJson(this));
+  }
+
+  /** Deletes the saved checkpoint, e.g. once the ingest has completed without failures. */
+  public void delete() throws IOException {
+    store.delete();
+  }
+}
@@ -0,0 +1,558 @@
+package org.pmiops.workbench.elasticsearch;
+
+import com.google.common.base.Stopwatch;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import javax.annotation.Nullable;
+import org.elasticsearch.ElasticsearchStatusException;
+import org.elasticsearch.action.DocWriteRequest;
+import org.elasticsearch.action.bulk.BulkItemResponse;
+import org.elasticsearch.action.bulk.BulkRequest;
+import org.elasticsearch.action.bulk.BulkResponse;
+import org.elasticsearch.action.get.MultiGetItemResponse;
+import org.elasticsearch.action.get.MultiGetRequest;
+import org.elasticsearch.action.index.IndexRequest;
+import org.elasticsearch.client.RestHighLevelClient;
+import org.elasticsearch.rest.RestStatus;
+import org.elasticsearch.search.fetch.subphase.FetchSourceContext;
+
+/**
+ * Bulk ingests newline delimited BigQuery JSON exports into an Elasticsearch index, reading and
+ * converting several shards at once and keeping several bulk requests in flight.
+ *
+ * <p>Reader threads each take one shard at a time, convert its lines with {@link
+ * ElasticDocument#fromBigQueryJson} and hand batches to a bounded queue, which blocks the readers
+ * whenever the bulk senders fall behind. Sender threads drain the queue. A bulk request that fails
+ * outright with an IOException, a 429 or a 5xx is retried whole; documents the cluster rejects
+ * individually with a 429 are retried on their own. Both back off exponentially. Progress and
+ * throughput are logged periodically and returned as an {@link IngestResult}.
+ *
+ * <p>Given an {@link IngestCheckpoint}, shards it records as complete are skipped, the lines it
+ * records as indexed are skipped over, and it is updated and saved as batches are indexed. In
+ * incremental mode, documents whose content hash matches the one already in the index are not
+ * re-sent.
+ */
+public class ParallelDocumentIngester {
+
+  private static final Logger log = Logger.getLogger(ParallelDocumentIngester.class.getName());
+
+  private static final long PROGRESS_INTERVAL_SECONDS = 30;
+  private static final int DEFAULT_MAX_ATTEMPTS = 20;
+  private static final long DEFAULT_INITIAL_BACKOFF_MS = 100;
+  // Doubling from the initial backoff passes 5 minutes after the 12th attempt; uncapped, the wait
+  // before the last of the default 20 attempts could exceed 7 hours. The cap limits the backoff a
+  // sender thread spends on one failing batch to ~42 minutes in all before it gives up, while the
+  // later, longer waits can still outlast a cluster restart or sustained 429s.
+  private static final long MAX_BACKOFF_MS = 5 * 60 * 1000;
+
+  // Tells a sender thread that every shard has been read.
+  private static final Batch END_OF_INPUT = new Batch(null);
+
+  /** One newline delimited JSON file, e.g. a shard of a BigQuery export to GCS. */
+  public interface Shard {
+    String getName();
+
+    BufferedReader open() throws IOException;
+  }
+
+  /** The Elasticsearch operations used by the ingester. */
+  public interface BulkClient {
+    BulkResponse bulk(BulkRequest request) throws IOException;
+
+    /** Returns the content hashes of those of the given documents that are in the index. */
+    Map<String, String> getContentHashes(List<String> ids) throws IOException;
+  }
+
+  /** Counts of the documents processed by {@link #ingest}. */
+  public static class IngestResult {
+    public final long indexed;
+    public final long unchanged;
+    public final long failed;
+    public final long retried;
+    public final int failedShards;
+    public final Duration elapsed;
+
+    IngestResult(
+        long indexed,
+        long unchanged,
+        long failed,
+        long retried,
+        int failedShards,
+        Duration elapsed) {
+      this.indexed = indexed;
+      this.unchanged = unchanged;
+      this.failed = failed;
+      this.retried = retried;
+      this.failedShards = failedShards;
+      this.elapsed = elapsed;
+    }
+  }
+
+  /** A bulk request for consecutive lines of a shard, ending at endLine. */
+  private static class Batch {
+    final ShardProgress shard;
+    final BulkRequest request = new BulkRequest();
+    // Document id -> content hash.
+    final Map<String, String> contentHashes = new HashMap<>();
+    int seq;
+    long endLine;
+
+    Batch(ShardProgress shard) {
+      this.shard = shard;
+    }
+
+    void add(ElasticDocument doc, String indexName) {
+      request.add(new IndexRequest(indexName, ElasticUtils.INDEX_TYPE, doc.id).source(doc.source));
+      contentHashes.put(doc.id, doc.contentHash);
+    }
+  }
+
+  /**
+   * Tracks which batches of a shard are done, so the checkpoint only ever covers a prefix of the
+   * shard whose documents were all indexed. Batches can finish out of order, and a batch with
+   * failed documents stops the shard's checkpoint from advancing any further.
+   */
+  private static class ShardProgress {
+    private final String name;
+    @Nullable private final IngestCheckpoint checkpoint;
+    // Seq -> end line of the batches done, but not yet committed.
+    private final Map<Integer, Long> done = new HashMap<>();
+    private int batchesQueued = 0;
+    private int nextToCommit = 0;
+    private int firstFailed = Integer.MAX_VALUE;
+    private boolean readComplete = false;
+
+    ShardProgress(String name, @Nullable IngestCheckpoint checkpoint) {
+      this.name = name;
+      this.checkpoint = checkpoint;
+    }
+
+    synchronized void queued(Batch batch, long endLine) {
+      batch.seq = batchesQueued++;
+      batch.endLine = endLine;
+    }
+
+    synchronized void batchDone(Batch batch, boolean allIndexed) {
+      if (!allIndexed) {
+        firstFailed = Math.min(firstFailed, batch.seq);
+      }
+      done.put(batch.seq, batch.endLine);
+      while (nextToCommit < firstFailed && done.containsKey(nextToCommit)) {
+        long endLine = done.remove(nextToCommit++);
+        if (checkpoint != null) {
+          checkpoint.commit(name, endLine);
+        }
+      }
+      maybeComplete();
+    }
+
+    synchronized void finishedReading() {
+      readComplete = true;
+      maybeComplete();
+    }
+
+    private void maybeComplete() {
+      if (readComplete && nextToCommit == batchesQueued && checkpoint != null) {
+        checkpoint.complete(name);
+      }
+    }
+  }
+
+  private final BulkClient client;
+  private final String indexName;
+  private final int readerThreads;
+  private final int bulkThreads;
+  private final int batchSize;
+  private final int maxAttempts;
+  private final long initialBackoffMillis;
+  private boolean incremental = false;
+
+  private final LongAdder indexed = new LongAdder();
+  private final LongAdder unchanged = new LongAdder();
+  private final LongAdder failed = new LongAdder();
+  private final LongAdder retried = new LongAdder();
+  private final AtomicInteger shardsRead = new AtomicInteger();
+
+  public ParallelDocumentIngester(
+      BulkClient client,
+      String indexName,
+      int readerThreads,
+      int bulkThreads,
+      int batchSize,
+      int maxAttempts,
+      long initialBackoffMillis) {
+    this.client = client;
+    this.indexName = indexName;
+    this.readerThreads = readerThreads;
+    this.bulkThreads = bulkThreads;
+    this.batchSize = batchSize;
+    this.maxAttempts = maxAttempts;
+    this.initialBackoffMillis = initialBackoffMillis;
+  }
+
+  /** An ingester for the given client, with the default batch size and retry policy. */
+  public static ParallelDocumentIngester forClient(
+      RestHighLevelClient client, String indexName, int readerThreads, int bulkThreads) {
+    BulkClient bulkClient =
+        new BulkClient() {
+          @Override
+          public BulkResponse bulk(BulkRequest request) throws IOException {
+            return client.bulk(request, ElasticUtils.REQ_OPTS);
+          }
+
+          @Override
+          public Map<String, String> getContentHashes(List<String> ids) throws IOException {
+            FetchSourceContext hashOnly =
+                new FetchSourceContext(
+                    true, new String[] {ElasticDocument.CONTENT_HASH_FIELD}, null);
+            MultiGetRequest request = new MultiGetRequest();
+            for (String id : ids) {
+              request.add(
+                  new MultiGetRequest.Item(indexName, ElasticUtils.INDEX_TYPE, id)
+                      .fetchSourceContext(hashOnly));
+            }
+            Map<String, String> hashes = new HashMap<>();
+            for (MultiGetItemResponse item : client.mget(request, ElasticUtils.REQ_OPTS)) {
+              if (item.isFailed() || !item.getResponse().isExists()) {
+                continue;
+              }
+              Object hash =
+                  item.getResponse().getSourceAsMap().get(ElasticDocument.CONTENT_HASH_FIELD);
+              if (hash != null) {
+                hashes.put(item.getId(), hash.toString());
+              }
+            }
+            return hashes;
+          }
+        };
+    return new ParallelDocumentIngester(
+        bulkClient,
+        indexName,
+        readerThreads,
+        bulkThreads,
+        ElasticUtils.BATCH_SIZE,
+        DEFAULT_MAX_ATTEMPTS,
+        DEFAULT_INITIAL_BACKOFF_MS);
+  }
+
+  /**
+   * Only re-sends documents whose content has changed since they were last indexed, at the cost
+   * of fetching the stored content hashes of each batch first.
+   */
+  public ParallelDocumentIngester withIncrementalUpdates() {
+    this.incremental = true;
+    return this;
+  }
+
+  /** A shard read from a local file, e.g. a BigQuery export copied from GCS. */
+  public static Shard localShard(Path path) {
+    return new Shard() {
+      @Override
+      public String getName() {
+        return path.toString();
+      }
+
+      @Override
+      public BufferedReader open() throws IOException {
+        return Files.newBufferedReader(path, StandardCharsets.UTF_8);
+      }
+    };
+  }
+
+  /** Ingests every document of the given shards, without checkpointing. */
+  public IngestResult ingest(List<? extends Shard> shards, long expectedDocs)
+      throws InterruptedException {
+    return ingest(shards, expectedDocs, null);
+  }
+
+  /**
+   * Ingests every document of the given shards not already covered by the checkpoint, returning
+   * once all of them have been indexed or have failed. expectedDocs is used for progress reporting
+   * only, and may be unknown (-1).
+   */
+  public IngestResult ingest(
+      List<? extends Shard> shards, long expectedDocs, @Nullable IngestCheckpoint checkpoint)
+      throws InterruptedException {
+    List<Shard> remaining =
+        shards.stream()
+            .filter(s -> checkpoint == null || !checkpoint.isComplete(s.getName()))
+            .collect(Collectors.toList());
+    if (remaining.size() < shards.size()) {
+      log.info(
+          String.format(
+              "Skipping %d shard(s) completed by a previous run",
+              shards.size() - remaining.size()));
+    }
+
+    BlockingQueue<Batch> batches = new ArrayBlockingQueue<>(2 * bulkThreads);
+    ExecutorService readers =
+        Executors.newFixedThreadPool(readerThreads, threadFactory("es-ingest-reader-%d"));
+    ExecutorService senders =
+        Executors.newFixedThreadPool(bulkThreads, threadFactory("es-ingest-bulk-%d"));
+    ScheduledExecutorService reporter =
+        Executors.newSingleThreadScheduledExecutor(threadFactory("es-ingest-progress-%d"));
+
+    Stopwatch timer = Stopwatch.createStarted();
+    reporter.scheduleAtFixedRate(
+        () -> {
+          logProgress(remaining.size(), expectedDocs, timer.elapsed());
+          saveCheckpoint(checkpoint);
+        },
+        PROGRESS_INTERVAL_SECONDS,
+        PROGRESS_INTERVAL_SECONDS,
+        TimeUnit.SECONDS);
+
+    List<Future<?>> sends =
+        IntStream.range(0, bulkThreads)
+            .mapToObj(i -> senders.submit(() -> sendUntilDone(batches)))
+            .collect(Collectors.toList());
+    List<Future<?>> reads =
+        remaining.stream()
+            .map(shard -> readers.submit(() -> readShard(shard, batches, checkpoint)))
+            .collect(Collectors.toList());
+
+    int failedShards = 0;
+    try {
+      for (int i = 0; i < reads.size(); i++) {
+        try {
+          reads.get(i).get();
+        } catch (ExecutionException e) {
+          failedShards++;
+          log.log(
+              Level.SEVERE, "Failed to ingest shard " + remaining.get(i).getName(), e.getCause());
+        }
+      }
+      for (int i = 0; i < bulkThreads; i++) {
+        batches.put(END_OF_INPUT);
+      }
+      for (Future<?> send : sends) {
+        try {
+          send.get();
+        } catch (ExecutionException e) {
+          log.log(Level.SEVERE, "Bulk sender failed", e.getCause());
+        }
+      }
+    } finally {
+      readers.shutdownNow();
+      senders.shutdownNow();
+      reporter.shutdownNow();
+      saveCheckpoint(checkpoint);
+    }
+
+    timer.stop();
+    logProgress(remaining.size(), expectedDocs, timer.elapsed());
+    Duration t = timer.elapsed();
+    log.info(
+        String.format(
+            "Indexing took %dh %dm %ds (%d shards failed)",
+            t.toHours(), t.toMinutes() % 60, t.getSeconds() % 60, failedShards));
+    return new IngestResult(
+        indexed.sum(),
+        unchanged.sum(),
+        failed.sum(),
+        retried.sum(),
+        failedShards,
+        timer.elapsed());
+  }
+
+  private Void readShard(
+      Shard shard, BlockingQueue<Batch> batches, @Nullable IngestCheckpoint checkpoint)
+      throws IOException, InterruptedException {
+    ShardProgress progress = new ShardProgress(shard.getName(), checkpoint);
+    long skip = checkpoint == null ? 0 : checkpoint.committedLines(shard.getName());
+    try (BufferedReader reader = shard.open()) {
+      long lines = 0;
+      while (lines < skip && reader.readLine() != null) {
+        lines++;
+      }
+      Batch batch = new Batch(progress);
+      String line;
+      while ((line = reader.readLine()) != null) {
+        lines++;
+        if (line.isEmpty()) {
+          continue;
+        }
+        batch.add(ElasticDocument.fromBigQueryJson(line), indexName);
+        if (batch.request.numberOfActions() >= batchSize) {
+          progress.queued(batch, lines);
+          batches.put(batch);
+          batch = new Batch(progress);
+        }
+      }
+      if (batch.request.numberOfActions() > 0) {
+        progress.queued(batch, lines);
+        batches.put(batch);
+      }
+    }
+    progress.finishedReading();
+    shardsRead.incrementAndGet();
+    return null;
+  }
+
+  private Void sendUntilDone(BlockingQueue<Batch> batches) throws InterruptedException {
+    while (true) {
+      Batch batch = batches.take();
+      if (batch == END_OF_INPUT) {
+        return null;
+      }
+      boolean allIndexed;
+      try {
+        BulkRequest request = incremental ? dropUnchanged(batch) : batch.request;
+        allIndexed = request.numberOfActions() == 0 || send(request);
+      } catch (RuntimeException e) {
+        // Keep draining the queue, or the readers would block forever.
+        log.log(Level.SEVERE, "bulk insertion failed", e);
+        failed.add(batch.request.numberOfActions());
+        allIndexed = false;
+      }
+      batch.shard.batchDone(batch, allIndexed);
+    }
+  }
+
+  /** Returns the part of the batch whose content differs from what is already indexed. */
+  private BulkRequest dropUnchanged(Batch batch) {
+    Map<String, String> indexedHashes;
+    try {
+      indexedHashes = client.getContentHashes(new ArrayList<>(batch.contentHashes.keySet()));
+    } catch (IOException | ElasticsearchStatusException e) {
+      log.log(Level.WARNING, "failed to fetch content hashes, re-indexing the whole batch", e);
+      return batch.request;
+    }
+    BulkRequest changed = new BulkRequest();
+    for (DocWriteRequest<?> request : batch.request.requests()) {
+      if (batch.contentHashes.get(request.id()).equals(indexedHashes.get(request.id()))) {
+        unchanged.increment();
+      } else {
+        changed.add(request);
+      }
+    }
+    return changed;
+  }
+
+  /** Sends the request, retrying as needed; returns whether every document was indexed. */
+  private boolean send(BulkRequest batch) throws InterruptedException {
+    BulkRequest pending = batch;
+    boolean allIndexed = true;
+    for (int attempt = 1; ; attempt++) {
+      BulkResponse response;
+      try {
+        response = client.bulk(pending);
+      } catch (IOException | ElasticsearchStatusException e) {
+        if (attempt >= maxAttempts || !isRetryable(e)) {
+          log.log(Level.SEVERE, "bulk insertion failed", e);
+          failed.add(pending.numberOfActions());
+          return false;
+        }
+        log.log(
+            Level.WARNING, "bulk request attempt " + attempt + " failed, retrying...", e);
+        retried.add(pending.numberOfActions());
+        backOff(attempt);
+        continue;
+      }
+
+      BulkRequest rejected = new BulkRequest();
+      for (BulkItemResponse item : response.getItems()) {
+        if (!item.isFailed()) {
+          indexed.increment();
+        } else if (item.status() == RestStatus.TOO_MANY_REQUESTS) {
+          rejected.add(pending.requests().get(item.getItemId()));
+        } else {
+          log.warning(item.getFailureMessage());
+          failed.increment();
+          allIndexed = false;
+        }
+      }
+      if (rejected.numberOfActions() == 0) {
+        return allIndexed;
+      }
+      if (attempt >= maxAttempts) {
+        log.severe(
+            String.format(
+                "%d documents still rejected after %d attempts",
+                rejected.numberOfActions(), attempt));
+        failed.add(rejected.numberOfActions());
+        return false;
+      }
+      retried.add(rejected.numberOfActions());
+      backOff(attempt);
+      pending = rejected;
+    }
+  }
+
+  private static boolean isRetryable(Exception e) {
+    if (e instanceof ElasticsearchStatusException) {
+      RestStatus status = ((ElasticsearchStatusException) e).status();
+      return status == RestStatus.TOO_MANY_REQUESTS || status.getStatus() >= 500;
+    }
+    return true;
+  }
+
+  /** Sleeps for a random interval of up to initialBackoffMillis * 2^(attempt - 1), capped. */
+  private void backOff(int attempt) throws InterruptedException {
+    long ceiling = Math.min(MAX_BACKOFF_MS, initialBackoffMillis << Math.min(attempt - 1, 20));
+    Thread.sleep(ceiling / 2 + ThreadLocalRandom.current().nextLong(ceiling / 2 + 1));
+  }
+
+  private static void saveCheckpoint(@Nullable IngestCheckpoint checkpoint) {
+    if (checkpoint == null) {
+      return;
+    }
+    try {
+      checkpoint.save();
+    } catch (IOException e) {
+      log.log(Level.WARNING, "failed to save ingest checkpoint", e);
+    }
+  }
+
+  private void logProgress(int numShards, long expectedDocs, Duration elapsed) {
+    long done = indexed.sum() + unchanged.sum();
+    double rate = 60 * 1000 * ((double) done) / Math.max(1, elapsed.toMillis());
+    String remaining =
+        expectedDocs < 0 || rate == 0
+            ? ""
+            : String.format(
+                " [~%.1fh remaining]", (expectedDocs - done - failed.sum()) / rate / 60.0);
+    log.info(
+        String.format(
+            "Indexed %d/%s documents (%d unchanged, %d failed, %d retried), read %d/%d shards @ "
+                + "%.2f docs/minute%s",
+            indexed.sum(),
+            expectedDocs < 0 ? "?" : Long.toString(expectedDocs),
+            unchanged.sum(),
+            failed.sum(),
+            retried.sum(),
+            shardsRead.get(),
+            numShards,
+            rate,
+            remaining));
+  }
+
+  private static ThreadFactory threadFactory(String nameFormat) {
+    return new ThreadFactoryBuilder().setNameFormat(nameFormat).setDaemon(true).build();
+  }
+}
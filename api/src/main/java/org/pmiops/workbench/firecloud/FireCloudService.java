@@ -92,6 +92,9 @@ public interface FireCloudService {
 
   List<FirecloudWorkspaceResponse> getWorkspaces();
 
+  /** Lists the user's workspaces, fetching only the given fields of each. */
+  List<FirecloudWorkspaceResponse> getWorkspaces(List<String> fields);
+
   void deleteWorkspace(String projectName, String workspaceName);
 
   FirecloudManagedGroupWithMembers getGroup(String groupname);
@@ -471,9 +471,13 @@ public class FireCloudServiceImpl implements FireCloudService {
 
   @Override
   public List<FirecloudWorkspaceResponse> getWorkspaces() throws WorkbenchException {
-    return retryHandler.run(
-        (context) ->
-            endUserWorkspacesApiProvider.get().listWorkspaces(FIRECLOUD_WORKSPACE_REQUIRED_FIELDS));
+    return getWorkspaces(FIRECLOUD_WORKSPACE_REQUIRED_FIELDS);
+  }
+
+  @Override
+  public List<FirecloudWorkspaceResponse> getWorkspaces(List<String> fields)
+      throws WorkbenchException {
+    return retryHandler.run((context) -> endUserWorkspacesApiProvider.get().listWorkspaces(fields));
   }
 
   @Override
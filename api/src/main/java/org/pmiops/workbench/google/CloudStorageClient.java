@@ -34,6 +34,17 @@ public interface CloudStorageClient {
    */
   List<Blob> getBlobPageForPrefix(String bucketName, String directory);
 
+  /**
+   * Get all files directly in a directory in a bucket, reading as many {@link
+   * com.google.api.gax.paging.Page}s of results as needed. Files in its subdirectories are not
+   * listed.
+   *
+   * @param bucketName the google bucket to list
+   * @param directory the bucket directory to list, without a trailing slash
+   * @return every file Blob directly in the directory, as a List
+   */
+  List<Blob> getBlobsInDirectory(String bucketName, String directory);
+
   Set<BlobId> getExistingBlobIdsIn(List<BlobId> id);
 
   Blob writeFile(String bucketName, String fileName, byte[] bytes);
@@ -8,6 +8,7 @@ import com.google.cloud.storage.Storage;
 import com.google.cloud.storage.Storage.CopyRequest;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Streams;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
@@ -62,6 +63,22 @@ public class CloudStorageClientImpl implements CloudStorageClient {
     return ImmutableList.copyOf(blobList);
   }
 
+  @Override
+  public List<Blob> getBlobsInDirectory(String bucketName, String directory) {
+    Iterable<Blob> blobList =
+        storageProvider
+            .get()
+            .get(bucketName)
+            .list(
+                Storage.BlobListOption.prefix(directory + "/"),
+                Storage.BlobListOption.currentDirectory())
+            .iterateAll();
+    // Subdirectories are listed as placeholder blobs.
+    return Streams.stream(blobList)
+        .filter(blob -> !blob.isDirectory())
+        .collect(ImmutableList.toImmutableList());
+  }
+
   private String getCredentialsBucketName() {
     return configProvider.get().googleCloudStorageService.credentialsBucketName;
   }
@@ -23,6 +23,7 @@ import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import java.io.IOException;
 import java.security.SecureRandom;
+import java.time.Duration;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
@@ -30,6 +31,7 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 import javax.inject.Provider;
@@ -66,6 +68,8 @@ public class DirectoryServiceImpl implements DirectoryService, GaugeDataCollecto
   private static final int MAX_USERS_LIST_PAGE_SIZE = 500;
   private static final String EMAIL_USER_FIELD = "email";
   private static final String USER_VIEW_TYPE = "domain_public";
+  // Counting users pages through the whole directory, and the counts change slowly.
+  private static final Duration GAUGE_DATA_REFRESH_INTERVAL = Duration.ofMinutes(15);
 
   private static final String ADMIN_SERVICE_ACCOUNT_NAME = "gsuite-admin";
 
@@ -284,17 +288,34 @@ public class DirectoryServiceImpl implements DirectoryService, GaugeDataCollecto
 
   @Override
   public Collection<MeasurementBundle> getGaugeData() {
-    ImmutableSet.Builder<MeasurementBundle> resultBuilder = ImmutableSet.builder();
+    return prepareGaugeData().get();
+  }
 
+  @Override
+  public Supplier<Collection<MeasurementBundle>> prepareGaugeData() {
+    // The domains and credentials come from request-scoped config, and the users are counted
+    // after the request may have ended.
     final String localDomain = gSuiteDomain();
-    addDomainCountMeasurement(resultBuilder, localDomain, countUsersInDomain(localDomain));
-
     final String topLevelDomain = getTopLevelGSuiteDomain();
-    // Avoid creating duplicate data point if the local domain is the top domain
-    if (!localDomain.equals(topLevelDomain)) {
-      addDomainCountMeasurement(resultBuilder, topLevelDomain, countUsersInDomain(topLevelDomain));
-    }
-    return resultBuilder.build();
+    final Directory directoryService = getGoogleDirectoryService();
+
+    return () -> {
+      ImmutableSet.Builder<MeasurementBundle> resultBuilder = ImmutableSet.builder();
+      addDomainCountMeasurement(
+          resultBuilder, localDomain, countUsersInDomain(directoryService, localDomain));
+
+      // Avoid creating duplicate data point if the local domain is the top domain
+      if (!localDomain.equals(topLevelDomain)) {
+        addDomainCountMeasurement(
+            resultBuilder, topLevelDomain, countUsersInDomain(directoryService, topLevelDomain));
+      }
+      return resultBuilder.build();
+    };
+  }
+
+  @Override
+  public Duration getGaugeDataRefreshInterval() {
+    return GAUGE_DATA_REFRESH_INTERVAL;
   }
 
   private void addDomainCountMeasurement(
@@ -308,10 +329,9 @@ public class DirectoryServiceImpl implements DirectoryService, GaugeDataCollecto
             .build());
   }
 
-  private long countUsersInDomain(String gSuiteDomain) {
+  private long countUsersInDomain(Directory directoryService, String gSuiteDomain) {
     long result = 0;
     try {
-      final Directory directoryService = getGoogleDirectoryService();
       Optional<String> nextPageToken = Optional.empty();
       do {
         final Directory.Users.List listQuery =
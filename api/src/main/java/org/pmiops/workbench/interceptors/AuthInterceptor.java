@@ -1,12 +1,16 @@
 package org.pmiops.workbench.interceptors;
 
 import com.google.api.client.http.HttpMethods;
+import com.google.api.services.oauth2.model.Tokeninfo;
 import com.google.api.services.oauth2.model.Userinfoplus;
 import io.swagger.annotations.ApiOperation;
 import io.swagger.annotations.Authorization;
+import java.io.IOException;
 import java.lang.reflect.Method;
+import java.time.Duration;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Optional;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import javax.inject.Provider;
@@ -15,6 +19,8 @@ import javax.servlet.http.HttpServletResponse;
 import org.pmiops.workbench.annotations.AuthorityRequired;
 import org.pmiops.workbench.auth.UserAuthentication;
 import org.pmiops.workbench.auth.UserAuthentication.UserType;
+import org.pmiops.workbench.auth.UserIdentityCache;
+import org.pmiops.workbench.auth.UserIdentityCache.Identity;
 import org.pmiops.workbench.auth.UserInfoService;
 import org.pmiops.workbench.config.WorkbenchConfig;
 import org.pmiops.workbench.db.dao.UserDao;
@@ -53,6 +59,7 @@ public class AuthInterceptor extends HandlerInterceptorAdapter {
   private final UserDao userDao;
   private final UserService userService;
   private final DevUserRegistrationService devUserRegistrationService;
+  private final UserIdentityCache userIdentityCache;
 
   @Autowired
   public AuthInterceptor(
@@ -61,13 +68,15 @@ public class AuthInterceptor extends HandlerInterceptorAdapter {
       Provider<WorkbenchConfig> workbenchConfigProvider,
       UserDao userDao,
       UserService userService,
-      DevUserRegistrationService devUserRegistrationService) {
+      DevUserRegistrationService devUserRegistrationService,
+      UserIdentityCache userIdentityCache) {
     this.userInfoService = userInfoService;
     this.fireCloudService = fireCloudService;
     this.workbenchConfigProvider = workbenchConfigProvider;
     this.userDao = userDao;
     this.userService = userService;
     this.devUserRegistrationService = devUserRegistrationService;
+    this.userIdentityCache = userIdentityCache;
   }
 
   /**
@@ -114,6 +123,19 @@ public class AuthInterceptor extends HandlerInterceptorAdapter {
     }
 
     final String token = authorizationHeader.substring("Bearer".length()).trim();
+
+    // A researcher token seen recently skips the userinfo and FireCloud lookups; the user row is
+    // still loaded, so a disabled user or changed authorities take effect immediately.
+    final Optional<Identity> cachedIdentity = userIdentityCache.get(token);
+    if (cachedIdentity.isPresent()) {
+      final DbUser cachedUser = userDao.findUserByUserId(cachedIdentity.get().getUserId());
+      if (cachedUser != null) {
+        return authenticateResearcher(
+            method, response, cachedUser, cachedIdentity.get().getUserInfo(), token);
+      }
+      userIdentityCache.invalidate(token);
+    }
+
     final Userinfoplus userInfo = userInfoService.getUserInfo(token);
 
     // The Workbench considers the user's generated GSuite email to be their userName
@@ -168,7 +190,38 @@ public class AuthInterceptor extends HandlerInterceptorAdapter {
       }
     }
 
+    if (!user.getDisabled()) {
+      cacheIdentity(token, new Identity(userInfo, user.getUsername(), user.getUserId()));
+    }
+    return authenticateResearcher(method, response, user, userInfo, token);
+  }
+
+  /**
+   * Caches the identity until its token expires. If the token's lifetime can't be looked up, the
+   * identity isn't cached and the token is resolved again on its next use.
+   */
+  private void cacheIdentity(String token, Identity identity) {
+    final Tokeninfo tokenInfo;
+    try {
+      tokenInfo = userInfoService.getTokenInfo(token);
+    } catch (WorkbenchException e) {
+      log.log(Level.WARNING, "Failed to look up token expiry, not caching its identity", e);
+      return;
+    }
+    if (tokenInfo != null && tokenInfo.getExpiresIn() != null) {
+      userIdentityCache.put(token, identity, Duration.ofSeconds(tokenInfo.getExpiresIn()));
+    }
+  }
+
+  private boolean authenticateResearcher(
+      HandlerMethod method,
+      HttpServletResponse response,
+      DbUser user,
+      Userinfoplus userInfo,
+      String token)
+      throws IOException {
     if (user.getDisabled()) {
+      userIdentityCache.invalidateUser(user.getUserId());
       throw new ForbiddenException(
           WorkbenchException.errorResponse(
               "Rejecting request for disabled user account: " + user.getUsername(),
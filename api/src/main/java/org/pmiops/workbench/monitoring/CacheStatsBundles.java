@@ -0,0 +1,31 @@
+package org.pmiops.workbench.monitoring;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheStats;
+import org.pmiops.workbench.monitoring.labels.MetricLabel;
+import org.pmiops.workbench.monitoring.views.GaugeMetric;
+
+/**
+ * Converts the statistics of a Guava {@link Cache} into a gauge {@link MeasurementBundle}, so that
+ * cache owners can report hit rates by implementing {@link GaugeDataCollector}.
+ */
+public final class CacheStatsBundles {
+
+  private CacheStatsBundles() {}
+
+  /**
+   * Build a bundle of size, hit, miss and eviction counts, tagged with the cache name. The counts
+   * are cumulative for the lifetime of this App Engine instance, and are only populated if the
+   * cache was built with {@link com.google.common.cache.CacheBuilder#recordStats()}.
+   */
+  public static MeasurementBundle fromCache(String cacheName, Cache<?, ?> cache) {
+    final CacheStats stats = cache.stats();
+    return MeasurementBundle.builder()
+        .addMeasurement(GaugeMetric.CACHE_SIZE, cache.size())
+        .addMeasurement(GaugeMetric.CACHE_HIT_COUNT, stats.hitCount())
+        .addMeasurement(GaugeMetric.CACHE_MISS_COUNT, stats.missCount())
+        .addMeasurement(GaugeMetric.CACHE_EVICTION_COUNT, stats.evictionCount())
+        .addTag(MetricLabel.CACHE_NAME, cacheName)
+        .build();
+  }
+}
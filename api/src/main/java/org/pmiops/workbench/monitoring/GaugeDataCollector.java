@@ -1,6 +1,8 @@
 package org.pmiops.workbench.monitoring;
 
+import java.time.Duration;
 import java.util.Collection;
+import java.util.function.Supplier;
 
 /**
  * Each class wishing to supply gauge data to the gauge cron job can simply implement this
@@ -25,4 +27,27 @@ public interface GaugeDataCollector {
    * @return collection of MeasurementBundles to be recorded.
    */
   Collection<MeasurementBundle> getGaugeData();
+
+  /**
+   * How long the values returned by getGaugeData() remain fresh enough to be recorded again instead
+   * of polling this collector. Collectors whose data is expensive to compute and slow to change can
+   * override this to be polled less often than the gauge cron runs.
+   *
+   * @return the minimum time between polls; by default, this collector is polled on every run.
+   */
+  default Duration getGaugeDataRefreshInterval() {
+    return Duration.ZERO;
+  }
+
+  /**
+   * Called on the gauge cron's request thread before this collector is polled. The returned
+   * supplier is then called on a background thread, which may still be running after the request
+   * has ended, and so must not use request-scoped beans such as WorkbenchConfig. Collectors which
+   * need them should resolve them here.
+   *
+   * @return a supplier of the values getGaugeData() would return; by default, getGaugeData itself.
+   */
+  default Supplier<Collection<MeasurementBundle>> prepareGaugeData() {
+    return this::getGaugeData;
+  }
 }
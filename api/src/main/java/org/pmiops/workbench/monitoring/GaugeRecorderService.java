@@ -1,32 +1,111 @@
 package org.pmiops.workbench.monitoring;
 
+import com.google.common.annotations.VisibleForTesting;
 import com.google.common.collect.ImmutableList;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.stream.Collectors;
+import javax.annotation.PreDestroy;
+import org.pmiops.workbench.monitoring.labels.MetricLabel;
 import org.pmiops.workbench.monitoring.views.DistributionMetric;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.util.ClassUtils;
 
+/**
+ * Polls every GaugeDataCollector and records the values they return. Collectors are polled
+ * concurrently, and each one has until the collection timeout to return its data. A collector that
+ * misses the deadline, fails, or asked not to be polled again yet is represented by the last values
+ * it returned, if any, so that one slow collector never holds up the others.
+ */
 @Service
 public class GaugeRecorderService {
   private static final Logger logger = Logger.getLogger(GaugeRecorderService.class.getName());
 
+  private static final int COLLECTOR_THREADS = 4;
+  // Well within the one-minute interval of the gauge cron.
+  private static final Duration COLLECTION_TIMEOUT = Duration.ofSeconds(20);
+
   private final List<GaugeDataCollector> gaugeDataCollectors;
   private final MonitoringService monitoringService;
   private LogsBasedMetricService logsBasedMetricService;
+  private final Clock clock;
+  private final ExecutorService collectorExecutor;
+  private final Duration collectionTimeout;
+
+  private final Map<GaugeDataCollector, CollectedGaugeData> lastCollected =
+      new ConcurrentHashMap<>();
+  // Collectors still working on a previous collection are not polled again until they finish.
+  private final Set<GaugeDataCollector> inFlight = ConcurrentHashMap.newKeySet();
 
   // For local debugging, change this to Level.INFO or higher
   private final Level logLevel = Level.FINE;
 
+  private static class CollectedGaugeData {
+    private final Collection<MeasurementBundle> bundles;
+    private final Instant collectedAt;
+
+    private CollectedGaugeData(Collection<MeasurementBundle> bundles, Instant collectedAt) {
+      this.bundles = bundles;
+      this.collectedAt = collectedAt;
+    }
+  }
+
+  @Autowired
+  public GaugeRecorderService(
+      List<GaugeDataCollector> gaugeDataCollectors,
+      MonitoringService monitoringService,
+      LogsBasedMetricService logsBasedMetricService,
+      Clock clock) {
+    this(
+        gaugeDataCollectors,
+        monitoringService,
+        logsBasedMetricService,
+        clock,
+        Executors.newFixedThreadPool(
+            COLLECTOR_THREADS,
+            new ThreadFactoryBuilder().setNameFormat("gauge-collector-%d").setDaemon(true).build()),
+        COLLECTION_TIMEOUT);
+  }
+
+  @VisibleForTesting
   public GaugeRecorderService(
       List<GaugeDataCollector> gaugeDataCollectors,
       MonitoringService monitoringService,
-      LogsBasedMetricService logsBasedMetricService) {
+      LogsBasedMetricService logsBasedMetricService,
+      Clock clock,
+      ExecutorService collectorExecutor,
+      Duration collectionTimeout) {
     this.gaugeDataCollectors = gaugeDataCollectors;
     this.monitoringService = monitoringService;
     this.logsBasedMetricService = logsBasedMetricService;
+    this.clock = clock;
+    this.collectorExecutor = collectorExecutor;
+    this.collectionTimeout = collectionTimeout;
+  }
+
+  @PreDestroy
+  void shutdown() {
+    collectorExecutor.shutdownNow();
   }
 
   public void record() {
@@ -34,9 +113,18 @@ public class GaugeRecorderService {
         MeasurementBundle.builder(),
         DistributionMetric.GAUGE_COLLECTION_TIME,
         () -> {
-          ImmutableList.Builder<MeasurementBundle> bundlesToLogBuilder = ImmutableList.builder();
+          final long deadlineNanos = System.nanoTime() + collectionTimeout.toNanos();
+          final Map<GaugeDataCollector, Future<Collection<MeasurementBundle>>> collections =
+              new LinkedHashMap<>();
           for (GaugeDataCollector collector : gaugeDataCollectors) {
-            Collection<MeasurementBundle> bundles = collector.getGaugeData();
+            collections.put(collector, startCollection(collector));
+          }
+
+          ImmutableList.Builder<MeasurementBundle> bundlesToLogBuilder = ImmutableList.builder();
+          for (Map.Entry<GaugeDataCollector, Future<Collection<MeasurementBundle>>> entry :
+              collections.entrySet()) {
+            Collection<MeasurementBundle> bundles =
+                awaitCollection(entry.getKey(), entry.getValue(), deadlineNanos);
             monitoringService.recordBundles(bundles);
             bundlesToLogBuilder.addAll(bundles);
           }
@@ -44,6 +132,85 @@ public class GaugeRecorderService {
         });
   }
 
+  /**
+   * Returns the collector's last values if they are still fresh enough, or if it is still working
+   * on a previous collection. Otherwise, polls the collector in the background.
+   */
+  private Future<Collection<MeasurementBundle>> startCollection(GaugeDataCollector collector) {
+    final CollectedGaugeData last = lastCollected.get(collector);
+    if (last != null
+        && clock
+            .instant()
+            .isBefore(last.collectedAt.plus(collector.getGaugeDataRefreshInterval()))) {
+      return CompletableFuture.completedFuture(last.bundles);
+    }
+    if (!inFlight.add(collector)) {
+      return CompletableFuture.completedFuture(getLastBundles(collector));
+    }
+
+    // The collection may outlive this request, so anything request-scoped the collector needs is
+    // resolved here, on the request thread.
+    final Supplier<Collection<MeasurementBundle>> gaugeData;
+    try {
+      gaugeData = collector.prepareGaugeData();
+    } catch (RuntimeException e) {
+      inFlight.remove(collector);
+      final CompletableFuture<Collection<MeasurementBundle>> failed = new CompletableFuture<>();
+      failed.completeExceptionally(e);
+      return failed;
+    }
+    return collectorExecutor.submit(
+        () -> {
+          try {
+            final Collection<MeasurementBundle> bundles =
+                logsBasedMetricService.recordElapsedTime(
+                    MeasurementBundle.builder()
+                        .addTag(MetricLabel.GAUGE_COLLECTOR, getCollectorName(collector)),
+                    DistributionMetric.GAUGE_COLLECTOR_TIME,
+                    gaugeData);
+            // Kept even if the collection finishes after its deadline, for the next run to use.
+            lastCollected.put(collector, new CollectedGaugeData(bundles, clock.instant()));
+            return bundles;
+          } finally {
+            inFlight.remove(collector);
+          }
+        });
+  }
+
+  private Collection<MeasurementBundle> awaitCollection(
+      GaugeDataCollector collector,
+      Future<Collection<MeasurementBundle>> collection,
+      long deadlineNanos) {
+    try {
+      return collection.get(Math.max(0, deadlineNanos - System.nanoTime()), TimeUnit.NANOSECONDS);
+    } catch (TimeoutException e) {
+      logger.warning(
+          String.format(
+              "Timed out collecting gauge data from %s, reporting its last values",
+              getCollectorName(collector)));
+    } catch (ExecutionException e) {
+      logger.log(
+          Level.WARNING,
+          String.format(
+              "Failed to collect gauge data from %s, reporting its last values",
+              getCollectorName(collector)),
+          e.getCause());
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    return getLastBundles(collector);
+  }
+
+  private Collection<MeasurementBundle> getLastBundles(GaugeDataCollector collector) {
+    final CollectedGaugeData last = lastCollected.get(collector);
+    return last == null ? Collections.emptyList() : last.bundles;
+  }
+
+  private static String getCollectorName(GaugeDataCollector collector) {
+    // Spring proxies add a suffix to the class name.
+    return ClassUtils.getUserClass(collector).getSimpleName();
+  }
+
   private void logValues(Collection<MeasurementBundle> bundles) {
     logger.log(
         logLevel,
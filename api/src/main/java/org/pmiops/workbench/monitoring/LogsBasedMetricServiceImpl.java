@@ -1,7 +1,6 @@
 package org.pmiops.workbench.monitoring;
 
 import com.google.cloud.logging.LogEntry;
-import com.google.cloud.logging.Logging;
 import com.google.cloud.logging.Payload.JsonPayload;
 import com.google.cloud.logging.Severity;
 import com.google.common.annotations.VisibleForTesting;
@@ -27,7 +26,7 @@ public class LogsBasedMetricServiceImpl implements LogsBasedMetricService {
   private static final Logger log = Logger.getLogger(LogsBasedMetricServiceImpl.class.getName());
 
   private static final String METRICS_LOG_NAME = "debug-logs-based-metrics";
-  private final Logging cloudLogging;
+  private final MetricsLogWriter metricsLogWriter;
   private final StackdriverStatsExporterService stackdriverStatsExporterService;
   private final Provider<Stopwatch> stopwatchProvider;
 
@@ -36,10 +35,10 @@ public class LogsBasedMetricServiceImpl implements LogsBasedMetricService {
    * temporrary until we have a Provider of MonitoredResource.
    */
   public LogsBasedMetricServiceImpl(
-      Logging cloudLogging,
+      MetricsLogWriter metricsLogWriter,
       StackdriverStatsExporterService stackdriverStatsExporterService,
       Provider<Stopwatch> stopwatchProvider) {
-    this.cloudLogging = cloudLogging;
+    this.metricsLogWriter = metricsLogWriter;
     this.stackdriverStatsExporterService = stackdriverStatsExporterService;
     this.stopwatchProvider = stopwatchProvider;
   }
@@ -52,8 +51,9 @@ public class LogsBasedMetricServiceImpl implements LogsBasedMetricService {
             .map(this::payloadToLogEntry)
             .collect(ImmutableSet.toImmutableSet());
 
-    // This list will never be empty because of the validation in the MeasurementBundle builder
-    cloudLogging.write(logEntries);
+    // This list will never be empty because of the validation in the MeasurementBundle builder.
+    // The entries are written in the background, so that metrics never hold up a request.
+    metricsLogWriter.enqueue(logEntries);
   }
 
   @Override
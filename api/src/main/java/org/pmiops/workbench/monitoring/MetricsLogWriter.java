@@ -0,0 +1,183 @@
+package org.pmiops.workbench.monitoring;
+
+import com.google.cloud.logging.LogEntry;
+import com.google.cloud.logging.Logging;
+import com.google.cloud.logging.Synchronicity;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.ImmutableList;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import org.pmiops.workbench.monitoring.views.GaugeMetric;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Service;
+
+/**
+ * Writes logs-based metric entries to Cloud Logging off the request thread. Entries wait in a
+ * bounded in-memory buffer, and a background thread writes them in batches, either once a full
+ * batch is waiting or at a fixed interval, whichever comes first.
+ *
+ * <p>Metrics must never slow down or fail the requests they describe, so when the buffer is full
+ * the oldest waiting entries are dropped to make room. Dropped entries, including those in batches
+ * Cloud Logging failed to accept, are counted and reported as a gauge, along with the buffer's
+ * depth. Each write waits for Cloud Logging to accept the batch, so that a rejected batch is
+ * counted rather than lost silently.
+ */
+@Service
+public class MetricsLogWriter implements GaugeDataCollector {
+
+  private static final Logger log = Logger.getLogger(MetricsLogWriter.class.getName());
+
+  static final String CLOUD_LOGGING_BEAN = "METRICS_LOG_CLOUD_LOGGING";
+
+  private static final int BUFFER_CAPACITY = 10000;
+  private static final int MAX_BATCH_SIZE = 500;
+  private static final long FLUSH_INTERVAL_MILLIS = TimeUnit.SECONDS.toMillis(2);
+
+  /** Where batches of entries are written; Cloud Logging in production. */
+  public interface Sink {
+    void write(List<LogEntry> entries);
+  }
+
+  private final Sink sink;
+  private final int bufferCapacity;
+  private final int maxBatchSize;
+  private final long flushIntervalMillis;
+  private final ScheduledExecutorService flusher;
+  private volatile boolean started;
+
+  // Guarded by itself.
+  private final Deque<LogEntry> buffer = new ArrayDeque<>();
+  // Held while flushing, so that batches are written one at a time and in order.
+  private final Object flushLock = new Object();
+  private final AtomicBoolean flushRequested = new AtomicBoolean();
+  private final AtomicLong droppedCount = new AtomicLong();
+
+  @Autowired
+  public MetricsLogWriter(@Qualifier(CLOUD_LOGGING_BEAN) Logging cloudLogging) {
+    this(cloudLoggingSink(cloudLogging), BUFFER_CAPACITY, MAX_BATCH_SIZE, FLUSH_INTERVAL_MILLIS);
+  }
+
+  @VisibleForTesting
+  public MetricsLogWriter(
+      Sink sink, int bufferCapacity, int maxBatchSize, long flushIntervalMillis) {
+    this.sink = sink;
+    this.bufferCapacity = bufferCapacity;
+    this.maxBatchSize = maxBatchSize;
+    this.flushIntervalMillis = flushIntervalMillis;
+    this.flusher =
+        Executors.newSingleThreadScheduledExecutor(
+            new ThreadFactoryBuilder().setNameFormat("metrics-log-writer").setDaemon(true).build());
+  }
+
+  /**
+   * Writes to Cloud Logging, waiting for each batch to be accepted. The client must be this
+   * writer's own: by default its writes only queue the entries to be sent, and never fail, so a
+   * batch Cloud Logging rejected would never be counted as dropped.
+   */
+  @VisibleForTesting
+  static Sink cloudLoggingSink(Logging cloudLogging) {
+    cloudLogging.setWriteSynchronicity(Synchronicity.SYNC);
+    return entries -> cloudLogging.write(entries);
+  }
+
+  /** Starts writing entries in the background; until then they are only written by flush(). */
+  @PostConstruct
+  public void start() {
+    flusher.scheduleWithFixedDelay(
+        this::flush, flushIntervalMillis, flushIntervalMillis, TimeUnit.MILLISECONDS);
+    started = true;
+  }
+
+  /** Writes whatever is still buffered before the application stops. */
+  @PreDestroy
+  void shutdown() {
+    flusher.shutdownNow();
+    flush();
+  }
+
+  /** Buffers the entries to be written later; never blocks on Cloud Logging. */
+  public void enqueue(Collection<LogEntry> entries) {
+    final int depth;
+    synchronized (buffer) {
+      for (LogEntry entry : entries) {
+        if (buffer.size() >= bufferCapacity) {
+          buffer.removeFirst();
+          droppedCount.incrementAndGet();
+        }
+        buffer.addLast(entry);
+      }
+      depth = buffer.size();
+    }
+    if (started && depth >= maxBatchSize && flushRequested.compareAndSet(false, true)) {
+      try {
+        flusher.execute(this::flush);
+      } catch (RejectedExecutionException e) {
+        // Shutting down; the final flush picks these entries up.
+      }
+    }
+  }
+
+  /** Writes every buffered entry, in batches, on the calling thread. */
+  public void flush() {
+    synchronized (flushLock) {
+      flushRequested.set(false);
+      List<LogEntry> batch;
+      while (!(batch = takeBatch()).isEmpty()) {
+        try {
+          sink.write(batch);
+        } catch (RuntimeException e) {
+          droppedCount.addAndGet(batch.size());
+          log.log(Level.WARNING, "Failed to write " + batch.size() + " metric log entries", e);
+        }
+      }
+    }
+  }
+
+  @Override
+  public Collection<MeasurementBundle> getGaugeData() {
+    return ImmutableList.of(
+        MeasurementBundle.builder()
+            .addMeasurement(GaugeMetric.METRICS_LOG_QUEUE_DEPTH, getQueueDepth())
+            .build(),
+        MeasurementBundle.builder()
+            .addMeasurement(GaugeMetric.METRICS_LOG_DROPPED_COUNT, getDroppedCount())
+            .build());
+  }
+
+  @VisibleForTesting
+  int getQueueDepth() {
+    synchronized (buffer) {
+      return buffer.size();
+    }
+  }
+
+  @VisibleForTesting
+  long getDroppedCount() {
+    return droppedCount.get();
+  }
+
+  private List<LogEntry> takeBatch() {
+    synchronized (buffer) {
+      final List<LogEntry> batch = new ArrayList<>(Math.min(buffer.size(), maxBatchSize));
+      while (batch.size() < maxBatchSize && !buffer.isEmpty()) {
+        batch.add(buffer.removeFirst());
+      }
+      return batch;
+    }
+  }
+}
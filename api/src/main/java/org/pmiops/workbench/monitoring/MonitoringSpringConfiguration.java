@@ -1,5 +1,8 @@
 package org.pmiops.workbench.monitoring;
 
+import com.google.cloud.logging.Logging;
+import com.google.cloud.logging.LoggingOptions;
+import com.google.cloud.logging.Synchronicity;
 import com.google.common.base.Stopwatch;
 import io.opencensus.stats.Stats;
 import io.opencensus.stats.StatsRecorder;
@@ -29,6 +32,15 @@ public class MonitoringSpringConfiguration {
     return Tags.getTagger();
   }
 
+  // A client of its own, as the metrics log writer waits on every write to see whether it failed,
+  // which the shared client's callers on request threads must not.
+  @Bean(name = MetricsLogWriter.CLOUD_LOGGING_BEAN)
+  public Logging getMetricsLogCloudLogging() {
+    final Logging cloudLogging = LoggingOptions.getDefaultInstance().getService();
+    cloudLogging.setWriteSynchronicity(Synchronicity.SYNC);
+    return cloudLogging;
+  }
+
   @Bean
   @Scope(ConfigurableBeanFactory.SCOPE_PROTOTYPE)
   public Stopwatch getStopwatch() {
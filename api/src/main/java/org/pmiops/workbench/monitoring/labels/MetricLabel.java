@@ -2,7 +2,10 @@ package org.pmiops.workbench.monitoring.labels;
 
 import java.util.Collections;
 import java.util.Set;
+import org.pmiops.workbench.access.BulkAccessModuleSyncService;
+import org.pmiops.workbench.cohortbuilder.ParticipantCountRouter;
 import org.pmiops.workbench.db.model.DbBillingProjectBufferEntry.BufferEntryStatus;
+import org.pmiops.workbench.model.AccessModule;
 import org.pmiops.workbench.model.WorkspaceActiveStatus;
 import org.pmiops.workbench.utils.Booleans;
 import org.pmiops.workbench.utils.Enums;
@@ -12,15 +15,24 @@ import org.pmiops.workbench.utils.Enums;
  * Some CamelCase labels have been grandfathered in.
  */
 public enum MetricLabel implements MetricLabelBase {
+  ACCESS_MODULE("access_module", Enums.getValueStrings(AccessModule.class)),
+  ACCESS_MODULE_SYNC_OUTCOME(
+      "access_module_sync_outcome",
+      Enums.getValueStrings(BulkAccessModuleSyncService.Outcome.class)),
   ACCESS_TIER_SHORT_NAME("access_tier_short_name"),
   ACCESS_TIER_SHORT_NAMES("access_tier_short_names"),
   BUFFER_ENTRY_STATUS("BufferEntryStatus", Enums.getValueStrings(BufferEntryStatus.class)),
+  CACHE_NAME("cache_name"),
   CRON_JOB_NAME("cron_job_name"),
   CRON_JOB_SUCCEEDED("cron_job_completion_status", Booleans.VALUE_STRINGS),
   DATASET_INVALID("Invalid", Booleans.VALUE_STRINGS),
+  ELASTIC_SHADOW_RESULT(
+      "elastic_shadow_result", Enums.getValueStrings(ParticipantCountRouter.ShadowResult.class)),
+  GAUGE_COLLECTOR("gauge_collector"),
   GSUITE_DOMAIN("gsuite_domain"),
   METHOD_NAME("method_name"),
   OPERATION_NAME("OperationName"),
+  TABLE_NAME("table_name"),
   USER_DISABLED("Disabled", Booleans.VALUE_STRINGS),
   WORKSPACE_ACTIVE_STATUS("ActiveStatus", Enums.getValueStrings(WorkspaceActiveStatus.class));
 
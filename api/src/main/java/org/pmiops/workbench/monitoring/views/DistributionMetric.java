@@ -21,6 +21,12 @@ import org.pmiops.workbench.monitoring.labels.MetricLabel;
  * custom.googleapis.com/).
  */
 public enum DistributionMetric implements Metric {
+  ACTION_AUDIT_WRITE_TIME(
+      "action_audit_write_time",
+      "Time to write a batch of action audit log entries to Cloud Logging.",
+      Collections.emptyList(),
+      DistributionAggregation.OPERATION_TIME,
+      MeasureLong.class),
   API_METHOD_TIME(
       "api_method_time",
       "Elapsed time for API handling.",
@@ -39,6 +45,12 @@ public enum DistributionMetric implements Metric {
       Collections.singletonList(MetricLabel.OPERATION_NAME),
       DistributionAggregation.OPERATION_TIME,
       MeasureLong.class),
+  GAUGE_COLLECTOR_TIME(
+      "gauge_collector_time",
+      "Time to get data from a single gauge data collector",
+      Collections.singletonList(MetricLabel.GAUGE_COLLECTOR),
+      DistributionAggregation.OPERATION_TIME,
+      MeasureLong.class),
   UNIFORM_RANDOM_SAMPLE(
       "random_sample_2",
       "Random values",
@@ -14,12 +14,58 @@ public enum GaugeMetric implements Metric {
   // 2. update workbench-terraform-modules with the new name
   // See https://github.com/all-of-us/workbench/wiki/Monitoring,-Alerts,-and-Dashboards for details.
 
+  ACCESS_MODULE_SYNC_USER_COUNT(
+      "access_module_sync_user_count",
+      "Number of users by outcome in the last bulk sync of each access module",
+      ImmutableList.of(MetricLabel.ACCESS_MODULE, MetricLabel.ACCESS_MODULE_SYNC_OUTCOME)),
+  ACTION_AUDIT_DROPPED_COUNT(
+      "action_audit_dropped_count",
+      "Number of action audit log entries since startup which neither the GCS spool nor Cloud"
+          + " Logging would take"),
+  ACTION_AUDIT_QUEUE_DEPTH(
+      "action_audit_queue_depth",
+      "Number of action audit log entries waiting in memory to be written to Cloud Logging"),
+  ACTION_AUDIT_SPOOLED_COUNT(
+      "action_audit_spooled_count",
+      "Number of action audit log entries spooled to GCS since startup"),
   BILLING_BUFFER_PROJECT_COUNT(
       "billing_buffer_project_count_3",
       "Number of projects in the billing buffer for each status/tier pair",
       ImmutableList.of(MetricLabel.BUFFER_ENTRY_STATUS, MetricLabel.ACCESS_TIER_SHORT_NAME)),
+  CACHE_EVICTION_COUNT(
+      "cache_eviction_count",
+      "Cumulative number of entries evicted from an in-memory cache",
+      ImmutableList.of(MetricLabel.CACHE_NAME)),
+  CACHE_HIT_COUNT(
+      "cache_hit_count",
+      "Cumulative number of lookups served by an in-memory cache",
+      ImmutableList.of(MetricLabel.CACHE_NAME)),
+  CACHE_MISS_COUNT(
+      "cache_miss_count",
+      "Cumulative number of lookups that missed an in-memory cache",
+      ImmutableList.of(MetricLabel.CACHE_NAME)),
+  CACHE_SIZE(
+      "cache_size",
+      "Number of entries currently held by an in-memory cache",
+      ImmutableList.of(MetricLabel.CACHE_NAME)),
   COHORT_COUNT("cohort_count_2", "Count of all cohorts in existence"),
+  COHORT_ELASTIC_SHADOW_COMPARISON_COUNT(
+      "cohort_elastic_shadow_comparison_count",
+      "Cumulative number of sampled Elasticsearch cohort counts checked against BigQuery",
+      ImmutableList.of(MetricLabel.OPERATION_NAME, MetricLabel.ELASTIC_SHADOW_RESULT)),
   COHORT_REVIEW_COUNT("cohort_review_count_2", "Total number of cohort reviews in existence"),
+  CRITERIA_HIERARCHY_INDEX_BYTES(
+      "criteria_hierarchy_index_bytes",
+      "Estimated heap held by the in-memory criteria hierarchy indexes",
+      Collections.emptyList(),
+      UnitOfMeasure.BYTE,
+      MeasureLong.class),
+  CRITERIA_SEARCH_INDEX_BYTES(
+      "criteria_search_index_bytes",
+      "Estimated heap held by the in-memory criteria search indexes",
+      Collections.emptyList(),
+      UnitOfMeasure.BYTE,
+      MeasureLong.class),
   DATASET_COUNT(
       "dataset_count_2",
       "Count of all datasets in existence",
@@ -28,6 +74,16 @@ public enum GaugeMetric implements Metric {
       "gsuite_user_count",
       "Number of users in GSuite Directory.",
       ImmutableList.of(MetricLabel.GSUITE_DOMAIN)),
+  METRICS_LOG_DROPPED_COUNT(
+      "metrics_log_dropped_count",
+      "Cumulative number of logs-based metric entries dropped before reaching Cloud Logging"),
+  METRICS_LOG_QUEUE_DEPTH(
+      "metrics_log_queue_depth",
+      "Number of logs-based metric entries waiting to be written to Cloud Logging"),
+  REPORTING_UPLOAD_ROWS_PER_SECOND(
+      "reporting_upload_rows_per_second",
+      "Rows per second streamed into each reporting table by the last snapshot upload",
+      ImmutableList.of(MetricLabel.TABLE_NAME)),
   USER_COUNT(
       "user_count_3",
       "total number of users",
@@ -7,6 +7,7 @@ package org.pmiops.workbench.monitoring.views;
  * @return canonical string for unit
  */
 public enum UnitOfMeasure {
+  BYTE("By"),
   COUNT("1"),
   MILLISECOND("ms");
 
@@ -0,0 +1,124 @@
+package org.pmiops.workbench.notebooks;
+
+import com.google.cloud.storage.Blob;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.ImmutableList;
+import com.google.common.util.concurrent.Striped;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import javax.inject.Provider;
+import org.pmiops.workbench.config.WorkbenchConfig;
+import org.pmiops.workbench.google.CloudStorageClient;
+import org.pmiops.workbench.monitoring.CacheStatsBundles;
+import org.pmiops.workbench.monitoring.GaugeDataCollector;
+import org.pmiops.workbench.monitoring.MeasurementBundle;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+/**
+ * Lists the notebook files in the notebooks directory of workspace buckets, reading every page of
+ * results. Subdirectories, and the data files researchers keep in them, are not listed.
+ *
+ * <p>Listings are cached per bucket for a short while. Changes made through the API invalidate the
+ * bucket's listing and bump its generation; a listing read while its bucket's generation changed is
+ * returned but never cached, so a change is never hidden by a listing that raced with it.
+ *
+ * <p>The cache and its invalidation are local to each server instance. A change made through the
+ * API is visible at once on the instance that made it, but other instances may keep returning
+ * their cached listing of the bucket for up to {@link #LISTING_EXPIRY_SECONDS} seconds. The same
+ * bound applies to changes Jupyter makes to the bucket directly.
+ */
+@Service
+public class NotebookMetadataService implements GaugeDataCollector {
+
+  private static final String CACHE_NAME = "notebook_listing";
+  private static final long MAX_BUCKETS = 1000;
+  @VisibleForTesting static final long LISTING_EXPIRY_SECONDS = 30;
+  // Generations only need to outlive the listings read while they were current.
+  private static final long GENERATION_EXPIRY_HOURS = 1;
+
+  private final CloudStorageClient cloudStorageClient;
+  private final Provider<WorkbenchConfig> workbenchConfigProvider;
+
+  private final Cache<String, List<Blob>> listings =
+      CacheBuilder.newBuilder()
+          .maximumSize(MAX_BUCKETS)
+          .expireAfterWrite(LISTING_EXPIRY_SECONDS, TimeUnit.SECONDS)
+          .recordStats()
+          .build();
+  private final Cache<String, Long> generations =
+      CacheBuilder.newBuilder().expireAfterAccess(GENERATION_EXPIRY_HOURS, TimeUnit.HOURS).build();
+  private final Striped<Lock> bucketLocks = Striped.lock(64);
+
+  @Autowired
+  public NotebookMetadataService(
+      CloudStorageClient cloudStorageClient, Provider<WorkbenchConfig> workbenchConfigProvider) {
+    this.cloudStorageClient = cloudStorageClient;
+    this.workbenchConfigProvider = workbenchConfigProvider;
+  }
+
+  /** Returns every notebook file directly in the notebooks directory of the bucket. */
+  public List<Blob> getNotebookDirectoryBlobs(String bucketName) {
+    if (!isCacheEnabled()) {
+      return listNotebookDirectory(bucketName);
+    }
+    List<Blob> blobs = listings.getIfPresent(bucketName);
+    if (blobs != null) {
+      return blobs;
+    }
+
+    final long generation = getGeneration(bucketName);
+    blobs = listNotebookDirectory(bucketName);
+    final Lock lock = bucketLocks.get(bucketName);
+    lock.lock();
+    try {
+      if (getGeneration(bucketName) == generation) {
+        listings.put(bucketName, blobs);
+      }
+    } finally {
+      lock.unlock();
+    }
+    return blobs;
+  }
+
+  /**
+   * Forgets the bucket's listing on this instance; call this after changing the bucket's notebooks.
+   */
+  public void invalidate(String bucketName) {
+    final Lock lock = bucketLocks.get(bucketName);
+    lock.lock();
+    try {
+      generations.put(bucketName, getGeneration(bucketName) + 1);
+      listings.invalidate(bucketName);
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public Collection<MeasurementBundle> getGaugeData() {
+    return Collections.singleton(CacheStatsBundles.fromCache(CACHE_NAME, listings));
+  }
+
+  private List<Blob> listNotebookDirectory(String bucketName) {
+    return cloudStorageClient
+        .getBlobsInDirectory(bucketName, NotebooksService.NOTEBOOKS_WORKSPACE_DIRECTORY)
+        .stream()
+        .filter(blob -> blob.getName().toLowerCase().endsWith(NotebooksService.NOTEBOOK_EXTENSION))
+        .collect(ImmutableList.toImmutableList());
+  }
+
+  private long getGeneration(String bucketName) {
+    return Optional.ofNullable(generations.getIfPresent(bucketName)).orElse(0L);
+  }
+
+  private boolean isCacheEnabled() {
+    return workbenchConfigProvider.get().featureFlags.enableNotebookListingCache;
+  }
+}
@@ -78,6 +78,7 @@ public class NotebooksServiceImpl implements NotebooksService {
   private final Clock clock;
   private final CloudStorageClient cloudStorageClient;
   private final FireCloudService fireCloudService;
+  private final NotebookMetadataService notebookMetadataService;
   private final Provider<DbUser> userProvider;
   private final UserRecentResourceService userRecentResourceService;
   private final WorkspaceDao workspaceDao;
@@ -89,6 +90,7 @@ public class NotebooksServiceImpl implements NotebooksService {
       Clock clock,
       CloudStorageClient cloudStorageClient,
       FireCloudService fireCloudService,
+      NotebookMetadataService notebookMetadataService,
       Provider<DbUser> userProvider,
       UserRecentResourceService userRecentResourceService,
       WorkspaceDao workspaceDao,
@@ -97,6 +99,7 @@ public class NotebooksServiceImpl implements NotebooksService {
     this.clock = clock;
     this.cloudStorageClient = cloudStorageClient;
     this.fireCloudService = fireCloudService;
+    this.notebookMetadataService = notebookMetadataService;
     this.userProvider = userProvider;
     this.userRecentResourceService = userRecentResourceService;
     this.workspaceDao = workspaceDao;
@@ -104,7 +107,6 @@ public class NotebooksServiceImpl implements NotebooksService {
     this.logsBasedMetricService = logsBasedMetricService;
   }
 
-  // NOTE: may be an undercount since we only retrieve the first Page of Storage List results
   @Override
   public List<FileDetail> getNotebooks(String workspaceNamespace, String workspaceName) {
     String bucketName =
@@ -115,11 +117,9 @@ public class NotebooksServiceImpl implements NotebooksService {
     return getNotebooksAsService(bucketName);
   }
 
-  // NOTE: may be an undercount since we only retrieve the first Page of Storage List results
   @Override
   public List<FileDetail> getNotebooksAsService(String bucketName) {
-    return cloudStorageClient.getBlobPageForPrefix(bucketName, NOTEBOOKS_WORKSPACE_DIRECTORY)
-        .stream()
+    return notebookMetadataService.getNotebookDirectoryBlobs(bucketName).stream()
         .filter(this::isNotebookBlob)
         .map(blob -> cloudStorageClient.blobToFileDetail(blob, bucketName))
         .collect(Collectors.toList());
@@ -171,6 +171,7 @@ public class NotebooksServiceImpl implements NotebooksService {
       throw new BlobAlreadyExistsException();
     }
     cloudStorageClient.copyBlob(fromNotebookLocators.blobId, newNotebookLocators.blobId);
+    notebookMetadataService.invalidate(newNotebookLocators.blobId.getBucket());
 
     FileDetail fileDetail = new FileDetail();
     fileDetail.setName(newNotebookName);
@@ -204,6 +205,7 @@ public class NotebooksServiceImpl implements NotebooksService {
     GoogleCloudLocators notebookLocators =
         getNotebookLocators(workspaceNamespace, workspaceName, notebookName);
     cloudStorageClient.deleteBlob(notebookLocators.blobId);
+    notebookMetadataService.invalidate(notebookLocators.blobId.getBucket());
     userRecentResourceService.deleteNotebookEntry(
         workspaceDao.getRequired(workspaceNamespace, workspaceName).getWorkspaceId(),
         userProvider.get().getUserId(),
@@ -284,6 +286,7 @@ public class NotebooksServiceImpl implements NotebooksService {
         bucketName,
         "notebooks/" + NotebooksService.withNotebookExtension(notebookName),
         notebookContents.toString().getBytes(StandardCharsets.UTF_8));
+    notebookMetadataService.invalidate(bucketName);
     logsBasedMetricService.recordEvent(EventMetric.NOTEBOOK_SAVE);
   }
 
@@ -1,15 +1,26 @@
 package org.pmiops.workbench.reporting;
 
 import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Stopwatch;
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
+import java.util.Collection;
+import java.util.Map;
 import java.util.Set;
 import java.util.logging.Logger;
+import java.util.stream.Collectors;
 import javax.inject.Provider;
 import org.pmiops.workbench.config.WorkbenchConfig;
 import org.pmiops.workbench.db.jdbc.ReportingQueryService;
 import org.pmiops.workbench.model.ReportingSnapshot;
+import org.pmiops.workbench.monitoring.GaugeDataCollector;
+import org.pmiops.workbench.monitoring.MeasurementBundle;
+import org.pmiops.workbench.monitoring.labels.MetricLabel;
+import org.pmiops.workbench.monitoring.views.GaugeMetric;
+import org.pmiops.workbench.reporting.ReportingUploadPipeline.TableUploadStats;
 import org.pmiops.workbench.reporting.insertion.UserColumnValueExtractor;
 import org.pmiops.workbench.reporting.insertion.WorkspaceColumnValueExtractor;
+import org.pmiops.workbench.utils.LogFormatters;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -20,9 +31,13 @@ import org.springframework.transaction.annotation.Transactional;
  *
  * <p>For tables that are extremely large, we obtain them on smaller batches. The current tables
  * are: Workspace. TODO(RW-6145): Support more tables(e.g. User) as we need.
+ *
+ * <p>When reporting.uploadThreads is above 1, uploads run through a {@link
+ * ReportingUploadPipeline}: MySQL is still read on the request thread, inside the transaction,
+ * while the BigQuery inserts for all tables run concurrently on the pipeline's threads.
  */
 @Service
-public class ReportingServiceImpl implements ReportingService {
+public class ReportingServiceImpl implements ReportingService, GaugeDataCollector {
   private static final Logger logger = Logger.getLogger(ReportingServiceImpl.class.getName());
 
   private final ReportingSnapshotService reportingSnapshotService;
@@ -30,6 +45,10 @@ public class ReportingServiceImpl implements ReportingService {
   private final ReportingUploadService reportingUploadService;
   private final Provider<WorkbenchConfig> workbenchConfigProvider;
   private final ReportingVerificationService reportingVerificationService;
+  private final Provider<Stopwatch> stopwatchProvider;
+
+  // Rows per second for each table in the most recent pipelined upload on this instance.
+  private volatile Map<String, Long> lastUploadRowsPerSecond = ImmutableMap.of();
 
   @VisibleForTesting
   static final Set<String> BATCH_UPLOADED_TABLES =
@@ -41,18 +60,26 @@ public class ReportingServiceImpl implements ReportingService {
       ReportingUploadService reportingUploadService,
       ReportingSnapshotService reportingSnapshotService,
       Provider<WorkbenchConfig> workbenchConfigProvider,
-      ReportingVerificationService reportingVerificationService) {
+      ReportingVerificationService reportingVerificationService,
+      Provider<Stopwatch> stopwatchProvider) {
     this.reportingQueryService = reportingQueryService;
     this.reportingUploadService = reportingUploadService;
     this.workbenchConfigProvider = workbenchConfigProvider;
     this.reportingSnapshotService = reportingSnapshotService;
     this.reportingVerificationService = reportingVerificationService;
+    this.stopwatchProvider = stopwatchProvider;
   }
 
   /** Loads data from data source (MySql only for now), then uploads them. */
   @Transactional
   @Override
   public void collectRecordsAndUpload() {
+    final Integer uploadThreads = workbenchConfigProvider.get().reporting.uploadThreads;
+    if (uploadThreads != null && uploadThreads > 1) {
+      collectRecordsAndUploadPipelined(uploadThreads);
+      return;
+    }
+
     // First: Obtain the snapshot data.
     final ReportingSnapshot snapshot = reportingSnapshotService.takeSnapshot();
     final long captureTimestamp = snapshot.getCaptureTimestamp();
@@ -66,7 +93,60 @@ public class ReportingServiceImpl implements ReportingService {
         .getUserStream()
         .forEach(b -> reportingUploadService.uploadBatchUser(b, captureTimestamp));
 
-    // Third: Verify the count.
+    verifyAndMarkSnapshot(captureTimestamp, snapshotUploadSuccess);
+  }
+
+  /**
+   * Same steps as the serial upload, but each request is handed to the pipeline as soon as it is
+   * built, so the next MySQL batch is read while earlier batches are still being inserted.
+   */
+  private void collectRecordsAndUploadPipelined(int uploadThreads) {
+    final ReportingSnapshot snapshot;
+    final Map<String, TableUploadStats> statsByTable;
+    try (ReportingUploadPipeline pipeline =
+        new ReportingUploadPipeline(
+            uploadThreads, reportingUploadService::uploadRequest, stopwatchProvider.get())) {
+      snapshot = reportingSnapshotService.takeSnapshot();
+      final long captureTimestamp = snapshot.getCaptureTimestamp();
+      reportingUploadService.buildSnapshotRequests(snapshot).forEach(pipeline::submit);
+      reportingQueryService
+          .getWorkspacesStream()
+          .map(b -> reportingUploadService.buildWorkspaceBatchRequest(b, captureTimestamp))
+          .forEach(pipeline::submit);
+      reportingQueryService
+          .getUserStream()
+          .map(b -> reportingUploadService.buildUserBatchRequest(b, captureTimestamp))
+          .forEach(pipeline::submit);
+      statsByTable = pipeline.awaitCompletion();
+    }
+    logThroughput(statsByTable);
+
+    boolean snapshotUploadSuccess = reportingVerificationService.verifyAndLog(snapshot);
+    verifyAndMarkSnapshot(snapshot.getCaptureTimestamp(), snapshotUploadSuccess);
+  }
+
+  private void logThroughput(Map<String, TableUploadStats> statsByTable) {
+    final StringBuilder performanceStringBuilder = new StringBuilder();
+    statsByTable.forEach(
+        (tableName, stats) ->
+            performanceStringBuilder
+                .append(
+                    LogFormatters.rate(
+                        String.format("Pipelined upload into %s table", tableName),
+                        stats.getElapsed(),
+                        stats.getRowCount(),
+                        "rows"))
+                .append("\n"));
+    logger.info(performanceStringBuilder.toString());
+    lastUploadRowsPerSecond =
+        statsByTable.entrySet().stream()
+            .collect(
+                ImmutableMap.toImmutableMap(
+                    Map.Entry::getKey, e -> e.getValue().getRowsPerSecond()));
+  }
+
+  private void verifyAndMarkSnapshot(long captureTimestamp, boolean snapshotUploadSuccess) {
+    // Verify the count.
     boolean batchUploadSuccess =
         reportingVerificationService.verifyBatchesAndLog(BATCH_UPLOADED_TABLES, captureTimestamp);
 
@@ -80,4 +160,17 @@ public class ReportingServiceImpl implements ReportingService {
               snapshotUploadSuccess, batchUploadSuccess));
     }
   }
+
+  /** Reports the per-table throughput of the last pipelined upload run on this instance. */
+  @Override
+  public Collection<MeasurementBundle> getGaugeData() {
+    return lastUploadRowsPerSecond.entrySet().stream()
+        .map(
+            e ->
+                MeasurementBundle.builder()
+                    .addMeasurement(GaugeMetric.REPORTING_UPLOAD_ROWS_PER_SECOND, e.getValue())
+                    .addTag(MetricLabel.TABLE_NAME, e.getKey())
+                    .build())
+        .collect(Collectors.toList());
+  }
 }
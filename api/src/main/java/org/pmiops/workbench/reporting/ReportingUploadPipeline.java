@@ -0,0 +1,130 @@
+package org.pmiops.workbench.reporting;
+
+import com.google.cloud.bigquery.InsertAllRequest;
+import com.google.common.base.Stopwatch;
+import com.google.common.collect.ImmutableMap;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Streams {@link InsertAllRequest}s to BigQuery on a small thread pool while the caller keeps
+ * reading the next batches from MySQL, so requests for different tables (and successive batches of
+ * the same table) are in flight at the same time.
+ *
+ * <p>The work queue is bounded. Once it is full, the submitting thread runs the upload itself,
+ * which throttles reads to the pace of the uploads and caps the batches held in memory at about
+ * twice the thread count.
+ */
+class ReportingUploadPipeline implements AutoCloseable {
+
+  private final Consumer<InsertAllRequest> uploader;
+  private final Stopwatch stopwatch;
+  private final ExecutorService pool;
+  private final List<Future<?>> uploads = new ArrayList<>();
+  private final Map<String, TableUploadStats> statsByTable = new ConcurrentHashMap<>();
+
+  /**
+   * @param threadCount number of upload threads
+   * @param uploader sends one request; called from the pool threads, so it must not depend on
+   *     request-scoped beans
+   * @param stopwatch unstarted stopwatch used to time the uploads
+   */
+  ReportingUploadPipeline(
+      int threadCount, Consumer<InsertAllRequest> uploader, Stopwatch stopwatch) {
+    this.uploader = uploader;
+    this.stopwatch = stopwatch.start();
+    this.pool =
+        new ThreadPoolExecutor(
+            threadCount,
+            threadCount,
+            0L,
+            TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(threadCount, /* fair */ true),
+            new ThreadPoolExecutor.CallerRunsPolicy());
+  }
+
+  /** Queues the request for upload, or uploads it on the calling thread if the queue is full. */
+  void submit(InsertAllRequest request) {
+    final String tableName = request.getTable().getTable();
+    uploads.add(
+        pool.submit(
+            () -> {
+              final Duration start = stopwatch.elapsed();
+              uploader.accept(request);
+              statsByTable
+                  .computeIfAbsent(tableName, unused -> new TableUploadStats())
+                  .record(start, stopwatch.elapsed(), request.getRows().size());
+            }));
+  }
+
+  /**
+   * Waits for every submitted upload to finish, rethrowing the first failure, and returns the
+   * throughput of each table that was uploaded.
+   */
+  Map<String, TableUploadStats> awaitCompletion() {
+    try {
+      for (Future<?> upload : uploads) {
+        upload.get();
+      }
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) e.getCause();
+      }
+      throw new RuntimeException(e.getCause());
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new RuntimeException("Interrupted while waiting for reporting uploads", e);
+    }
+    return ImmutableMap.copyOf(statsByTable);
+  }
+
+  /** Abandons any uploads still queued, e.g. after a failure. */
+  @Override
+  public void close() {
+    pool.shutdownNow();
+  }
+
+  /**
+   * Rows uploaded to one table, and the wall-clock span from the start of its first request to the
+   * end of its last one. Requests overlap, so this is shorter than the sum of request times.
+   */
+  static class TableUploadStats {
+    private long rowCount;
+    private Duration firstStart;
+    private Duration lastEnd;
+
+    synchronized void record(Duration start, Duration end, int rows) {
+      rowCount += rows;
+      if (firstStart == null || start.compareTo(firstStart) < 0) {
+        firstStart = start;
+      }
+      if (lastEnd == null || end.compareTo(lastEnd) > 0) {
+        lastEnd = end;
+      }
+    }
+
+    synchronized long getRowCount() {
+      return rowCount;
+    }
+
+    synchronized Duration getElapsed() {
+      return lastEnd.minus(firstStart);
+    }
+
+    /** Rows per second, rounded down; zero when the uploads took under a millisecond. */
+    synchronized long getRowsPerSecond() {
+      final long millis = getElapsed().toMillis();
+      return millis == 0 ? 0 : 1000 * rowCount / millis;
+    }
+  }
+}
@@ -1,5 +1,6 @@
 package org.pmiops.workbench.reporting;
 
+import com.google.cloud.bigquery.InsertAllRequest;
 import java.util.List;
 import org.pmiops.workbench.model.ReportingSnapshot;
 import org.pmiops.workbench.model.ReportingUser;
@@ -19,4 +20,21 @@ public interface ReportingUploadService {
 
   /** Uploads a record into VerifiedSnapshot table if upload result is verified. */
   void uploadVerifiedSnapshot(long captureTimestamp);
+
+  /**
+   * Builds the non-empty, batched requests for every table in the snapshot, without sending them.
+   * Used with {@link #uploadRequest(InsertAllRequest)} to pipeline uploads.
+   */
+  List<InsertAllRequest> buildSnapshotRequests(ReportingSnapshot reportingSnapshot);
+
+  InsertAllRequest buildWorkspaceBatchRequest(
+      List<ReportingWorkspace> batch, long captureTimestamp);
+
+  InsertAllRequest buildUserBatchRequest(List<ReportingUser> batch, long captureTimestamp);
+
+  /**
+   * Sends one request built by this service, throwing if BigQuery reports any row errors. Doesn't
+   * read request-scoped state, so it may be called from worker threads.
+   */
+  void uploadRequest(InsertAllRequest insertAllRequest);
 }
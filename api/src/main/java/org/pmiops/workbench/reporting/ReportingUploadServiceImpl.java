@@ -115,11 +115,7 @@ public class ReportingUploadServiceImpl implements ReportingUploadService {
     final ImmutableMultimap.Builder<TableId, InsertAllResponse> responseMapBuilder =
         ImmutableMultimap.builder();
     final StringBuilder performanceStringBuilder = new StringBuilder();
-    final InsertAllRequest insertAllRequest =
-        workspaceRequestBuilder.build(
-            getTableId(WorkspaceColumnValueExtractor.class),
-            batch,
-            getFixedValues(captureTimestamp));
+    final InsertAllRequest insertAllRequest = buildWorkspaceBatchRequest(batch, captureTimestamp);
     issueInsertAllRequest(
         stopwatch, responseMapBuilder, performanceStringBuilder, insertAllRequest);
     log.info(performanceStringBuilder.toString());
@@ -135,9 +131,7 @@ public class ReportingUploadServiceImpl implements ReportingUploadService {
     final ImmutableMultimap.Builder<TableId, InsertAllResponse> responseMapBuilder =
         ImmutableMultimap.builder();
     final StringBuilder performanceStringBuilder = new StringBuilder();
-    final InsertAllRequest insertAllRequest =
-        userRequestBuilder.build(
-            getTableId(UserColumnValueExtractor.class), batch, getFixedValues(captureTimestamp));
+    final InsertAllRequest insertAllRequest = buildUserBatchRequest(batch, captureTimestamp);
     issueInsertAllRequest(
         stopwatch, responseMapBuilder, performanceStringBuilder, insertAllRequest);
     log.info(performanceStringBuilder.toString());
@@ -160,6 +154,30 @@ public class ReportingUploadServiceImpl implements ReportingUploadService {
     log.info(String.format("Verified snapshot at %d", captureTimestamp));
   }
 
+  @Override
+  public List<InsertAllRequest> buildSnapshotRequests(ReportingSnapshot reportingSnapshot) {
+    return getInsertAllRequests(reportingSnapshot);
+  }
+
+  @Override
+  public InsertAllRequest buildWorkspaceBatchRequest(
+      List<ReportingWorkspace> batch, long captureTimestamp) {
+    return workspaceRequestBuilder.build(
+        getTableId(WorkspaceColumnValueExtractor.class), batch, getFixedValues(captureTimestamp));
+  }
+
+  @Override
+  public InsertAllRequest buildUserBatchRequest(List<ReportingUser> batch, long captureTimestamp) {
+    return userRequestBuilder.build(
+        getTableId(UserColumnValueExtractor.class), batch, getFixedValues(captureTimestamp));
+  }
+
+  @Override
+  public void uploadRequest(InsertAllRequest insertAllRequest) {
+    final InsertAllResponse response = bigQueryService.insertAll(insertAllRequest);
+    checkResponse(ImmutableMultimap.of(insertAllRequest.getTable(), response));
+  }
+
   /** Issues one {@link BigQueryService#insertAll(InsertAllRequest)}, then logs the performance. */
   private void issueInsertAllRequest(
       Stopwatch stopwatch,
@@ -0,0 +1,133 @@
+package org.pmiops.workbench.utils;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import org.springframework.util.StringUtils;
+import org.springframework.web.context.request.AbstractRequestAttributes;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+
+/**
+ * The request scoped attributes of the current request, copied on the request thread so that tasks
+ * it hands to other threads can see the same request scoped beans, e.g. its configuration or the
+ * caller's credentials.
+ *
+ * <p>The request's own attributes are never handed to another thread: they are not thread safe, and
+ * are torn down when the request completes, possibly while a task is still running. Instead each
+ * task runs in a request scope of its own, seeded with this snapshot. Beans the request had not
+ * resolved when the snapshot was taken are built for the task alone, and destroyed once it ends.
+ */
+public final class RequestScopeSnapshot {
+
+  private final Map<String, Object> attributes;
+
+  private RequestScopeSnapshot(Map<String, Object> attributes) {
+    this.attributes = attributes;
+  }
+
+  /**
+   * Copies the current request's attributes. Resolve any request scoped beans the tasks need first,
+   * so that every task sees the same instance. Outside of a request the snapshot is empty.
+   */
+  public static RequestScopeSnapshot capture() {
+    final Map<String, Object> attributes = new HashMap<>();
+    final RequestAttributes request = RequestContextHolder.getRequestAttributes();
+    if (request != null) {
+      for (String name : request.getAttributeNames(RequestAttributes.SCOPE_REQUEST)) {
+        final Object value = request.getAttribute(name, RequestAttributes.SCOPE_REQUEST);
+        if (value != null) {
+          attributes.put(name, value);
+        }
+      }
+    }
+    return new RequestScopeSnapshot(attributes);
+  }
+
+  /**
+   * Wraps the task to run in a request scope of its own, seeded with this snapshot. The thread's
+   * previous attributes are restored afterwards, so the task may also run on the request thread.
+   */
+  public <T> Callable<T> wrap(Callable<T> task) {
+    return () -> {
+      final RequestAttributes previous = RequestContextHolder.getRequestAttributes();
+      final TaskRequestAttributes taskAttributes = new TaskRequestAttributes(attributes);
+      RequestContextHolder.setRequestAttributes(taskAttributes);
+      try {
+        return task.call();
+      } finally {
+        taskAttributes.requestCompleted();
+        if (previous == null) {
+          RequestContextHolder.resetRequestAttributes();
+        } else {
+          RequestContextHolder.setRequestAttributes(previous);
+        }
+      }
+    };
+  }
+
+  /** Request scoped attributes held by, and only visible to, a single task. */
+  private static class TaskRequestAttributes extends AbstractRequestAttributes {
+
+    private final Map<String, Object> attributes;
+
+    private TaskRequestAttributes(Map<String, Object> snapshot) {
+      this.attributes = new HashMap<>(snapshot);
+    }
+
+    @Override
+    public Object getAttribute(String name, int scope) {
+      checkRequestScope(scope);
+      return attributes.get(name);
+    }
+
+    @Override
+    public void setAttribute(String name, Object value, int scope) {
+      checkRequestScope(scope);
+      attributes.put(name, value);
+    }
+
+    @Override
+    public void removeAttribute(String name, int scope) {
+      checkRequestScope(scope);
+      attributes.remove(name);
+      removeRequestDestructionCallback(name);
+    }
+
+    @Override
+    public String[] getAttributeNames(int scope) {
+      checkRequestScope(scope);
+      return StringUtils.toStringArray(attributes.keySet());
+    }
+
+    @Override
+    public void registerDestructionCallback(String name, Runnable callback, int scope) {
+      checkRequestScope(scope);
+      registerRequestDestructionCallback(name, callback);
+    }
+
+    @Override
+    public Object resolveReference(String key) {
+      return null;
+    }
+
+    @Override
+    public String getSessionId() {
+      throw new IllegalStateException("Tasks off the request thread have no session");
+    }
+
+    @Override
+    public Object getSessionMutex() {
+      throw new IllegalStateException("Tasks off the request thread have no session");
+    }
+
+    @Override
+    protected void updateAccessedSessionAttributes() {}
+
+    private static void checkRequestScope(int scope) {
+      if (scope != RequestAttributes.SCOPE_REQUEST) {
+        throw new IllegalStateException("Tasks off the request thread have no session");
+      }
+    }
+  }
+}
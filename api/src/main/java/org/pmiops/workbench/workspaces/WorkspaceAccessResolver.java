@@ -0,0 +1,209 @@
+package org.pmiops.workbench.workspaces;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.annotation.PreDestroy;
+import org.pmiops.workbench.db.model.DbWorkspace;
+import org.pmiops.workbench.exceptions.ForbiddenException;
+import org.pmiops.workbench.exceptions.NotFoundException;
+import org.pmiops.workbench.firecloud.FireCloudService;
+import org.pmiops.workbench.firecloud.model.FirecloudWorkspaceResponse;
+import org.pmiops.workbench.model.WorkspaceAccessLevel;
+import org.pmiops.workbench.utils.RequestScopeSnapshot;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+/**
+ * Looks up the calling user's view of many workspaces in Terra at once, e.g. to render or prune a
+ * list of recently used workspaces. The lookups run concurrently on a small bounded pool, and the
+ * whole batch shares a deadline; a workspace whose lookup fails or does not finish in time is left
+ * unresolved rather than failing the batch.
+ */
+@Service
+public class WorkspaceAccessResolver {
+
+  private static final Logger log = Logger.getLogger(WorkspaceAccessResolver.class.getName());
+
+  private static final int LOOKUP_THREADS = 8;
+  private static final int LOOKUP_QUEUE_SIZE = 32;
+  private static final long LOOKUP_DEADLINE_MILLIS = TimeUnit.SECONDS.toMillis(10);
+
+  private final FireCloudService fireCloudService;
+  private final ExecutorService lookupExecutor;
+  private final long deadlineMillis;
+
+  /** The outcome of looking up one workspace: exactly one of the fields is set, or neither. */
+  private static class Lookup {
+    private FirecloudWorkspaceResponse response;
+    // True if Terra says the workspace does not exist or the user may not see it.
+    private boolean denied;
+  }
+
+  @Autowired
+  public WorkspaceAccessResolver(FireCloudService fireCloudService) {
+    this(
+        fireCloudService,
+        // When the queue is full the lookup is rejected, and the request thread makes the call
+        // itself once the others are submitted (see lookUp).
+        new ThreadPoolExecutor(
+            LOOKUP_THREADS,
+            LOOKUP_THREADS,
+            0L,
+            TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(LOOKUP_QUEUE_SIZE),
+            new ThreadFactoryBuilder()
+                .setNameFormat("workspace-access-lookup-%d")
+                .setDaemon(true)
+                .build(),
+            new ThreadPoolExecutor.AbortPolicy()),
+        LOOKUP_DEADLINE_MILLIS);
+  }
+
+  @VisibleForTesting
+  public WorkspaceAccessResolver(
+      FireCloudService fireCloudService, ExecutorService lookupExecutor, long deadlineMillis) {
+    this.fireCloudService = fireCloudService;
+    this.lookupExecutor = lookupExecutor;
+    this.deadlineMillis = deadlineMillis;
+  }
+
+  @PreDestroy
+  void shutdown() {
+    lookupExecutor.shutdownNow();
+  }
+
+  /**
+   * Returns the Terra workspace response for each of the given workspaces the user can see, keyed
+   * by workspace ID. Workspaces which are inaccessible, or whose lookup failed, are omitted.
+   */
+  public Map<Long, FirecloudWorkspaceResponse> getWorkspaces(Collection<DbWorkspace> workspaces) {
+    final ImmutableMap.Builder<Long, FirecloudWorkspaceResponse> responses =
+        ImmutableMap.builder();
+    lookUp(workspaces)
+        .forEach(
+            (workspaceId, lookup) -> {
+              if (lookup.response != null) {
+                responses.put(workspaceId, lookup.response);
+              }
+            });
+    return responses.build();
+  }
+
+  /**
+   * Returns the IDs of those given workspaces which the user definitely cannot access at the
+   * required level: Terra reported them as forbidden or missing, or granted a lower access level.
+   * Workspaces whose lookup failed or timed out are not included, so callers may safely forget
+   * everything this returns.
+   */
+  public Set<Long> findInaccessibleWorkspaceIds(
+      Collection<DbWorkspace> workspaces, WorkspaceAccessLevel requiredAccess) {
+    final ImmutableSet.Builder<Long> inaccessible = ImmutableSet.builder();
+    lookUp(workspaces)
+        .forEach(
+            (workspaceId, lookup) -> {
+              if (lookup.denied) {
+                inaccessible.add(workspaceId);
+              } else if (lookup.response != null) {
+                try {
+                  WorkspaceAccessLevel access =
+                      WorkspaceAuthService.toWorkspaceAccessLevel(
+                          lookup.response.getAccessLevel());
+                  if (requiredAccess.compareTo(access) > 0) {
+                    inaccessible.add(workspaceId);
+                  }
+                } catch (IllegalArgumentException e) {
+                  log.log(
+                      Level.WARNING, "Could not determine access to workspace " + workspaceId, e);
+                }
+              }
+            });
+    return inaccessible.build();
+  }
+
+  private Map<Long, Lookup> lookUp(Collection<DbWorkspace> workspaces) {
+    final long deadline = System.currentTimeMillis() + deadlineMillis;
+    // Terra calls are made with the calling user's credentials, which live in request scope.
+    final RequestScopeSnapshot requestScope = RequestScopeSnapshot.capture();
+
+    final Map<Long, Lookup> lookups = new LinkedHashMap<>();
+    final Map<Long, Future<FirecloudWorkspaceResponse>> futures = new LinkedHashMap<>();
+    final List<DbWorkspace> rejected = new ArrayList<>();
+    for (DbWorkspace workspace : workspaces) {
+      lookups.put(workspace.getWorkspaceId(), new Lookup());
+      try {
+        futures.put(
+            workspace.getWorkspaceId(),
+            lookupExecutor.submit(
+                requestScope.wrap(
+                    () ->
+                        fireCloudService.getWorkspace(
+                            workspace.getWorkspaceNamespace(), workspace.getFirecloudName()))));
+      } catch (RejectedExecutionException e) {
+        rejected.add(workspace);
+      }
+    }
+
+    // While the pool is saturated, the rest are looked up one at a time on this thread, alongside
+    // the pooled lookups, until the deadline has passed.
+    for (DbWorkspace workspace : rejected) {
+      final Long workspaceId = workspace.getWorkspaceId();
+      if (System.currentTimeMillis() >= deadline) {
+        log.warning(String.format("Timed out looking up workspace %d", workspaceId));
+        continue;
+      }
+      try {
+        lookups.get(workspaceId).response =
+            fireCloudService.getWorkspace(
+                workspace.getWorkspaceNamespace(), workspace.getFirecloudName());
+      } catch (RuntimeException e) {
+        recordFailure(workspaceId, lookups.get(workspaceId), e);
+      }
+    }
+
+    for (Map.Entry<Long, Future<FirecloudWorkspaceResponse>> entry : futures.entrySet()) {
+      final Long workspaceId = entry.getKey();
+      final Future<FirecloudWorkspaceResponse> future = entry.getValue();
+      final Lookup lookup = lookups.get(workspaceId);
+      try {
+        lookup.response =
+            future.get(Math.max(0, deadline - System.currentTimeMillis()), TimeUnit.MILLISECONDS);
+      } catch (ExecutionException e) {
+        recordFailure(workspaceId, lookup, e.getCause());
+      } catch (TimeoutException e) {
+        future.cancel(true);
+        log.warning(String.format("Timed out looking up workspace %d", workspaceId));
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        futures.values().forEach(f -> f.cancel(true));
+        break;
+      }
+    }
+    return lookups;
+  }
+
+  private static void recordFailure(Long workspaceId, Lookup lookup, Throwable failure) {
+    if (failure instanceof ForbiddenException || failure instanceof NotFoundException) {
+      lookup.denied = true;
+    } else {
+      log.log(Level.WARNING, "Failed to look up workspace " + workspaceId, failure);
+    }
+  }
+}
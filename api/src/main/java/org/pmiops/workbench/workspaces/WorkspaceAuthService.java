@@ -1,17 +1,27 @@
 package org.pmiops.workbench.workspaces;
 
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.google.common.collect.Sets;
 import com.google.gson.Gson;
 import com.google.gson.reflect.TypeToken;
 import java.lang.reflect.Type;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Logger;
+import javax.inject.Provider;
 import org.pmiops.workbench.cdr.CdrVersionContext;
+import org.pmiops.workbench.config.WorkbenchConfig;
 import org.pmiops.workbench.db.dao.WorkspaceDao;
+import org.pmiops.workbench.db.model.DbUser;
 import org.pmiops.workbench.db.model.DbWorkspace;
 import org.pmiops.workbench.exceptions.BadRequestException;
 import org.pmiops.workbench.exceptions.ForbiddenException;
@@ -24,19 +34,70 @@ import org.pmiops.workbench.firecloud.model.FirecloudWorkspaceACLUpdateResponseL
 import org.pmiops.workbench.firecloud.model.FirecloudWorkspaceAccessEntry;
 import org.pmiops.workbench.model.BillingStatus;
 import org.pmiops.workbench.model.WorkspaceAccessLevel;
+import org.pmiops.workbench.monitoring.CacheStatsBundles;
+import org.pmiops.workbench.monitoring.GaugeDataCollector;
+import org.pmiops.workbench.monitoring.MeasurementBundle;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 @Service
-public class WorkspaceAuthService {
+public class WorkspaceAuthService implements GaugeDataCollector {
 
   private static final Logger log = Logger.getLogger(WorkspaceAuthService.class.getName());
 
   public static final String PROJECT_OWNER_ACCESS_LEVEL = "PROJECT_OWNER";
   private static final String FC_OWNER_ROLE = "OWNER";
 
+  private static final String ACCESS_CACHE_NAME = "workspace_access_level";
+  private static final long ACCESS_CACHE_MAX_ENTRIES = 10000;
+  // Terra remains the source of truth for workspace access. Entries are dropped when an ACL is
+  // changed through this instance; the expiry bounds how long a change made anywhere else (another
+  // instance, or Terra directly) can go unnoticed.
+  @VisibleForTesting static final long ACCESS_CACHE_EXPIRY_SECONDS = 30;
+
   @Autowired private WorkspaceDao workspaceDao;
   @Autowired private FireCloudService fireCloudService;
+  @Autowired private Provider<DbUser> userProvider;
+  @Autowired private Provider<WorkbenchConfig> workbenchConfigProvider;
+
+  /** A user's access to one workspace. */
+  private static final class AccessKey {
+    private final String username;
+    private final String workspaceNamespace;
+    private final String firecloudName;
+
+    private AccessKey(String username, String workspaceNamespace, String firecloudName) {
+      this.username = username;
+      this.workspaceNamespace = workspaceNamespace;
+      this.firecloudName = firecloudName;
+    }
+
+    private boolean isFor(String workspaceNamespace, String firecloudName) {
+      return this.workspaceNamespace.equals(workspaceNamespace)
+          && this.firecloudName.equals(firecloudName);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (!(o instanceof AccessKey)) {
+        return false;
+      }
+      AccessKey that = (AccessKey) o;
+      return username.equals(that.username) && isFor(that.workspaceNamespace, that.firecloudName);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(username, workspaceNamespace, firecloudName);
+    }
+  }
+
+  private final Cache<AccessKey, WorkspaceAccessLevel> accessLevelCache =
+      CacheBuilder.newBuilder()
+          .maximumSize(ACCESS_CACHE_MAX_ENTRIES)
+          .expireAfterWrite(ACCESS_CACHE_EXPIRY_SECONDS, TimeUnit.SECONDS)
+          .recordStats()
+          .build();
 
   /*
    * This function will check the workspace's billing status and throw a ForbiddenException
@@ -56,10 +117,63 @@ public class WorkspaceAuthService {
     }
   }
 
+  /**
+   * Returns the current user's access level to the workspace. When the workspace access cache is
+   * enabled, this may be up to {@link #ACCESS_CACHE_EXPIRY_SECONDS} seconds stale.
+   */
   public WorkspaceAccessLevel getWorkspaceAccessLevel(String workspaceNamespace, String workspaceId)
       throws IllegalArgumentException {
-    String userAccess =
-        fireCloudService.getWorkspace(workspaceNamespace, workspaceId).getAccessLevel();
+    if (!workbenchConfigProvider.get().featureFlags.enableWorkspaceAccessCache) {
+      return fetchWorkspaceAccessLevel(workspaceNamespace, workspaceId);
+    }
+    final WorkspaceAccessLevel cached =
+        accessLevelCache.getIfPresent(accessKey(workspaceNamespace, workspaceId));
+    if (cached != null) {
+      return cached;
+    }
+    return fetchWorkspaceAccessLevel(workspaceNamespace, workspaceId);
+  }
+
+  /** Like {@link #getWorkspaceAccessLevel}, but always asks Terra. */
+  private WorkspaceAccessLevel fetchWorkspaceAccessLevel(
+      String workspaceNamespace, String workspaceId) {
+    final WorkspaceAccessLevel access =
+        toWorkspaceAccessLevel(
+            fireCloudService.getWorkspace(workspaceNamespace, workspaceId).getAccessLevel());
+    cacheWorkspaceAccessLevel(workspaceNamespace, workspaceId, access);
+    return access;
+  }
+
+  /**
+   * Remembers the current user's access level to the workspace, as just reported by Terra to a
+   * caller which needed more than the access level. A lack of access is not remembered, so that
+   * access granted by someone else takes effect at once rather than once the cache expires.
+   */
+  public void cacheWorkspaceAccessLevel(
+      String workspaceNamespace, String workspaceId, WorkspaceAccessLevel access) {
+    if (workbenchConfigProvider.get().featureFlags.enableWorkspaceAccessCache
+        && access != WorkspaceAccessLevel.NO_ACCESS) {
+      accessLevelCache.put(accessKey(workspaceNamespace, workspaceId), access);
+    }
+  }
+
+  /** Forgets every user's cached access to the workspace, e.g. once its ACL has changed. */
+  public void invalidateCachedAccessLevels(String workspaceNamespace, String workspaceId) {
+    accessLevelCache.asMap().keySet().removeIf(key -> key.isFor(workspaceNamespace, workspaceId));
+  }
+
+  @VisibleForTesting
+  public void invalidateAllCachedAccessLevels() {
+    accessLevelCache.invalidateAll();
+  }
+
+  private AccessKey accessKey(String workspaceNamespace, String workspaceId) {
+    return new AccessKey(userProvider.get().getUsername(), workspaceNamespace, workspaceId);
+  }
+
+  /** Converts an access level reported by Terra into the Workbench's access level. */
+  public static WorkspaceAccessLevel toWorkspaceAccessLevel(String userAccess)
+      throws IllegalArgumentException {
     if (PROJECT_OWNER_ACCESS_LEVEL.equals(userAccess)) {
       return WorkspaceAccessLevel.OWNER;
     }
@@ -78,6 +192,30 @@ public class WorkspaceAuthService {
     } catch (IllegalArgumentException e) {
       throw new ServerErrorException(e);
     }
+    return enforceWorkspaceAccessLevel(workspaceNamespace, workspaceId, requiredAccess, access);
+  }
+
+  /**
+   * Like {@link #enforceWorkspaceAccessLevel(String, String, WorkspaceAccessLevel)}, but always
+   * checks with Terra rather than trusting a cached access level. For sensitive writes, e.g.
+   * changes to the workspace itself.
+   */
+  public WorkspaceAccessLevel enforceWorkspaceAccessLevelStrict(
+      String workspaceNamespace, String workspaceId, WorkspaceAccessLevel requiredAccess) {
+    final WorkspaceAccessLevel access;
+    try {
+      access = fetchWorkspaceAccessLevel(workspaceNamespace, workspaceId);
+    } catch (IllegalArgumentException e) {
+      throw new ServerErrorException(e);
+    }
+    return enforceWorkspaceAccessLevel(workspaceNamespace, workspaceId, requiredAccess, access);
+  }
+
+  private WorkspaceAccessLevel enforceWorkspaceAccessLevel(
+      String workspaceNamespace,
+      String workspaceId,
+      WorkspaceAccessLevel requiredAccess,
+      WorkspaceAccessLevel access) {
     if (requiredAccess.compareTo(access) > 0) {
       throw new ForbiddenException(
           String.format(
@@ -185,6 +323,7 @@ public class WorkspaceAuthService {
     FirecloudWorkspaceACLUpdateResponseList fireCloudResponse =
         fireCloudService.updateWorkspaceACL(
             workspace.getWorkspaceNamespace(), workspace.getFirecloudName(), updateACLRequestList);
+    invalidateCachedAccessLevels(workspace.getWorkspaceNamespace(), workspace.getFirecloudName());
     if (fireCloudResponse.getUsersNotFound().size() != 0) {
       String usersNotFound = "";
       for (int i = 0; i < fireCloudResponse.getUsersNotFound().size(); i++) {
@@ -224,4 +363,9 @@ public class WorkspaceAuthService {
 
     return workspaceDao.saveWithLastModified(workspace);
   }
+
+  @Override
+  public Collection<MeasurementBundle> getGaugeData() {
+    return Collections.singleton(CacheStatsBundles.fromCache(ACCESS_CACHE_NAME, accessLevelCache));
+  }
 }
@@ -1,10 +1,14 @@
 package org.pmiops.workbench.workspaces;
 
 import java.util.List;
+import javax.annotation.Nullable;
 import org.pmiops.workbench.db.model.DbUserRecentWorkspace;
 import org.pmiops.workbench.db.model.DbWorkspace;
 import org.pmiops.workbench.model.UserRole;
+import org.pmiops.workbench.model.WorkspaceAccessLevel;
 import org.pmiops.workbench.model.WorkspaceResponse;
+import org.pmiops.workbench.model.WorkspaceResponsePage;
+import org.springframework.data.domain.Sort;
 
 /*
  * WorkspaceService is primarily an interface for coordinating the three Workspace models.
@@ -28,6 +32,19 @@ public interface WorkspaceService {
 
   List<WorkspaceResponse> getPublishedWorkspaces();
 
+  /*
+   * Returns one page of the user's workspaces, filtered and sorted by the given column. Without a
+   * published filter, this pages through the same workspaces as getWorkspaces().
+   */
+  WorkspaceResponsePage getWorkspacesPage(
+      @Nullable String pageToken,
+      int pageSize,
+      String sortColumn,
+      Sort.Direction sortDirection,
+      @Nullable WorkspaceAccessLevel accessLevel,
+      @Nullable Boolean published,
+      @Nullable Long cdrVersionId);
+
   void deleteWorkspace(DbWorkspace dbWorkspace);
 
   /*
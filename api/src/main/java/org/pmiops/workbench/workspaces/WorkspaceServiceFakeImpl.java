@@ -4,7 +4,10 @@ import java.util.List;
 import org.pmiops.workbench.db.model.DbUserRecentWorkspace;
 import org.pmiops.workbench.db.model.DbWorkspace;
 import org.pmiops.workbench.model.UserRole;
+import org.pmiops.workbench.model.WorkspaceAccessLevel;
 import org.pmiops.workbench.model.WorkspaceResponse;
+import org.pmiops.workbench.model.WorkspaceResponsePage;
+import org.springframework.data.domain.Sort;
 
 public class WorkspaceServiceFakeImpl implements WorkspaceService {
 
@@ -23,6 +26,18 @@ public class WorkspaceServiceFakeImpl implements WorkspaceService {
     return null;
   }
 
+  @Override
+  public WorkspaceResponsePage getWorkspacesPage(
+      String pageToken,
+      int pageSize,
+      String sortColumn,
+      Sort.Direction sortDirection,
+      WorkspaceAccessLevel accessLevel,
+      Boolean published,
+      Long cdrVersionId) {
+    return null;
+  }
+
   @Override
   public void deleteWorkspace(DbWorkspace dbWorkspace) {}
 
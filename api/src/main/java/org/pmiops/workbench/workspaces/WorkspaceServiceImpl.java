@@ -1,6 +1,7 @@
 package org.pmiops.workbench.workspaces;
 
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
 import java.io.IOException;
 import java.sql.Timestamp;
 import java.time.Clock;
@@ -12,11 +13,13 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.stream.Collectors;
+import javax.annotation.Nullable;
 import javax.inject.Provider;
 import org.pmiops.workbench.actionaudit.auditors.BillingProjectAuditor;
 import org.pmiops.workbench.billing.FreeTierBillingService;
@@ -35,8 +38,6 @@ import org.pmiops.workbench.db.model.DbUser;
 import org.pmiops.workbench.db.model.DbUserRecentWorkspace;
 import org.pmiops.workbench.db.model.DbWorkspace;
 import org.pmiops.workbench.exceptions.BadRequestException;
-import org.pmiops.workbench.exceptions.ForbiddenException;
-import org.pmiops.workbench.exceptions.NotFoundException;
 import org.pmiops.workbench.exceptions.ServerErrorException;
 import org.pmiops.workbench.firecloud.FireCloudService;
 import org.pmiops.workbench.firecloud.model.FirecloudManagedGroupWithMembers;
@@ -50,13 +51,18 @@ import org.pmiops.workbench.model.UserRole;
 import org.pmiops.workbench.model.WorkspaceAccessLevel;
 import org.pmiops.workbench.model.WorkspaceActiveStatus;
 import org.pmiops.workbench.model.WorkspaceResponse;
+import org.pmiops.workbench.model.WorkspaceResponsePage;
 import org.pmiops.workbench.monitoring.GaugeDataCollector;
 import org.pmiops.workbench.monitoring.MeasurementBundle;
 import org.pmiops.workbench.monitoring.labels.MetricLabel;
 import org.pmiops.workbench.monitoring.views.GaugeMetric;
+import org.pmiops.workbench.utils.PaginationToken;
 import org.pmiops.workbench.utils.mappers.UserMapper;
 import org.pmiops.workbench.utils.mappers.WorkspaceMapper;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -72,6 +78,20 @@ public class WorkspaceServiceImpl implements WorkspaceService, GaugeDataCollecto
   protected static final int RECENT_WORKSPACE_COUNT = 4;
   private static final Logger log = Logger.getLogger(WorkspaceService.class.getName());
 
+  // Enough of each Terra workspace to build a WorkspaceResponse; the Google project is ours.
+  private static final List<String> FIRECLOUD_WORKSPACE_PAGE_FIELDS =
+      ImmutableList.of(
+          "accessLevel",
+          "workspace.workspaceId",
+          "workspace.name",
+          "workspace.namespace",
+          "workspace.bucketName",
+          "workspace.createdBy");
+
+  // Ties are broken by workspace ID, so that pages are stable.
+  private static final Set<String> WORKSPACE_SORT_COLUMNS =
+      ImmutableSet.of("name", "creationTime", "lastModifiedTime");
+
   private final BillingProjectAuditor billingProjectAuditor;
   private final Clock clock;
   private final CohortCloningService cohortCloningService;
@@ -88,6 +108,7 @@ public class WorkspaceServiceImpl implements WorkspaceService, GaugeDataCollecto
   private final WorkspaceDao workspaceDao;
   private final WorkspaceMapper workspaceMapper;
   private final WorkspaceAuthService workspaceAuthService;
+  private final WorkspaceAccessResolver workspaceAccessResolver;
 
   @Autowired
   public WorkspaceServiceImpl(
@@ -106,7 +127,8 @@ public class WorkspaceServiceImpl implements WorkspaceService, GaugeDataCollecto
       UserRecentWorkspaceDao userRecentWorkspaceDao,
       WorkspaceDao workspaceDao,
       WorkspaceMapper workspaceMapper,
-      WorkspaceAuthService workspaceAuthService) {
+      WorkspaceAuthService workspaceAuthService,
+      WorkspaceAccessResolver workspaceAccessResolver) {
     this.cloudBillingClient = cloudBillingClient;
     this.billingProjectAuditor = billingProjectAuditor;
     this.clock = clock;
@@ -123,6 +145,7 @@ public class WorkspaceServiceImpl implements WorkspaceService, GaugeDataCollecto
     this.workspaceDao = workspaceDao;
     this.workspaceMapper = workspaceMapper;
     this.workspaceAuthService = workspaceAuthService;
+    this.workspaceAccessResolver = workspaceAccessResolver;
   }
 
   @Override
@@ -156,6 +179,126 @@ public class WorkspaceServiceImpl implements WorkspaceService, GaugeDataCollecto
         .collect(Collectors.toList());
   }
 
+  @Override
+  public WorkspaceResponsePage getWorkspacesPage(
+      @Nullable String pageToken,
+      int pageSize,
+      String sortColumn,
+      Sort.Direction sortDirection,
+      @Nullable WorkspaceAccessLevel accessLevel,
+      @Nullable Boolean published,
+      @Nullable Long cdrVersionId) {
+    if (!WORKSPACE_SORT_COLUMNS.contains(sortColumn)) {
+      throw new BadRequestException(String.format("Invalid sort column: %s", sortColumn));
+    }
+    Sort.Order sortColumnOrder = new Sort.Order(sortDirection, sortColumn);
+    if (sortColumn.equals("name")) {
+      sortColumnOrder = sortColumnOrder.ignoreCase();
+    }
+    final Sort order = Sort.by(sortColumnOrder, Sort.Order.asc("workspaceId"));
+
+    // Tokens may be presented to any server, so the parameters are hashed in a stable form.
+    final Object[] parameters = {
+      pageSize,
+      sortColumn,
+      sortDirection.name(),
+      Objects.toString(accessLevel, null),
+      published,
+      cdrVersionId
+    };
+    final PaginationToken paginationToken;
+    if (pageToken == null) {
+      paginationToken = PaginationToken.of(0, parameters);
+    } else {
+      try {
+        paginationToken = PaginationToken.fromBase64(pageToken);
+      } catch (IllegalArgumentException e) {
+        throw new BadRequestException(String.format("Invalid pagination token: %s", pageToken));
+      }
+      if (!paginationToken.matchesParameters(parameters)) {
+        throw new BadRequestException("Pagination token does not match the request parameters");
+      }
+      if (paginationToken.getOffset() < 0) {
+        throw new BadRequestException(
+            String.format("Invalid pagination offset: %d", paginationToken.getOffset()));
+      }
+    }
+
+    final Map<String, FirecloudWorkspaceResponse> fcWorkspacesByUuid =
+        fireCloudService.getWorkspaces(FIRECLOUD_WORKSPACE_PAGE_FIELDS).stream()
+            .collect(
+                Collectors.toMap(
+                    fcWorkspace -> fcWorkspace.getWorkspace().getWorkspaceId(),
+                    fcWorkspace -> fcWorkspace));
+    final Map<String, WorkspaceAccessLevel> accessLevelsByUuid = new HashMap<>();
+    fcWorkspacesByUuid.forEach(
+        (uuid, fcWorkspace) -> {
+          try {
+            accessLevelsByUuid.put(
+                uuid, WorkspaceAuthService.toWorkspaceAccessLevel(fcWorkspace.getAccessLevel()));
+          } catch (IllegalArgumentException e) {
+            log.warning(String.format("Skipping workspace %s: %s", uuid, e.getMessage()));
+          }
+        });
+
+    final Set<String> uuids =
+        accessLevelsByUuid.entrySet().stream()
+            .filter(entry -> accessLevel == null || accessLevel == entry.getValue())
+            .map(Entry::getKey)
+            .collect(Collectors.toSet());
+    if (uuids.isEmpty()) {
+      return new WorkspaceResponsePage().totalCount(0).items(Collections.emptyList());
+    }
+    // As in getWorkspaces(), published workspaces which the user can only read are listed
+    // separately. If the user can't write to any of them, that leaves only unpublished workspaces.
+    Set<String> publishedUuids = uuids;
+    Boolean publishedFilter = published;
+    if (published == null) {
+      publishedUuids =
+          uuids.stream()
+              .filter(
+                  uuid ->
+                      accessLevelsByUuid.get(uuid) == WorkspaceAccessLevel.OWNER
+                          || accessLevelsByUuid.get(uuid) == WorkspaceAccessLevel.WRITER)
+              .collect(Collectors.toSet());
+      if (publishedUuids.isEmpty()) {
+        publishedUuids = uuids;
+        publishedFilter = false;
+      }
+    }
+
+    // Offsets are always a multiple of the page size, which is part of the token parameters.
+    final long offset = paginationToken.getOffset();
+    if (offset % pageSize != 0) {
+      throw new BadRequestException(String.format("Invalid pagination offset: %d", offset));
+    }
+    final Page<DbWorkspace> matchingWorkspaces =
+        workspaceDao.findActivePage(
+            uuids,
+            publishedUuids,
+            publishedFilter,
+            cdrVersionId,
+            PageRequest.of((int) (offset / pageSize), pageSize, order));
+
+    // Only the requested page is loaded and converted, which is most of the cost of listing
+    // workspaces.
+    final WorkspaceResponsePage page =
+        new WorkspaceResponsePage()
+            .totalCount((int) matchingWorkspaces.getTotalElements())
+            .items(
+                matchingWorkspaces.stream()
+                    .map(
+                        dbWorkspace ->
+                            workspaceMapper.toApiWorkspaceResponse(
+                                dbWorkspace,
+                                fcWorkspacesByUuid.get(dbWorkspace.getFirecloudUuid())))
+                    .collect(Collectors.toList()));
+    if (matchingWorkspaces.hasNext()) {
+      page.setNextPageToken(PaginationToken.of(offset + pageSize, parameters).toBase64());
+    }
+    return page;
+  }
+
   private Map<String, FirecloudWorkspaceResponse> getFirecloudWorkspaces() {
     // fields must include at least "workspace.workspaceId", otherwise
     // the map creation will fail
@@ -190,6 +333,9 @@ public class WorkspaceServiceImpl implements WorkspaceService, GaugeDataCollecto
         throw new ServerErrorException("Unsupported access level: " + fcResponse.getAccessLevel());
       }
     }
+    // Most requests made while viewing the workspace go on to check this same access level.
+    workspaceAuthService.cacheWorkspaceAccessLevel(
+        workspaceNamespace, workspaceId, workspaceResponse.getAccessLevel());
     workspaceResponse.setWorkspace(workspaceMapper.toApiWorkspace(dbWorkspace, fcWorkspace));
 
     return workspaceResponse;
@@ -206,6 +352,8 @@ public class WorkspaceServiceImpl implements WorkspaceService, GaugeDataCollecto
     // This automatically handles access control to the workspace.
     fireCloudService.deleteWorkspace(
         dbWorkspace.getWorkspaceNamespace(), dbWorkspace.getFirecloudName());
+    workspaceAuthService.invalidateCachedAccessLevels(
+        dbWorkspace.getWorkspaceNamespace(), dbWorkspace.getFirecloudName());
     dbWorkspace.setWorkspaceActiveStatusEnum(WorkspaceActiveStatus.DELETED);
     dbWorkspace = workspaceDao.saveWithLastModified(dbWorkspace);
 
@@ -313,6 +461,8 @@ public class WorkspaceServiceImpl implements WorkspaceService, GaugeDataCollecto
         dbWorkspace.getWorkspaceNamespace(),
         dbWorkspace.getFirecloudName(),
         Collections.singletonList(currentUpdate));
+    workspaceAuthService.invalidateCachedAccessLevels(
+        dbWorkspace.getWorkspaceNamespace(), dbWorkspace.getFirecloudName());
 
     dbWorkspace.setPublished(publish);
     return workspaceDao.saveWithLastModified(dbWorkspace);
@@ -335,22 +485,10 @@ public class WorkspaceServiceImpl implements WorkspaceService, GaugeDataCollecto
                 .map(DbUserRecentWorkspace::getWorkspaceId)
                 .collect(Collectors.toList()));
 
+    // Workspaces whose access could not be checked in time are kept, to be checked next time.
     Set<Long> workspaceIdsToDelete =
-        dbWorkspaces.stream()
-            .filter(
-                workspace -> {
-                  try {
-                    workspaceAuthService.enforceWorkspaceAccessLevel(
-                        workspace.getWorkspaceNamespace(),
-                        workspace.getFirecloudName(),
-                        WorkspaceAccessLevel.READER);
-                  } catch (ForbiddenException | NotFoundException e) {
-                    return true;
-                  }
-                  return false;
-                })
-            .map(DbWorkspace::getWorkspaceId)
-            .collect(Collectors.toSet());
+        workspaceAccessResolver.findInaccessibleWorkspaceIds(
+            dbWorkspaces, WorkspaceAccessLevel.READER);
 
     if (!workspaceIdsToDelete.isEmpty()) {
       userRecentWorkspaceDao.deleteByUserIdAndWorkspaceIdIn(userId, workspaceIdsToDelete);
@@ -2,7 +2,12 @@ package org.pmiops.workbench.access;
 
 import static com.google.common.truth.Truth.assertThat;
 import static com.google.common.truth.Truth8.assertThat;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+import static org.mockito.Mockito.when;
 
+import com.google.common.collect.ImmutableList;
 import java.sql.Timestamp;
 import java.time.Clock;
 import java.time.Instant;
@@ -17,7 +22,9 @@ import org.pmiops.workbench.db.dao.UserDao;
 import org.pmiops.workbench.db.model.DbAccessTier;
 import org.pmiops.workbench.db.model.DbUser;
 import org.pmiops.workbench.db.model.DbUserAccessTier;
+import org.pmiops.workbench.exceptions.ServerErrorException;
 import org.pmiops.workbench.firecloud.FireCloudService;
+import org.pmiops.workbench.firecloud.model.FirecloudManagedGroupWithMembers;
 import org.pmiops.workbench.model.TierAccessStatus;
 import org.pmiops.workbench.test.FakeClock;
 import org.pmiops.workbench.utils.TestMockFactory;
@@ -34,6 +41,7 @@ import org.springframework.context.annotation.Scope;
 public class AccessTierServiceTest {
   @Autowired private AccessTierDao accessTierDao;
   @Autowired private AccessTierService accessTierService;
+  @Autowired private FireCloudService mockFireCloudService;
   @Autowired private UserAccessTierDao userAccessTierDao;
   @Autowired private UserDao userDao;
 
@@ -357,6 +365,67 @@ public class AccessTierServiceTest {
     assertThat(controlledMembership.getTierAccessStatusEnum()).isEqualTo(TierAccessStatus.ENABLED);
   }
 
+  @Test
+  public void test_reconcileAuthDomains() {
+    final DbAccessTier registeredTier = TestMockFactory.createRegisteredTierForTests(accessTierDao);
+    final String authDomain = registeredTier.getAuthDomainName();
+
+    final DbUser missingFromGroup = createUser("missing-from-group");
+    addDaoEntry(missingFromGroup, registeredTier, TierAccessStatus.ENABLED);
+    final DbUser alreadyInGroup = createUser("already-in-group");
+    addDaoEntry(alreadyInGroup, registeredTier, TierAccessStatus.ENABLED);
+    final DbUser disabledInGroup = createUser("disabled-in-group");
+    addDaoEntry(disabledInGroup, registeredTier, TierAccessStatus.DISABLED);
+    final DbUser disabledNotInGroup = createUser("disabled-not-in-group");
+    addDaoEntry(disabledNotInGroup, registeredTier, TierAccessStatus.DISABLED);
+
+    when(mockFireCloudService.getGroup(authDomain))
+        .thenReturn(
+            new FirecloudManagedGroupWithMembers()
+                .membersEmails(
+                    ImmutableList.of(
+                        alreadyInGroup.getUsername(),
+                        disabledInGroup.getUsername(),
+                        "not-a-workbench-user"))
+                .adminsEmails(ImmutableList.of("admin")));
+
+    accessTierService.reconcileAuthDomains();
+
+    verify(mockFireCloudService).getGroup(authDomain);
+    verify(mockFireCloudService).addUserToGroup(missingFromGroup.getUsername(), authDomain);
+    verify(mockFireCloudService).removeUserFromGroup(disabledInGroup.getUsername(), authDomain);
+    verifyNoMoreInteractions(mockFireCloudService);
+  }
+
+  @Test
+  public void test_reconcileAuthDomains_continuesAfterError() {
+    final DbAccessTier registeredTier = TestMockFactory.createRegisteredTierForTests(accessTierDao);
+    final String authDomain = registeredTier.getAuthDomainName();
+
+    final DbUser failingUser = createUser("failing");
+    addDaoEntry(failingUser, registeredTier, TierAccessStatus.ENABLED);
+    addDaoEntry(user, registeredTier, TierAccessStatus.ENABLED);
+
+    when(mockFireCloudService.getGroup(authDomain))
+        .thenReturn(
+            new FirecloudManagedGroupWithMembers()
+                .membersEmails(ImmutableList.of())
+                .adminsEmails(ImmutableList.of()));
+    doThrow(new ServerErrorException("unavailable"))
+        .when(mockFireCloudService)
+        .addUserToGroup(failingUser.getUsername(), authDomain);
+
+    accessTierService.reconcileAuthDomains();
+
+    verify(mockFireCloudService).addUserToGroup(user.getUsername(), authDomain);
+  }
+
+  private DbUser createUser(String username) {
+    final DbUser newUser = new DbUser();
+    newUser.setUsername(username);
+    return userDao.save(newUser);
+  }
+
   private DbUserAccessTier addDaoEntry(DbUser user, DbAccessTier tier, TierAccessStatus status) {
     return userAccessTierDao.save(
         new DbUserAccessTier()
@@ -0,0 +1,271 @@
+package org.pmiops.workbench.access;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.pmiops.workbench.access.BulkAccessModuleSyncService.Outcome;
+import org.pmiops.workbench.access.BulkAccessModuleSyncService.Summary;
+import org.pmiops.workbench.access.BulkAccessModuleSyncService.Upstream;
+import org.pmiops.workbench.config.WorkbenchConfig;
+import org.pmiops.workbench.db.dao.UserDao;
+import org.pmiops.workbench.db.model.DbUser;
+import org.pmiops.workbench.exceptions.NotFoundException;
+import org.pmiops.workbench.exceptions.ServerErrorException;
+import org.pmiops.workbench.model.AccessModule;
+import org.pmiops.workbench.monitoring.MeasurementBundle;
+import org.pmiops.workbench.monitoring.labels.MetricLabel;
+import org.pmiops.workbench.monitoring.views.GaugeMetric;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.retry.backoff.NoBackOffPolicy;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+public class BulkAccessModuleSyncServiceTest {
+
+  private WorkbenchConfig config;
+  private Map<Long, DbUser> usersById;
+  private Set<String> loadingThreads;
+  private BulkAccessModuleSyncService service;
+
+  @BeforeEach
+  public void setUp() {
+    config = WorkbenchConfig.createEmptyConfig();
+    config.offlineBatch.moodleSyncRequestsPerSecond = 1000.0;
+    config.offlineBatch.terraSyncRequestsPerSecond = 1000.0;
+    usersById = new ConcurrentHashMap<>();
+    loadingThreads = ConcurrentHashMap.newKeySet();
+    UserDao userDao = mock(UserDao.class);
+    doAnswer(
+            invocation -> {
+              loadingThreads.add(Thread.currentThread().getName());
+              return Optional.ofNullable(usersById.get(invocation.<Long>getArgument(0)));
+            })
+        .when(userDao)
+        .findById(anyLong());
+    service =
+        new BulkAccessModuleSyncService(
+            Executors.newFixedThreadPool(4), new NoBackOffPolicy(), () -> config, userDao);
+  }
+
+  @AfterEach
+  public void tearDown() {
+    service.shutdown();
+    RequestContextHolder.resetRequestAttributes();
+  }
+
+  @Test
+  public void testSyncAll_countsOutcomes() {
+    Summary summary =
+        service.syncAll(
+            AccessModule.ERA_COMMONS,
+            Upstream.TERRA,
+            users(6),
+            (user, limiter) -> {
+              switch ((int) user.getUserId() % 3) {
+                case 0:
+                  return Outcome.CHANGED;
+                case 1:
+                  return Outcome.UNCHANGED;
+                default:
+                  return Outcome.SKIPPED;
+              }
+            });
+
+    assertThat(summary.getUserCount()).isEqualTo(6);
+    assertThat(summary.getCount(Outcome.CHANGED)).isEqualTo(2);
+    assertThat(summary.getCount(Outcome.UNCHANGED)).isEqualTo(2);
+    assertThat(summary.getCount(Outcome.SKIPPED)).isEqualTo(2);
+    assertThat(summary.getCount(Outcome.FAILED)).isEqualTo(0);
+  }
+
+  @Test
+  public void testSyncAll_retriesTransientFailures() {
+    Map<Long, AtomicInteger> attempts = new ConcurrentHashMap<>();
+    Summary summary =
+        service.syncAll(
+            AccessModule.COMPLIANCE_TRAINING,
+            Upstream.MOODLE,
+            users(3),
+            (user, limiter) -> {
+              int attempt =
+                  attempts
+                      .computeIfAbsent(user.getUserId(), id -> new AtomicInteger())
+                      .incrementAndGet();
+              if (attempt == 1) {
+                throw new org.pmiops.workbench.moodle.ApiException(503, "unavailable");
+              }
+              return Outcome.CHANGED;
+            });
+
+    assertThat(summary.getCount(Outcome.CHANGED)).isEqualTo(3);
+    assertThat(attempts.values().stream().map(AtomicInteger::get).collect(Collectors.toList()))
+        .containsExactly(2, 2, 2);
+  }
+
+  @Test
+  public void testSyncAll_givesUpAfterMaxAttempts() {
+    AtomicInteger attempts = new AtomicInteger();
+    Summary summary =
+        service.syncAll(
+            AccessModule.COMPLIANCE_TRAINING,
+            Upstream.MOODLE,
+            users(1),
+            (user, limiter) -> {
+              attempts.incrementAndGet();
+              throw new org.pmiops.workbench.moodle.ApiException(503, "unavailable");
+            });
+
+    assertThat(summary.getCount(Outcome.FAILED)).isEqualTo(1);
+    assertThat(attempts.get()).isEqualTo(3);
+  }
+
+  @Test
+  public void testSyncAll_doesNotRetryClientErrors() {
+    AtomicInteger attempts = new AtomicInteger();
+    Summary summary =
+        service.syncAll(
+            AccessModule.TWO_FACTOR_AUTH,
+            Upstream.TERRA,
+            users(2),
+            (user, limiter) -> {
+              if (user.getUserId() == 0) {
+                attempts.incrementAndGet();
+                throw new NotFoundException("not in gsuite");
+              }
+              return Outcome.UNCHANGED;
+            });
+
+    assertThat(summary.getCount(Outcome.FAILED)).isEqualTo(1);
+    assertThat(summary.getCount(Outcome.UNCHANGED)).isEqualTo(1);
+    assertThat(attempts.get()).isEqualTo(1);
+  }
+
+  @Test
+  public void testSyncAll_doesNotRetryFailuresAfterModifyingUser() {
+    AtomicInteger attempts = new AtomicInteger();
+    Summary summary =
+        service.syncAll(
+            AccessModule.ERA_COMMONS,
+            Upstream.TERRA,
+            users(1),
+            (user, limiter) -> {
+              attempts.incrementAndGet();
+              user.setEraCommonsLinkedNihUsername("nih-user");
+              throw new ServerErrorException("failed to update access tiers");
+            });
+
+    assertThat(summary.getCount(Outcome.FAILED)).isEqualTo(1);
+    assertThat(summary.getCount(Outcome.UNCHANGED)).isEqualTo(0);
+    assertThat(attempts.get()).isEqualTo(1);
+  }
+
+  @Test
+  public void testSyncAll_withoutUpstream() {
+    Summary summary =
+        service.syncAll(
+            AccessModule.TWO_FACTOR_AUTH,
+            users(3),
+            (user, limiter) -> {
+              limiter.acquire();
+              return Outcome.UNCHANGED;
+            });
+
+    assertThat(summary.getCount(Outcome.UNCHANGED)).isEqualTo(3);
+  }
+
+  @Test
+  public void testSyncAll_loadsUsersOnWorkers() {
+    List<Long> userIds = ImmutableList.<Long>builder().addAll(users(3)).add(42L).build();
+    Set<Long> syncedUserIds = ConcurrentHashMap.newKeySet();
+    Summary summary =
+        service.syncAll(
+            AccessModule.TWO_FACTOR_AUTH,
+            userIds,
+            (user, limiter) -> {
+              syncedUserIds.add(user.getUserId());
+              return Outcome.UNCHANGED;
+            });
+
+    assertThat(syncedUserIds).containsExactly(0L, 1L, 2L);
+    // The user deleted since the run started is skipped.
+    assertThat(summary.getCount(Outcome.SKIPPED)).isEqualTo(1);
+    assertThat(loadingThreads).doesNotContain(Thread.currentThread().getName());
+  }
+
+  @Test
+  public void testSyncAll_runsEachSyncInItsOwnRequestScope() {
+    ServletRequestAttributes request = new ServletRequestAttributes(new MockHttpServletRequest());
+    request.setAttribute("workbenchConfig", config, RequestAttributes.SCOPE_REQUEST);
+    RequestContextHolder.setRequestAttributes(request);
+
+    List<RequestAttributes> syncAttributes = new CopyOnWriteArrayList<>();
+    List<Object> syncConfigs = new CopyOnWriteArrayList<>();
+    service.syncAll(
+        AccessModule.ERA_COMMONS,
+        Upstream.TERRA,
+        users(4),
+        (user, limiter) -> {
+          RequestAttributes attributes = RequestContextHolder.currentRequestAttributes();
+          syncAttributes.add(attributes);
+          syncConfigs.add(
+              attributes.getAttribute("workbenchConfig", RequestAttributes.SCOPE_REQUEST));
+          // Beans a sync adds to its scope are not seen by the request or the other syncs.
+          attributes.setAttribute("moodleApi", user, RequestAttributes.SCOPE_REQUEST);
+          return Outcome.UNCHANGED;
+        });
+
+    assertThat(syncAttributes).hasSize(4);
+    assertThat(ImmutableSet.copyOf(syncAttributes)).hasSize(4);
+    assertThat(syncAttributes).doesNotContain(request);
+    assertThat(syncConfigs).containsExactly(config, config, config, config);
+    assertThat(request.getAttribute("moodleApi", RequestAttributes.SCOPE_REQUEST)).isNull();
+    assertThat(RequestContextHolder.getRequestAttributes()).isSameInstanceAs(request);
+  }
+
+  @Test
+  public void testGetGaugeData() {
+    service.syncAll(
+        AccessModule.ERA_COMMONS, Upstream.TERRA, users(2), (user, limiter) -> Outcome.CHANGED);
+
+    assertThat(service.getGaugeData())
+        .contains(
+            MeasurementBundle.builder()
+                .addMeasurement(GaugeMetric.ACCESS_MODULE_SYNC_USER_COUNT, 2)
+                .addTag(MetricLabel.ACCESS_MODULE, AccessModule.ERA_COMMONS.toString())
+                .addTag(MetricLabel.ACCESS_MODULE_SYNC_OUTCOME, Outcome.CHANGED.toString())
+                .build());
+    assertThat(service.getGaugeData()).hasSize(Outcome.values().length);
+  }
+
+  /** Creates the users for the syncs to load, and returns their IDs. */
+  private List<Long> users(int count) {
+    return IntStream.range(0, count)
+        .mapToObj(
+            i -> {
+              DbUser user = new DbUser();
+              user.setUserId(i);
+              user.setUsername("user" + i + "@fake-research-aou.org");
+              usersById.put(user.getUserId(), user);
+              return user.getUserId();
+            })
+        .collect(ImmutableList.toImmutableList());
+  }
+}
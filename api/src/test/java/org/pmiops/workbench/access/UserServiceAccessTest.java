@@ -2,8 +2,11 @@ package org.pmiops.workbench.access;
 
 import static com.google.common.truth.Truth.assertThat;
 import static com.google.common.truth.Truth8.assertThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.clearInvocations;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
 import static org.mockito.Mockito.verifyZeroInteractions;
 
 import com.google.common.collect.ImmutableList;
@@ -85,6 +88,7 @@ public class UserServiceAccessTest {
   @Autowired private UserDao userDao;
   @Autowired private UserService userService;
 
+  @MockBean private FireCloudService fireCloudService;
   @MockBean private MailService mailService;
 
   @Import({
@@ -198,6 +202,54 @@ public class UserServiceAccessTest {
     }
   }
 
+  @Test
+  public void test_updateUserWithRetries_unchanged_tiers_skip_terra() {
+    // neither an unregistered user nor a user who stays registered enters or leaves a tier
+
+    dbUser = updateUserWithRetries(Function.identity());
+    assertNoAuthDomainCalls();
+
+    dbUser = updateUserWithRetries(registerUserNow);
+    clearInvocations(fireCloudService);
+
+    dbUser = updateUserWithRetries(Function.identity());
+    assertRegisteredTierEnabled(dbUser);
+    assertNoAuthDomainCalls();
+  }
+
+  @Test
+  public void test_updateUserWithRetries_gained_tier_adds_to_auth_domain() {
+    dbUser = updateUserWithRetries(registerUserNow);
+    assertRegisteredTierEnabled(dbUser);
+
+    verify(fireCloudService)
+        .isUserMemberOfGroupWithCache(USERNAME, registeredTier.getAuthDomainName());
+    verify(fireCloudService).addUserToGroup(USERNAME, registeredTier.getAuthDomainName());
+    verify(fireCloudService, never()).removeUserFromGroup(anyString(), anyString());
+  }
+
+  @Test
+  public void test_updateUserWithRetries_lost_tier_removes_from_auth_domain() {
+    dbUser = updateUserWithRetries(registerUserNow);
+    clearInvocations(fireCloudService);
+    when(fireCloudService.isUserMemberOfGroupWithCache(
+            USERNAME, registeredTier.getAuthDomainName()))
+        .thenReturn(true);
+
+    dbUser =
+        updateUserWithRetries(
+            user -> {
+              user.setDisabled(true);
+              return user;
+            });
+    assertRegisteredTierDisabled(dbUser);
+
+    verify(fireCloudService)
+        .isUserMemberOfGroupWithCache(USERNAME, registeredTier.getAuthDomainName());
+    verify(fireCloudService).removeUserFromGroup(USERNAME, registeredTier.getAuthDomainName());
+    verify(fireCloudService, never()).addUserToGroup(anyString(), anyString());
+  }
+
   @Test
   public void testSimulateUserFlowThroughRenewal() {
     // initialize user as registered with generic values including bypassed DUA
@@ -1044,6 +1096,12 @@ public class UserServiceAccessTest {
     return userService.updateUserWithRetries(userModifier, dbUser, Agent.asUser(dbUser));
   }
 
+  private void assertNoAuthDomainCalls() {
+    verify(fireCloudService, never()).isUserMemberOfGroupWithCache(anyString(), anyString());
+    verify(fireCloudService, never()).addUserToGroup(anyString(), anyString());
+    verify(fireCloudService, never()).removeUserFromGroup(anyString(), anyString());
+  }
+
   private void assertRegisteredTierEnabled(DbUser dbUser) {
     assertRegisteredTierMembershipWithStatus(dbUser, TierAccessStatus.ENABLED);
   }
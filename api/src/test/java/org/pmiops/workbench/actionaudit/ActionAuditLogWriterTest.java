@@ -0,0 +1,316 @@
+package org.pmiops.workbench.actionaudit;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import com.google.api.core.ApiFutures;
+import com.google.cloud.NoCredentials;
+import com.google.cloud.logging.LogEntry;
+import com.google.cloud.logging.Logging;
+import com.google.cloud.logging.LoggingOptions;
+import com.google.cloud.logging.Payload.JsonPayload;
+import com.google.cloud.logging.spi.v2.LoggingRpc;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.pmiops.workbench.monitoring.LogsBasedMetricServiceFakeImpl;
+import org.pmiops.workbench.monitoring.MeasurementBundle;
+import org.pmiops.workbench.monitoring.views.GaugeMetric;
+import org.pmiops.workbench.test.FakeClock;
+
+public class ActionAuditLogWriterTest {
+
+  private static final long FLUSH_INTERVAL_MILLIS = TimeUnit.HOURS.toMillis(1);
+
+  private FakeClock clock;
+  private List<LogEntry> written;
+  private int writeAttempts;
+  private boolean cloudLoggingDown;
+  private SortedMap<String, byte[]> spooled;
+  private boolean spoolDown;
+  private ActionAuditLogWriter writer;
+
+  @BeforeEach
+  public void setUp() {
+    clock = new FakeClock(Instant.parse("2000-01-01T00:00:00.00Z"));
+    written = new ArrayList<>();
+    writeAttempts = 0;
+    cloudLoggingDown = false;
+    spooled = new TreeMap<>();
+    spoolDown = false;
+    writer = newWriter();
+  }
+
+  @AfterEach
+  public void tearDown() {
+    writer.shutdown();
+  }
+
+  @Test
+  public void testEnqueue_doesNotWrite() {
+    writer.enqueue(entries(1));
+
+    assertThat(written).isEmpty();
+    assertThat(writer.getQueueDepth()).isEqualTo(1);
+  }
+
+  @Test
+  public void testFlush_writesEntries() {
+    writer.enqueue(entries(1, 2, 3));
+    writer.flush();
+
+    assertThat(ids(written)).containsExactly(1, 2, 3).inOrder();
+    assertThat(written.get(0).getTimestamp()).isEqualTo(clock.millis());
+    assertThat(written.get(0).getInsertId()).isNotNull();
+    assertThat(writer.getQueueDepth()).isEqualTo(0);
+    assertThat(spooled).isEmpty();
+  }
+
+  @Test
+  public void testFlush_spoolsFailedBatchAndReplaysItFirst() {
+    cloudLoggingDown = true;
+    writer.enqueue(entries(1, 2, 3));
+    writer.flush();
+    writer.enqueue(entries(4));
+
+    assertThat(written).isEmpty();
+    assertThat(spooled).hasSize(1);
+    assertThat(writer.getSpooledCount()).isEqualTo(2);
+    assertThat(writer.getQueueDepth()).isEqualTo(2);
+
+    cloudLoggingDown = false;
+    writer.flush();
+
+    assertThat(ids(written)).containsExactly(1, 2, 3, 4).inOrder();
+    assertThat(writer.getQueueDepth()).isEqualTo(0);
+    assertThat(spooled).isEmpty();
+  }
+
+  @Test
+  public void testFlush_keepsFailedBatchWhenSpoolIsDown() {
+    cloudLoggingDown = true;
+    spoolDown = true;
+    writer.enqueue(entries(1, 2, 3));
+    writer.flush();
+
+    assertThat(writer.getQueueDepth()).isEqualTo(3);
+
+    cloudLoggingDown = false;
+    spoolDown = false;
+    writer.flush();
+    assertThat(ids(written)).containsExactly(1, 2, 3).inOrder();
+  }
+
+  @Test
+  public void testEnqueue_spoolsBufferWhenFull() {
+    cloudLoggingDown = true;
+    writer.enqueue(entries(1, 2, 3));
+    writer.flush();
+    writer.enqueue(entries(4, 5, 6, 7));
+    assertThat(writer.getQueueDepth()).isEqualTo(5);
+
+    writer.enqueue(entries(8));
+
+    assertThat(writer.getQueueDepth()).isEqualTo(0);
+    assertThat(spooled).hasSize(2);
+    assertThat(writer.getSpooledCount()).isEqualTo(8);
+    assertThat(writer.getDroppedCount()).isEqualTo(0);
+    assertThat(writer.getGaugeData())
+        .contains(
+            MeasurementBundle.builder()
+                .addMeasurement(GaugeMetric.ACTION_AUDIT_SPOOLED_COUNT, 8L)
+                .build());
+
+    cloudLoggingDown = false;
+    writer.enqueue(entries(9));
+    writer.flush();
+    assertThat(ids(written)).containsExactly(1, 2, 3, 4, 5, 6, 7, 8, 9).inOrder();
+    assertThat(spooled).isEmpty();
+  }
+
+  @Test
+  public void testEnqueue_writesBufferWhenFullAndSpoolIsDown() {
+    spoolDown = true;
+    writer.enqueue(entries(1, 2, 3, 4, 5, 6));
+
+    assertThat(ids(written)).containsExactly(1, 2, 3, 4, 5, 6).inOrder();
+    assertThat(writer.getQueueDepth()).isEqualTo(0);
+    assertThat(writer.getDroppedCount()).isEqualTo(0);
+  }
+
+  @Test
+  public void testEnqueue_countsEntriesNothingTakes() {
+    cloudLoggingDown = true;
+    spoolDown = true;
+    writer.enqueue(entries(1, 2, 3, 4, 5, 6));
+
+    assertThat(writer.getQueueDepth()).isEqualTo(0);
+    assertThat(writer.getDroppedCount()).isEqualTo(6);
+    assertThat(writer.getGaugeData())
+        .contains(
+            MeasurementBundle.builder()
+                .addMeasurement(GaugeMetric.ACTION_AUDIT_DROPPED_COUNT, 6L)
+                .build());
+    // Stops trying Cloud Logging after the first failure.
+    assertThat(writeAttempts).isEqualTo(1);
+  }
+
+  @Test
+  public void testShutdown_spoolsUnwrittenEntries() {
+    cloudLoggingDown = true;
+    writer.enqueue(entries(1, 2, 3));
+    writer.shutdown();
+
+    assertThat(writer.getQueueDepth()).isEqualTo(0);
+    assertThat(writer.getSpooledCount()).isEqualTo(3);
+
+    // Another instance replays them, with the times and insert IDs they were enqueued with.
+    cloudLoggingDown = false;
+    clock.increment(FLUSH_INTERVAL_MILLIS);
+    writer = newWriter();
+    writer.flush();
+
+    assertThat(ids(written)).containsExactly(1, 2, 3).inOrder();
+    assertThat(written.get(0).getTimestamp()).isEqualTo(clock.millis() - FLUSH_INTERVAL_MILLIS);
+    assertThat(written.get(0).getInsertId()).isNotNull();
+    assertThat(spooled).isEmpty();
+  }
+
+  @Test
+  public void testFlushInBackground_backsOffAfterFailure() {
+    cloudLoggingDown = true;
+    writer.enqueue(entries(1));
+    writer.flushInBackground();
+    writer.flushInBackground();
+    assertThat(writeAttempts).isEqualTo(1);
+
+    clock.increment(FLUSH_INTERVAL_MILLIS);
+    writer.flushInBackground();
+    assertThat(writeAttempts).isEqualTo(2);
+
+    // The backoff doubles after each failure.
+    clock.increment(FLUSH_INTERVAL_MILLIS);
+    writer.flushInBackground();
+    assertThat(writeAttempts).isEqualTo(2);
+
+    cloudLoggingDown = false;
+    clock.increment(FLUSH_INTERVAL_MILLIS);
+    writer.flushInBackground();
+    assertThat(writeAttempts).isEqualTo(3);
+    assertThat(ids(written)).containsExactly(1);
+  }
+
+  @Test
+  public void testCloudLoggingSink_keepsBatchCloudLoggingRejects() {
+    final LoggingRpc rpc = mock(LoggingRpc.class);
+    doReturn(ApiFutures.immediateFailedFuture(new IllegalStateException("unavailable")))
+        .when(rpc)
+        .write(any());
+    final Logging cloudLogging =
+        LoggingOptions.newBuilder()
+            .setProjectId("test-project")
+            .setCredentials(NoCredentials.getInstance())
+            .setServiceRpcFactory(options -> rpc)
+            .build()
+            .getService();
+
+    // By default the client only queues the entries, and the write can't fail.
+    cloudLogging.write(entries(1));
+    verify(rpc).write(any());
+
+    writer.shutdown();
+    writer =
+        new ActionAuditLogWriter(
+            ActionAuditLogWriter.cloudLoggingSink(cloudLogging),
+            spool(),
+            new LogsBasedMetricServiceFakeImpl(),
+            clock,
+            5,
+            2,
+            FLUSH_INTERVAL_MILLIS);
+    writer.enqueue(entries(2));
+    writer.flush();
+
+    verify(rpc, times(2)).write(any());
+    assertThat(writer.getSpooledCount()).isEqualTo(1);
+  }
+
+  private ActionAuditLogWriter newWriter() {
+    // Not started, so entries are only written when the test flushes them.
+    return new ActionAuditLogWriter(
+        entries -> {
+          writeAttempts++;
+          if (cloudLoggingDown) {
+            throw new RuntimeException("unavailable");
+          }
+          written.addAll(entries);
+        },
+        spool(),
+        new LogsBasedMetricServiceFakeImpl(),
+        clock,
+        5,
+        2,
+        FLUSH_INTERVAL_MILLIS);
+  }
+
+  private ActionAuditLogWriter.Spool spool() {
+    return new ActionAuditLogWriter.Spool() {
+      @Override
+      public List<String> list() {
+        checkSpool();
+        return new ArrayList<>(spooled.keySet());
+      }
+
+      @Override
+      public byte[] read(String name) {
+        checkSpool();
+        return spooled.get(name);
+      }
+
+      @Override
+      public void write(String name, byte[] contents) {
+        checkSpool();
+        spooled.put(name, contents);
+      }
+
+      @Override
+      public void delete(String name) {
+        checkSpool();
+        spooled.remove(name);
+      }
+    };
+  }
+
+  private void checkSpool() {
+    if (spoolDown) {
+      throw new RuntimeException("unavailable");
+    }
+  }
+
+  private static List<LogEntry> entries(int... ids) {
+    return IntStream.of(ids)
+        .mapToObj(id -> LogEntry.of(JsonPayload.of(ImmutableMap.of("id", id))))
+        .collect(ImmutableList.toImmutableList());
+  }
+
+  private static List<Integer> ids(List<LogEntry> entries) {
+    return entries.stream()
+        .map(e -> e.<JsonPayload>getPayload().getDataAsMap().get("id"))
+        .map(id -> ((Number) id).intValue())
+        .collect(Collectors.toList());
+  }
+}
@@ -19,15 +19,18 @@ import org.junit.jupiter.api.Test
 import org.junit.jupiter.api.extension.ExtendWith
 import org.pmiops.workbench.config.WorkbenchConfig
 import org.pmiops.workbench.config.WorkbenchConfig.ActionAuditConfig
+import org.pmiops.workbench.config.WorkbenchConfig.FeatureFlagsConfig
 import org.pmiops.workbench.config.WorkbenchConfig.ServerConfig
 import org.springframework.test.context.junit.jupiter.SpringExtension
 
 @ExtendWith(SpringExtension::class)
 class ActionAuditServiceTest {
     private val mockLogging = mock<Logging>()
+    private val mockActionAuditLogWriter = mock<ActionAuditLogWriter>()
 
     private val mockConfigProvider = mock<Provider<WorkbenchConfig>>()
 
+    private var workbenchConfig: WorkbenchConfig? = null
     private var actionAuditService: ActionAuditService? = null
 
     @BeforeEach
@@ -38,12 +41,13 @@ class ActionAuditServiceTest {
         val serverConfig = ServerConfig()
                 .apply { projectId = "gcp-project-id" }
 
-        val workbenchConfig = WorkbenchConfig()
+        workbenchConfig = WorkbenchConfig()
                 .apply { actionAudit = actionAuditConfig }
                 .apply { server = serverConfig }
+                .apply { featureFlags = FeatureFlagsConfig() }
         whenever(mockConfigProvider.get()).thenReturn(workbenchConfig)
 
-        actionAuditService = ActionAuditServiceImpl(mockConfigProvider, mockLogging)
+        actionAuditService = ActionAuditServiceImpl(mockConfigProvider, mockLogging, mockActionAuditLogWriter)
     }
 
     @Test
@@ -114,6 +118,17 @@ class ActionAuditServiceTest {
         }
     }
 
+    @Test
+    fun testSendEnqueuesWhenBuffered() {
+        workbenchConfig!!.featureFlags.enableBufferedActionAudit = true
+        actionAuditService!!.send(ImmutableList.of(EVENT_1, EVENT_2))
+        argumentCaptor<List<LogEntry>>().apply {
+            verify(mockActionAuditLogWriter).enqueue(capture())
+            assertThat(firstValue.size).isEqualTo(2)
+        }
+        verify(mockLogging, never()).write(any())
+    }
+
     companion object {
         private const val AGENT_ID_1 = 101L
         private const val AGENT_ID_2 = 102L
@@ -0,0 +1,72 @@
+package org.pmiops.workbench.api;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.mockito.Mockito.mock;
+
+import com.google.cloud.bigquery.BigQuery;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.pmiops.workbench.cdr.CdrVersionContext;
+import org.pmiops.workbench.db.model.DbCdrVersion;
+import org.pmiops.workbench.monitoring.MeasurementBundle;
+import org.pmiops.workbench.monitoring.views.GaugeMetric;
+
+public class BigQueryServiceTest {
+
+  private BigQueryService bigQueryService;
+  private List<String> clientProjects;
+
+  @BeforeEach
+  public void setUp() {
+    clientProjects = new ArrayList<>();
+    bigQueryService =
+        new BigQueryService() {
+          @Override
+          protected BigQuery newCdrBigQueryClient(String bigqueryProject) {
+            clientProjects.add(bigqueryProject);
+            return mock(BigQuery.class);
+          }
+        };
+  }
+
+  @AfterEach
+  public void tearDown() {
+    CdrVersionContext.clearCdrVersion();
+  }
+
+  @Test
+  public void getBigQueryService_sameProjectReusesClient() {
+    CdrVersionContext.setCdrVersionNoCheckAuthDomain(cdrVersion(1L, "project-a"));
+    BigQuery client = bigQueryService.getBigQueryService();
+    CdrVersionContext.setCdrVersionNoCheckAuthDomain(cdrVersion(2L, "project-a"));
+    assertThat(bigQueryService.getBigQueryService()).isSameAs(client);
+    assertThat(clientProjects).containsExactly("project-a");
+
+    MeasurementBundle bundle = bigQueryService.getGaugeData().iterator().next();
+    assertThat(bundle.getMeasurements().get(GaugeMetric.CACHE_HIT_COUNT)).isEqualTo(1L);
+    assertThat(bundle.getMeasurements().get(GaugeMetric.CACHE_MISS_COUNT)).isEqualTo(1L);
+    assertThat(bundle.getMeasurements().get(GaugeMetric.CACHE_SIZE)).isEqualTo(1L);
+  }
+
+  @Test
+  public void getBigQueryService_changedProjectBuildsNewClient() {
+    DbCdrVersion cdrVersion = cdrVersion(1L, "project-a");
+    CdrVersionContext.setCdrVersionNoCheckAuthDomain(cdrVersion);
+    BigQuery client = bigQueryService.getBigQueryService();
+
+    // The cdr_version row is pointed at another project.
+    cdrVersion.setBigqueryProject("project-b");
+    assertThat(bigQueryService.getBigQueryService()).isNotSameAs(client);
+    assertThat(clientProjects).containsExactly("project-a", "project-b").inOrder();
+  }
+
+  private static DbCdrVersion cdrVersion(long cdrVersionId, String bigqueryProject) {
+    DbCdrVersion cdrVersion = new DbCdrVersion();
+    cdrVersion.setCdrVersionId(cdrVersionId);
+    cdrVersion.setBigqueryProject(bigqueryProject);
+    return cdrVersion;
+  }
+}
@@ -13,6 +13,7 @@ import org.mockito.Mock;
 import org.pmiops.workbench.SpringTest;
 import org.pmiops.workbench.cohortbuilder.CohortBuilderService;
 import org.pmiops.workbench.cohortbuilder.CohortQueryBuilder;
+import org.pmiops.workbench.cohortbuilder.MaterializedCohortService;
 import org.pmiops.workbench.cohortreview.CohortAnnotationDefinitionService;
 import org.pmiops.workbench.cohortreview.CohortAnnotationDefinitionServiceImpl;
 import org.pmiops.workbench.cohortreview.CohortReviewService;
@@ -70,6 +71,7 @@ public class CohortAnnotationDefinitionControllerTest extends SpringTest {
   @Mock private CohortReviewDao cohortReviewDao;
   @Mock private CohortReviewMapper cohortReviewMapper;
   @Mock private CohortQueryBuilder cohortQueryBuilder;
+  @Mock private MaterializedCohortService materializedCohortService;
   @Mock private ParticipantCohortAnnotationDao participantCohortAnnotationDao;
   @Mock private ParticipantCohortAnnotationMapper participantCohortAnnotationMapper;
   @Mock private ParticipantCohortStatusDao participantCohortStatusDao;
@@ -95,6 +97,7 @@ public class CohortAnnotationDefinitionControllerTest extends SpringTest {
             cohortReviewDao,
             cohortReviewMapper,
             cohortQueryBuilder,
+            materializedCohortService,
             participantCohortAnnotationDao,
             participantCohortAnnotationMapper,
             participantCohortStatusDao,
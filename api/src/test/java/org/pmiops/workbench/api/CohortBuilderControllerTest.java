@@ -7,10 +7,12 @@ import static org.mockito.Mockito.doReturn;
 import java.util.Arrays;
 import java.util.List;
 import javax.inject.Provider;
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.Mock;
 import org.pmiops.workbench.SpringTest;
+import org.pmiops.workbench.cdr.CdrVersionContext;
 import org.pmiops.workbench.cdr.cache.MySQLStopWords;
 import org.pmiops.workbench.cdr.dao.CBCriteriaAttributeDao;
 import org.pmiops.workbench.cdr.dao.CBCriteriaDao;
@@ -27,6 +29,11 @@ import org.pmiops.workbench.cdr.model.DbSurveyModule;
 import org.pmiops.workbench.cohortbuilder.CohortBuilderService;
 import org.pmiops.workbench.cohortbuilder.CohortBuilderServiceImpl;
 import org.pmiops.workbench.cohortbuilder.CohortQueryBuilder;
+import org.pmiops.workbench.cohortbuilder.CriteriaHierarchyIndexService;
+import org.pmiops.workbench.cohortbuilder.CriteriaIndexCache;
+import org.pmiops.workbench.cohortbuilder.CriteriaSearchIndexService;
+import org.pmiops.workbench.cohortbuilder.ParticipantCountCache;
+import org.pmiops.workbench.cohortbuilder.ParticipantCountRouter;
 import org.pmiops.workbench.cohortbuilder.mapper.CohortBuilderMapper;
 import org.pmiops.workbench.cohortbuilder.mapper.CohortBuilderMapperImpl;
 import org.pmiops.workbench.config.WorkbenchConfig;
@@ -88,10 +95,20 @@ public class CohortBuilderControllerTest extends SpringTest {
   private static final String WORKSPACE_ID = "workspaceId";
   private static final String WORKSPACE_NAMESPACE = "workspaceNS";
 
+  @AfterEach
+  public void tearDown() {
+    CdrVersionContext.clearCdrVersion();
+  }
+
   @BeforeEach
   public void setUp() {
+    CriteriaIndexCache criteriaIndexCache = new CriteriaIndexCache(configProvider);
     ElasticSearchService elasticSearchService =
-        new ElasticSearchService(cbCriteriaDao, cloudStorageClient, configProvider);
+        new ElasticSearchService(
+            cbCriteriaDao,
+            new CriteriaHierarchyIndexService(cbCriteriaDao, criteriaIndexCache),
+            cloudStorageClient,
+            configProvider);
 
     CohortBuilderService cohortBuilderService =
         new CohortBuilderServiceImpl(
@@ -105,10 +122,14 @@ public class CohortBuilderControllerTest extends SpringTest {
             personDao,
             surveyModuleDao,
             cohortBuilderMapper,
-            mySQLStopWordsProvider);
+            mySQLStopWordsProvider,
+            new ParticipantCountCache(),
+            new CriteriaSearchIndexService(cbCriteriaDao, criteriaIndexCache, configProvider));
     controller =
         new CohortBuilderController(
-            elasticSearchService, configProvider, cohortBuilderService, workspaceAuthService);
+            new ParticipantCountRouter(cohortBuilderService, elasticSearchService, configProvider),
+            cohortBuilderService,
+            workspaceAuthService);
 
     MySQLStopWords mySQLStopWords = new MySQLStopWords(Arrays.asList("about"));
     doReturn(mySQLStopWords).when(mySQLStopWordsProvider).get();
@@ -932,6 +953,99 @@ public class CohortBuilderControllerTest extends SpringTest {
     assertThat(controller.isApproximate(searchRequest)).isTrue();
   }
 
+  @Test
+  public void findCriteriaByDomainAndSearchTermSearchIndex() {
+    DbCriteria heartFailure = saveConditionCriteria("Heart failure", "I50", 20L, true);
+    DbCriteria heartAttack =
+        saveConditionCriteria("Heart attack|Myocardial infarction", "I21", 10L, true);
+    saveConditionCriteria("Lung disease", "J98", 5L, true);
+    saveConditionCriteria("Heart murmur", "R01", 50L, false);
+
+    enableCriteriaSearchIndex();
+
+    assertThat(searchConditions("hea"))
+        .containsExactly(
+            createResponseCriteria(heartFailure), createResponseCriteria(heartAttack))
+        .inOrder();
+    assertThat(searchConditions("I2")).containsExactly(createResponseCriteria(heartAttack));
+    assertThat(searchConditions("myocardial")).containsExactly(createResponseCriteria(heartAttack));
+  }
+
+  @Test
+  public void findDomainCountSearchIndex() {
+    saveConditionCriteria("Heart failure", "I50", 20L, true);
+    saveConditionCriteria("Heart attack|Myocardial infarction", "I21", 10L, true);
+    saveConditionCriteria("Heart murmur", "R01", 50L, false);
+
+    enableCriteriaSearchIndex();
+
+    assertThat(countConditions("heart")).isEqualTo(2L);
+    assertThat(countConditions("I5")).isEqualTo(1L);
+  }
+
+  @Test
+  public void findCriteriaAutoCompleteSearchIndex() {
+    DbCriteria heartFailure = saveConditionCriteria("Heart failure", "I50", 20L, true);
+    DbCriteria notInTree = saveConditionCriteria("Heart attack", "I21", 10L, true);
+    notInTree.setHierarchy(false);
+    cbCriteriaDao.save(notInTree);
+    enableCriteriaSearchIndex();
+
+    assertThat(
+            controller
+                .findCriteriaAutoComplete(
+                    WORKSPACE_NAMESPACE,
+                    WORKSPACE_ID,
+                    Domain.CONDITION.toString(),
+                    "heart",
+                    CriteriaType.SNOMED.toString(),
+                    true,
+                    null)
+                .getBody()
+                .getItems())
+        .containsExactly(createResponseCriteria(heartFailure));
+  }
+
+  private DbCriteria saveConditionCriteria(
+      String fullText, String code, long count, boolean rank1) {
+    return cbCriteriaDao.save(
+        DbCriteria.builder()
+            .addDomainId(Domain.CONDITION.toString())
+            .addType(CriteriaType.SNOMED.toString())
+            .addName(fullText.split("\\|")[0])
+            .addCode(code)
+            .addCount(count)
+            .addHierarchy(true)
+            .addStandard(true)
+            .addParentId(0)
+            .addFullText(fullText + (rank1 ? "|[condition_rank1]" : ""))
+            .build());
+  }
+
+  private void enableCriteriaSearchIndex() {
+    WorkbenchConfig config = WorkbenchConfig.createEmptyConfig();
+    config.featureFlags.enableCriteriaSearchIndex = true;
+    doReturn(config).when(configProvider).get();
+    DbCdrVersion cdrVersion = new DbCdrVersion();
+    cdrVersion.setCdrVersionId(1L);
+    CdrVersionContext.setCdrVersionNoCheckAuthDomain(cdrVersion);
+  }
+
+  private List<Criteria> searchConditions(String term) {
+    return controller
+        .findCriteriaByDomainAndSearchTerm(
+            WORKSPACE_NAMESPACE, WORKSPACE_ID, Domain.CONDITION.name(), term, null, null)
+        .getBody()
+        .getItems();
+  }
+
+  private Long countConditions(String term) {
+    return controller
+        .findDomainCount(WORKSPACE_NAMESPACE, WORKSPACE_ID, Domain.CONDITION.name(), term)
+        .getBody()
+        .getConceptCount();
+  }
+
   private Criteria createResponseCriteria(DbCriteria dbCriteria) {
     return new Criteria()
         .code(dbCriteria.getCode())
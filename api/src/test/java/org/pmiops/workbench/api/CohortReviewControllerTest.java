@@ -35,12 +35,15 @@ import org.pmiops.workbench.cdr.dao.CBCriteriaDao;
 import org.pmiops.workbench.cdr.model.DbCriteria;
 import org.pmiops.workbench.cohortbuilder.CohortBuilderServiceImpl;
 import org.pmiops.workbench.cohortbuilder.CohortQueryBuilder;
+import org.pmiops.workbench.cohortbuilder.MaterializedCohortService;
+import org.pmiops.workbench.cohortbuilder.ParticipantCountCache;
 import org.pmiops.workbench.cohortbuilder.mapper.CohortBuilderMapper;
 import org.pmiops.workbench.cohortreview.CohortReviewServiceImpl;
 import org.pmiops.workbench.cohortreview.ReviewQueryBuilder;
 import org.pmiops.workbench.cohortreview.mapper.CohortReviewMapperImpl;
 import org.pmiops.workbench.cohortreview.mapper.ParticipantCohortAnnotationMapperImpl;
 import org.pmiops.workbench.cohortreview.mapper.ParticipantCohortStatusMapperImpl;
+import org.pmiops.workbench.config.WorkbenchConfig;
 import org.pmiops.workbench.db.dao.CdrVersionDao;
 import org.pmiops.workbench.db.dao.CohortAnnotationDefinitionDao;
 import org.pmiops.workbench.db.dao.CohortDao;
@@ -194,9 +197,11 @@ public class CohortReviewControllerTest extends SpringTest {
   @Import({
     CdrVersionService.class,
     CohortBuilderServiceImpl.class,
+    ParticipantCountCache.class,
     CohortReviewController.class,
     CohortReviewServiceImpl.class,
     CohortQueryBuilder.class,
+    MaterializedCohortService.class,
     ReviewQueryBuilder.class,
     ParticipantCohortStatusMapperImpl.class,
     CohortReviewMapperImpl.class,
@@ -219,6 +224,11 @@ public class CohortReviewControllerTest extends SpringTest {
       return CLOCK;
     }
 
+    @Bean
+    WorkbenchConfig workbenchConfig() {
+      return WorkbenchConfig.createEmptyConfig();
+    }
+
     @Bean
     @Scope(ConfigurableBeanFactory.SCOPE_PROTOTYPE)
     DbUser user() {
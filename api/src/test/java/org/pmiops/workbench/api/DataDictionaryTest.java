@@ -13,12 +13,14 @@ import org.pmiops.workbench.cdr.ConceptBigQueryService;
 import org.pmiops.workbench.cdr.dao.DSDataDictionaryDao;
 import org.pmiops.workbench.cdr.model.DbDSDataDictionary;
 import org.pmiops.workbench.cohortbuilder.CohortQueryBuilder;
+import org.pmiops.workbench.cohortbuilder.MaterializedCohortService;
 import org.pmiops.workbench.cohorts.CohortService;
 import org.pmiops.workbench.conceptset.ConceptSetService;
 import org.pmiops.workbench.conceptset.mapper.ConceptSetMapper;
 import org.pmiops.workbench.config.CdrBigQuerySchemaConfigService;
 import org.pmiops.workbench.dataset.BigQueryTableInfo;
 import org.pmiops.workbench.dataset.DataSetServiceImpl;
+import org.pmiops.workbench.dataset.DomainQueryRunner;
 import org.pmiops.workbench.dataset.mapper.DataSetMapperImpl;
 import org.pmiops.workbench.db.dao.AccessTierDao;
 import org.pmiops.workbench.db.dao.CdrVersionDao;
@@ -57,8 +59,10 @@ public class DataDictionaryTest extends SpringTest {
     CommonMappers.class,
     DataSetController.class,
     DataSetServiceImpl.class,
+    DomainQueryRunner.class,
     DataSetMapperImpl.class,
     CdrVersionService.class,
+    MaterializedCohortService.class,
   })
   @MockBean({
     BigQueryService.class,
@@ -2,6 +2,7 @@ package org.pmiops.workbench.api;
 
 import static com.google.common.truth.Truth.assertThat;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.any;
 import static org.mockito.Mockito.doAnswer;
@@ -21,9 +22,13 @@ import com.google.cloud.bigquery.FieldList;
 import com.google.cloud.bigquery.FieldValue;
 import com.google.cloud.bigquery.FieldValue.Attribute;
 import com.google.cloud.bigquery.FieldValueList;
+import com.google.cloud.bigquery.Job;
+import com.google.cloud.bigquery.JobId;
+import com.google.cloud.bigquery.JobStatus;
 import com.google.cloud.bigquery.LegacySQLTypeName;
 import com.google.cloud.bigquery.QueryJobConfiguration;
 import com.google.cloud.bigquery.QueryParameterValue;
+import com.google.cloud.bigquery.Schema;
 import com.google.cloud.bigquery.StandardSQLTypeName;
 import com.google.cloud.bigquery.TableResult;
 import com.google.common.collect.ImmutableList;
@@ -63,6 +68,7 @@ import org.pmiops.workbench.cdr.model.DbDSDataDictionary;
 import org.pmiops.workbench.cdrselector.WorkspaceResourcesServiceImpl;
 import org.pmiops.workbench.cohortbuilder.CohortBuilderService;
 import org.pmiops.workbench.cohortbuilder.CohortQueryBuilder;
+import org.pmiops.workbench.cohortbuilder.MaterializedCohortService;
 import org.pmiops.workbench.cohortbuilder.mapper.CohortBuilderMapper;
 import org.pmiops.workbench.cohortreview.CohortReviewServiceImpl;
 import org.pmiops.workbench.cohortreview.ReviewQueryBuilder;
@@ -81,6 +87,7 @@ import org.pmiops.workbench.config.CdrBigQuerySchemaConfig;
 import org.pmiops.workbench.config.CdrBigQuerySchemaConfigService;
 import org.pmiops.workbench.config.WorkbenchConfig;
 import org.pmiops.workbench.dataset.DataSetServiceImpl;
+import org.pmiops.workbench.dataset.DomainQueryRunner;
 import org.pmiops.workbench.dataset.DatasetConfig;
 import org.pmiops.workbench.dataset.mapper.DataSetMapperImpl;
 import org.pmiops.workbench.db.dao.AccessTierDao;
@@ -114,7 +121,12 @@ import org.pmiops.workbench.model.ConceptSet;
 import org.pmiops.workbench.model.ConceptSetConceptId;
 import org.pmiops.workbench.model.CreateConceptSetRequest;
 import org.pmiops.workbench.model.DataSet;
+import org.pmiops.workbench.model.DataSetDomainPreview;
+import org.pmiops.workbench.model.DataSetDomainsPreviewRequest;
+import org.pmiops.workbench.model.DataSetDomainsPreviewResponse;
 import org.pmiops.workbench.model.DataSetExportRequest;
+import org.pmiops.workbench.model.DataSetPreviewJobResponse;
+import org.pmiops.workbench.model.DataSetPreviewRequest;
 import org.pmiops.workbench.model.DataSetPreviewValueList;
 import org.pmiops.workbench.model.DataSetRequest;
 import org.pmiops.workbench.model.Domain;
@@ -122,6 +134,7 @@ import org.pmiops.workbench.model.DomainValue;
 import org.pmiops.workbench.model.DomainValuePair;
 import org.pmiops.workbench.model.KernelTypeEnum;
 import org.pmiops.workbench.model.PrePackagedConceptSetEnum;
+import org.pmiops.workbench.model.QueryJobStatus;
 import org.pmiops.workbench.model.ResearchPurpose;
 import org.pmiops.workbench.model.Workspace;
 import org.pmiops.workbench.model.WorkspaceAccessLevel;
@@ -138,6 +151,7 @@ import org.pmiops.workbench.utils.mappers.CommonMappers;
 import org.pmiops.workbench.utils.mappers.FirecloudMapperImpl;
 import org.pmiops.workbench.utils.mappers.UserMapperImpl;
 import org.pmiops.workbench.utils.mappers.WorkspaceMapperImpl;
+import org.pmiops.workbench.workspaces.WorkspaceAccessResolver;
 import org.pmiops.workbench.workspaces.WorkspaceAuthService;
 import org.pmiops.workbench.workspaces.WorkspaceServiceImpl;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -228,11 +242,14 @@ public class DataSetControllerTest extends SpringTest {
     DataSetController.class,
     DataSetMapperImpl.class,
     DataSetServiceImpl.class,
+    DomainQueryRunner.class,
     FirecloudMapperImpl.class,
     LogsBasedMetricServiceFakeImpl.class,
+    MaterializedCohortService.class,
     TestBigQueryCdrSchemaConfig.class,
     UserMapperImpl.class,
     UserServiceTestConfiguration.class,
+    WorkspaceAccessResolver.class,
     WorkspaceAuthService.class,
     WorkspaceMapperImpl.class,
     WorkspaceResourcesServiceImpl.class,
@@ -579,6 +596,113 @@ public class DataSetControllerTest extends SpringTest {
         .isEqualTo(DataSetController.EMPTY_CELL_MARKER);
   }
 
+  @Test
+  public void testGetDataSetPreviewJob_keepsRequestedOrder() {
+    doAnswer(invocation -> invocation.getArgument(0))
+        .when(mockBigQueryService)
+        .filterBigQueryConfig(any());
+    final ArgumentCaptor<QueryJobConfiguration> startedQuery =
+        ArgumentCaptor.forClass(QueryJobConfiguration.class);
+    final Job job = mock(Job.class);
+    doReturn(JobId.of("job-id")).when(job).getJobId();
+    doReturn(job).when(mockBigQueryService).startQuery(startedQuery.capture());
+
+    dataSetController.startDataSetPreviewJob(
+        workspace.getNamespace(),
+        workspace.getName(),
+        new DataSetPreviewRequest()
+            .domain(Domain.CONDITION)
+            .includesAllParticipants(true)
+            .conceptSetIds(ImmutableList.of(conceptSet1.getId()))
+            .prePackagedConceptSet(ImmutableList.of(PrePackagedConceptSetEnum.NONE))
+            .values(ImmutableList.of("person_id", "condition_concept_id")));
+    assertThat(startedQuery.getValue().getQuery())
+        .contains("SELECT person_id, condition_concept_id \nFROM");
+
+    final JobStatus jobStatus = mock(JobStatus.class);
+    doReturn(JobStatus.State.DONE).when(jobStatus).getState();
+    doReturn(jobStatus).when(job).getStatus();
+    doReturn(startedQuery.getValue()).when(job).getConfiguration();
+    doReturn(Optional.of(job)).when(mockBigQueryService).getJob("job-id");
+
+    // The result's columns follow the query's select list.
+    final Schema schema =
+        Schema.of(
+            Field.of("person_id", LegacySQLTypeName.INTEGER),
+            Field.of("condition_concept_id", LegacySQLTypeName.INTEGER));
+    final TableResult tableResult = mock(TableResult.class);
+    doReturn(1L).when(tableResult).getTotalRows();
+    doReturn(schema).when(tableResult).getSchema();
+    doReturn(
+            ImmutableList.of(
+                FieldValueList.of(
+                    ImmutableList.of(
+                        FieldValue.of(Attribute.PRIMITIVE, "1"),
+                        FieldValue.of(Attribute.PRIMITIVE, "123")),
+                    schema.getFields())))
+        .when(tableResult)
+        .getValues();
+    doReturn(tableResult).when(mockBigQueryService).getQueryResults(eq(job), anyLong(), any());
+
+    final DataSetPreviewJobResponse response =
+        dataSetController
+            .getDataSetPreviewJob(workspace.getNamespace(), workspace.getName(), "job-id")
+            .getBody();
+    assertThat(response.getStatus()).isEqualTo(QueryJobStatus.DONE);
+    assertThat(
+            response.getPreview().getValues().stream()
+                .map(DataSetPreviewValueList::getValue)
+                .collect(Collectors.toList()))
+        .containsExactly("person_id", "condition_concept_id")
+        .inOrder();
+    assertThat(response.getPreview().getValues().get(0).getQueryValue()).containsExactly("1");
+  }
+
+  @Test
+  public void testPreviewDataSetDomains() {
+    doAnswer(invocation -> invocation.getArgument(0))
+        .when(mockBigQueryService)
+        .filterBigQueryConfig(any());
+    final Job job = mock(Job.class);
+    doReturn(JobId.of("job-id")).when(job).getJobId();
+    doReturn(job).when(mockBigQueryService).startQuery(any());
+    final Schema schema = Schema.of(Field.of("person_id", LegacySQLTypeName.INTEGER));
+    final TableResult tableResult = mock(TableResult.class);
+    doReturn(1L).when(tableResult).getTotalRows();
+    doReturn(schema).when(tableResult).getSchema();
+    doReturn(
+            ImmutableList.of(
+                FieldValueList.of(
+                    ImmutableList.of(FieldValue.of(Attribute.PRIMITIVE, "1")),
+                    schema.getFields())))
+        .when(tableResult)
+        .getValues();
+    doReturn(tableResult).when(mockBigQueryService).waitForQueryResults(eq(job), anyLong());
+
+    final DataSetDomainsPreviewResponse response =
+        dataSetController
+            .previewDataSetDomains(
+                workspace.getNamespace(),
+                workspace.getName(),
+                new DataSetDomainsPreviewRequest()
+                    .addItemsItem(
+                        new DataSetPreviewRequest()
+                            .domain(Domain.CONDITION)
+                            .includesAllParticipants(true)
+                            .conceptSetIds(ImmutableList.of(conceptSet1.getId()))
+                            .prePackagedConceptSet(
+                                ImmutableList.of(PrePackagedConceptSetEnum.NONE))
+                            .values(ImmutableList.of("person_id"))))
+            .getBody();
+    assertThat(response.getItems()).hasSize(1);
+    final DataSetDomainPreview domainPreview = response.getItems().get(0);
+    assertThat(domainPreview.getDomain()).isEqualTo(Domain.CONDITION);
+    assertThat(domainPreview.getJobId()).isEqualTo("job-id");
+    assertThat(domainPreview.getStatus()).isEqualTo(QueryJobStatus.DONE);
+    assertThat(domainPreview.getPreview().getValues().get(0).getQueryValue())
+        .containsExactly("1");
+  }
+
   @Test
   public void testGetQueryFailsWithNoCohort() {
     DataSetRequest dataSet = buildEmptyDataSetRequest();
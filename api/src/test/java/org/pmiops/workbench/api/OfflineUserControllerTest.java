@@ -13,6 +13,7 @@ import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import com.google.common.base.Functions;
+import com.google.common.util.concurrent.MoreExecutors;
 import java.io.IOException;
 import java.sql.Timestamp;
 import java.time.Instant;
@@ -20,12 +21,15 @@ import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
+import javax.inject.Provider;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.pmiops.workbench.SpringTest;
 import org.pmiops.workbench.access.AccessTierService;
+import org.pmiops.workbench.access.BulkAccessModuleSyncService;
 import org.pmiops.workbench.cloudtasks.TaskQueueService;
 import org.pmiops.workbench.config.WorkbenchConfig;
+import org.pmiops.workbench.db.dao.UserDao;
 import org.pmiops.workbench.db.dao.UserService;
 import org.pmiops.workbench.db.model.DbUser;
 import org.pmiops.workbench.exceptions.NotFoundException;
@@ -39,16 +43,19 @@ import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Import;
 import org.springframework.context.annotation.Scope;
+import org.springframework.retry.backoff.NoBackOffPolicy;
 import org.springframework.test.annotation.DirtiesContext;
 
 @DataJpaTest
 @DirtiesContext(classMode = DirtiesContext.ClassMode.BEFORE_EACH_TEST_METHOD)
 public class OfflineUserControllerTest extends SpringTest {
+  @Autowired private AccessTierService mockAccessTierService;
   @Autowired private UserService mockUserService;
   @Autowired private DirectoryService mockDirectoryService;
   @Autowired private OfflineUserController offlineUserController;
+  @Autowired private UserDao userDao;
 
-  private Long incrementedUserId = 1L;
+  private List<DbUser> users;
 
   private static WorkbenchConfig workbenchConfig;
 
@@ -66,13 +73,33 @@ public class OfflineUserControllerTest extends SpringTest {
     WorkbenchConfig getWorkbenchConfig() {
       return workbenchConfig;
     }
+
+    // The users are saved in the test's transaction, so they must be loaded on the test thread.
+    @Bean
+    BulkAccessModuleSyncService bulkAccessModuleSyncService(
+        Provider<WorkbenchConfig> workbenchConfigProvider, UserDao userDao) {
+      return new BulkAccessModuleSyncService(
+          MoreExecutors.newDirectExecutorService(),
+          new NoBackOffPolicy(),
+          workbenchConfigProvider,
+          userDao);
+    }
   }
 
   @BeforeEach
   public void setUp() {
-    when(mockUserService.getAllUsersExcludingDisabled()).thenReturn(getUsers());
-    when(mockUserService.getAllUsers()).thenReturn(getUsers());
+    users =
+        Arrays.asList(
+            createUser("a@fake-research-aou.org"),
+            createUser("b@fake-research-aou.org"),
+            createUser("c@fake-research-aou.org"),
+            createUser("never-signed-in@fake-research-aou.org", false));
+    when(mockUserService.getAllUserIdsExcludingDisabled())
+        .thenReturn(users.stream().map(DbUser::getUserId).collect(Collectors.toList()));
+    when(mockUserService.getAllUsers()).thenReturn(users);
     workbenchConfig = WorkbenchConfig.createEmptyConfig();
+    workbenchConfig.offlineBatch.moodleSyncRequestsPerSecond = 1000.0;
+    workbenchConfig.offlineBatch.terraSyncRequestsPerSecond = 1000.0;
   }
 
   private DbUser createUser(String email) {
@@ -82,20 +109,10 @@ public class OfflineUserControllerTest extends SpringTest {
   private DbUser createUser(String email, boolean signedIn) {
     DbUser user = new DbUser();
     user.setUsername(email);
-    user.setUserId(incrementedUserId);
     if (signedIn) {
       user.setFirstSignInTime(Timestamp.from(Instant.parse("2000-01-01T00:00:00.00Z")));
     }
-    incrementedUserId++;
-    return user;
-  }
-
-  private List<DbUser> getUsers() {
-    return Arrays.asList(
-        createUser("a@fake-research-aou.org"),
-        createUser("b@fake-research-aou.org"),
-        createUser("c@fake-research-aou.org"),
-        createUser("never-signed-in@fake-research-aou.org", false));
+    return userDao.save(user);
   }
 
   @Test
@@ -131,7 +148,7 @@ public class OfflineUserControllerTest extends SpringTest {
   @Test
   public void testBulkSyncTwoFactorAuthSync() {
     Map<String, Boolean> allTwoFactorEnabled =
-        getUsers().stream()
+        users.stream()
             .collect(Collectors.toMap(DbUser::getUsername, Functions.constant(true)));
     doReturn(allTwoFactorEnabled).when(mockDirectoryService).getAllTwoFactorAuthStatuses();
     doAnswer(i -> i.getArgument(0))
@@ -145,7 +162,7 @@ public class OfflineUserControllerTest extends SpringTest {
   @Test
   public void testBulkSyncTwoFactorAuthSyncMissingUsers() {
     Map<String, Boolean> allTwoFactorEnabled =
-        getUsers().stream()
+        users.stream()
             .limit(2)
             .collect(Collectors.toMap(DbUser::getUsername, Functions.constant(false)));
     doReturn(allTwoFactorEnabled).when(mockDirectoryService).getAllTwoFactorAuthStatuses();
@@ -161,6 +178,13 @@ public class OfflineUserControllerTest extends SpringTest {
     verify(mockUserService, times(2)).syncTwoFactorAuthStatus(any(), any(), eq(false));
   }
 
+  @Test
+  public void testSynchronizeUserAccess() {
+    offlineUserController.synchronizeUserAccess();
+    verify(mockUserService, times(4)).updateUserWithRetries(any(), any(), any());
+    verify(mockAccessTierService).reconcileAuthDomains();
+  }
+
   @Test
   public void testBulkSyncEraCommonsStatus()
       throws IOException, org.pmiops.workbench.firecloud.ApiException {
@@ -1,18 +1,23 @@
 package org.pmiops.workbench.api;
 
 import static com.google.common.truth.Truth.assertThat;
+import static org.mockito.ArgumentMatchers.anyCollection;
 import static org.mockito.ArgumentMatchers.anyList;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import com.google.cloud.storage.BlobId;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
+import com.google.common.util.concurrent.MoreExecutors;
 import java.sql.Timestamp;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
-import java.util.Optional;
+import java.util.Map;
+import java.util.stream.Collectors;
 import javax.inject.Provider;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -44,6 +49,7 @@ import org.pmiops.workbench.utils.TestMockFactory;
 import org.pmiops.workbench.utils.mappers.CommonMappers;
 import org.pmiops.workbench.utils.mappers.FirecloudMapper;
 import org.pmiops.workbench.utils.mappers.FirecloudMapperImpl;
+import org.pmiops.workbench.workspaces.WorkspaceAccessResolver;
 import org.pmiops.workbench.workspaces.WorkspaceAuthService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
@@ -123,17 +129,12 @@ public class UserMetricsControllerTest extends SpringTest {
     dbUserRecentResource1.setUserId(dbUser.getUserId());
     dbUserRecentResource1.setWorkspaceId(dbWorkspace1.getWorkspaceId());
 
-    when(workspaceDao.findActiveByWorkspaceId(dbUserRecentResource1.getWorkspaceId()))
-        .thenReturn(Optional.of(dbWorkspace1));
-
     dbUserRecentResource2 = new DbUserRecentResource();
     dbUserRecentResource2.setNotebookName(null);
     dbUserRecentResource2.setCohort(dbCohort);
     dbUserRecentResource2.setLastAccessDate(new Timestamp(fakeClock.millis() - 10000));
     dbUserRecentResource2.setUserId(dbUser.getUserId());
     dbUserRecentResource2.setWorkspaceId(dbWorkspace2.getWorkspaceId());
-    when(workspaceDao.findActiveByWorkspaceId(dbUserRecentResource2.getWorkspaceId()))
-        .thenReturn(Optional.of(dbWorkspace2));
 
     dbUserRecentResource3 = new DbUserRecentResource();
     dbUserRecentResource3.setNotebookName("gs://bucketFile/notebooks/notebook2.ipynb");
@@ -143,8 +144,19 @@ public class UserMetricsControllerTest extends SpringTest {
     dbUserRecentResource3.setUserId(dbUser.getUserId());
     dbUserRecentResource3.setWorkspaceId(dbWorkspace2.getWorkspaceId());
 
-    when(workspaceDao.findActiveByWorkspaceId(dbUserRecentResource3.getWorkspaceId()))
-        .thenReturn(Optional.of(dbWorkspace2));
+    final Map<Long, DbWorkspace> workspacesById =
+        ImmutableMap.of(
+            dbWorkspace1.getWorkspaceId(), dbWorkspace1,
+            dbWorkspace2.getWorkspaceId(), dbWorkspace2);
+    when(workspaceDao.findAllByWorkspaceIdIn(anyCollection()))
+        .then(
+            (i) -> {
+              Collection<Long> ids = i.getArgument(0);
+              return ids.stream()
+                  .filter(workspacesById::containsKey)
+                  .map(workspacesById::get)
+                  .collect(Collectors.toList());
+            });
 
     final FirecloudWorkspace fcWorkspace1 = new FirecloudWorkspace();
     fcWorkspace1.setNamespace(dbWorkspace1.getFirecloudName());
@@ -170,11 +182,13 @@ public class UserMetricsControllerTest extends SpringTest {
             dbWorkspace2.getWorkspaceNamespace(), dbWorkspace2.getFirecloudName()))
         .thenReturn(dbWorkspace2);
 
-    when(mockFireCloudService.getWorkspace(dbWorkspace1))
-        .thenReturn(Optional.of(workspaceResponse));
+    when(mockFireCloudService.getWorkspace(
+            dbWorkspace1.getWorkspaceNamespace(), dbWorkspace1.getFirecloudName()))
+        .thenReturn(workspaceResponse);
 
-    when(mockFireCloudService.getWorkspace(dbWorkspace2))
-        .thenReturn(Optional.of(workspaceResponse2));
+    when(mockFireCloudService.getWorkspace(
+            dbWorkspace2.getWorkspaceNamespace(), dbWorkspace2.getFirecloudName()))
+        .thenReturn(workspaceResponse2);
 
     when(mockCloudStorageClient.getExistingBlobIdsIn(anyList()))
         .then(
@@ -192,6 +206,8 @@ public class UserMetricsControllerTest extends SpringTest {
             mockUserRecentResourceService,
             workspaceDao,
             workspaceAuthService,
+            new WorkspaceAccessResolver(
+                mockFireCloudService, MoreExecutors.newDirectExecutorService(), 1000),
             mockFireCloudService,
             mockCloudStorageClient,
             commonMappers,
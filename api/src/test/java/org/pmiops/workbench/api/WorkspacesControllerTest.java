@@ -63,6 +63,7 @@ import org.pmiops.workbench.cdr.ConceptBigQueryService;
 import org.pmiops.workbench.cdrselector.WorkspaceResourcesServiceImpl;
 import org.pmiops.workbench.cohortbuilder.CohortBuilderService;
 import org.pmiops.workbench.cohortbuilder.CohortQueryBuilder;
+import org.pmiops.workbench.cohortbuilder.MaterializedCohortService;
 import org.pmiops.workbench.cohortbuilder.mapper.CohortBuilderMapper;
 import org.pmiops.workbench.cohortreview.CohortAnnotationDefinitionServiceImpl;
 import org.pmiops.workbench.cohortreview.CohortReviewServiceImpl;
@@ -82,6 +83,7 @@ import org.pmiops.workbench.config.CdrBigQuerySchemaConfigService;
 import org.pmiops.workbench.config.WorkbenchConfig;
 import org.pmiops.workbench.dataset.DataSetService;
 import org.pmiops.workbench.dataset.DataSetServiceImpl;
+import org.pmiops.workbench.dataset.DomainQueryRunner;
 import org.pmiops.workbench.dataset.mapper.DataSetMapperImpl;
 import org.pmiops.workbench.db.dao.AccessTierDao;
 import org.pmiops.workbench.db.dao.CdrVersionDao;
@@ -166,18 +168,22 @@ import org.pmiops.workbench.model.WorkspaceBillingUsageResponse;
 import org.pmiops.workbench.model.WorkspaceResource;
 import org.pmiops.workbench.model.WorkspaceResourceResponse;
 import org.pmiops.workbench.model.WorkspaceResourcesRequest;
+import org.pmiops.workbench.model.WorkspaceResponsePage;
 import org.pmiops.workbench.model.WorkspaceUserRolesResponse;
 import org.pmiops.workbench.monitoring.LogsBasedMetricServiceFakeImpl;
 import org.pmiops.workbench.monitoring.MonitoringService;
+import org.pmiops.workbench.notebooks.NotebookMetadataService;
 import org.pmiops.workbench.notebooks.NotebooksService;
 import org.pmiops.workbench.notebooks.NotebooksServiceImpl;
 import org.pmiops.workbench.test.FakeClock;
 import org.pmiops.workbench.test.SearchRequests;
+import org.pmiops.workbench.utils.PaginationToken;
 import org.pmiops.workbench.utils.TestMockFactory;
 import org.pmiops.workbench.utils.mappers.CommonMappers;
 import org.pmiops.workbench.utils.mappers.FirecloudMapperImpl;
 import org.pmiops.workbench.utils.mappers.UserMapperImpl;
 import org.pmiops.workbench.utils.mappers.WorkspaceMapperImpl;
+import org.pmiops.workbench.workspaces.WorkspaceAccessResolver;
 import org.pmiops.workbench.workspaces.WorkspaceAuthService;
 import org.pmiops.workbench.workspaces.WorkspaceService;
 import org.pmiops.workbench.workspaces.WorkspaceServiceImpl;
@@ -273,13 +279,17 @@ public class WorkspacesControllerTest extends SpringTest {
     DataSetController.class,
     DataSetMapperImpl.class,
     DataSetServiceImpl.class,
+    DomainQueryRunner.class,
     FirecloudMapperImpl.class,
     LogsBasedMetricServiceFakeImpl.class,
+    MaterializedCohortService.class,
+    NotebookMetadataService.class,
     NotebooksServiceImpl.class,
     ParticipantCohortAnnotationMapperImpl.class,
     ParticipantCohortStatusMapperImpl.class,
     ReviewQueryBuilder.class,
     UserMapperImpl.class,
+    WorkspaceAccessResolver.class,
     WorkspaceAuthService.class,
     WorkspaceMapperImpl.class,
     WorkspaceResourcesServiceImpl.class,
@@ -555,6 +565,68 @@ public class WorkspacesControllerTest extends SpringTest {
     assertThat(workspacesController.getWorkspaces().getBody().getItems().size()).isEqualTo(1);
   }
 
+  @Test
+  public void testGetWorkspacesPage() {
+    stubFcGetWorkspacesForPage("c", "a", "b");
+
+    WorkspaceResponsePage firstPage =
+        workspacesController.getWorkspacesPage(null, 2, "name", "asc", null, null, null).getBody();
+    assertThat(workspaceNames(firstPage)).containsExactly("a", "b").inOrder();
+    assertThat(firstPage.getTotalCount()).isEqualTo(3);
+    assertThat(firstPage.getNextPageToken()).isNotNull();
+
+    WorkspaceResponsePage secondPage =
+        workspacesController
+            .getWorkspacesPage(firstPage.getNextPageToken(), 2, "name", "asc", null, null, null)
+            .getBody();
+    assertThat(workspaceNames(secondPage)).containsExactly("c");
+    assertThat(secondPage.getTotalCount()).isEqualTo(3);
+    assertThat(secondPage.getNextPageToken()).isNull();
+  }
+
+  @Test
+  public void testGetWorkspacesPage_negativeOffset() {
+    stubFcGetWorkspacesForPage("a");
+    String pageToken = PaginationToken.of(-2, 2, "name", "ASC", null, null, null).toBase64();
+
+    assertThrows(
+        BadRequestException.class,
+        () ->
+            workspacesController.getWorkspacesPage(pageToken, 2, "name", "asc", null, null, null));
+  }
+
+  @Test
+  public void testGetWorkspacesPage_invalidPageSize() {
+    assertThrows(
+        BadRequestException.class,
+        () -> workspacesController.getWorkspacesPage(null, 0, "name", "asc", null, null, null));
+  }
+
+  /** Creates a workspace with each name, and stubs FireCloud to list them all as owned. */
+  private void stubFcGetWorkspacesForPage(String... names) {
+    List<FirecloudWorkspaceResponse> fcResponses = new ArrayList<>();
+    for (String name : names) {
+      mockBillingProjectBuffer("namespace-" + name);
+      Workspace workspace =
+          workspacesController
+              .createWorkspace(testMockFactory.createWorkspace("namespace", name))
+              .getBody();
+      fcResponses.add(
+          new FirecloudWorkspaceResponse()
+              .workspace(
+                  testMockFactory.createFirecloudWorkspace(
+                      workspace.getNamespace(), workspace.getName(), null))
+              .accessLevel(WorkspaceAccessLevel.OWNER.toString()));
+    }
+    doReturn(fcResponses).when(fireCloudService).getWorkspaces(anyList());
+  }
+
+  private static List<String> workspaceNames(WorkspaceResponsePage page) {
+    return page.getItems().stream()
+        .map(workspaceResponse -> workspaceResponse.getWorkspace().getName())
+        .collect(Collectors.toList());
+  }
+
   @Test
   public void testCreateWorkspace() throws Exception {
     Workspace workspace = createWorkspace();
@@ -2409,7 +2481,7 @@ public class WorkspacesControllerTest extends SpringTest {
     when(mockBlob2.getName()).thenReturn("notebooks/mockFile.text");
     when(mockBlob3.getName())
         .thenReturn(NotebooksService.withNotebookExtension("notebooks/two words"));
-    when(cloudStorageClient.getBlobPageForPrefix("bucket", "notebooks"))
+    when(cloudStorageClient.getBlobsInDirectory("bucket", "notebooks"))
         .thenReturn(ImmutableList.of(mockBlob1, mockBlob2, mockBlob3));
 
     // Will return 1 entry as only python files in notebook folder are return
@@ -2435,7 +2507,7 @@ public class WorkspacesControllerTest extends SpringTest {
     when(mockBlob1.getName())
         .thenReturn(NotebooksService.withNotebookExtension("notebooks/extra/nope"));
     when(mockBlob2.getName()).thenReturn(NotebooksService.withNotebookExtension("notebooks/foo"));
-    when(cloudStorageClient.getBlobPageForPrefix("bucket", "notebooks"))
+    when(cloudStorageClient.getBlobsInDirectory("bucket", "notebooks"))
         .thenReturn(ImmutableList.of(mockBlob1, mockBlob2));
 
     List<String> gotNames =
@@ -0,0 +1,67 @@
+package org.pmiops.workbench.auth;
+
+import com.google.api.client.http.LowLevelHttpRequest;
+import com.google.api.client.http.LowLevelHttpResponse;
+import com.google.api.client.json.Json;
+import com.google.api.client.json.jackson2.JacksonFactory;
+import com.google.api.client.testing.http.MockHttpTransport;
+import com.google.api.client.testing.http.MockLowLevelHttpRequest;
+import com.google.api.client.testing.http.MockLowLevelHttpResponse;
+import com.google.api.services.oauth2.model.Userinfoplus;
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * A local stand-in for Google's OAuth2 userinfo endpoint. Pass it to {@link UserInfoService} in
+ * place of the real HttpTransport: registered tokens resolve to their user info, and any other
+ * token gets a 401, as it would from Google.
+ */
+public class FakeUserInfoTransport extends MockHttpTransport {
+
+  private static final String USERINFO_PATH = "/oauth2/v2/userinfo";
+
+  private final Map<String, Userinfoplus> userInfoByToken = new ConcurrentHashMap<>();
+  private final AtomicInteger requestCount = new AtomicInteger();
+
+  public FakeUserInfoTransport addToken(String token, String email) {
+    userInfoByToken.put(token, new Userinfoplus().setEmail(email).setVerifiedEmail(true));
+    return this;
+  }
+
+  public FakeUserInfoTransport revokeToken(String token) {
+    userInfoByToken.remove(token);
+    return this;
+  }
+
+  /** The number of userinfo calls served so far. */
+  public int getRequestCount() {
+    return requestCount.get();
+  }
+
+  @Override
+  public LowLevelHttpRequest buildRequest(String method, String url) {
+    return new MockLowLevelHttpRequest(url) {
+      @Override
+      public LowLevelHttpResponse execute() throws IOException {
+        requestCount.incrementAndGet();
+        final String authorization = getFirstHeaderValue("Authorization");
+        final Userinfoplus userInfo =
+            url.contains(USERINFO_PATH) && authorization != null
+                ? userInfoByToken.get(authorization.substring("Bearer".length()).trim())
+                : null;
+        if (userInfo == null) {
+          return new MockLowLevelHttpResponse()
+              .setStatusCode(HttpServletResponse.SC_UNAUTHORIZED)
+              .setContentType(Json.MEDIA_TYPE)
+              .setContent("{\"error\": {\"code\": 401, \"message\": \"Invalid Credentials\"}}");
+        }
+        return new MockLowLevelHttpResponse()
+            .setContentType(Json.MEDIA_TYPE)
+            .setContent(JacksonFactory.getDefaultInstance().toString(userInfo));
+      }
+    };
+  }
+}
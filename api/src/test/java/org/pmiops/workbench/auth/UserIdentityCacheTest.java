@@ -0,0 +1,63 @@
+package org.pmiops.workbench.auth;
+
+import static com.google.common.truth.Truth8.assertThat;
+
+import com.google.api.services.oauth2.model.Userinfoplus;
+import java.time.Duration;
+import java.time.Instant;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.pmiops.workbench.auth.UserIdentityCache.Identity;
+import org.pmiops.workbench.test.FakeClock;
+
+public class UserIdentityCacheTest {
+
+  private static final Identity IDENTITY =
+      new Identity(new Userinfoplus().setEmail("bob@fake-domain.org"), "bob@fake-domain.org", 1L);
+
+  private FakeClock clock;
+  private UserIdentityCache userIdentityCache;
+
+  @BeforeEach
+  public void setUp() {
+    clock = new FakeClock(Instant.parse("2000-01-01T00:00:00.00Z"));
+    userIdentityCache = new UserIdentityCache(clock);
+  }
+
+  @Test
+  public void testGet_expiresWithToken() {
+    userIdentityCache.put("token", IDENTITY, Duration.ofSeconds(30));
+
+    clock.increment(Duration.ofSeconds(29).toMillis());
+    assertThat(userIdentityCache.get("token")).hasValue(IDENTITY);
+
+    clock.increment(Duration.ofSeconds(2).toMillis());
+    assertThat(userIdentityCache.get("token")).isEmpty();
+  }
+
+  @Test
+  public void testGet_expiryIsCapped() {
+    userIdentityCache.put("token", IDENTITY, Duration.ofHours(1));
+
+    clock.increment(
+        Duration.ofMinutes(UserIdentityCache.TOKEN_EXPIRY_MINUTES).minusSeconds(1).toMillis());
+    assertThat(userIdentityCache.get("token")).hasValue(IDENTITY);
+
+    clock.increment(Duration.ofSeconds(1).toMillis());
+    assertThat(userIdentityCache.get("token")).isEmpty();
+  }
+
+  @Test
+  public void testInvalidateUser() {
+    userIdentityCache.put("token", IDENTITY, Duration.ofHours(1));
+    userIdentityCache.put(
+        "other-token",
+        new Identity(new Userinfoplus().setEmail("amy@fake-domain.org"), "amy@fake-domain.org", 2L),
+        Duration.ofHours(1));
+
+    userIdentityCache.invalidateUser(1L);
+
+    assertThat(userIdentityCache.get("token")).isEmpty();
+    assertThat(userIdentityCache.get("other-token")).isPresent();
+  }
+}
@@ -0,0 +1,45 @@
+package org.pmiops.workbench.auth;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import com.google.api.client.json.jackson2.JacksonFactory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.pmiops.workbench.exceptions.WorkbenchException;
+import org.pmiops.workbench.google.GoogleRetryHandler;
+import org.springframework.retry.backoff.NoBackOffPolicy;
+
+public class UserInfoServiceTest {
+
+  private FakeUserInfoTransport fakeTransport;
+  private UserInfoService userInfoService;
+
+  @BeforeEach
+  public void setUp() {
+    fakeTransport = new FakeUserInfoTransport().addToken("good-token", "bob@fake-domain.org");
+    userInfoService =
+        new UserInfoService(
+            fakeTransport,
+            JacksonFactory.getDefaultInstance(),
+            new GoogleRetryHandler(new NoBackOffPolicy()));
+  }
+
+  @Test
+  public void testGetUserInfo() {
+    assertThat(userInfoService.getUserInfo("good-token").getEmail())
+        .isEqualTo("bob@fake-domain.org");
+    assertThat(fakeTransport.getRequestCount()).isEqualTo(1);
+  }
+
+  @Test
+  public void testGetUserInfo_unknownToken() {
+    assertThrows(WorkbenchException.class, () -> userInfoService.getUserInfo("bad-token"));
+  }
+
+  @Test
+  public void testGetUserInfo_revokedToken() {
+    fakeTransport.revokeToken("good-token");
+    assertThrows(WorkbenchException.class, () -> userInfoService.getUserInfo("good-token"));
+  }
+}
@@ -0,0 +1,151 @@
+package org.pmiops.workbench.cohortbuilder;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import java.util.Set;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.pmiops.workbench.cdr.model.DbCriteriaHierarchyNode;
+
+public class CriteriaHierarchyIndexTest {
+
+  private static final String ICD9 = "ICD9CM";
+  private static final String SNOMED = "SNOMED";
+
+  private CriteriaHierarchyIndex index;
+
+  private static class Node implements DbCriteriaHierarchyNode {
+    private final Long id;
+    private final Long parentId;
+    private final String conceptId;
+    private final String type;
+    private final Boolean standard;
+
+    Node(long id, long parentId, String conceptId, String type, boolean standard) {
+      this.id = id;
+      this.parentId = parentId;
+      this.conceptId = conceptId;
+      this.type = type;
+      this.standard = standard;
+    }
+
+    @Override
+    public Long getId() {
+      return id;
+    }
+
+    @Override
+    public Long getParentId() {
+      return parentId;
+    }
+
+    @Override
+    public String getConceptId() {
+      return conceptId;
+    }
+
+    @Override
+    public String getType() {
+      return type;
+    }
+
+    @Override
+    public Boolean getStandard() {
+      return standard;
+    }
+  }
+
+  @BeforeEach
+  public void setUp() {
+    // 1 (SNOMED 100)
+    // | - 2 (SNOMED 200)
+    // |   | - 11 (SNOMED 1100)
+    // |   | - 12 (no concept)
+    // |         | - 13 (SNOMED 1300)
+    // | - 3 (SNOMED 300)
+    // 4 (ICD9 400, source)
+    // | - 5 (ICD9 500)
+    // |   | - 6 (ICD9 600)
+    // | - 7 (ICD10CM 700)
+    // 8 (SNOMED 200, a second copy of concept 200 without the rank1 marker)
+    // | - 9 (SNOMED 900)
+    index =
+        CriteriaHierarchyIndex.build(
+            ImmutableList.of(
+                new Node(1, 0, "100", SNOMED, true),
+                new Node(2, 1, "200", SNOMED, true),
+                new Node(3, 1, "300", SNOMED, true),
+                new Node(4, 0, "400", ICD9, false),
+                new Node(5, 4, "500", ICD9, false),
+                new Node(6, 5, "600", ICD9, false),
+                new Node(7, 4, "700", "ICD10CM", false),
+                new Node(8, 0, "200", SNOMED, true),
+                new Node(9, 8, "900", SNOMED, true),
+                new Node(11, 2, "1100", SNOMED, true),
+                new Node(12, 2, null, SNOMED, true),
+                new Node(13, 12, "1300", SNOMED, true)),
+            ImmutableList.of(1L, 2L, 3L, 4L, 5L, 6L, 7L, 9L, 11L, 13L));
+  }
+
+  @Test
+  public void testFindDescendantConceptIds() {
+    assertThat(index.findDescendantConceptIds(100L, SNOMED, true, ImmutableSet.of(100L)))
+        .containsExactly(200L, 300L, 1100L, 1300L);
+  }
+
+  @Test
+  public void testFindDescendantConceptIds_usesRank1NodeOnly() {
+    // Node 8 shares concept 200 with node 2, but only node 2 is rank1.
+    assertThat(index.findDescendantConceptIds(200L, SNOMED, true, ImmutableSet.of(200L)))
+        .containsExactly(1100L, 1300L);
+  }
+
+  @Test
+  public void testFindDescendantConceptIds_noSubstringMatches() {
+    // Node 3's id is a substring of node 13's, so a path LIKE scan would also match node 13.
+    assertThat(index.findDescendantConceptIds(300L, SNOMED, true, ImmutableSet.of(300L)))
+        .isEmpty();
+  }
+
+  @Test
+  public void testFindDescendantConceptIds_excludesRequestedConcepts() {
+    final Set<Long> requested = ImmutableSet.of(100L, 200L);
+    assertThat(index.findDescendantConceptIds(100L, SNOMED, true, requested))
+        .containsExactly(300L, 1100L, 1300L);
+  }
+
+  @Test
+  public void testFindDescendantConceptIds_typeAndStandardMustMatch() {
+    assertThat(index.findDescendantConceptIds(100L, ICD9, true, ImmutableSet.of(100L))).isEmpty();
+    assertThat(index.findDescendantConceptIds(100L, SNOMED, false, ImmutableSet.of(100L)))
+        .isEmpty();
+    assertThat(index.findDescendantConceptIds(100L, SNOMED, null, ImmutableSet.of(100L)))
+        .isEmpty();
+  }
+
+  @Test
+  public void testFindChildConceptIds() {
+    assertThat(index.findChildConceptIds(400L, ICD9, false, ImmutableSet.of(400L)))
+        .containsExactly(500L);
+  }
+
+  @Test
+  public void testSize() {
+    assertThat(index.size()).isEqualTo(12);
+    assertThat(index.estimatedSizeBytes()).isGreaterThan(12L * Long.BYTES);
+  }
+
+  @Test
+  public void testBuild_unsortedNodes() {
+    assertThrows(
+        IllegalArgumentException.class,
+        () ->
+            CriteriaHierarchyIndex.build(
+                ImmutableList.of(
+                    new Node(2, 0, "2", SNOMED, true), new Node(1, 0, "1", SNOMED, true)),
+                ImmutableList.of()));
+  }
+}
@@ -0,0 +1,95 @@
+package org.pmiops.workbench.cohortbuilder;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.pmiops.workbench.cdr.CdrVersionContext;
+import org.pmiops.workbench.cohortbuilder.CriteriaIndexCache.Index;
+import org.pmiops.workbench.cohortbuilder.CriteriaIndexCache.Kind;
+import org.pmiops.workbench.config.WorkbenchConfig;
+import org.pmiops.workbench.db.model.DbCdrVersion;
+import org.pmiops.workbench.test.Providers;
+
+public class CriteriaIndexCacheTest {
+
+  private static final long MEGABYTE = 1024 * 1024;
+
+  private CriteriaIndexCache cache;
+  private AtomicInteger loads;
+
+  @BeforeEach
+  public void setUp() {
+    WorkbenchConfig config = WorkbenchConfig.createEmptyConfig();
+    config.cdr.criteriaIndexCacheMegabytes = 4;
+    cache = new CriteriaIndexCache(Providers.of(config));
+    loads = new AtomicInteger();
+    DbCdrVersion cdrVersion = new DbCdrVersion();
+    cdrVersion.setCdrVersionId(1L);
+    CdrVersionContext.setCdrVersionNoCheckAuthDomain(cdrVersion);
+  }
+
+  @AfterEach
+  public void tearDown() {
+    CdrVersionContext.clearCdrVersion();
+  }
+
+  @Test
+  public void testGet_loadsOnce() {
+    Index index = cache.get(Kind.HIERARCHY, "CONDITION", () -> load(MEGABYTE)).get();
+
+    assertThat(cache.get(Kind.HIERARCHY, "CONDITION", () -> load(MEGABYTE)).get())
+        .isSameInstanceAs(index);
+    assertThat(loads.get()).isEqualTo(1);
+  }
+
+  @Test
+  public void testGet_kindsAreKeptApart() {
+    Index hierarchy = cache.get(Kind.HIERARCHY, "CONDITION", () -> load(MEGABYTE)).get();
+    Index search = cache.get(Kind.SEARCH, "CONDITION", () -> load(MEGABYTE)).get();
+
+    assertThat(search).isNotSameInstanceAs(hierarchy);
+    assertThat(loads.get()).isEqualTo(2);
+  }
+
+  @Test
+  public void testGet_kindsShareOneBudget() {
+    cache.get(Kind.HIERARCHY, "CONDITION", () -> load(3 * MEGABYTE));
+    // Only fits once the hierarchy index is evicted.
+    cache.get(Kind.SEARCH, "CONDITION", () -> load(2 * MEGABYTE));
+    cache.get(Kind.HIERARCHY, "CONDITION", () -> load(3 * MEGABYTE));
+
+    assertThat(loads.get()).isEqualTo(3);
+  }
+
+  @Test
+  public void testGet_oversizedIndexIsNotKept() {
+    assertThat(cache.get(Kind.SEARCH, "DRUG", () -> load(5 * MEGABYTE))).isEmpty();
+    assertThat(cache.get(Kind.SEARCH, "DRUG", () -> load(5 * MEGABYTE))).isEmpty();
+
+    // The index is not loaded again just to be thrown away.
+    assertThat(loads.get()).isEqualTo(1);
+  }
+
+  @Test
+  public void testGet_noCdrVersion() {
+    CdrVersionContext.clearCdrVersion();
+
+    assertThat(cache.get(Kind.SEARCH, "DRUG", () -> load(MEGABYTE))).isEmpty();
+    assertThat(loads.get()).isEqualTo(0);
+  }
+
+  @Test
+  public void testGetMaxBytes_defaultsWhenUnset() {
+    cache = new CriteriaIndexCache(Providers.of(WorkbenchConfig.createEmptyConfig()));
+
+    assertThat(cache.getMaxBytes()).isEqualTo(16 * MEGABYTE);
+  }
+
+  private Index load(long bytes) {
+    loads.incrementAndGet();
+    return () -> bytes;
+  }
+}
@@ -0,0 +1,204 @@
+package org.pmiops.workbench.cohortbuilder;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import java.util.BitSet;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.pmiops.workbench.cdr.model.DbCriteriaSearchDocument;
+import org.pmiops.workbench.cdr.model.DbSurveyQuestionPath;
+
+public class CriteriaSearchIndexTest {
+
+  private static final String ICD10 = "ICD10CM";
+  private static final String SNOMED = "SNOMED";
+
+  private CriteriaSearchIndex index;
+
+  private static class Document implements DbCriteriaSearchDocument {
+    private final Long id;
+    private final String conceptId;
+    private final String code;
+    private final String name;
+    private final String fullText;
+    private final Long estCount;
+    private final String type;
+    private final Boolean standard;
+    private final Boolean hierarchy;
+
+    Document(
+        long id,
+        String code,
+        String fullText,
+        long estCount,
+        String type,
+        boolean standard,
+        boolean hierarchy) {
+      this.id = id;
+      this.conceptId = String.valueOf(id * 100);
+      this.code = code;
+      this.name = fullText.split("\\|")[0];
+      this.fullText = fullText;
+      this.estCount = estCount;
+      this.type = type;
+      this.standard = standard;
+      this.hierarchy = hierarchy;
+    }
+
+    @Override
+    public Long getId() {
+      return id;
+    }
+
+    @Override
+    public String getConceptId() {
+      return conceptId;
+    }
+
+    @Override
+    public String getCode() {
+      return code;
+    }
+
+    @Override
+    public String getName() {
+      return name;
+    }
+
+    @Override
+    public String getFullText() {
+      return fullText;
+    }
+
+    @Override
+    public Long getEstCount() {
+      return estCount;
+    }
+
+    @Override
+    public String getType() {
+      return type;
+    }
+
+    @Override
+    public Boolean getStandard() {
+      return standard;
+    }
+
+    @Override
+    public Boolean getHierarchy() {
+      return hierarchy;
+    }
+  }
+
+  private static class Question implements DbSurveyQuestionPath {
+    private final String conceptId;
+    private final String path;
+
+    Question(String conceptId, String path) {
+      this.conceptId = conceptId;
+      this.path = path;
+    }
+
+    @Override
+    public String getConceptId() {
+      return conceptId;
+    }
+
+    @Override
+    public String getPath() {
+      return path;
+    }
+  }
+
+  @BeforeEach
+  public void setUp() {
+    index =
+        CriteriaSearchIndex.build(
+            ImmutableList.of(
+                new Document(1, "I50", "Heart failure|[condition_rank1]", 20, SNOMED, true, true),
+                new Document(
+                    2,
+                    "I21",
+                    "Heart attack|Myocardial infarction|[condition_rank1]",
+                    10,
+                    SNOMED,
+                    true,
+                    true),
+                new Document(3, "I21.9", "Acute heart attack", 10, ICD10, false, true),
+                new Document(4, "J98", "Lung disease|[condition_rank1]", 5, SNOMED, true, false),
+                new Document(5, "R01", "Heart murmur", 50, SNOMED, true, true)),
+            ImmutableList.of(
+                new Question("100", "9.1"),
+                new Question("200", "9.2"),
+                new Question("500", "8.5"),
+                new Question("300", "8.3")),
+            ImmutableMap.of(9L, "Lifestyle", 8L, "Overall Health"));
+  }
+
+  @Test
+  public void testMatchText_ordersByCountThenName() {
+    assertThat(index.topIds(index.matchText(ImmutableList.of("heart"), null), 10))
+        .containsExactly(5L, 1L, 3L, 2L)
+        .inOrder();
+  }
+
+  @Test
+  public void testMatchText_exactWordsAndPrefix() {
+    assertThat(index.topIds(index.matchText(ImmutableList.of("heart"), "att"), 10))
+        .containsExactly(3L, 2L)
+        .inOrder();
+    assertThat(index.topIds(index.matchText(ImmutableList.of("HEART", "attack"), null), 10))
+        .containsExactly(3L, 2L)
+        .inOrder();
+    assertThat(index.topIds(index.matchText(ImmutableList.of(), "myo"), 10)).containsExactly(2L);
+    assertThat(index.matchText(ImmutableList.of("hear"), null).isEmpty()).isTrue();
+  }
+
+  @Test
+  public void testMatchText_ignoresRank1Markers() {
+    assertThat(index.matchText(ImmutableList.of(), "condition").isEmpty()).isTrue();
+  }
+
+  @Test
+  public void testMatchText_noWordsMatchesEverything() {
+    assertThat(index.matchText(ImmutableList.of(), null).cardinality()).isEqualTo(5);
+  }
+
+  @Test
+  public void testMatchCode() {
+    assertThat(index.topIds(index.matchCode("i2"), 10)).containsExactly(3L, 2L).inOrder();
+    assertThat(index.topIds(index.matchCode("I21."), 10)).containsExactly(3L);
+    assertThat(index.matchCode("Z").isEmpty()).isTrue();
+  }
+
+  @Test
+  public void testFilter() {
+    BitSet heart = index.matchText(ImmutableList.of("heart"), null);
+    assertThat(index.topIds(index.filter((BitSet) heart.clone(), SNOMED, true, false), 10))
+        .containsExactly(5L, 1L, 2L)
+        .inOrder();
+    assertThat(index.topIds(index.filter((BitSet) heart.clone(), ICD10, false, true), 10))
+        .containsExactly(3L);
+    assertThat(index.topIds(index.filter(index.matchCode("J"), SNOMED, true, true), 10))
+        .isEmpty();
+    assertThat(index.filter((BitSet) heart.clone(), SNOMED, null, false).isEmpty()).isTrue();
+    assertThat(index.filter((BitSet) heart.clone(), null, true, false).isEmpty()).isTrue();
+  }
+
+  @Test
+  public void testCountSurveyQuestions() {
+    BitSet heart = index.matchText(ImmutableList.of("heart"), null);
+    assertThat(index.countSurveyQuestions(heart, "Lifestyle")).isEqualTo(2L);
+    assertThat(index.countSurveyQuestions(heart, "Overall Health")).isEqualTo(2L);
+    assertThat(index.countSurveyQuestions(index.matchCode("J"), "Overall Health")).isEqualTo(0L);
+  }
+
+  @Test
+  public void testSize() {
+    assertThat(index.size()).isEqualTo(5);
+    assertThat(index.estimatedSizeBytes()).isGreaterThan(5L * Long.BYTES);
+  }
+}
@@ -0,0 +1,217 @@
+package org.pmiops.workbench.cohortbuilder;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.google.cloud.bigquery.BigQueryError;
+import com.google.cloud.bigquery.Job;
+import com.google.cloud.bigquery.JobId;
+import com.google.cloud.bigquery.JobStatus;
+import com.google.cloud.bigquery.QueryJobConfiguration;
+import com.google.common.base.Ticker;
+import com.google.common.collect.ImmutableList;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.pmiops.workbench.api.BigQueryService;
+import org.pmiops.workbench.cdr.CdrVersionContext;
+import org.pmiops.workbench.config.WorkbenchConfig;
+import org.pmiops.workbench.db.model.DbCdrVersion;
+import org.pmiops.workbench.exceptions.ServerErrorException;
+import org.pmiops.workbench.model.Domain;
+import org.pmiops.workbench.model.SearchGroup;
+import org.pmiops.workbench.model.SearchGroupItem;
+import org.pmiops.workbench.model.SearchParameter;
+import org.pmiops.workbench.model.SearchRequest;
+
+public class MaterializedCohortServiceTest {
+
+  private static final String ID_QUERY = "select person_id from cb_search_person where true";
+
+  private BigQueryService bigQueryService;
+  private CohortQueryBuilder cohortQueryBuilder;
+  private WorkbenchConfig config;
+  private MaterializedCohortService materializedCohortService;
+  private long tickerNanos;
+  private Job job;
+  private JobStatus jobStatus;
+
+  @BeforeEach
+  public void setUp() {
+    bigQueryService = mock(BigQueryService.class);
+    cohortQueryBuilder = mock(CohortQueryBuilder.class);
+    when(cohortQueryBuilder.buildParticipantIdQuery(any()))
+        .thenReturn(QueryJobConfiguration.newBuilder(ID_QUERY).setUseLegacySql(false).build());
+    when(bigQueryService.filterBigQueryConfig(any())).thenAnswer(i -> i.getArgument(0));
+    job = mock(Job.class);
+    jobStatus = mock(JobStatus.class);
+    when(job.getJobId()).thenReturn(JobId.of("job-id"));
+    when(job.getStatus()).thenReturn(jobStatus);
+    when(jobStatus.getState()).thenReturn(JobStatus.State.DONE);
+    when(bigQueryService.startQuery(any())).thenReturn(job);
+    when(bigQueryService.getJob(anyString())).thenReturn(Optional.of(job));
+
+    config = WorkbenchConfig.createEmptyConfig();
+    config.featureFlags.enableMaterializedCohorts = true;
+    config.cdr.materializedCohortDataset = "materialized_cohorts";
+    tickerNanos = 0;
+    materializedCohortService =
+        new MaterializedCohortService(
+            bigQueryService,
+            cohortQueryBuilder,
+            () -> config,
+            new Ticker() {
+              @Override
+              public long read() {
+                return tickerNanos;
+              }
+            });
+
+    DbCdrVersion cdrVersion = new DbCdrVersion();
+    cdrVersion.setCdrVersionId(1L);
+    cdrVersion.setBigqueryProject("cdr-project");
+    CdrVersionContext.setCdrVersionNoCheckAuthDomain(cdrVersion);
+  }
+
+  @AfterEach
+  public void tearDown() {
+    CdrVersionContext.clearCdrVersion();
+  }
+
+  @Test
+  public void materialize_createsTableOnce() {
+    String table =
+        "cdr-project.materialized_cohorts."
+            + MaterializedCohortService.tableName(1L, searchRequest(1L));
+
+    ParticipantCriteria first =
+        materializedCohortService.materialize(new ParticipantCriteria(searchRequest(1L)));
+    ParticipantCriteria second =
+        materializedCohortService.materialize(new ParticipantCriteria(searchRequest(1L)));
+
+    assertThat(first.getMaterializedTable()).isEqualTo(table);
+    assertThat(second.getMaterializedTable()).isEqualTo(table);
+    ArgumentCaptor<QueryJobConfiguration> query =
+        ArgumentCaptor.forClass(QueryJobConfiguration.class);
+    verify(bigQueryService).startQuery(query.capture());
+    assertThat(query.getValue().getQuery()).startsWith("create or replace table `" + table + "`");
+    assertThat(query.getValue().getQuery()).endsWith(ID_QUERY);
+  }
+
+  @Test
+  public void materialize_tableIgnoresDataFilters() {
+    ParticipantCriteria plain =
+        materializedCohortService.materialize(new ParticipantCriteria(searchRequest(1L)));
+    ParticipantCriteria filtered =
+        materializedCohortService.materialize(
+            new ParticipantCriteria(
+                searchRequest(1L).dataFilters(ImmutableList.of("has_ehr_data"))));
+
+    assertThat(filtered.getMaterializedTable()).isEqualTo(plain.getMaterializedTable());
+    assertThat(filtered.getSearchRequest().getDataFilters()).containsExactly("has_ehr_data");
+    verify(bigQueryService, times(1)).startQuery(any());
+  }
+
+  @Test
+  public void materialize_criteriaChangeUsesNewTable() {
+    ParticipantCriteria before =
+        materializedCohortService.materialize(new ParticipantCriteria(searchRequest(1L)));
+    ParticipantCriteria after =
+        materializedCohortService.materialize(new ParticipantCriteria(searchRequest(2L)));
+
+    assertThat(after.getMaterializedTable()).isNotEqualTo(before.getMaterializedTable());
+    verify(bigQueryService, times(2)).startQuery(any());
+  }
+
+  @Test
+  public void materialize_usesTableOnceJobIsDone() {
+    when(jobStatus.getState()).thenReturn(JobStatus.State.RUNNING);
+    ParticipantCriteria criteria = new ParticipantCriteria(searchRequest(1L));
+
+    // Requests don't wait for the table, and run against the criteria until it is ready.
+    assertThat(materializedCohortService.materialize(criteria)).isSameInstanceAs(criteria);
+    assertThat(materializedCohortService.materialize(criteria)).isSameInstanceAs(criteria);
+
+    when(jobStatus.getState()).thenReturn(JobStatus.State.DONE);
+    assertThat(materializedCohortService.materialize(criteria).getMaterializedTable()).isNotNull();
+    assertThat(materializedCohortService.materialize(criteria).getMaterializedTable()).isNotNull();
+    verify(bigQueryService, times(1)).startQuery(any());
+    verify(bigQueryService, times(3)).getJob("job-id");
+  }
+
+  @Test
+  public void materialize_failedJobFallsBackToCriteria() {
+    when(jobStatus.getError()).thenReturn(new BigQueryError("notFound", "", "dataset not found"));
+    ParticipantCriteria criteria = new ParticipantCriteria(searchRequest(1L));
+
+    assertThat(materializedCohortService.materialize(criteria)).isSameInstanceAs(criteria);
+    ParticipantCriteria other = new ParticipantCriteria(searchRequest(2L));
+    assertThat(materializedCohortService.materialize(other)).isSameInstanceAs(other);
+    verify(bigQueryService, times(1)).startQuery(any());
+  }
+
+  @Test
+  public void materialize_disabled() {
+    config.featureFlags.enableMaterializedCohorts = false;
+    ParticipantCriteria criteria = new ParticipantCriteria(searchRequest(1L));
+
+    assertThat(materializedCohortService.materialize(criteria)).isSameInstanceAs(criteria);
+    verify(bigQueryService, never()).startQuery(any());
+  }
+
+  @Test
+  public void materialize_failureFallsBackToCriteria() {
+    when(bigQueryService.startQuery(any()))
+        .thenThrow(new ServerErrorException("dataset not found"))
+        .thenReturn(job);
+    ParticipantCriteria criteria = new ParticipantCriteria(searchRequest(1L));
+
+    assertThat(materializedCohortService.materialize(criteria)).isSameInstanceAs(criteria);
+    // The dataset is left alone for a while, for other cohorts too.
+    ParticipantCriteria other = new ParticipantCriteria(searchRequest(2L));
+    assertThat(materializedCohortService.materialize(other)).isSameInstanceAs(other);
+    verify(bigQueryService, times(1)).startQuery(any());
+
+    tickerNanos += TimeUnit.MINUTES.toNanos(MaterializedCohortService.FAILURE_BACKOFF_MINUTES);
+    assertThat(materializedCohortService.materialize(criteria).getMaterializedTable()).isNotNull();
+    verify(bigQueryService, times(2)).startQuery(any());
+  }
+
+  @Test
+  public void materializedCriteria_queryReadsTable() {
+    ParticipantCriteria criteria =
+        new ParticipantCriteria(searchRequest(1L).dataFilters(ImmutableList.of("has_ehr_data")))
+            .withMaterializedTable("cdr-project.materialized_cohorts.cohort_1_abc");
+
+    String sql = new CohortQueryBuilder(null).buildParticipantCounterQuery(criteria).getQuery();
+
+    assertThat(sql)
+        .contains(
+            "cb_search_person.person_id in (select person_id from "
+                + "`cdr-project.materialized_cohorts.cohort_1_abc`)");
+    assertThat(sql).contains("and has_ehr_data = @p0");
+    assertThat(sql).doesNotContain("concept_id");
+  }
+
+  private static SearchRequest searchRequest(long conceptId) {
+    return new SearchRequest()
+        .addIncludesItem(
+            new SearchGroup()
+                .addItemsItem(
+                    new SearchGroupItem()
+                        .type(Domain.CONDITION.toString())
+                        .addSearchParametersItem(
+                            new SearchParameter()
+                                .domain(Domain.CONDITION.toString())
+                                .conceptId(conceptId))));
+  }
+}
@@ -0,0 +1,109 @@
+package org.pmiops.workbench.cohortbuilder;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.pmiops.workbench.cdr.CdrVersionContext;
+import org.pmiops.workbench.db.model.DbCdrVersion;
+import org.pmiops.workbench.exceptions.BadRequestException;
+import org.pmiops.workbench.model.Domain;
+import org.pmiops.workbench.model.SearchGroup;
+import org.pmiops.workbench.model.SearchGroupItem;
+import org.pmiops.workbench.model.SearchParameter;
+import org.pmiops.workbench.model.SearchRequest;
+import org.pmiops.workbench.monitoring.MeasurementBundle;
+import org.pmiops.workbench.monitoring.views.GaugeMetric;
+
+public class ParticipantCountCacheTest {
+
+  private ParticipantCountCache participantCountCache;
+  private AtomicInteger queryCount;
+
+  @BeforeEach
+  public void setUp() {
+    participantCountCache = new ParticipantCountCache();
+    queryCount = new AtomicInteger();
+    CdrVersionContext.setCdrVersionNoCheckAuthDomain(cdrVersion(1L));
+  }
+
+  @AfterEach
+  public void tearDown() {
+    CdrVersionContext.clearCdrVersion();
+  }
+
+  @Test
+  public void get_sameRequestIsCached() {
+    assertThat(participantCountCache.get(searchRequest(1L), this::runQuery)).isEqualTo(1L);
+    assertThat(participantCountCache.get(searchRequest(1L), this::runQuery)).isEqualTo(1L);
+    assertThat(queryCount.get()).isEqualTo(1);
+
+    MeasurementBundle bundle = participantCountCache.getGaugeData().iterator().next();
+    assertThat(bundle.getMeasurements().get(GaugeMetric.CACHE_HIT_COUNT)).isEqualTo(1L);
+    assertThat(bundle.getMeasurements().get(GaugeMetric.CACHE_MISS_COUNT)).isEqualTo(1L);
+    assertThat(bundle.getMeasurements().get(GaugeMetric.CACHE_SIZE)).isEqualTo(1L);
+  }
+
+  @Test
+  public void get_differentRequestIsNotCached() {
+    participantCountCache.get(searchRequest(1L), this::runQuery);
+    participantCountCache.get(searchRequest(2L), this::runQuery);
+    assertThat(queryCount.get()).isEqualTo(2);
+  }
+
+  @Test
+  public void get_differentCdrVersionIsNotCached() {
+    participantCountCache.get(searchRequest(1L), this::runQuery);
+    CdrVersionContext.setCdrVersionNoCheckAuthDomain(cdrVersion(2L));
+    participantCountCache.get(searchRequest(1L), this::runQuery);
+    assertThat(queryCount.get()).isEqualTo(2);
+  }
+
+  @Test
+  public void get_noCdrVersionIsNotCached() {
+    CdrVersionContext.clearCdrVersion();
+    participantCountCache.get(searchRequest(1L), this::runQuery);
+    participantCountCache.get(searchRequest(1L), this::runQuery);
+    assertThat(queryCount.get()).isEqualTo(2);
+  }
+
+  @Test
+  public void get_failedQueryIsRethrownAndNotCached() {
+    assertThrows(
+        BadRequestException.class,
+        () ->
+            participantCountCache.get(
+                searchRequest(1L),
+                () -> {
+                  throw new BadRequestException("bad query");
+                }));
+
+    assertThat(participantCountCache.get(searchRequest(1L), this::runQuery)).isEqualTo(1L);
+  }
+
+  private Long runQuery() {
+    return (long) queryCount.incrementAndGet();
+  }
+
+  private static DbCdrVersion cdrVersion(long cdrVersionId) {
+    DbCdrVersion cdrVersion = new DbCdrVersion();
+    cdrVersion.setCdrVersionId(cdrVersionId);
+    return cdrVersion;
+  }
+
+  private static SearchRequest searchRequest(long conceptId) {
+    return new SearchRequest()
+        .addIncludesItem(
+            new SearchGroup()
+                .addItemsItem(
+                    new SearchGroupItem()
+                        .type(Domain.CONDITION.toString())
+                        .addSearchParametersItem(
+                            new SearchParameter()
+                                .domain(Domain.CONDITION.toString())
+                                .conceptId(conceptId))));
+  }
+}
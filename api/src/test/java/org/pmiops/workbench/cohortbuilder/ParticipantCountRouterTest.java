@@ -0,0 +1,237 @@
+package org.pmiops.workbench.cohortbuilder;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.util.concurrent.MoreExecutors;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.function.Supplier;
+import javax.inject.Provider;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.pmiops.workbench.cdr.CdrVersionContext;
+import org.pmiops.workbench.config.WorkbenchConfig;
+import org.pmiops.workbench.db.model.DbCdrVersion;
+import org.pmiops.workbench.elasticsearch.ElasticSearchService;
+import org.pmiops.workbench.model.AgeType;
+import org.pmiops.workbench.model.CriteriaType;
+import org.pmiops.workbench.model.DemoChartInfo;
+import org.pmiops.workbench.model.Domain;
+import org.pmiops.workbench.model.GenderOrSexType;
+import org.pmiops.workbench.model.SearchGroup;
+import org.pmiops.workbench.model.SearchGroupItem;
+import org.pmiops.workbench.model.SearchParameter;
+import org.pmiops.workbench.model.SearchRequest;
+import org.pmiops.workbench.monitoring.MeasurementBundle;
+import org.pmiops.workbench.monitoring.labels.MetricLabel;
+
+public class ParticipantCountRouterTest {
+
+  private CohortBuilderService cohortBuilderService;
+  private ElasticSearchService elasticSearchService;
+  private WorkbenchConfig config;
+  private Provider<WorkbenchConfig> configProvider;
+  private ParticipantCountRouter router;
+
+  @BeforeEach
+  public void setUp() {
+    cohortBuilderService = mock(CohortBuilderService.class);
+    elasticSearchService = mock(ElasticSearchService.class);
+    config = WorkbenchConfig.createEmptyConfig();
+    config.elasticsearch.enableElasticsearchBackend = true;
+    config.elasticsearch.shadowComparisonSampleRate = 0.0;
+    @SuppressWarnings("unchecked")
+    Provider<WorkbenchConfig> provider = mock(Provider.class);
+    configProvider = provider;
+    doReturn(config).when(configProvider).get();
+    router =
+        new ParticipantCountRouter(
+            cohortBuilderService,
+            elasticSearchService,
+            configProvider,
+            MoreExecutors.newDirectExecutorService(),
+            1);
+
+    DbCdrVersion cdrVersion = new DbCdrVersion();
+    cdrVersion.setCdrVersionId(1L);
+    cdrVersion.setElasticIndexBaseName("synth_r_2019q4_9");
+    CdrVersionContext.setCdrVersionNoCheckAuthDomain(cdrVersion);
+  }
+
+  @AfterEach
+  public void tearDown() {
+    CdrVersionContext.clearCdrVersion();
+  }
+
+  @Test
+  public void testCountParticipants_supportedRequestUsesElastic() throws Exception {
+    SearchRequest request = searchRequest(Domain.CONDITION, CriteriaType.ICD9CM);
+    doReturn(10L).when(elasticSearchService).count(request);
+
+    assertThat(router.countParticipants(request)).isEqualTo(10L);
+    verify(cohortBuilderService, never()).countParticipants(any());
+  }
+
+  @Test
+  public void testCountParticipants_unsupportedRequestUsesBigQuery() throws Exception {
+    SearchRequest request = searchRequest(Domain.FITBIT, CriteriaType.PPI);
+    doReturn(20L).when(cohortBuilderService).countParticipants(request);
+
+    assertThat(router.countParticipants(request)).isEqualTo(20L);
+    verify(elasticSearchService, never()).count(any());
+  }
+
+  @Test
+  public void testCountParticipants_unsupportedPersonTypeUsesBigQuery() throws Exception {
+    SearchRequest request = searchRequest(Domain.PERSON, CriteriaType.SEX);
+    doReturn(20L).when(cohortBuilderService).countParticipants(request);
+
+    assertThat(router.countParticipants(request)).isEqualTo(20L);
+    verify(elasticSearchService, never()).count(any());
+  }
+
+  @Test
+  public void testCountParticipants_noIndexUsesBigQuery() throws Exception {
+    CdrVersionContext.getCdrVersion().setElasticIndexBaseName(null);
+    SearchRequest request = searchRequest(Domain.CONDITION, CriteriaType.ICD9CM);
+    doReturn(20L).when(cohortBuilderService).countParticipants(request);
+
+    assertThat(router.countParticipants(request)).isEqualTo(20L);
+    verify(elasticSearchService, never()).count(any());
+  }
+
+  @Test
+  public void testCountParticipants_elasticFailureFallsBackToBigQuery() throws Exception {
+    SearchRequest request = searchRequest(Domain.CONDITION, CriteriaType.ICD9CM);
+    doThrow(new IOException("unavailable")).when(elasticSearchService).count(request);
+    doReturn(20L).when(cohortBuilderService).countParticipants(request);
+
+    assertThat(router.countParticipants(request)).isEqualTo(20L);
+  }
+
+  @Test
+  public void testCountParticipants_shadowComparison() throws Exception {
+    config.elasticsearch.shadowComparisonSampleRate = 1.0;
+    SearchRequest matching = searchRequest(Domain.CONDITION, CriteriaType.ICD9CM);
+    doReturn(10L).when(elasticSearchService).count(matching);
+    Supplier<Long> matchingCount = () -> 10L;
+    doReturn(matchingCount).when(cohortBuilderService).startCountParticipants(matching);
+    SearchRequest mismatching = searchRequest(Domain.DRUG, CriteriaType.RXNORM);
+    doReturn(10L).when(elasticSearchService).count(mismatching);
+    Supplier<Long> mismatchingCount = () -> 11L;
+    doReturn(mismatchingCount).when(cohortBuilderService).startCountParticipants(mismatching);
+
+    assertThat(router.countParticipants(matching)).isEqualTo(10L);
+    assertThat(router.countParticipants(mismatching)).isEqualTo(10L);
+
+    assertThat(shadowCount(ParticipantCountRouter.COUNT_OPERATION, "MATCH")).isEqualTo(1L);
+    assertThat(shadowCount(ParticipantCountRouter.COUNT_OPERATION, "MISMATCH")).isEqualTo(1L);
+    assertThat(shadowCount(ParticipantCountRouter.COUNT_OPERATION, "ERROR")).isEqualTo(0L);
+  }
+
+  @Test
+  public void testFindDemoChartInfo_shadowComparisonIgnoresOrder() throws Exception {
+    config.elasticsearch.shadowComparisonSampleRate = 1.0;
+    SearchRequest request = searchRequest(Domain.CONDITION, CriteriaType.ICD9CM);
+    DemoChartInfo male = new DemoChartInfo().name("MALE").race("Asian").ageRange("19-44").count(5L);
+    DemoChartInfo female =
+        new DemoChartInfo().name("FEMALE").race("Asian").ageRange("19-44").count(7L);
+    doReturn(ImmutableList.of(male, female)).when(elasticSearchService).demoChartInfo(any());
+    Supplier<List<DemoChartInfo>> bigQueryResult = () -> ImmutableList.of(female, male);
+    doReturn(bigQueryResult)
+        .when(cohortBuilderService)
+        .startFindDemoChartInfo(GenderOrSexType.GENDER, AgeType.AGE, request);
+
+    assertThat(router.findDemoChartInfo(GenderOrSexType.GENDER, AgeType.AGE, request))
+        .containsExactly(male, female)
+        .inOrder();
+    assertThat(shadowCount(ParticipantCountRouter.DEMO_CHART_OPERATION, "MATCH")).isEqualTo(1L);
+  }
+
+  @Test
+  public void testCountParticipants_shadowQueryFailure() throws Exception {
+    config.elasticsearch.shadowComparisonSampleRate = 1.0;
+    SearchRequest request = searchRequest(Domain.CONDITION, CriteriaType.ICD9CM);
+    doReturn(10L).when(elasticSearchService).count(request);
+    Supplier<Long> failedCount =
+        () -> {
+          throw new RuntimeException("query failed");
+        };
+    doReturn(failedCount).when(cohortBuilderService).startCountParticipants(request);
+
+    assertThat(router.countParticipants(request)).isEqualTo(10L);
+    assertThat(shadowCount(ParticipantCountRouter.COUNT_OPERATION, "ERROR")).isEqualTo(1L);
+  }
+
+  @Test
+  public void testCountParticipants_shadowPoolFullStartsNoQuery() throws Exception {
+    config.elasticsearch.shadowComparisonSampleRate = 1.0;
+    SearchRequest request = searchRequest(Domain.CONDITION, CriteriaType.ICD9CM);
+    doReturn(10L).when(elasticSearchService).count(request);
+    // Holds the only place on the pool until the comparison is run.
+    final List<Runnable> queued = new ArrayList<>();
+    final ExecutorService heldExecutor = mock(ExecutorService.class);
+    doAnswer(
+            invocation -> {
+              queued.add(invocation.getArgument(0));
+              return null;
+            })
+        .when(heldExecutor)
+        .execute(any());
+    router =
+        new ParticipantCountRouter(
+            cohortBuilderService, elasticSearchService, configProvider, heldExecutor, 1);
+    Supplier<Long> count = () -> 10L;
+    doReturn(count).when(cohortBuilderService).startCountParticipants(request);
+
+    assertThat(router.countParticipants(request)).isEqualTo(10L);
+    assertThat(router.countParticipants(request)).isEqualTo(10L);
+
+    verify(cohortBuilderService, times(1)).startCountParticipants(request);
+    assertThat(shadowCount(ParticipantCountRouter.COUNT_OPERATION, "DROPPED")).isEqualTo(1L);
+
+    // Once the comparison has run, its place is free again.
+    queued.forEach(Runnable::run);
+    assertThat(router.countParticipants(request)).isEqualTo(10L);
+    verify(cohortBuilderService, times(2)).startCountParticipants(request);
+    assertThat(shadowCount(ParticipantCountRouter.COUNT_OPERATION, "MATCH")).isEqualTo(1L);
+  }
+
+  private long shadowCount(String operation, String result) {
+    return router.getGaugeData().stream()
+        .filter(b -> b.getTagValue(MetricLabel.OPERATION_NAME).get().equals(operation))
+        .filter(b -> b.getTagValue(MetricLabel.ELASTIC_SHADOW_RESULT).get().equals(result))
+        .map(MeasurementBundle::getMeasurements)
+        .flatMap(m -> m.values().stream())
+        .mapToLong(Number::longValue)
+        .sum();
+  }
+
+  private static SearchRequest searchRequest(Domain domain, CriteriaType type) {
+    return new SearchRequest()
+        .addIncludesItem(
+            new SearchGroup()
+                .temporal(false)
+                .addItemsItem(
+                    new SearchGroupItem()
+                        .addSearchParametersItem(
+                            new SearchParameter()
+                                .domain(domain.toString())
+                                .type(type.toString())
+                                .conceptId(1L)
+                                .group(false)
+                                .standard(true))));
+  }
+}
@@ -0,0 +1,97 @@
+package org.pmiops.workbench.cohortbuilder;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.google.common.collect.ImmutableList;
+import org.junit.jupiter.api.Test;
+import org.pmiops.workbench.model.AttrName;
+import org.pmiops.workbench.model.Attribute;
+import org.pmiops.workbench.model.Domain;
+import org.pmiops.workbench.model.Operator;
+import org.pmiops.workbench.model.SearchGroup;
+import org.pmiops.workbench.model.SearchGroupItem;
+import org.pmiops.workbench.model.SearchParameter;
+import org.pmiops.workbench.model.SearchRequest;
+
+public class SearchRequestNormalizerTest {
+
+  @Test
+  public void hash_ignoresOrderingAndIds() {
+    SearchRequest request =
+        new SearchRequest()
+            .includes(ImmutableList.of(group("a", 1L, 2L), group("b", 3L)))
+            .dataFilters(ImmutableList.of("HAS_EHR_DATA", "HAS_PM_DATA"));
+    SearchRequest reordered =
+        new SearchRequest()
+            .includes(ImmutableList.of(group("c", 3L), group("d", 2L, 1L)))
+            .dataFilters(ImmutableList.of("HAS_PM_DATA", "HAS_EHR_DATA"));
+
+    assertThat(SearchRequestNormalizer.hash(reordered))
+        .isEqualTo(SearchRequestNormalizer.hash(request));
+  }
+
+  @Test
+  public void hash_differentCriteria() {
+    SearchRequest request = new SearchRequest().includes(ImmutableList.of(group("a", 1L)));
+    SearchRequest other = new SearchRequest().includes(ImmutableList.of(group("a", 2L)));
+
+    assertThat(SearchRequestNormalizer.hash(other))
+        .isNotEqualTo(SearchRequestNormalizer.hash(request));
+  }
+
+  @Test
+  public void hash_includesAndExcludesAreDistinct() {
+    SearchRequest include = new SearchRequest().includes(ImmutableList.of(group("a", 1L)));
+    SearchRequest exclude = new SearchRequest().excludes(ImmutableList.of(group("a", 1L)));
+
+    assertThat(SearchRequestNormalizer.hash(exclude))
+        .isNotEqualTo(SearchRequestNormalizer.hash(include));
+  }
+
+  @Test
+  public void hash_operandOrderIsSignificant() {
+    SearchRequest request = new SearchRequest().includes(ImmutableList.of(ageGroup("18", "35")));
+    SearchRequest swapped = new SearchRequest().includes(ImmutableList.of(ageGroup("35", "18")));
+
+    assertThat(SearchRequestNormalizer.hash(swapped))
+        .isNotEqualTo(SearchRequestNormalizer.hash(request));
+  }
+
+  @Test
+  public void normalize_doesNotModifyOriginal() {
+    SearchRequest request =
+        new SearchRequest().includes(ImmutableList.of(group("b", 2L), group("a", 1L)));
+    String before = request.toString();
+
+    SearchRequestNormalizer.normalize(request);
+
+    assertThat(request.toString()).isEqualTo(before);
+  }
+
+  private static SearchGroup group(String id, Long... conceptIds) {
+    SearchGroupItem item = new SearchGroupItem().id(id + "-item").type(Domain.CONDITION.toString());
+    for (Long conceptId : conceptIds) {
+      item.addSearchParametersItem(
+          new SearchParameter()
+              .parameterId(id + "-param-" + conceptId)
+              .domain(Domain.CONDITION.toString())
+              .conceptId(conceptId));
+    }
+    return new SearchGroup().id(id).addItemsItem(item);
+  }
+
+  private static SearchGroup ageGroup(String... operands) {
+    return new SearchGroup()
+        .addItemsItem(
+            new SearchGroupItem()
+                .type(Domain.PERSON.toString())
+                .addSearchParametersItem(
+                    new SearchParameter()
+                        .domain(Domain.PERSON.toString())
+                        .addAttributesItem(
+                            new Attribute()
+                                .name(AttrName.AGE)
+                                .operator(Operator.BETWEEN)
+                                .operands(ImmutableList.copyOf(operands)))));
+  }
+}
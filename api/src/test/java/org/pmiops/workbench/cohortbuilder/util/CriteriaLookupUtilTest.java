@@ -5,13 +5,20 @@ import static org.junit.Assert.fail;
 
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
 import java.util.HashSet;
 import java.util.List;
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.pmiops.workbench.SpringTest;
+import org.pmiops.workbench.cdr.CdrVersionContext;
 import org.pmiops.workbench.cdr.dao.CBCriteriaDao;
 import org.pmiops.workbench.cdr.model.DbCriteria;
+import org.pmiops.workbench.cohortbuilder.CriteriaHierarchyIndexService;
+import org.pmiops.workbench.cohortbuilder.CriteriaIndexCache;
+import org.pmiops.workbench.config.WorkbenchConfig;
+import org.pmiops.workbench.db.model.DbCdrVersion;
 import org.pmiops.workbench.exceptions.BadRequestException;
 import org.pmiops.workbench.model.CriteriaType;
 import org.pmiops.workbench.model.Domain;
@@ -19,6 +26,7 @@ import org.pmiops.workbench.model.SearchGroup;
 import org.pmiops.workbench.model.SearchGroupItem;
 import org.pmiops.workbench.model.SearchParameter;
 import org.pmiops.workbench.model.SearchRequest;
+import org.pmiops.workbench.test.Providers;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
 import org.springframework.jdbc.core.JdbcTemplate;
@@ -34,10 +42,25 @@ public class CriteriaLookupUtilTest extends SpringTest {
   @Autowired private JdbcTemplate jdbcTemplate;
 
   private CriteriaLookupUtil lookupUtil;
+  private CriteriaLookupUtil indexedLookupUtil;
 
   @BeforeEach
   public void setUp() {
     lookupUtil = new CriteriaLookupUtil(cbCriteriaDao);
+    indexedLookupUtil =
+        new CriteriaLookupUtil(
+            cbCriteriaDao,
+            new CriteriaHierarchyIndexService(
+                cbCriteriaDao,
+                new CriteriaIndexCache(Providers.of(WorkbenchConfig.createEmptyConfig()))));
+    DbCdrVersion cdrVersion = new DbCdrVersion();
+    cdrVersion.setCdrVersionId(1L);
+    CdrVersionContext.setCdrVersionNoCheckAuthDomain(cdrVersion);
+  }
+
+  @AfterEach
+  public void tearDown() {
+    CdrVersionContext.clearCdrVersion();
   }
 
   private void saveCriteriaWithPath(String path, DbCriteria criteria) {
@@ -226,5 +249,63 @@ public class CriteriaLookupUtilTest extends SpringTest {
 
     assertThat(lookupUtil.buildCriteriaLookupMap(searchRequest))
         .isEqualTo(ImmutableMap.of(searchParameter, new HashSet<>(childConceptIds)));
+    assertThat(indexedLookupUtil.buildCriteriaLookupMap(searchRequest))
+        .isEqualTo(lookupUtil.buildCriteriaLookupMap(searchRequest));
+  }
+
+  @Test
+  public void buildCriteriaLookupMapConditionSnomedCriteria_hierarchyIndex() {
+    DbCriteria snomedParent = snomedCriteria("4180169", 0, true);
+    saveCriteriaWithPath("0", snomedParent);
+    DbCriteria snomedChild = snomedCriteria("4233811", snomedParent.getId(), true);
+    saveCriteriaWithPath(snomedParent.getPath(), snomedChild);
+    DbCriteria snomedGrandchild = snomedCriteria("4206970", snomedChild.getId(), false);
+    saveCriteriaWithPath(snomedChild.getPath(), snomedGrandchild);
+    // A second copy of the child concept elsewhere in the tree, which is not rank1.
+    DbCriteria snomedCopy = snomedCriteria("4233811", 0, true);
+    snomedCopy.setFullText("");
+    saveCriteriaWithPath("0", snomedCopy);
+    DbCriteria snomedCopyChild = snomedCriteria("4099351", snomedCopy.getId(), false);
+    saveCriteriaWithPath(snomedCopy.getPath(), snomedCopyChild);
+
+    SearchParameter parentParameter = snomedParameter(4180169L);
+    SearchParameter childParameter = snomedParameter(4233811L);
+    SearchRequest searchRequest =
+        new SearchRequest()
+            .addIncludesItem(
+                new SearchGroup()
+                    .addItemsItem(
+                        new SearchGroupItem()
+                            .addSearchParametersItem(parentParameter)
+                            .addSearchParametersItem(childParameter)));
+
+    assertThat(indexedLookupUtil.buildCriteriaLookupMap(searchRequest))
+        .isEqualTo(
+            ImmutableMap.of(
+                parentParameter, ImmutableSet.of(4206970L),
+                childParameter, ImmutableSet.of(4206970L)));
+  }
+
+  private static DbCriteria snomedCriteria(String conceptId, long parentId, boolean group) {
+    return DbCriteria.builder()
+        .addParentId(parentId)
+        .addDomainId(Domain.CONDITION.toString())
+        .addType(CriteriaType.SNOMED.toString())
+        .addGroup(group)
+        .addSelectable(true)
+        .addStandard(true)
+        .addConceptId(conceptId)
+        .addFullText("[CONDITION_rank1]")
+        .build();
+  }
+
+  private static SearchParameter snomedParameter(long conceptId) {
+    return new SearchParameter()
+        .domain(Domain.CONDITION.toString())
+        .type(CriteriaType.SNOMED.toString())
+        .group(true)
+        .standard(true)
+        .ancestorData(false)
+        .conceptId(conceptId);
   }
 }
@@ -20,6 +20,7 @@ import org.pmiops.workbench.cdr.CdrVersionContext;
 import org.pmiops.workbench.cohortbuilder.CohortBuilderServiceImpl;
 import org.pmiops.workbench.cohortbuilder.CohortQueryBuilder;
 import org.pmiops.workbench.cohortbuilder.FieldSetQueryBuilder;
+import org.pmiops.workbench.cohortbuilder.ParticipantCountCache;
 import org.pmiops.workbench.cohortbuilder.SearchGroupItemQueryBuilder;
 import org.pmiops.workbench.cohortbuilder.mapper.CohortBuilderMapperImpl;
 import org.pmiops.workbench.cohortreview.AnnotationQueryBuilder;
@@ -76,6 +77,7 @@ import org.springframework.transaction.annotation.Transactional;
   CohortQueryBuilder.class,
   CdrBigQuerySchemaConfigService.class,
   CohortBuilderServiceImpl.class,
+  ParticipantCountCache.class,
   CohortBuilderMapperImpl.class,
   BigQueryService.class,
   SearchGroupItemQueryBuilder.class,
@@ -261,7 +263,7 @@ public class CohortMaterializationServiceTest extends SpringTest {
     FieldSet fieldSet = new FieldSet().annotationQuery(new AnnotationQuery());
     MaterializeCohortResponse response =
         cohortMaterializationService.materializeCohort(
-            cohortReview, SearchRequests.allGenders(), null, 0, makeRequest(fieldSet, 1000));
+            cohortReview, SearchRequests.allGenders(), null, makeRequest(fieldSet, 1000));
     ImmutableMap<String, Object> p1Map =
         ImmutableMap.of("person_id", 1L, "review_status", "INCLUDED");
     assertResults(response, p1Map);
@@ -276,7 +278,7 @@ public class CohortMaterializationServiceTest extends SpringTest {
             .statusFilter(ImmutableList.of(CohortStatus.INCLUDED, CohortStatus.EXCLUDED));
     MaterializeCohortResponse response =
         cohortMaterializationService.materializeCohort(
-            cohortReview, SearchRequests.allGenders(), null, 0, request);
+            cohortReview, SearchRequests.allGenders(), null, request);
     ImmutableMap<String, Object> p1Map =
         ImmutableMap.of("person_id", 1L, "review_status", "INCLUDED");
     assertResults(response, p1Map);
@@ -285,7 +287,7 @@ public class CohortMaterializationServiceTest extends SpringTest {
     request.setPageToken(response.getNextPageToken());
     MaterializeCohortResponse response2 =
         cohortMaterializationService.materializeCohort(
-            cohortReview, SearchRequests.allGenders(), null, 0, request);
+            cohortReview, SearchRequests.allGenders(), null, request);
     ImmutableMap<String, Object> p2Map =
         ImmutableMap.of("person_id", 2L, "review_status", "EXCLUDED");
     assertResults(response2, p2Map);
@@ -3,9 +3,13 @@ package org.pmiops.workbench.dataset;
 import static com.google.common.truth.Truth.assertThat;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.ArgumentMatchers.any;
-import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.pmiops.workbench.db.model.DbStorageEnums.domainToStorage;
@@ -15,12 +19,17 @@ import com.google.cloud.bigquery.FieldList;
 import com.google.cloud.bigquery.FieldValue;
 import com.google.cloud.bigquery.FieldValue.Attribute;
 import com.google.cloud.bigquery.FieldValueList;
+import com.google.cloud.bigquery.Job;
+import com.google.cloud.bigquery.JobId;
+import com.google.cloud.bigquery.JobStatus;
 import com.google.cloud.bigquery.LegacySQLTypeName;
 import com.google.cloud.bigquery.QueryJobConfiguration;
 import com.google.cloud.bigquery.QueryParameterValue;
+import com.google.cloud.bigquery.Schema;
 import com.google.cloud.bigquery.StandardSQLTypeName;
 import com.google.cloud.bigquery.TableResult;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
 import com.google.gson.Gson;
 import java.sql.Timestamp;
@@ -35,9 +44,11 @@ import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 import org.apache.commons.lang3.StringUtils;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
 import org.pmiops.workbench.SpringTest;
 import org.pmiops.workbench.api.BigQueryService;
 import org.pmiops.workbench.cdr.ConceptBigQueryService;
@@ -46,6 +57,8 @@ import org.pmiops.workbench.cdr.dao.DSLinkingDao;
 import org.pmiops.workbench.cdr.model.DbDSDataDictionary;
 import org.pmiops.workbench.cdr.model.DbDSLinking;
 import org.pmiops.workbench.cohortbuilder.CohortQueryBuilder;
+import org.pmiops.workbench.cohortbuilder.MaterializedCohortService;
+import org.pmiops.workbench.cohortbuilder.ParticipantCriteria;
 import org.pmiops.workbench.cohorts.CohortService;
 import org.pmiops.workbench.conceptset.ConceptSetService;
 import org.pmiops.workbench.config.WorkbenchConfig;
@@ -64,8 +77,10 @@ import org.pmiops.workbench.db.model.DbWgsExtractCromwellSubmission;
 import org.pmiops.workbench.db.model.DbWorkspace;
 import org.pmiops.workbench.exceptions.BadRequestException;
 import org.pmiops.workbench.exceptions.NotFoundException;
+import org.pmiops.workbench.exceptions.ServerErrorException;
 import org.pmiops.workbench.model.DataDictionaryEntry;
 import org.pmiops.workbench.model.DataSet;
+import org.pmiops.workbench.model.DataSetPreviewRequest;
 import org.pmiops.workbench.model.DataSetRequest;
 import org.pmiops.workbench.model.Domain;
 import org.pmiops.workbench.model.DomainValue;
@@ -120,7 +135,12 @@ public class DataSetServiceTest extends SpringTest {
   private DbCohort cohort;
 
   @TestConfiguration
-  @Import({DataSetMapperImpl.class, DataSetServiceImpl.class})
+  @Import({
+    DataSetMapperImpl.class,
+    DataSetServiceImpl.class,
+    DomainQueryRunner.class,
+    MaterializedCohortService.class
+  })
   @MockBean({
     BigQueryService.class,
     CommonMappers.class,
@@ -189,6 +209,145 @@ public class DataSetServiceTest extends SpringTest {
         BadRequestException.class, () -> dataSetServiceImpl.domainToBigQueryConfig(invalidRequest));
   }
 
+  @Test
+  public void testGetPreviewJobResult_running() {
+    mockPreviewJob(workspace.getWorkspaceId(), JobStatus.State.RUNNING);
+    final DataSetPreviewJobResult result =
+        dataSetServiceImpl.getPreviewJobResult("job-id", workspace.getWorkspaceId());
+    assertThat(result.getState()).isEqualTo(JobStatus.State.RUNNING);
+    assertThat(result.getDomain()).isEqualTo(Domain.CONDITION);
+    assertThat(result.getTableResult().isPresent()).isFalse();
+  }
+
+  @Test
+  public void testGetPreviewJobResult_done() {
+    final Job job = mockPreviewJob(workspace.getWorkspaceId(), JobStatus.State.DONE);
+    final TableResult tableResultMock = mock(TableResult.class);
+    doReturn(
+            Schema.of(
+                Field.of("person_id", LegacySQLTypeName.INTEGER),
+                Field.of("condition_concept_id", LegacySQLTypeName.INTEGER),
+                Field.of("condition_source_value", LegacySQLTypeName.STRING)))
+        .when(tableResultMock)
+        .getSchema();
+    doReturn(tableResultMock).when(mockBigQueryService).getQueryResults(job, 20L, null);
+    final DataSetPreviewJobResult result =
+        dataSetServiceImpl.getPreviewJobResult("job-id", workspace.getWorkspaceId());
+    assertThat(result.getState()).isEqualTo(JobStatus.State.DONE);
+    assertThat(result.getTableResult().get()).isEqualTo(tableResultMock);
+    assertThat(result.getValues())
+        .containsExactly("person_id", "condition_concept_id", "condition_source_value")
+        .inOrder();
+  }
+
+  @Test
+  public void testStartPreviewJob_selectsValuesInRequestedOrder() {
+    doAnswer(invocation -> invocation.getArgument(0))
+        .when(mockBigQueryService)
+        .filterBigQueryConfig(any());
+    final List<String> values =
+        IntStream.range(0, 100)
+            .mapToObj(i -> "value_" + (99 - i))
+            .collect(Collectors.toList());
+    doReturn(
+            FieldList.of(
+                values.stream()
+                    .map(value -> Field.of(value, LegacySQLTypeName.STRING))
+                    .collect(Collectors.toList())))
+        .when(mockBigQueryService)
+        .getTableFieldsFromDomain(Domain.PERSON);
+    doReturn(mockStartedJob("job-id")).when(mockBigQueryService).startQuery(any());
+
+    dataSetServiceImpl.startPreviewJob(
+        buildPreviewRequest(Domain.PERSON).values(values), workspace.getWorkspaceId());
+
+    final ArgumentCaptor<QueryJobConfiguration> queryCaptor =
+        ArgumentCaptor.forClass(QueryJobConfiguration.class);
+    verify(mockBigQueryService).startQuery(queryCaptor.capture());
+    // Only two labels, however many values are selected.
+    assertThat(queryCaptor.getValue().getLabels().keySet())
+        .containsExactly(
+            DataSetServiceImpl.PREVIEW_JOB_WORKSPACE_LABEL,
+            DataSetServiceImpl.PREVIEW_JOB_DOMAIN_LABEL);
+    assertThat(queryCaptor.getValue().getQuery())
+        .contains("SELECT " + String.join(", ", values) + " \nFROM");
+  }
+
+  @Test
+  public void testGetPreviewJobResult_otherWorkspace() {
+    mockPreviewJob(workspace.getWorkspaceId() + 1, JobStatus.State.DONE);
+    assertThrows(
+        NotFoundException.class,
+        () -> dataSetServiceImpl.getPreviewJobResult("job-id", workspace.getWorkspaceId()));
+  }
+
+  @Test
+  public void testGetPreviewJobResult_missingJob() {
+    doReturn(Optional.empty()).when(mockBigQueryService).getJob("job-id");
+    assertThrows(
+        NotFoundException.class,
+        () -> dataSetServiceImpl.getPreviewJobResult("job-id", workspace.getWorkspaceId()));
+  }
+
+  @Test
+  public void testPreviewDomains() {
+    doAnswer(invocation -> invocation.getArgument(0))
+        .when(mockBigQueryService)
+        .filterBigQueryConfig(any());
+    final FieldList personFields =
+        FieldList.of(ImmutableList.of(Field.of("PERSON_ID", LegacySQLTypeName.INTEGER)));
+    doReturn(personFields).when(mockBigQueryService).getTableFieldsFromDomain(Domain.PERSON);
+    doReturn(personFields)
+        .when(mockBigQueryService)
+        .getTableFieldsFromDomain(Domain.FITBIT_ACTIVITY);
+    final Job personJob = mockStartedJob("person-job");
+    final Job fitbitJob = mockStartedJob("fitbit-job");
+    doReturn(personJob, fitbitJob).when(mockBigQueryService).startQuery(any());
+    final TableResult personResult = mock(TableResult.class);
+    doReturn(personResult).when(mockBigQueryService).waitForQueryResults(eq(personJob), anyLong());
+    doThrow(new ServerErrorException("query failed"))
+        .when(mockBigQueryService)
+        .waitForQueryResults(eq(fitbitJob), anyLong());
+
+    final List<DataSetPreviewJobResult> results =
+        dataSetServiceImpl.previewDomains(
+            ImmutableList.of(
+                buildPreviewRequest(Domain.PERSON), buildPreviewRequest(Domain.FITBIT_ACTIVITY)),
+            workspace.getWorkspaceId());
+
+    // The cohort is turned into SQL once, and inlined into each domain's query.
+    verify(mockCohortQueryBuilder, times(1)).buildParticipantIdQuery(any());
+    final ArgumentCaptor<QueryJobConfiguration> queryCaptor =
+        ArgumentCaptor.forClass(QueryJobConfiguration.class);
+    verify(mockBigQueryService, times(2)).startQuery(queryCaptor.capture());
+    for (QueryJobConfiguration query : queryCaptor.getAllValues()) {
+      assertThat(query.getQuery()).startsWith("SELECT ");
+      assertThat(query.getQuery()).contains("PERSON_ID in (SELECT * FROM person_id from ");
+    }
+
+    assertThat(results).hasSize(2);
+    assertThat(results.get(0).getDomain()).isEqualTo(Domain.PERSON);
+    assertThat(results.get(0).getJobId()).isEqualTo("person-job");
+    assertThat(results.get(0).getState()).isEqualTo(JobStatus.State.DONE);
+    assertThat(results.get(0).getTableResult().get()).isEqualTo(personResult);
+    // A domain whose wait failed is left for the client to poll by its job id.
+    assertThat(results.get(1).getDomain()).isEqualTo(Domain.FITBIT_ACTIVITY);
+    assertThat(results.get(1).getJobId()).isEqualTo("fitbit-job");
+    assertThat(results.get(1).getState()).isEqualTo(JobStatus.State.RUNNING);
+    assertThat(results.get(1).getTableResult().isPresent()).isFalse();
+  }
+
+  @Test
+  public void testPreviewDomains_duplicateDomain() {
+    assertThrows(
+        BadRequestException.class,
+        () ->
+            dataSetServiceImpl.previewDomains(
+                ImmutableList.of(
+                    buildPreviewRequest(Domain.PERSON), buildPreviewRequest(Domain.PERSON)),
+                workspace.getWorkspaceId()));
+  }
+
   @Test
   public void testGetsCohortQueryStringAndCollectsNamedParameters() {
     final DbCohort cohortDbModel = buildSimpleCohort(workspace);
@@ -431,6 +590,8 @@ public class DataSetServiceTest extends SpringTest {
     assertThat(result).hasSize(1);
     assertThat(result.get("PERSON").getNamedParameters()).hasSize(1);
     assertThat(result.get("PERSON").getNamedParameters().get("foo_1").getValue()).isEqualTo("101");
+    assertThat(result.get("PERSON").getQuery()).startsWith("SELECT ");
+    assertThat(result.get("PERSON").getQuery()).contains("IN (SELECT * FROM person_id from ");
   }
 
   @Test
@@ -473,15 +634,38 @@ public class DataSetServiceTest extends SpringTest {
   @Test
   public void testGetPersonIdsWithWholeGenome_cohorts() {
     mockPersonIdQuery();
-    DbCohort cohort2 = cohortDao.save(buildSimpleCohort(workspace));
+    DbCohort cohort2 = buildSimpleCohort(workspace);
+    cohort2.setCriteria(new Gson().toJson(SearchRequests.females()));
+    cohort2 = cohortDao.save(cohort2);
 
     DbDataset dataset = new DbDataset();
     dataset.setCohortIds(ImmutableList.of(cohort.getCohortId(), cohort2.getCohortId()));
     dataSetServiceImpl.getPersonIdsWithWholeGenome(dataset);
 
-    // Two participant criteria, one per cohort.
-    verify(mockCohortQueryBuilder)
-        .buildUnionedParticipantIdQuery(argThat(criteriaList -> criteriaList.size() == 2));
+    // One query per cohort with the cohort's own criteria, so it can be read from the cohort's
+    // materialized table, and one for the participants with WGS data.
+    ArgumentCaptor<ParticipantCriteria> criteriaCaptor =
+        ArgumentCaptor.forClass(ParticipantCriteria.class);
+    verify(mockCohortQueryBuilder, times(3)).buildParticipantIdQuery(criteriaCaptor.capture());
+    assertThat(
+            criteriaCaptor.getAllValues().stream()
+                .filter(DataSetServiceTest::hasWgsSearchGroup)
+                .count())
+        .isEqualTo(1);
+
+    // The cohorts are ANDed in the final query.
+    ArgumentCaptor<QueryJobConfiguration> queryCaptor =
+        ArgumentCaptor.forClass(QueryJobConfiguration.class);
+    verify(mockBigQueryService).filterBigQueryConfig(queryCaptor.capture());
+    assertThat(queryCaptor.getValue().getQuery())
+        .isEqualTo(
+            String.format(
+                "SELECT person_id FROM (%s) WHERE person_id IN (%s UNION DISTINCT %s)",
+                QUERY_JOB_CONFIGURATION_1.getQuery(),
+                QUERY_JOB_CONFIGURATION_1.getQuery(),
+                QUERY_JOB_CONFIGURATION_1.getQuery()));
+    assertThat(queryCaptor.getValue().getNamedParameters().keySet())
+        .containsExactly("foo", "foo_" + cohort.getCohortId(), "foo_" + cohort2.getCohortId());
   }
 
   @Test
@@ -493,10 +677,11 @@ public class DataSetServiceTest extends SpringTest {
     dataSetServiceImpl.getPersonIdsWithWholeGenome(dataset);
 
     // Expect one participant criteria: "has WGS".
-    // Note: this is dipping too much into implementation, but options are limited with the high
-    // amount of mocking in this test.
-    verify(mockCohortQueryBuilder)
-        .buildUnionedParticipantIdQuery(argThat(criteriaList -> criteriaList.size() == 1));
+    ArgumentCaptor<ParticipantCriteria> criteriaCaptor =
+        ArgumentCaptor.forClass(ParticipantCriteria.class);
+    verify(mockCohortQueryBuilder).buildParticipantIdQuery(criteriaCaptor.capture());
+    assertThat(hasWgsSearchGroup(criteriaCaptor.getValue())).isTrue();
+    verify(mockBigQueryService).filterBigQueryConfig(QUERY_JOB_CONFIGURATION_1);
   }
 
   @Test
@@ -776,6 +961,42 @@ public class DataSetServiceTest extends SpringTest {
     dsLinkingDao.save(dbDSLinkingFitbitDate);
   }
 
+  private DataSetPreviewRequest buildPreviewRequest(Domain domain) {
+    return new DataSetPreviewRequest()
+        .domain(domain)
+        .includesAllParticipants(false)
+        .cohortIds(ImmutableList.of(cohort.getCohortId()))
+        .conceptSetIds(ImmutableList.of())
+        .prePackagedConceptSet(ImmutableList.of(PrePackagedConceptSetEnum.NONE))
+        .values(ImmutableList.of("person_id"));
+  }
+
+  private static Job mockStartedJob(String jobId) {
+    final Job job = mock(Job.class);
+    doReturn(JobId.of(jobId)).when(job).getJobId();
+    return job;
+  }
+
+  private Job mockPreviewJob(long workspaceId, JobStatus.State state) {
+    final Job job = mock(Job.class);
+    final JobStatus jobStatus = mock(JobStatus.class);
+    doReturn(state).when(jobStatus).getState();
+    doReturn(jobStatus).when(job).getStatus();
+    doReturn(
+            QueryJobConfiguration.newBuilder("SELECT 1")
+                .setLabels(
+                    ImmutableMap.of(
+                        DataSetServiceImpl.PREVIEW_JOB_WORKSPACE_LABEL,
+                        String.valueOf(workspaceId),
+                        DataSetServiceImpl.PREVIEW_JOB_DOMAIN_LABEL,
+                        "condition"))
+                .build())
+        .when(job)
+        .getConfiguration();
+    doReturn(Optional.of(job)).when(mockBigQueryService).getJob("job-id");
+    return job;
+  }
+
   private void mockLinkingTableQuery(Collection<String> domainBaseTables) {
     final TableResult tableResultMock = mock(TableResult.class);
 
@@ -819,6 +1040,12 @@ public class DataSetServiceTest extends SpringTest {
     doReturn(tableResultMock).when(mockBigQueryService).executeQuery(any());
   }
 
+  private static boolean hasWgsSearchGroup(ParticipantCriteria criteria) {
+    return criteria.getSearchRequest().getIncludes().stream()
+        .flatMap(group -> group.getItems().stream())
+        .anyMatch(item -> Domain.WHOLE_GENOME_VARIANT.toString().equals(item.getType()));
+  }
+
   private void createDbDsDataDictionaryEntry() {
     DbDSDataDictionary dsDataDictionary = new DbDSDataDictionary();
     dsDataDictionary.setDomain("PERSON");
@@ -0,0 +1,127 @@
+package org.pmiops.workbench.dataset;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+import com.google.cloud.bigquery.Job;
+import com.google.cloud.bigquery.TableResult;
+import com.google.common.collect.ImmutableMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.pmiops.workbench.api.BigQueryService;
+import org.pmiops.workbench.exceptions.ServerErrorException;
+import org.pmiops.workbench.model.Domain;
+
+public class DomainQueryRunnerTest {
+
+  private BigQueryService bigQueryService;
+  private ExecutorService executor;
+  private CountDownLatch release;
+  private DomainQueryRunner runner;
+
+  private Job conditionJob;
+  private Job drugJob;
+  private Job failingJob;
+  private Job slowJob;
+  private TableResult conditionResult;
+  private TableResult drugResult;
+
+  @BeforeEach
+  public void setUp() {
+    bigQueryService = mock(BigQueryService.class);
+    executor = Executors.newFixedThreadPool(4);
+    release = new CountDownLatch(1);
+    runner = new DomainQueryRunner(bigQueryService, executor, 500);
+
+    conditionJob = mock(Job.class);
+    conditionResult = mock(TableResult.class);
+    doReturn(conditionResult).when(bigQueryService).waitForQueryResults(conditionJob, 500);
+    drugJob = mock(Job.class);
+    drugResult = mock(TableResult.class);
+    doReturn(drugResult).when(bigQueryService).waitForQueryResults(drugJob, 500);
+    failingJob = mock(Job.class);
+    doThrow(new ServerErrorException("query failed"))
+        .when(bigQueryService)
+        .waitForQueryResults(failingJob, 500);
+    slowJob = mock(Job.class);
+    doAnswer(
+            invocation -> {
+              release.await();
+              return mock(TableResult.class);
+            })
+        .when(bigQueryService)
+        .waitForQueryResults(slowJob, 500);
+  }
+
+  @AfterEach
+  public void tearDown() {
+    release.countDown();
+    executor.shutdownNow();
+  }
+
+  @Test
+  public void testAwaitResults() {
+    Map<Domain, TableResult> results =
+        runner.awaitResults(ImmutableMap.of(Domain.CONDITION, conditionJob, Domain.DRUG, drugJob));
+
+    assertThat(results).containsExactly(Domain.CONDITION, conditionResult, Domain.DRUG, drugResult);
+  }
+
+  @Test
+  public void testAwaitResults_omitsFailedAndSlowDomains() {
+    Map<Domain, TableResult> results =
+        runner.awaitResults(
+            ImmutableMap.of(
+                Domain.CONDITION, conditionJob,
+                Domain.MEASUREMENT, failingJob,
+                Domain.PROCEDURE, slowJob,
+                Domain.DRUG, drugJob));
+
+    // A slow domain doesn't use up the wait of those after it.
+    assertThat(results).containsExactly(Domain.CONDITION, conditionResult, Domain.DRUG, drugResult);
+  }
+
+  @Test
+  public void testAwaitResults_omitsRejectedDomains() {
+    ExecutorService saturated =
+        new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(1));
+    try {
+      runner = new DomainQueryRunner(bigQueryService, saturated, 500);
+      doAnswer(
+              invocation -> {
+                release.await();
+                return conditionResult;
+              })
+          .when(bigQueryService)
+          .waitForQueryResults(conditionJob, 500);
+
+      // The first wait takes the only thread and the second the only queue slot; the third is
+      // rejected, and left for the caller to poll, rather than waited for on the request thread.
+      Map<Domain, TableResult> results =
+          runner.awaitResults(
+              ImmutableMap.of(
+                  Domain.CONDITION, conditionJob,
+                  Domain.PROCEDURE, slowJob,
+                  Domain.DRUG, drugJob));
+
+      assertThat(results).isEmpty();
+      verify(bigQueryService, never()).waitForQueryResults(drugJob, 500);
+    } finally {
+      release.countDown();
+      saturated.shutdownNow();
+    }
+  }
+}
@@ -2,6 +2,7 @@ package org.pmiops.workbench.db.dao;
 
 import static com.google.common.truth.Truth.assertThat;
 import static org.junit.Assert.fail;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 
 import com.google.common.collect.ImmutableList;
 import java.sql.Date;
@@ -126,6 +127,33 @@ public class ParticipantCohortStatusDaoTest extends SpringTest {
     assertThat(jdbcTemplate.queryForObject(sql, sqlParams, Integer.class)).isEqualTo(expectedCount);
   }
 
+  @Test
+  public void saveParticipantCohortStatusesAcrossBatches() {
+    List<DbParticipantCohortStatus> statuses = new ArrayList<>();
+    for (long participantId = 10; participantId < 17; participantId++) {
+      statuses.add(
+          new DbParticipantCohortStatus()
+              .participantKey(
+                  new DbParticipantCohortStatusKey().cohortReviewId(2).participantId(participantId))
+              .genderConceptId(1L)
+              .deceased(false));
+    }
+
+    assertThat(participantCohortStatusDao.saveParticipantCohortStatusesCustom(statuses, 3))
+        .isEqualTo(7);
+
+    String sql = "select count(*) from participant_cohort_status where cohort_review_id = ?";
+    final Object[] sqlParams = {2L};
+    assertThat(jdbcTemplate.queryForObject(sql, sqlParams, Integer.class)).isEqualTo(7);
+    DbParticipantCohortStatus saved =
+        participantCohortStatusDao
+            .findByParticipantKey_CohortReviewIdAndParticipantKey_ParticipantId(2L, 16L);
+    assertThat(saved.getStatus())
+        .isEqualTo(DbStorageEnums.cohortStatusToStorage(CohortStatus.NOT_REVIEWED));
+    assertThat(saved.getBirthDate()).isNull();
+    assertThat(saved.getRaceConceptId()).isNull();
+  }
+
   @Test
   public void findAllNoMatchingConcept() {
     PageRequest pageRequest =
@@ -140,6 +168,60 @@ public class ParticipantCohortStatusDaoTest extends SpringTest {
     assertThat(results.size()).isEqualTo(2);
   }
 
+  @Test
+  public void findAllSeekByParticipantId() {
+    PageRequest pageRequest =
+        new PageRequest()
+            .pageSize(1)
+            .sortOrder(SortOrder.ASC)
+            .sortColumn(FilterColumns.PARTICIPANTID.toString())
+            .lastParticipantId(1L);
+    List<DbParticipantCohortStatus> results =
+        participantCohortStatusDao.findAll(COHORT_REVIEW_ID, pageRequest);
+
+    assertThat(results.size()).isEqualTo(1);
+    assertThat(results.get(0).getParticipantKey().getParticipantId()).isEqualTo(2L);
+  }
+
+  @Test
+  public void findAllSeekByStatus() {
+    // EXCLUDED (participant 2) sorts before INCLUDED (participant 1).
+    PageRequest pageRequest =
+        new PageRequest()
+            .pageSize(PAGE_SIZE)
+            .sortOrder(SortOrder.ASC)
+            .sortColumn(FilterColumns.STATUS.toString())
+            .lastSortValue(CohortStatus.EXCLUDED.name())
+            .lastParticipantId(2L);
+    List<DbParticipantCohortStatus> results =
+        participantCohortStatusDao.findAll(COHORT_REVIEW_ID, pageRequest);
+
+    assertThat(results.size()).isEqualTo(1);
+    assertThat(results.get(0).getParticipantKey().getParticipantId()).isEqualTo(1L);
+
+    pageRequest
+        .sortOrder(SortOrder.DESC)
+        .lastSortValue(CohortStatus.INCLUDED.name())
+        .lastParticipantId(1L);
+    results = participantCohortStatusDao.findAll(COHORT_REVIEW_ID, pageRequest);
+
+    assertThat(results.size()).isEqualTo(1);
+    assertThat(results.get(0).getParticipantKey().getParticipantId()).isEqualTo(2L);
+  }
+
+  @Test
+  public void findAllSeekUnsupportedSortColumn() {
+    PageRequest pageRequest =
+        new PageRequest()
+            .pageSize(PAGE_SIZE)
+            .sortOrder(SortOrder.ASC)
+            .sortColumn(FilterColumns.GENDER.toString())
+            .lastParticipantId(1L);
+    assertThrows(
+        BadRequestException.class,
+        () -> participantCohortStatusDao.findAll(COHORT_REVIEW_ID, pageRequest));
+  }
+
   @Test
   public void findByParticipantKeyCohortReviewId() {
     List<DbParticipantCohortStatus> results =
@@ -5,15 +5,19 @@ import static com.google.common.truth.Truth.assertWithMessage;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import com.google.common.collect.ImmutableList;
+import com.google.common.util.concurrent.MoreExecutors;
 import java.sql.Timestamp;
 import java.time.Clock;
 import java.time.Instant;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.Random;
 import java.util.function.Supplier;
@@ -22,20 +26,29 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.pmiops.workbench.SpringTest;
 import org.pmiops.workbench.access.AccessTierServiceImpl;
+import org.pmiops.workbench.access.BulkAccessModuleSyncService;
+import org.pmiops.workbench.access.BulkAccessModuleSyncService.Outcome;
+import org.pmiops.workbench.access.BulkAccessModuleSyncService.Summary;
+import org.pmiops.workbench.access.BulkAccessModuleSyncService.Upstream;
+import org.pmiops.workbench.actionaudit.Agent;
 import org.pmiops.workbench.actionaudit.auditors.UserServiceAuditor;
 import org.pmiops.workbench.actionaudit.targetproperties.BypassTimeTargetProperty;
 import org.pmiops.workbench.compliance.ComplianceService;
 import org.pmiops.workbench.config.WorkbenchConfig;
 import org.pmiops.workbench.db.model.DbAccessTier;
 import org.pmiops.workbench.db.model.DbUser;
+import org.pmiops.workbench.db.model.DbUserAccessTier;
 import org.pmiops.workbench.db.model.DbUserTermsOfService;
 import org.pmiops.workbench.exceptions.BadRequestException;
 import org.pmiops.workbench.exceptions.NotFoundException;
+import org.pmiops.workbench.exceptions.ServerErrorException;
 import org.pmiops.workbench.firecloud.FireCloudService;
 import org.pmiops.workbench.firecloud.model.FirecloudNihStatus;
 import org.pmiops.workbench.google.DirectoryService;
 import org.pmiops.workbench.mail.MailService;
+import org.pmiops.workbench.model.AccessModule;
 import org.pmiops.workbench.model.Authority;
+import org.pmiops.workbench.model.TierAccessStatus;
 import org.pmiops.workbench.moodle.ApiException;
 import org.pmiops.workbench.moodle.model.BadgeDetailsV2;
 import org.pmiops.workbench.test.FakeClock;
@@ -50,6 +63,7 @@ import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Import;
 import org.springframework.context.annotation.Scope;
 import org.springframework.http.HttpStatus;
+import org.springframework.retry.backoff.NoBackOffPolicy;
 import org.springframework.test.annotation.DirtiesContext;
 
 @DataJpaTest
@@ -76,6 +90,7 @@ public class UserServiceTest extends SpringTest {
   @Autowired private UserService userService;
   @Autowired private UserDao userDao;
   @Autowired private AccessTierDao accessTierDao;
+  @Autowired private UserAccessTierDao userAccessTierDao;
 
   @Import({
     UserServiceTestConfiguration.class,
@@ -241,6 +256,58 @@ public class UserServiceTest extends SpringTest {
     assertThrows(NotFoundException.class, () -> userService.syncComplianceTrainingStatusV2());
   }
 
+  @Test
+  public void testBulkSyncComplianceTraining_tierUpdateFailureNotRetried() throws ApiException {
+    // The user has completed compliance training and is in the Registered Tier.
+    DbUser user = userDao.findUserByUsername(USERNAME);
+    user.setComplianceTrainingCompletionTime(Timestamp.from(START_INSTANT));
+    user = userDao.save(user);
+    userAccessTierDao.save(
+        new DbUserAccessTier()
+            .setUser(user)
+            .setAccessTier(registeredTier)
+            .setTierAccessStatus(TierAccessStatus.ENABLED)
+            .setFirstEnabled(Timestamp.from(START_INSTANT))
+            .setLastUpdated(Timestamp.from(START_INSTANT)));
+
+    // Moodle no longer has the training, so the user loses the tier, but Terra fails while the
+    // user is being removed from the tier's auth domain.
+    when(mockComplianceService.getUserBadgesByBadgeName(USERNAME)).thenReturn(new HashMap<>());
+    when(mockFireCloudService.isUserMemberOfGroupWithCache(
+            USERNAME, registeredTier.getAuthDomainName()))
+        .thenThrow(new ServerErrorException("Terra is unavailable"));
+
+    providedWorkbenchConfig.offlineBatch.moodleSyncRequestsPerSecond = 1000.0;
+
+    BulkAccessModuleSyncService bulkSyncService =
+        new BulkAccessModuleSyncService(
+            MoreExecutors.newDirectExecutorService(),
+            new NoBackOffPolicy(),
+            () -> providedWorkbenchConfig,
+            userDao);
+    Summary summary =
+        bulkSyncService.syncAll(
+            AccessModule.COMPLIANCE_TRAINING,
+            Upstream.MOODLE,
+            ImmutableList.of(user.getUserId()),
+            (u, moodleLimiter) -> {
+              Timestamp oldTime = u.getComplianceTrainingCompletionTime();
+              moodleLimiter.acquire();
+              DbUser updatedUser = userService.syncComplianceTrainingStatusV2(u, Agent.asSystem());
+              return Objects.equals(oldTime, updatedUser.getComplianceTrainingCompletionTime())
+                  ? Outcome.UNCHANGED
+                  : Outcome.CHANGED;
+            });
+
+    // The user was modified before the failure, so they must be reported as failed rather than
+    // retried and found unchanged.
+    assertThat(summary.getCount(Outcome.FAILED)).isEqualTo(1);
+    assertThat(summary.getCount(Outcome.UNCHANGED)).isEqualTo(0);
+    verify(mockComplianceService, times(1)).getUserBadgesByBadgeName(USERNAME);
+    verify(mockFireCloudService, times(1))
+        .isUserMemberOfGroupWithCache(USERNAME, registeredTier.getAuthDomainName());
+  }
+
   @Test
   public void testSyncComplianceTraining_SkippedForServiceAccountV2() throws ApiException {
     providedWorkbenchConfig.auth.serviceAccountApiUsers.add(USERNAME);
@@ -264,6 +264,36 @@ public class ReportingQueryServiceTest extends SpringTest {
     assertThat(iterator.hasNext()).isFalse();
   }
 
+  @Test
+  public void testWorkspaceIterator_exactlyTwoBatches() {
+    createWorkspaces(2 * BATCH_SIZE);
+
+    final Iterator<List<ReportingWorkspace>> iterator =
+        reportingQueryService.getWorkspaceBatchIterator();
+    assertThat(iterator.next()).hasSize(BATCH_SIZE);
+    assertThat(iterator.next()).hasSize(BATCH_SIZE);
+
+    // no trailing empty batch
+    assertThat(iterator.hasNext()).isFalse();
+  }
+
+  @Test
+  public void testGetWorkspaces_afterKey() {
+    createWorkspaces(3);
+    final List<Long> allIds =
+        reportingQueryService.getWorkspaces(10, 0).stream()
+            .map(ReportingWorkspace::getWorkspaceId)
+            .collect(Collectors.toList());
+    assertThat(allIds).hasSize(3);
+    assertThat(allIds).isInOrder();
+
+    final List<Long> afterFirst =
+        reportingQueryService.getWorkspaces(10, allIds.get(0)).stream()
+            .map(ReportingWorkspace::getWorkspaceId)
+            .collect(Collectors.toList());
+    assertThat(afterFirst).containsExactly(allIds.get(1), allIds.get(2)).inOrder();
+  }
+
   @Test
   public void testIteratorStream() {
     final int numWorkspaces = 5;
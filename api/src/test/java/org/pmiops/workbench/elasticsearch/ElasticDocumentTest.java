@@ -0,0 +1,90 @@
+package org.pmiops.workbench.elasticsearch;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.google.cloud.bigquery.Field;
+import com.google.cloud.bigquery.FieldList;
+import com.google.cloud.bigquery.FieldValue;
+import com.google.cloud.bigquery.FieldValue.Attribute;
+import com.google.cloud.bigquery.FieldValueList;
+import com.google.cloud.bigquery.LegacySQLTypeName;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.Test;
+
+public class ElasticDocumentTest {
+
+  private static final String JSON_EXPORT_LINE =
+      "{\"_id\":\"1\",\"age_at_cdr\":\"45\",\"gender_concept_name\":\"Female\","
+          + "\"condition_concept_ids\":[\"2\",\"1\"],"
+          + "\"events\":[{\"concept_id\":\"2\",\"age_at_start\":\"40\",\"value_as_number\":12.5},"
+          + "{\"concept_id\":\"1\",\"start_date\":\"2000-01-01\"}]}";
+
+  @Test
+  public void testContentHash_sameForJsonExportAndQueryResults() throws Exception {
+    FieldValueList row =
+        personRow(
+            ImmutableMap.of(
+                "_id", primitive("1"),
+                "age_at_cdr", primitive("45"),
+                "gender_concept_name", primitive("Female"),
+                "condition_concept_ids", repeated(primitive("1"), primitive("2")),
+                "events",
+                    repeated(
+                        event(primitive("1"), null, primitive("2000-01-01"), null, null),
+                        event(primitive("2"), null, null, primitive("40"), primitive("12.50")))));
+
+    assertThat(ElasticDocument.fromBigQueryResults(row).contentHash)
+        .isEqualTo(ElasticDocument.fromBigQueryJson(JSON_EXPORT_LINE).contentHash);
+  }
+
+  @Test
+  public void testContentHash_differsWhenContentChanges() throws Exception {
+    assertThat(ElasticDocument.fromBigQueryJson(JSON_EXPORT_LINE.replace("45", "46")).contentHash)
+        .isNotEqualTo(ElasticDocument.fromBigQueryJson(JSON_EXPORT_LINE).contentHash);
+  }
+
+  /** A person row with the given values, and nulls for the rest of the person schema. */
+  private static FieldValueList personRow(Map<String, FieldValue> values) {
+    // Only the names of the fields are used to look up values.
+    List<String> names =
+        Stream.concat(Stream.of("_id"), ElasticDocument.PERSON_SCHEMA.keySet().stream())
+            .collect(Collectors.toList());
+    return FieldValueList.of(
+        names.stream()
+            .map(name -> values.getOrDefault(name, primitive(null)))
+            .collect(Collectors.toList()),
+        FieldList.of(
+            names.stream()
+                .map(name -> Field.of(name, LegacySQLTypeName.STRING))
+                .collect(Collectors.toList())));
+  }
+
+  /** An event struct, which BigQuery returns without a schema. */
+  private static FieldValue event(
+      FieldValue conceptId,
+      FieldValue sourceConceptId,
+      FieldValue startDate,
+      FieldValue ageAtStart,
+      FieldValue valueAsNumber) {
+    List<FieldValue> values =
+        Stream.of(
+                conceptId, sourceConceptId, startDate, ageAtStart, null, valueAsNumber, null, null)
+            .map(v -> v == null ? primitive(null) : v)
+            .collect(Collectors.toList());
+    return FieldValue.of(Attribute.RECORD, FieldValueList.of(values));
+  }
+
+  private static FieldValue primitive(String value) {
+    return FieldValue.of(Attribute.PRIMITIVE, value);
+  }
+
+  private static FieldValue repeated(FieldValue... values) {
+    return FieldValue.of(Attribute.REPEATED, ImmutableList.copyOf(Arrays.asList(values)));
+  }
+}
@@ -0,0 +1,299 @@
+package org.pmiops.workbench.elasticsearch;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Sets;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import org.elasticsearch.action.DocWriteRequest;
+import org.elasticsearch.action.DocWriteRequest.OpType;
+import org.elasticsearch.action.bulk.BulkItemResponse;
+import org.elasticsearch.action.bulk.BulkRequest;
+import org.elasticsearch.action.bulk.BulkResponse;
+import org.elasticsearch.action.index.IndexRequest;
+import org.elasticsearch.action.index.IndexResponse;
+import org.elasticsearch.common.util.concurrent.EsRejectedExecutionException;
+import org.elasticsearch.index.shard.ShardId;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class ParallelDocumentIngesterTest {
+
+  private static final String INDEX = "cdr_person";
+
+  @TempDir Path tempDir;
+
+  private FakeBulkClient client;
+
+  /**
+   * Stands in for Elasticsearch: answers each document with the response chosen by the current
+   * policy, and records the ids and content hashes of the documents it indexed.
+   */
+  private static class FakeBulkClient implements ParallelDocumentIngester.BulkClient {
+    private final Set<String> indexedIds = Sets.newConcurrentHashSet();
+    private final Map<String, String> contentHashes = new ConcurrentHashMap<>();
+    private final AtomicInteger docsSent = new AtomicInteger();
+    private final AtomicInteger calls = new AtomicInteger();
+    // Chooses a failure for the given document on the given call, or null to index it.
+    private volatile BiFunction<String, Integer, Exception> itemFailure = (id, call) -> null;
+    private volatile int failFirstCalls = 0;
+
+    @Override
+    public BulkResponse bulk(BulkRequest request) throws IOException {
+      int call = calls.incrementAndGet();
+      if (call <= failFirstCalls) {
+        throw new IOException("connection reset");
+      }
+      List<BulkItemResponse> items = new ArrayList<>();
+      for (int i = 0; i < request.requests().size(); i++) {
+        DocWriteRequest<?> req = request.requests().get(i);
+        docsSent.incrementAndGet();
+        Exception failure = itemFailure.apply(req.id(), call);
+        if (failure == null) {
+          indexedIds.add(req.id());
+          contentHashes.put(
+              req.id(),
+              (String) ((IndexRequest) req).sourceAsMap().get(ElasticDocument.CONTENT_HASH_FIELD));
+          items.add(
+              new BulkItemResponse(
+                  i,
+                  OpType.INDEX,
+                  new IndexResponse(
+                      new ShardId(INDEX, "uuid", 0), req.type(), req.id(), 1, 1, 1, true)));
+        } else {
+          items.add(
+              new BulkItemResponse(
+                  i,
+                  OpType.INDEX,
+                  new BulkItemResponse.Failure(INDEX, req.type(), req.id(), failure)));
+        }
+      }
+      return new BulkResponse(items.toArray(new BulkItemResponse[0]), 1);
+    }
+
+    @Override
+    public Map<String, String> getContentHashes(List<String> ids) {
+      return ids.stream()
+          .filter(contentHashes::containsKey)
+          .collect(Collectors.toMap(Function.identity(), contentHashes::get));
+    }
+  }
+
+  @BeforeEach
+  public void setUp() {
+    client = new FakeBulkClient();
+  }
+
+  @Test
+  public void testIngest_allShards() throws Exception {
+    List<ParallelDocumentIngester.Shard> shards =
+        ImmutableList.of(writeShard(0, 5), writeShard(5, 5), writeShard(10, 3));
+
+    ParallelDocumentIngester.IngestResult result = newIngester().ingest(shards, 13);
+
+    assertThat(result.indexed).isEqualTo(13);
+    assertThat(result.failed).isEqualTo(0);
+    assertThat(result.retried).isEqualTo(0);
+    assertThat(result.failedShards).isEqualTo(0);
+    assertThat(client.indexedIds).containsExactlyElementsIn(ids(0, 13));
+  }
+
+  @Test
+  public void testIngest_retriesRejectedDocuments() throws Exception {
+    // Every other document is rejected the first time it is sent.
+    Set<String> rejectedOnce = Sets.newConcurrentHashSet();
+    client.itemFailure =
+        (id, call) ->
+            Integer.parseInt(id) % 2 == 0 && rejectedOnce.add(id)
+                ? new EsRejectedExecutionException("queue full")
+                : null;
+
+    ParallelDocumentIngester.IngestResult result =
+        newIngester().ingest(ImmutableList.of(writeShard(0, 6), writeShard(6, 4)), 10);
+
+    assertThat(result.indexed).isEqualTo(10);
+    assertThat(result.failed).isEqualTo(0);
+    assertThat(result.retried).isEqualTo(5);
+    assertThat(client.indexedIds).containsExactlyElementsIn(ids(0, 10));
+  }
+
+  @Test
+  public void testIngest_retriesFailedRequests() throws Exception {
+    client.failFirstCalls = 2;
+
+    ParallelDocumentIngester.IngestResult result =
+        newIngester().ingest(ImmutableList.of(writeShard(0, 4)), 4);
+
+    assertThat(result.indexed).isEqualTo(4);
+    assertThat(result.failed).isEqualTo(0);
+    assertThat(result.retried).isAtLeast(2);
+  }
+
+  @Test
+  public void testIngest_givesUpAfterMaxAttempts() throws Exception {
+    client.itemFailure =
+        (id, call) -> id.equals("1") ? new EsRejectedExecutionException("queue full") : null;
+
+    ParallelDocumentIngester.IngestResult result =
+        newIngester().ingest(ImmutableList.of(writeShard(0, 3)), 3);
+
+    assertThat(result.indexed).isEqualTo(2);
+    assertThat(result.failed).isEqualTo(1);
+    assertThat(result.retried).isEqualTo(2);
+  }
+
+  @Test
+  public void testIngest_countsRejectedDocumentsAsFailed() throws Exception {
+    client.itemFailure =
+        (id, call) -> id.equals("2") ? new IllegalArgumentException("mapping conflict") : null;
+
+    ParallelDocumentIngester.IngestResult result =
+        newIngester().ingest(ImmutableList.of(writeShard(0, 4)), 4);
+
+    assertThat(result.indexed).isEqualTo(3);
+    assertThat(result.failed).isEqualTo(1);
+    assertThat(result.retried).isEqualTo(0);
+  }
+
+  @Test
+  public void testIngest_unreadableShard() throws Exception {
+    List<ParallelDocumentIngester.Shard> shards =
+        ImmutableList.of(
+            writeShard(0, 3), ParallelDocumentIngester.localShard(tempDir.resolve("missing.json")));
+
+    ParallelDocumentIngester.IngestResult result = newIngester().ingest(shards, -1);
+
+    assertThat(result.indexed).isEqualTo(3);
+    assertThat(result.failedShards).isEqualTo(1);
+  }
+
+  @Test
+  public void testIngest_resumesFromCheckpoint() throws Exception {
+    List<ParallelDocumentIngester.Shard> shards =
+        ImmutableList.of(writeShard(0, 6), writeShard(6, 4));
+    IngestCheckpoint.Store store = IngestCheckpoint.localFile(tempDir.resolve("checkpoint.json"));
+    client.itemFailure =
+        (id, call) -> id.equals("9") ? new IllegalArgumentException("mapping conflict") : null;
+
+    ParallelDocumentIngester.IngestResult first =
+        newIngester().ingest(shards, 10, IngestCheckpoint.load(store));
+
+    assertThat(first.failed).isEqualTo(1);
+    IngestCheckpoint checkpoint = IngestCheckpoint.load(store);
+    assertThat(checkpoint.isComplete(shards.get(0).getName())).isTrue();
+    assertThat(checkpoint.isComplete(shards.get(1).getName())).isFalse();
+    // The batch of ids 6 and 7 was indexed; the one of 8 and 9 was not.
+    assertThat(checkpoint.committedLines(shards.get(1).getName())).isEqualTo(2);
+
+    client.itemFailure = (id, call) -> null;
+    client.docsSent.set(0);
+    ParallelDocumentIngester.IngestResult second = newIngester().ingest(shards, 10, checkpoint);
+
+    assertThat(second.indexed).isEqualTo(2);
+    assertThat(second.failed).isEqualTo(0);
+    assertThat(client.docsSent.get()).isEqualTo(2);
+    assertThat(client.indexedIds).containsExactlyElementsIn(ids(0, 10));
+    assertThat(IngestCheckpoint.load(store).isComplete(shards.get(1).getName())).isTrue();
+  }
+
+  @Test
+  public void testCheckpoint_refusesIngestWithOtherParameters() throws Exception {
+    IngestCheckpoint.Store store = IngestCheckpoint.localFile(tempDir.resolve("checkpoint.json"));
+    IngestCheckpoint checkpoint = IngestCheckpoint.load(store);
+    checkpoint.checkParameters(ImmutableMap.of("source", "cdr_a", "personIndex", INDEX));
+    checkpoint.setExport("export", 10);
+    checkpoint.save();
+
+    IngestCheckpoint resumed = IngestCheckpoint.load(store);
+    resumed.checkParameters(ImmutableMap.of("source", "cdr_a", "personIndex", INDEX));
+    assertThrows(
+        IllegalArgumentException.class,
+        () -> resumed.checkParameters(ImmutableMap.of("source", "cdr_b", "personIndex", INDEX)));
+  }
+
+  @Test
+  public void testIngest_incrementalSkipsUnchangedDocuments() throws Exception {
+    newIngester()
+        .ingest(
+            ImmutableList.of(
+                writeLines(
+                    "original.json",
+                    "{\"_id\":\"0\",\"person_id\":0,\"condition_concept_ids\":[\"1\",\"2\"]}",
+                    "{\"_id\":\"1\",\"person_id\":1}",
+                    "{\"_id\":\"2\",\"person_id\":2}")),
+            3);
+    client.docsSent.set(0);
+
+    // Document 0 only has its array reordered, which is not a change; document 2 changes.
+    ParallelDocumentIngester.IngestResult result =
+        newIngester()
+            .withIncrementalUpdates()
+            .ingest(
+                ImmutableList.of(
+                    writeLines(
+                        "updated.json",
+                        "{\"_id\":\"0\",\"person_id\":0,\"condition_concept_ids\":[\"2\",\"1\"]}",
+                        "{\"_id\":\"1\",\"person_id\":1}",
+                        "{\"_id\":\"2\",\"person_id\":20}",
+                        "{\"_id\":\"3\",\"person_id\":3}")),
+                4);
+
+    assertThat(result.indexed).isEqualTo(2);
+    assertThat(result.unchanged).isEqualTo(2);
+    assertThat(client.docsSent.get()).isEqualTo(2);
+    assertThat(client.indexedIds).containsExactlyElementsIn(ids(0, 4));
+  }
+
+  private ParallelDocumentIngester newIngester() {
+    return new ParallelDocumentIngester(
+        client,
+        INDEX,
+        /* readerThreads */ 2,
+        /* bulkThreads */ 2,
+        /* batchSize */ 2,
+        /* maxAttempts */ 3,
+        /* initialBackoffMillis */ 1);
+  }
+
+  /** Writes documents with ids [start, start + count) as a newline delimited JSON shard. */
+  private ParallelDocumentIngester.Shard writeShard(int start, int count) throws IOException {
+    Path path = tempDir.resolve("person-" + start + ".json");
+    Files.write(
+        path,
+        ids(start, count).stream()
+            .map(id -> String.format("{\"_id\":\"%s\",\"person_id\":%s}", id, id))
+            .collect(Collectors.toList()),
+        StandardCharsets.UTF_8);
+    return ParallelDocumentIngester.localShard(path);
+  }
+
+  private ParallelDocumentIngester.Shard writeLines(String name, String... lines)
+      throws IOException {
+    Path path = tempDir.resolve(name);
+    Files.write(path, Arrays.asList(lines), StandardCharsets.UTF_8);
+    return ParallelDocumentIngester.localShard(path);
+  }
+
+  private static List<String> ids(int start, int count) {
+    return IntStream.range(start, start + count)
+        .mapToObj(Integer::toString)
+        .collect(Collectors.toList());
+  }
+}
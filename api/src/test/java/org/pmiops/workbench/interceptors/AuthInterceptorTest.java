@@ -1,14 +1,17 @@
 package org.pmiops.workbench.interceptors;
 
 import static com.google.common.truth.Truth.assertThat;
+import static com.google.common.truth.Truth8.assertThat;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import com.google.api.client.http.HttpMethods;
+import com.google.api.services.oauth2.model.Tokeninfo;
 import com.google.api.services.oauth2.model.Userinfoplus;
 import java.lang.reflect.Method;
 import java.util.HashSet;
@@ -25,12 +28,15 @@ import org.mockito.junit.MockitoRule;
 import org.pmiops.workbench.SpringTest;
 import org.pmiops.workbench.annotations.AuthorityRequired;
 import org.pmiops.workbench.api.ProfileApi;
+import org.pmiops.workbench.auth.UserIdentityCache;
 import org.pmiops.workbench.auth.UserInfoService;
 import org.pmiops.workbench.config.WorkbenchConfig;
 import org.pmiops.workbench.db.dao.UserDao;
 import org.pmiops.workbench.db.dao.UserService;
 import org.pmiops.workbench.db.model.DbUser;
+import org.pmiops.workbench.exceptions.ForbiddenException;
 import org.pmiops.workbench.exceptions.NotFoundException;
+import org.pmiops.workbench.exceptions.ServerErrorException;
 import org.pmiops.workbench.firecloud.FireCloudService;
 import org.pmiops.workbench.firecloud.model.FirecloudMe;
 import org.pmiops.workbench.firecloud.model.FirecloudUserInfo;
@@ -76,9 +82,10 @@ public class AuthInterceptorTest extends SpringTest {
   @Rule public MockitoRule mockitoRule = MockitoJUnit.rule();
 
   @Autowired private AuthInterceptor interceptor;
+  @Autowired private UserIdentityCache userIdentityCache;
 
   @TestConfiguration
-  @Import({AuthInterceptor.class})
+  @Import({AuthInterceptor.class, UserIdentityCache.class})
   static class Configuration {
     @Bean
     @Scope(ConfigurableBeanFactory.SCOPE_PROTOTYPE)
@@ -95,6 +102,7 @@ public class AuthInterceptorTest extends SpringTest {
     user = new DbUser();
     user.setUserId(USER_ID);
     user.setDisabled(false);
+    userIdentityCache.invalidateAll();
   }
 
   // the particular ProfileApiMethod used by most tests
@@ -204,6 +212,11 @@ public class AuthInterceptorTest extends SpringTest {
     userInfo.setEmail("bob@fake-domain.org");
     when(userInfoService.getUserInfo("foo")).thenReturn(userInfo);
     when(userDao.findUserByUsername("bob@fake-domain.org")).thenReturn(user);
+    mockTokenInfo();
+  }
+
+  private void mockTokenInfo() {
+    when(userInfoService.getTokenInfo("foo")).thenReturn(new Tokeninfo().setExpiresIn(3600));
   }
 
   @Test
@@ -214,6 +227,76 @@ public class AuthInterceptorTest extends SpringTest {
     assertThat(interceptor.preHandle(mockRequest, mockResponse, mockHandler)).isTrue();
   }
 
+  @Test
+  public void preHandleGet_cachedToken() throws Exception {
+    mockGetCallWithBearerToken();
+    mockUserInfoSuccess();
+    when(userDao.findUserByUserId(USER_ID)).thenReturn(user);
+
+    assertThat(interceptor.preHandle(mockRequest, mockResponse, mockHandler)).isTrue();
+    assertThat(interceptor.preHandle(mockRequest, mockResponse, mockHandler)).isTrue();
+
+    verify(userInfoService, times(1)).getUserInfo("foo");
+    verify(userDao, times(1)).findUserByUsername("bob@fake-domain.org");
+  }
+
+  @Test
+  public void preHandleGet_cachedTokenFirecloudLookupSkipped() throws Exception {
+    mockGetCallWithBearerToken();
+    Userinfoplus userInfo = new Userinfoplus();
+    userInfo.setEmail("bob@bad-domain.org");
+    when(userInfoService.getUserInfo("foo")).thenReturn(userInfo);
+    FirecloudUserInfo fcUserInfo = new FirecloudUserInfo();
+    fcUserInfo.setUserEmail("bob@fake-domain.org");
+    FirecloudMe me = new FirecloudMe();
+    me.setUserInfo(fcUserInfo);
+    when(fireCloudService.getMe()).thenReturn(me);
+    when(userDao.findUserByUsername("bob@fake-domain.org")).thenReturn(user);
+    when(userDao.findUserByUserId(USER_ID)).thenReturn(user);
+    mockTokenInfo();
+
+    assertThat(interceptor.preHandle(mockRequest, mockResponse, mockHandler)).isTrue();
+    assertThat(interceptor.preHandle(mockRequest, mockResponse, mockHandler)).isTrue();
+
+    verify(fireCloudService, times(1)).getMe();
+  }
+
+  @Test
+  public void preHandleGet_cachedTokenDisabledUser() throws Exception {
+    mockGetCallWithBearerToken();
+    mockUserInfoSuccess();
+    when(userDao.findUserByUserId(USER_ID)).thenReturn(user);
+    assertThat(interceptor.preHandle(mockRequest, mockResponse, mockHandler)).isTrue();
+
+    user.setDisabled(true);
+    assertThrows(
+        ForbiddenException.class,
+        () -> interceptor.preHandle(mockRequest, mockResponse, mockHandler));
+    assertThat(userIdentityCache.get("foo")).isEmpty();
+  }
+
+  @Test
+  public void preHandleGet_tokenInfoFailureNotCached() throws Exception {
+    mockGetCallWithBearerToken();
+    mockUserInfoSuccess();
+    when(userInfoService.getTokenInfo("foo")).thenThrow(new ServerErrorException());
+    when(userDao.findUserByUserId(USER_ID)).thenReturn(user);
+
+    assertThat(interceptor.preHandle(mockRequest, mockResponse, mockHandler)).isTrue();
+    assertThat(userIdentityCache.get("foo")).isEmpty();
+  }
+
+  @Test
+  public void preHandleGet_cachedTokenUserDeleted() throws Exception {
+    mockGetCallWithBearerToken();
+    mockUserInfoSuccess();
+    assertThat(interceptor.preHandle(mockRequest, mockResponse, mockHandler)).isTrue();
+
+    // findUserByUserId isn't mocked, so the cached user ID no longer resolves.
+    assertThat(interceptor.preHandle(mockRequest, mockResponse, mockHandler)).isTrue();
+    verify(userInfoService, times(2)).getUserInfo("foo");
+  }
+
   @Test
   public void preHandleGet_noUserRecord() throws Exception {
     workbenchConfig.access.unsafeAllowUserCreationFromGSuiteData = true;
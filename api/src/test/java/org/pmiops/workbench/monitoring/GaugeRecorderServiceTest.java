@@ -3,13 +3,22 @@ package org.pmiops.workbench.monitoring;
 import static com.google.common.truth.Truth.assertThat;
 import static org.mockito.Mockito.atLeast;
 import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 
 import com.google.common.collect.ImmutableList;
+import java.time.Duration;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.ArgumentCaptor;
@@ -20,6 +29,7 @@ import org.pmiops.workbench.cohortreview.CohortReviewService;
 import org.pmiops.workbench.db.model.DbBillingProjectBufferEntry.BufferEntryStatus;
 import org.pmiops.workbench.monitoring.labels.MetricLabel;
 import org.pmiops.workbench.monitoring.views.GaugeMetric;
+import org.pmiops.workbench.test.FakeClock;
 import org.pmiops.workbench.workspaces.WorkspaceServiceImpl;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
@@ -27,6 +37,10 @@ import org.springframework.boot.test.context.TestConfiguration;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Import;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
 
 public class GaugeRecorderServiceTest extends SpringTest {
 
@@ -64,6 +78,7 @@ public class GaugeRecorderServiceTest extends SpringTest {
   private GaugeDataCollector standAloneGaugeDataCollector;
 
   @Autowired private GaugeRecorderService gaugeRecorderService;
+  @Autowired private FakeClock fakeClock;
 
   @TestConfiguration
   @Import({GaugeRecorderService.class, LogsBasedMetricServiceFakeImpl.class})
@@ -137,4 +152,182 @@ public class GaugeRecorderServiceTest extends SpringTest {
                 .orElse(0))
         .isEqualTo(WORKSPACES_COUNT);
   }
+
+  @Test
+  public void testRecord_slowCollectorDoesNotBlockOthers() throws InterruptedException {
+    final CountDownLatch releaseSlowCollector = new CountDownLatch(1);
+    final GaugeDataCollector slowCollector =
+        () -> {
+          try {
+            releaseSlowCollector.await();
+          } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+          }
+          return BILLING_BUFFER_GAUGE_BUNDLES;
+        };
+    final GaugeDataCollector fastCollector =
+        () -> Collections.singleton(WORKSPACE_MEASUREMENT_BUNDLE);
+    final MonitoringService monitoringService = mock(MonitoringService.class);
+    final GaugeRecorderService recorder =
+        newGaugeRecorderService(
+            ImmutableList.of(slowCollector, fastCollector),
+            monitoringService,
+            Duration.ofMillis(100));
+
+    recorder.record();
+    releaseSlowCollector.countDown();
+    recorder.shutdown();
+
+    verify(monitoringService).recordBundles(Collections.emptyList());
+    verify(monitoringService).recordBundles(Collections.singleton(WORKSPACE_MEASUREMENT_BUNDLE));
+  }
+
+  @Test
+  public void testRecord_servesLastValuesWithinRefreshInterval() {
+    final AtomicInteger pollCount = new AtomicInteger();
+    final GaugeDataCollector expensiveCollector =
+        new GaugeDataCollector() {
+          @Override
+          public Collection<MeasurementBundle> getGaugeData() {
+            pollCount.incrementAndGet();
+            return BILLING_BUFFER_GAUGE_BUNDLES;
+          }
+
+          @Override
+          public Duration getGaugeDataRefreshInterval() {
+            return Duration.ofMinutes(10);
+          }
+        };
+    final MonitoringService monitoringService = mock(MonitoringService.class);
+    final GaugeRecorderService recorder =
+        newGaugeRecorderService(
+            ImmutableList.of(expensiveCollector), monitoringService, Duration.ofSeconds(10));
+
+    recorder.record();
+    fakeClock.increment(Duration.ofMinutes(5).toMillis());
+    recorder.record();
+    assertThat(pollCount.get()).isEqualTo(1);
+
+    fakeClock.increment(Duration.ofMinutes(5).toMillis());
+    recorder.record();
+    assertThat(pollCount.get()).isEqualTo(2);
+
+    verify(monitoringService, times(3)).recordBundles(BILLING_BUFFER_GAUGE_BUNDLES);
+    recorder.shutdown();
+  }
+
+  @Test
+  public void testRecord_reportsLastValuesWhenCollectorFails() {
+    final AtomicInteger pollCount = new AtomicInteger();
+    final GaugeDataCollector flakyCollector =
+        () -> {
+          if (pollCount.incrementAndGet() > 1) {
+            throw new RuntimeException("unavailable");
+          }
+          return BILLING_BUFFER_GAUGE_BUNDLES;
+        };
+    final MonitoringService monitoringService = mock(MonitoringService.class);
+    final GaugeRecorderService recorder =
+        newGaugeRecorderService(
+            ImmutableList.of(flakyCollector), monitoringService, Duration.ofSeconds(10));
+
+    recorder.record();
+    recorder.record();
+
+    assertThat(pollCount.get()).isEqualTo(2);
+    verify(monitoringService, times(2)).recordBundles(BILLING_BUFFER_GAUGE_BUNDLES);
+    recorder.shutdown();
+  }
+
+  @Test
+  public void testRecord_lateCollectorUsesRequestScopeResolvedBeforeDeadline()
+      throws InterruptedException {
+    final ServletRequestAttributes request =
+        new ServletRequestAttributes(new MockHttpServletRequest());
+    request.setAttribute("gSuiteDomain", "fake-research-aou.org", RequestAttributes.SCOPE_REQUEST);
+    RequestContextHolder.setRequestAttributes(request);
+
+    final CountDownLatch releaseSlowCollector = new CountDownLatch(1);
+    final GaugeDataCollector slowCollector =
+        new GaugeDataCollector() {
+          @Override
+          public Collection<MeasurementBundle> getGaugeData() {
+            return prepareGaugeData().get();
+          }
+
+          @Override
+          public Supplier<Collection<MeasurementBundle>> prepareGaugeData() {
+            final String domain =
+                (String)
+                    RequestContextHolder.currentRequestAttributes()
+                        .getAttribute("gSuiteDomain", RequestAttributes.SCOPE_REQUEST);
+            return () -> {
+              try {
+                releaseSlowCollector.await();
+              } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+              }
+              return Collections.singleton(
+                  MeasurementBundle.builder()
+                      .addMeasurement(GaugeMetric.GSUITE_USER_COUNT, 5L)
+                      .addTag(MetricLabel.GSUITE_DOMAIN, domain)
+                      .build());
+            };
+          }
+
+          @Override
+          public Duration getGaugeDataRefreshInterval() {
+            return Duration.ofMinutes(10);
+          }
+        };
+    final MonitoringService monitoringService = mock(MonitoringService.class);
+    final ExecutorService executor = Executors.newFixedThreadPool(2);
+    final GaugeRecorderService recorder =
+        newGaugeRecorderService(
+            ImmutableList.of(slowCollector), monitoringService, executor, Duration.ofMillis(100));
+
+    try {
+      recorder.record();
+    } finally {
+      RequestContextHolder.resetRequestAttributes();
+    }
+    // The cron request ends before the slow collector finishes.
+    request.requestCompleted();
+    releaseSlowCollector.countDown();
+    executor.shutdown();
+    assertThat(executor.awaitTermination(10, TimeUnit.SECONDS)).isTrue();
+
+    // The late collection succeeded and is reported by the next run.
+    recorder.record();
+    verify(monitoringService).recordBundles(Collections.emptyList());
+    verify(monitoringService)
+        .recordBundles(
+            Collections.singleton(
+                MeasurementBundle.builder()
+                    .addMeasurement(GaugeMetric.GSUITE_USER_COUNT, 5L)
+                    .addTag(MetricLabel.GSUITE_DOMAIN, "fake-research-aou.org")
+                    .build()));
+  }
+
+  private GaugeRecorderService newGaugeRecorderService(
+      List<GaugeDataCollector> collectors,
+      MonitoringService monitoringService,
+      Duration collectionTimeout) {
+    return newGaugeRecorderService(
+        collectors, monitoringService, Executors.newFixedThreadPool(2), collectionTimeout);
+  }
+
+  private GaugeRecorderService newGaugeRecorderService(
+      List<GaugeDataCollector> collectors,
+      MonitoringService monitoringService,
+      ExecutorService collectorExecutor,
+      Duration collectionTimeout) {
+    return new GaugeRecorderService(
+        collectors,
+        monitoringService,
+        new LogsBasedMetricServiceFakeImpl(),
+        fakeClock,
+        collectorExecutor,
+        collectionTimeout);
+  }
 }
@@ -21,6 +21,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 import java.util.stream.StreamSupport;
 import org.jetbrains.annotations.NotNull;
@@ -41,6 +42,7 @@ import org.pmiops.workbench.monitoring.views.UnitOfMeasure;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.TestConfiguration;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Import;
 
 public class LogsBasedMetricsServiceTest extends SpringTest {
@@ -57,10 +59,18 @@ public class LogsBasedMetricsServiceTest extends SpringTest {
 
   @Captor ArgumentCaptor<Iterable<LogEntry>> logEntriesCaptor;
   @Autowired LogsBasedMetricService logsBasedMetricService;
+  @Autowired MetricsLogWriter metricsLogWriter;
 
   @TestConfiguration
   @Import({LogsBasedMetricServiceImpl.class})
-  static class Configuration {}
+  static class Configuration {
+    // Entries are only written when the test flushes them.
+    @Bean
+    MetricsLogWriter metricsLogWriter(Logging logging) {
+      return new MetricsLogWriter(
+          entries -> logging.write(entries), 1000, 1000, TimeUnit.HOURS.toMillis(1));
+    }
+  }
 
   @BeforeEach
   public void setup() {
@@ -113,6 +123,7 @@ public class LogsBasedMetricsServiceTest extends SpringTest {
 
   @NotNull
   private List<LogEntry> getWrittenLogEntries() {
+    metricsLogWriter.flush();
     verify(mockLogging).write(logEntriesCaptor.capture());
     return StreamSupport.stream(logEntriesCaptor.getValue().spliterator(), false)
         .collect(Collectors.toList());
@@ -160,6 +171,7 @@ public class LogsBasedMetricsServiceTest extends SpringTest {
           assertThat(innerInt).isEqualTo(-1);
         });
     assertThat(sideEffectSet).contains(3);
+    metricsLogWriter.flush();
     verify(mockLogging).write(logEntriesCaptor.capture());
     final Map<String, Object> entryData =
         StreamSupport.stream(logEntriesCaptor.getValue().spliterator(), false)
@@ -187,6 +199,7 @@ public class LogsBasedMetricsServiceTest extends SpringTest {
     assertThat(aSet).contains(3);
     assertThat(result).isEqualTo(99);
 
+    metricsLogWriter.flush();
     verify(mockLogging).write(logEntriesCaptor.capture());
     final Map<String, Object> entryData =
         StreamSupport.stream(logEntriesCaptor.getValue().spliterator(), false)
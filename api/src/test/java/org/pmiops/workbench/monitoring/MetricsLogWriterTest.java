@@ -0,0 +1,160 @@
+package org.pmiops.workbench.monitoring;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+import com.google.api.core.ApiFutures;
+import com.google.cloud.NoCredentials;
+import com.google.cloud.logging.LogEntry;
+import com.google.cloud.logging.Logging;
+import com.google.cloud.logging.LoggingOptions;
+import com.google.cloud.logging.Payload.StringPayload;
+import com.google.cloud.logging.spi.v2.LoggingRpc;
+import com.google.common.collect.ImmutableList;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.pmiops.workbench.monitoring.views.GaugeMetric;
+
+public class MetricsLogWriterTest {
+
+  private List<List<LogEntry>> writtenBatches;
+  private MetricsLogWriter writer;
+
+  @BeforeEach
+  public void setUp() {
+    writtenBatches = new ArrayList<>();
+    // Not started, so entries are only written when the test flushes them.
+    writer =
+        new MetricsLogWriter(
+            entries -> writtenBatches.add(ImmutableList.copyOf(entries)),
+            5,
+            2,
+            TimeUnit.HOURS.toMillis(1));
+  }
+
+  @AfterEach
+  public void tearDown() {
+    writer.shutdown();
+  }
+
+  @Test
+  public void testEnqueue_doesNotWrite() {
+    writer.enqueue(entries(1));
+
+    assertThat(writtenBatches).isEmpty();
+    assertThat(writer.getQueueDepth()).isEqualTo(1);
+  }
+
+  @Test
+  public void testFlush_writesInBatches() {
+    writer.enqueue(entries(1, 2, 3));
+    writer.flush();
+
+    assertThat(writtenBatches).containsExactly(entries(1, 2), entries(3)).inOrder();
+    assertThat(writer.getQueueDepth()).isEqualTo(0);
+  }
+
+  @Test
+  public void testEnqueue_dropsOldestWhenFull() {
+    writer.enqueue(entries(1, 2, 3, 4));
+    writer.enqueue(entries(5, 6, 7));
+    writer.flush();
+
+    assertThat(writtenBatches).containsExactly(entries(3, 4), entries(5, 6), entries(7)).inOrder();
+    assertThat(writer.getDroppedCount()).isEqualTo(2);
+  }
+
+  @Test
+  public void testFlush_countsFailedBatchesAsDropped() {
+    MetricsLogWriter failingWriter =
+        new MetricsLogWriter(
+            entries -> {
+              throw new RuntimeException("unavailable");
+            },
+            5,
+            2,
+            TimeUnit.HOURS.toMillis(1));
+    failingWriter.enqueue(entries(1, 2, 3));
+    failingWriter.flush();
+
+    assertThat(failingWriter.getQueueDepth()).isEqualTo(0);
+    assertThat(failingWriter.getDroppedCount()).isEqualTo(3);
+    failingWriter.shutdown();
+  }
+
+  @Test
+  public void testCloudLoggingSink_countsBatchCloudLoggingRejects() {
+    final LoggingRpc rpc = mock(LoggingRpc.class);
+    doReturn(ApiFutures.immediateFailedFuture(new IllegalStateException("unavailable")))
+        .when(rpc)
+        .write(any());
+    final Logging cloudLogging =
+        LoggingOptions.newBuilder()
+            .setProjectId("test-project")
+            .setCredentials(NoCredentials.getInstance())
+            .setServiceRpcFactory(options -> rpc)
+            .build()
+            .getService();
+    MetricsLogWriter cloudLoggingWriter =
+        new MetricsLogWriter(
+            MetricsLogWriter.cloudLoggingSink(cloudLogging), 5, 2, TimeUnit.HOURS.toMillis(1));
+    cloudLoggingWriter.enqueue(entries(1, 2));
+    cloudLoggingWriter.flush();
+
+    verify(rpc).write(any());
+    assertThat(cloudLoggingWriter.getDroppedCount()).isEqualTo(2);
+    cloudLoggingWriter.shutdown();
+  }
+
+  @Test
+  public void testStart_writesFullBatchesInTheBackground() throws InterruptedException {
+    CountDownLatch written = new CountDownLatch(1);
+    MetricsLogWriter startedWriter =
+        new MetricsLogWriter(entries -> written.countDown(), 5, 2, TimeUnit.HOURS.toMillis(1));
+    startedWriter.start();
+
+    startedWriter.enqueue(entries(1));
+    startedWriter.enqueue(entries(2));
+
+    assertThat(written.await(10, TimeUnit.SECONDS)).isTrue();
+    startedWriter.shutdown();
+  }
+
+  @Test
+  public void testShutdown_writesBufferedEntries() {
+    writer.enqueue(entries(1));
+    writer.shutdown();
+
+    assertThat(writtenBatches).containsExactly(entries(1));
+  }
+
+  @Test
+  public void testGetGaugeData() {
+    writer.enqueue(entries(1, 2, 3, 4, 5, 6));
+
+    assertThat(writer.getGaugeData())
+        .containsExactly(
+            MeasurementBundle.builder()
+                .addMeasurement(GaugeMetric.METRICS_LOG_QUEUE_DEPTH, 5)
+                .build(),
+            MeasurementBundle.builder()
+                .addMeasurement(GaugeMetric.METRICS_LOG_DROPPED_COUNT, 1L)
+                .build());
+  }
+
+  private static List<LogEntry> entries(int... ids) {
+    return IntStream.of(ids)
+        .mapToObj(id -> LogEntry.of(StringPayload.of("entry " + id)))
+        .collect(Collectors.toList());
+  }
+}
@@ -0,0 +1,98 @@
+package org.pmiops.workbench.notebooks;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.google.cloud.storage.Blob;
+import com.google.common.collect.ImmutableList;
+import java.util.List;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.pmiops.workbench.config.WorkbenchConfig;
+import org.pmiops.workbench.google.CloudStorageClient;
+
+public class NotebookMetadataServiceTest {
+
+  private CloudStorageClient cloudStorageClient;
+  private WorkbenchConfig config;
+  private NotebookMetadataService notebookMetadataService;
+
+  @BeforeEach
+  public void setUp() {
+    cloudStorageClient = mock(CloudStorageClient.class);
+    config = WorkbenchConfig.createEmptyConfig();
+    config.featureFlags.enableNotebookListingCache = true;
+    notebookMetadataService = new NotebookMetadataService(cloudStorageClient, () -> config);
+
+    List<Blob> blobs = ImmutableList.of(blob("notebooks/a.ipynb"), blob("notebooks/b.ipynb"));
+    when(cloudStorageClient.getBlobsInDirectory("bucket", "notebooks")).thenReturn(blobs);
+  }
+
+  @Test
+  public void testGetNotebookDirectoryBlobs_cached() {
+    assertThat(notebookMetadataService.getNotebookDirectoryBlobs("bucket")).hasSize(2);
+    assertThat(notebookMetadataService.getNotebookDirectoryBlobs("bucket")).hasSize(2);
+
+    verify(cloudStorageClient, times(1)).getBlobsInDirectory("bucket", "notebooks");
+  }
+
+  @Test
+  public void testGetNotebookDirectoryBlobs_invalidated() {
+    notebookMetadataService.getNotebookDirectoryBlobs("bucket");
+    notebookMetadataService.invalidate("bucket");
+    notebookMetadataService.getNotebookDirectoryBlobs("bucket");
+
+    verify(cloudStorageClient, times(2)).getBlobsInDirectory("bucket", "notebooks");
+  }
+
+  @Test
+  public void testGetNotebookDirectoryBlobs_listingRacingAChangeIsNotCached() {
+    List<Blob> blobs = ImmutableList.of(blob("notebooks/a.ipynb"));
+    when(cloudStorageClient.getBlobsInDirectory("bucket", "notebooks"))
+        .then(
+            invocation -> {
+              // The notebooks change while the bucket is being listed.
+              notebookMetadataService.invalidate("bucket");
+              return blobs;
+            });
+
+    notebookMetadataService.getNotebookDirectoryBlobs("bucket");
+    notebookMetadataService.getNotebookDirectoryBlobs("bucket");
+
+    verify(cloudStorageClient, times(2)).getBlobsInDirectory("bucket", "notebooks");
+  }
+
+  @Test
+  public void testGetNotebookDirectoryBlobs_disabled() {
+    config.featureFlags.enableNotebookListingCache = false;
+
+    notebookMetadataService.getNotebookDirectoryBlobs("bucket");
+    notebookMetadataService.getNotebookDirectoryBlobs("bucket");
+
+    verify(cloudStorageClient, times(2)).getBlobsInDirectory("bucket", "notebooks");
+  }
+
+  @Test
+  public void testGetNotebookDirectoryBlobs_onlyNotebooks() {
+    when(cloudStorageClient.getBlobsInDirectory("bucket", "notebooks"))
+        .thenReturn(
+            ImmutableList.of(
+                blob("notebooks/a.ipynb"), blob("notebooks/B.IPYNB"), blob("notebooks/data.csv")));
+
+    assertThat(
+            notebookMetadataService.getNotebookDirectoryBlobs("bucket").stream()
+                .map(Blob::getName)
+                .collect(Collectors.toList()))
+        .containsExactly("notebooks/a.ipynb", "notebooks/B.IPYNB");
+  }
+
+  private static Blob blob(String name) {
+    Blob blob = mock(Blob.class);
+    when(blob.getName()).thenReturn(name);
+    return blob;
+  }
+}
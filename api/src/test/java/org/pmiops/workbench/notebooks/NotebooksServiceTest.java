@@ -70,7 +70,7 @@ public class NotebooksServiceTest extends SpringTest {
   @Autowired private NotebooksService notebooksService;
 
   @TestConfiguration
-  @Import({NotebooksServiceImpl.class})
+  @Import({NotebookMetadataService.class, NotebooksServiceImpl.class})
   @MockBean({UserRecentResourceService.class, WorkspaceAuthService.class})
   static class Configuration {
 
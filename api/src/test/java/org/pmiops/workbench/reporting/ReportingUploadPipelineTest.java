@@ -0,0 +1,68 @@
+package org.pmiops.workbench.reporting;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import com.google.cloud.bigquery.InsertAllRequest;
+import com.google.cloud.bigquery.TableId;
+import com.google.common.base.Stopwatch;
+import com.google.common.collect.ImmutableMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.Test;
+import org.pmiops.workbench.reporting.ReportingUploadPipeline.TableUploadStats;
+
+public class ReportingUploadPipelineTest {
+
+  private static InsertAllRequest request(String tableName, int rowCount) {
+    final InsertAllRequest.Builder builder =
+        InsertAllRequest.newBuilder(TableId.of("project", "dataset", tableName));
+    IntStream.range(0, rowCount).forEach(i -> builder.addRow(ImmutableMap.of("id", i)));
+    return builder.build();
+  }
+
+  @Test
+  public void testUploadsEveryRequest() {
+    final List<InsertAllRequest> uploaded = new CopyOnWriteArrayList<>();
+    final Map<String, TableUploadStats> statsByTable;
+    try (ReportingUploadPipeline pipeline =
+        new ReportingUploadPipeline(2, uploaded::add, Stopwatch.createUnstarted())) {
+      for (int i = 0; i < 10; i++) {
+        pipeline.submit(request("workspace", 3));
+        pipeline.submit(request("user", 2));
+      }
+      pipeline.submit(request("cohort", 1));
+      statsByTable = pipeline.awaitCompletion();
+    }
+
+    assertThat(uploaded).hasSize(21);
+    assertThat(uploaded.stream().mapToInt(r -> r.getRows().size()).sum()).isEqualTo(51);
+    assertThat(statsByTable.keySet()).containsExactly("workspace", "user", "cohort");
+    assertThat(statsByTable.get("workspace").getRowCount()).isEqualTo(30);
+    assertThat(statsByTable.get("user").getRowCount()).isEqualTo(20);
+    assertThat(statsByTable.get("cohort").getRowCount()).isEqualTo(1);
+  }
+
+  @Test
+  public void testRethrowsUploadFailure() {
+    try (ReportingUploadPipeline pipeline =
+        new ReportingUploadPipeline(
+            2,
+            r -> {
+              if (r.getTable().getTable().equals("user")) {
+                throw new IllegalStateException("insert failed");
+              }
+            },
+            Stopwatch.createUnstarted())) {
+      pipeline.submit(request("workspace", 3));
+      pipeline.submit(request("user", 2));
+      pipeline.submit(request("workspace", 3));
+
+      final IllegalStateException e =
+          assertThrows(IllegalStateException.class, pipeline::awaitCompletion);
+      assertThat(e).hasMessageThat().isEqualTo("insert failed");
+    }
+  }
+}
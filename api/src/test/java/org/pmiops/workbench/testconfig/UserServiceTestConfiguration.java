@@ -1,5 +1,6 @@
 package org.pmiops.workbench.testconfig;
 
+import org.pmiops.workbench.auth.UserIdentityCache;
 import org.pmiops.workbench.db.dao.UserServiceImpl;
 import org.pmiops.workbench.institution.InstitutionEmailAddressMapperImpl;
 import org.pmiops.workbench.institution.InstitutionEmailDomainMapperImpl;
@@ -15,6 +16,7 @@ import org.springframework.context.annotation.Import;
 @TestConfiguration
 @Import({
   UserServiceImpl.class,
+  UserIdentityCache.class,
   // UserServiceImpl depends on InstitutionServiceImpl
   InstitutionServiceImpl.class,
   // InstitutionServiceImpl depends on these 5
@@ -0,0 +1,131 @@
+package org.pmiops.workbench.workspaces;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+
+import com.google.common.collect.ImmutableList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.pmiops.workbench.db.model.DbWorkspace;
+import org.pmiops.workbench.exceptions.ForbiddenException;
+import org.pmiops.workbench.exceptions.NotFoundException;
+import org.pmiops.workbench.exceptions.ServerErrorException;
+import org.pmiops.workbench.firecloud.FireCloudService;
+import org.pmiops.workbench.firecloud.model.FirecloudWorkspaceResponse;
+import org.pmiops.workbench.model.WorkspaceAccessLevel;
+
+public class WorkspaceAccessResolverTest {
+
+  private FireCloudService fireCloudService;
+  private ExecutorService executor;
+  private CountDownLatch release;
+  private WorkspaceAccessResolver resolver;
+
+  private DbWorkspace owned;
+  private DbWorkspace readable;
+  private DbWorkspace forbidden;
+  private DbWorkspace deleted;
+  private DbWorkspace failing;
+  private DbWorkspace slow;
+
+  @BeforeEach
+  public void setUp() {
+    fireCloudService = mock(FireCloudService.class);
+    executor = Executors.newFixedThreadPool(4);
+    release = new CountDownLatch(1);
+    resolver = new WorkspaceAccessResolver(fireCloudService, executor, 500);
+
+    owned = mockWorkspace(1, WorkspaceAuthService.PROJECT_OWNER_ACCESS_LEVEL);
+    readable = mockWorkspace(2, WorkspaceAccessLevel.READER.toString());
+    forbidden = workspace(3);
+    doThrow(new ForbiddenException("forbidden")).when(fireCloudService).getWorkspace("ns3", "ws3");
+    deleted = workspace(4);
+    doThrow(new NotFoundException("not found")).when(fireCloudService).getWorkspace("ns4", "ws4");
+    failing = workspace(5);
+    doThrow(new ServerErrorException("unavailable"))
+        .when(fireCloudService)
+        .getWorkspace("ns5", "ws5");
+    slow = workspace(6);
+    doAnswer(
+            invocation -> {
+              release.await();
+              return response(WorkspaceAccessLevel.OWNER.toString());
+            })
+        .when(fireCloudService)
+        .getWorkspace("ns6", "ws6");
+  }
+
+  @AfterEach
+  public void tearDown() {
+    release.countDown();
+    executor.shutdownNow();
+  }
+
+  @Test
+  public void testGetWorkspaces_omitsUnresolvedWorkspaces() {
+    List<DbWorkspace> workspaces =
+        ImmutableList.of(owned, readable, forbidden, deleted, failing, slow);
+
+    assertThat(resolver.getWorkspaces(workspaces).keySet()).containsExactly(1L, 2L);
+  }
+
+  @Test
+  public void testFindInaccessibleWorkspaceIds() {
+    List<DbWorkspace> workspaces =
+        ImmutableList.of(owned, readable, forbidden, deleted, failing, slow);
+
+    // Failed and timed out lookups are not taken as evidence of lost access.
+    assertThat(resolver.findInaccessibleWorkspaceIds(workspaces, WorkspaceAccessLevel.READER))
+        .containsExactly(3L, 4L);
+    assertThat(resolver.findInaccessibleWorkspaceIds(workspaces, WorkspaceAccessLevel.WRITER))
+        .containsExactly(2L, 3L, 4L);
+  }
+
+  @Test
+  public void testGetWorkspaces_looksUpRejectedWorkspacesOnCallingThread() {
+    ExecutorService saturated =
+        new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(1));
+    try {
+      resolver = new WorkspaceAccessResolver(fireCloudService, saturated, 500);
+
+      // The slow lookup takes the only thread and the owned one waits behind it in the only
+      // queue slot, past the deadline; the readable one is rejected and looked up in the caller.
+      assertThat(resolver.getWorkspaces(ImmutableList.of(slow, owned, readable)).keySet())
+          .containsExactly(2L);
+    } finally {
+      release.countDown();
+      saturated.shutdownNow();
+    }
+  }
+
+  private DbWorkspace workspace(long id) {
+    DbWorkspace workspace = new DbWorkspace();
+    workspace.setWorkspaceId(id);
+    workspace.setWorkspaceNamespace("ns" + id);
+    workspace.setFirecloudName("ws" + id);
+    return workspace;
+  }
+
+  private DbWorkspace mockWorkspace(long id, String accessLevel) {
+    DbWorkspace workspace = workspace(id);
+    doReturn(response(accessLevel))
+        .when(fireCloudService)
+        .getWorkspace(workspace.getWorkspaceNamespace(), workspace.getFirecloudName());
+    return workspace;
+  }
+
+  private static FirecloudWorkspaceResponse response(String accessLevel) {
+    return new FirecloudWorkspaceResponse().accessLevel(accessLevel);
+  }
+}
@@ -2,12 +2,14 @@ package org.pmiops.workbench.workspaces;
 
 import static com.google.common.truth.Truth.assertThat;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.anyList;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.eq;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -39,12 +41,14 @@ import org.pmiops.workbench.db.model.DbUser;
 import org.pmiops.workbench.db.model.DbUserRecentWorkspace;
 import org.pmiops.workbench.db.model.DbWorkspace;
 import org.pmiops.workbench.exceptions.BadRequestException;
+import org.pmiops.workbench.exceptions.ForbiddenException;
 import org.pmiops.workbench.firecloud.FireCloudService;
 import org.pmiops.workbench.firecloud.model.FirecloudWorkspace;
 import org.pmiops.workbench.firecloud.model.FirecloudWorkspaceResponse;
 import org.pmiops.workbench.google.CloudBillingClient;
 import org.pmiops.workbench.model.WorkspaceAccessLevel;
 import org.pmiops.workbench.model.WorkspaceActiveStatus;
+import org.pmiops.workbench.model.WorkspaceResponsePage;
 import org.pmiops.workbench.profile.ProfileMapper;
 import org.pmiops.workbench.utils.mappers.CommonMappers;
 import org.pmiops.workbench.utils.mappers.FirecloudMapper;
@@ -57,6 +61,7 @@ import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Import;
 import org.springframework.context.annotation.Scope;
+import org.springframework.data.domain.Sort;
 import org.springframework.test.annotation.DirtiesContext;
 
 @DataJpaTest
@@ -72,7 +77,8 @@ public class WorkspaceServiceTest {
     DataSetMapperImpl.class,
     WorkspaceMapperImpl.class,
     WorkspaceServiceImpl.class,
-    WorkspaceAuthService.class
+    WorkspaceAuthService.class,
+    WorkspaceAccessResolver.class
   })
   @MockBean({
     BillingProjectAuditor.class,
@@ -107,6 +113,7 @@ public class WorkspaceServiceTest {
   @MockBean private CloudBillingClient mockCloudBillingClient;
   @Autowired private WorkspaceDao workspaceDao;
   @Autowired private WorkspaceService workspaceService;
+  @Autowired private WorkspaceAuthService workspaceAuthService;
 
   private static DbUser currentUser;
 
@@ -160,6 +167,7 @@ public class WorkspaceServiceTest {
         WorkspaceActiveStatus.ACTIVE);
 
     doReturn(firecloudWorkspaceResponses).when(mockFireCloudService).getWorkspaces();
+    doReturn(firecloudWorkspaceResponses).when(mockFireCloudService).getWorkspaces(anyList());
 
     currentUser = new DbUser();
     currentUser.setUsername(DEFAULT_USERNAME);
@@ -247,6 +255,77 @@ public class WorkspaceServiceTest {
     assertThat(workspaceService.getWorkspaces().size()).isEqualTo(currentWorkspacesSize);
   }
 
+  @Test
+  public void getWorkspacesPage_pagesThroughSortedWorkspaces() {
+    WorkspaceResponsePage firstPage =
+        workspaceService.getWorkspacesPage(null, 2, "name", Sort.Direction.ASC, null, null, null);
+    assertThat(workspaceNames(firstPage)).containsExactly("another_extra", "extra").inOrder();
+    assertThat(firstPage.getTotalCount()).isEqualTo(5);
+
+    WorkspaceResponsePage secondPage =
+        workspaceService.getWorkspacesPage(
+            firstPage.getNextPageToken(), 2, "name", Sort.Direction.ASC, null, null, null);
+    assertThat(workspaceNames(secondPage)).containsExactly("owner", "reader").inOrder();
+
+    WorkspaceResponsePage lastPage =
+        workspaceService.getWorkspacesPage(
+            secondPage.getNextPageToken(), 2, "name", Sort.Direction.ASC, null, null, null);
+    assertThat(workspaceNames(lastPage)).containsExactly("writer");
+    assertThat(lastPage.getNextPageToken()).isNull();
+  }
+
+  @Test
+  public void getWorkspacesPage_filtersByAccessLevel() {
+    WorkspaceResponsePage page =
+        workspaceService.getWorkspacesPage(
+            null, 10, "name", Sort.Direction.DESC, WorkspaceAccessLevel.OWNER, null, null);
+    assertThat(workspaceNames(page)).containsExactly("owner", "extra", "another_extra").inOrder();
+    assertThat(page.getTotalCount()).isEqualTo(3);
+  }
+
+  @Test
+  public void getWorkspacesPage_listsPublishedReaderWorkspacesSeparately() {
+    DbWorkspace readerWorkspace = dbWorkspaces.get(0);
+    readerWorkspace.setPublished(true);
+    workspaceDao.save(readerWorkspace);
+    addMockedWorkspace(
+        workspaceIdIncrementer.getAndIncrement(),
+        "deleted",
+        DEFAULT_WORKSPACE_NAMESPACE,
+        WorkspaceAccessLevel.OWNER,
+        WorkspaceActiveStatus.DELETED);
+
+    WorkspaceResponsePage page =
+        workspaceService.getWorkspacesPage(null, 10, "name", Sort.Direction.ASC, null, null, null);
+    assertThat(workspaceNames(page))
+        .containsExactly("another_extra", "extra", "owner", "writer")
+        .inOrder();
+    assertThat(page.getTotalCount()).isEqualTo(4);
+
+    WorkspaceResponsePage publishedPage =
+        workspaceService.getWorkspacesPage(null, 10, "name", Sort.Direction.ASC, null, true, null);
+    assertThat(workspaceNames(publishedPage)).containsExactly("reader");
+  }
+
+  @Test
+  public void getWorkspacesPage_rejectsTokenForOtherParameters() {
+    String pageToken =
+        workspaceService
+            .getWorkspacesPage(null, 2, "name", Sort.Direction.ASC, null, null, null)
+            .getNextPageToken();
+    assertThrows(
+        BadRequestException.class,
+        () ->
+            workspaceService.getWorkspacesPage(
+                pageToken, 2, "name", Sort.Direction.DESC, null, null, null));
+  }
+
+  private static List<String> workspaceNames(WorkspaceResponsePage page) {
+    return page.getItems().stream()
+        .map(workspaceResponse -> workspaceResponse.getWorkspace().getName())
+        .collect(Collectors.toList());
+  }
+
   @Test
   public void activeStatus() {
     EnumSet.allOf(WorkspaceActiveStatus.class)
@@ -391,6 +470,93 @@ public class WorkspaceServiceTest {
     assertThat(recentWorkspaces.get(0).getWorkspaceId()).isEqualTo(ownedId);
   }
 
+  @Test
+  public void workspaceAccessCache_servesRepeatChecks() {
+    workbenchConfig.featureFlags.enableWorkspaceAccessCache = true;
+
+    workspaceAuthService.enforceWorkspaceAccessLevel(
+        DEFAULT_WORKSPACE_NAMESPACE, "writer", WorkspaceAccessLevel.READER);
+    workspaceAuthService.enforceWorkspaceAccessLevel(
+        DEFAULT_WORKSPACE_NAMESPACE, "writer", WorkspaceAccessLevel.WRITER);
+
+    verify(mockFireCloudService, times(1)).getWorkspace(DEFAULT_WORKSPACE_NAMESPACE, "writer");
+  }
+
+  @Test
+  public void workspaceAccessCache_strictChecksBypassCache() {
+    workbenchConfig.featureFlags.enableWorkspaceAccessCache = true;
+
+    workspaceAuthService.enforceWorkspaceAccessLevel(
+        DEFAULT_WORKSPACE_NAMESPACE, "owner", WorkspaceAccessLevel.OWNER);
+    workspaceAuthService.enforceWorkspaceAccessLevelStrict(
+        DEFAULT_WORKSPACE_NAMESPACE, "owner", WorkspaceAccessLevel.OWNER);
+
+    verify(mockFireCloudService, times(2)).getWorkspace(DEFAULT_WORKSPACE_NAMESPACE, "owner");
+  }
+
+  @Test
+  public void workspaceAccessCache_invalidatedWhenAclChanges() {
+    workbenchConfig.featureFlags.enableWorkspaceAccessCache = true;
+    workspaceAuthService.enforceWorkspaceAccessLevel(
+        DEFAULT_WORKSPACE_NAMESPACE, "reader", WorkspaceAccessLevel.READER);
+
+    FirecloudWorkspaceResponse revoked =
+        mockFirecloudWorkspaceResponse(
+            "1", "reader", DEFAULT_WORKSPACE_NAMESPACE, WorkspaceAccessLevel.NO_ACCESS);
+    doReturn(revoked)
+        .when(mockFireCloudService)
+        .getWorkspace(DEFAULT_WORKSPACE_NAMESPACE, "reader");
+    workspaceAuthService.invalidateCachedAccessLevels(DEFAULT_WORKSPACE_NAMESPACE, "reader");
+
+    assertThrows(
+        ForbiddenException.class,
+        () ->
+            workspaceAuthService.enforceWorkspaceAccessLevel(
+                DEFAULT_WORKSPACE_NAMESPACE, "reader", WorkspaceAccessLevel.READER));
+  }
+
+  @Test
+  public void workspaceAccessCache_doesNotCacheNoAccess() {
+    workbenchConfig.featureFlags.enableWorkspaceAccessCache = true;
+    FirecloudWorkspaceResponse noAccess =
+        mockFirecloudWorkspaceResponse(
+            "1", "reader", DEFAULT_WORKSPACE_NAMESPACE, WorkspaceAccessLevel.NO_ACCESS);
+    doReturn(noAccess)
+        .when(mockFireCloudService)
+        .getWorkspace(DEFAULT_WORKSPACE_NAMESPACE, "reader");
+    assertThrows(
+        ForbiddenException.class,
+        () ->
+            workspaceAuthService.enforceWorkspaceAccessLevel(
+                DEFAULT_WORKSPACE_NAMESPACE, "reader", WorkspaceAccessLevel.READER));
+    // As when getting the workspace.
+    workspaceAuthService.cacheWorkspaceAccessLevel(
+        DEFAULT_WORKSPACE_NAMESPACE, "reader", WorkspaceAccessLevel.NO_ACCESS);
+
+    // Access granted since then is seen right away.
+    FirecloudWorkspaceResponse granted =
+        mockFirecloudWorkspaceResponse(
+            "1", "reader", DEFAULT_WORKSPACE_NAMESPACE, WorkspaceAccessLevel.READER);
+    doReturn(granted)
+        .when(mockFireCloudService)
+        .getWorkspace(DEFAULT_WORKSPACE_NAMESPACE, "reader");
+    assertThat(
+            workspaceAuthService.enforceWorkspaceAccessLevel(
+                DEFAULT_WORKSPACE_NAMESPACE, "reader", WorkspaceAccessLevel.READER))
+        .isEqualTo(WorkspaceAccessLevel.READER);
+    verify(mockFireCloudService, times(2)).getWorkspace(DEFAULT_WORKSPACE_NAMESPACE, "reader");
+  }
+
+  @Test
+  public void workspaceAccessCache_disabled() {
+    workspaceAuthService.enforceWorkspaceAccessLevel(
+        DEFAULT_WORKSPACE_NAMESPACE, "writer", WorkspaceAccessLevel.READER);
+    workspaceAuthService.enforceWorkspaceAccessLevel(
+        DEFAULT_WORKSPACE_NAMESPACE, "writer", WorkspaceAccessLevel.READER);
+
+    verify(mockFireCloudService, times(2)).getWorkspace(DEFAULT_WORKSPACE_NAMESPACE, "writer");
+  }
+
   @Test
   public void deleteWorkspace() {
     DbWorkspace ws = dbWorkspaces.get(0); // arbitrary choice of those defined for testing
@@ -0,0 +1,243 @@
+package org.pmiops.workbench.tools;
+
+import com.google.common.base.Stopwatch;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+import org.pmiops.workbench.cdr.model.DbCriteriaHierarchyNode;
+import org.pmiops.workbench.cohortbuilder.CriteriaHierarchyIndex;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+
+/**
+ * Benchmarks criteria group expansion for one domain and criteria type, comparing the MySQL path
+ * scans behind CBCriteriaDao.findCriteriaParentsByDomainAndTypeAndParentConceptIds and
+ * findCriteriaLeavesAndParentsByPath (or, for ICD9,
+ * findCriteriaLeavesAndParentsByDomainAndTypeAndParentIds) with a CriteriaHierarchyIndex built
+ * from the same cb_criteria table. Reports the index load time and footprint, the time per
+ * expansion on each path, and how many sampled groups expanded differently.
+ *
+ * <p>Meant to be run against a local database with CDR criteria loaded. The DAO queries are
+ * repeated here as SQL because command line tools do not enable the CDR repositories.
+ */
+@Configuration
+public class BenchmarkCriteriaHierarchyIndex {
+
+  private static final Logger logger =
+      Logger.getLogger(BenchmarkCriteriaHierarchyIndex.class.getName());
+
+  private static final int DEFAULT_SAMPLE_SIZE = 100;
+
+  private static final String NODES_SQL =
+      "select id, parent_id, concept_id, type, is_standard from cb_criteria "
+          + "where domain_id = ? order by id";
+  private static final String RANK1_IDS_SQL =
+      "select id from cb_criteria "
+          + "where domain_id = ? and match(full_text) against(? in boolean mode)";
+  private static final String SAMPLE_GROUPS_SQL =
+      "select concept_id from cb_criteria "
+          + "where domain_id = ? and type = ? and is_standard = ? and is_group = 1 "
+          + "and match(full_text) against(? in boolean mode) "
+          + "order by rand() limit ?";
+  private static final String PARENT_IDS_SQL =
+      "select id from cb_criteria "
+          + "where concept_id in (:parentConceptIds) and domain_id = :domain and type = :type "
+          + "and is_standard = :standard and match(full_text) against(:rank1 in boolean mode)";
+  private static final String LEAVES_BY_PATH_SQL =
+      "select distinct c.concept_id "
+          + "from cb_criteria c "
+          + "join (select id from cb_criteria where id in (:ids)) c2 "
+          + "on c.path like concat('%', c2.id, '%') "
+          + "where match(c.path) against(:path)";
+  private static final String ICD9_LEAVES_SQL =
+      "select distinct c.concept_id "
+          + "from cb_criteria c "
+          + "join (select id from cb_criteria where id in (:ids)) c2 "
+          + "on c.path like concat('%', c2.id, '%') "
+          + "where c.domain_id = :domain and c.type = :type and c.parent_id in (:ids) "
+          + "or c.id in (:ids)";
+
+  private static class Node implements DbCriteriaHierarchyNode {
+    private final Long id;
+    private final Long parentId;
+    private final String conceptId;
+    private final String type;
+    private final Boolean standard;
+
+    private Node(Long id, Long parentId, String conceptId, String type, Boolean standard) {
+      this.id = id;
+      this.parentId = parentId;
+      this.conceptId = conceptId;
+      this.type = type;
+      this.standard = standard;
+    }
+
+    @Override
+    public Long getId() {
+      return id;
+    }
+
+    @Override
+    public Long getParentId() {
+      return parentId;
+    }
+
+    @Override
+    public String getConceptId() {
+      return conceptId;
+    }
+
+    @Override
+    public String getType() {
+      return type;
+    }
+
+    @Override
+    public Boolean getStandard() {
+      return standard;
+    }
+  }
+
+  @Bean
+  public CommandLineRunner run(
+      JdbcTemplate jdbcTemplate, NamedParameterJdbcTemplate namedParameterJdbcTemplate) {
+    return (args) -> {
+      if (args.length < 3 || args.length > 4) {
+        throw new IllegalArgumentException(
+            "Expected 3 or 4 args (domain, type, standard, [sample_size]). Got "
+                + Arrays.asList(args));
+      }
+      String domain = args[0];
+      String type = args[1];
+      boolean standard = Boolean.parseBoolean(args[2]);
+      int sampleSize = args.length == 4 ? Integer.parseInt(args[3]) : DEFAULT_SAMPLE_SIZE;
+      String rank1 = "+[" + domain + "_rank1]";
+
+      Stopwatch timer = Stopwatch.createStarted();
+      List<Node> nodes =
+          jdbcTemplate.query(
+              NODES_SQL,
+              new Object[] {domain},
+              (rs, rowNum) ->
+                  new Node(
+                      rs.getLong("id"),
+                      rs.getLong("parent_id"),
+                      rs.getString("concept_id"),
+                      rs.getString("type"),
+                      rs.getBoolean("is_standard")));
+      List<Long> rank1Ids =
+          jdbcTemplate.queryForList(RANK1_IDS_SQL, new Object[] {domain, rank1}, Long.class);
+      long queryMillis = timer.elapsed(TimeUnit.MILLISECONDS);
+      CriteriaHierarchyIndex index = CriteriaHierarchyIndex.build(nodes, rank1Ids);
+      logger.info(
+          String.format(
+              "Index for %s: %d nodes (%d rank1), loaded in %d ms + built in %d ms, ~%d KiB "
+                  + "(%.1f bytes/node)",
+              domain,
+              index.size(),
+              rank1Ids.size(),
+              queryMillis,
+              timer.elapsed(TimeUnit.MILLISECONDS) - queryMillis,
+              index.estimatedSizeBytes() / 1024,
+              index.estimatedSizeBytes() / (double) Math.max(1, index.size())));
+
+      List<Long> sample =
+          jdbcTemplate.queryForList(
+              SAMPLE_GROUPS_SQL,
+              new Object[] {domain, type, standard, rank1, sampleSize},
+              Long.class);
+      boolean icd9 = "ICD9CM".equals(type);
+      long daoNanos = 0;
+      long indexNanos = 0;
+      int mismatches = 0;
+      for (long parentConceptId : sample) {
+        Set<Long> requested = ImmutableSet.of(parentConceptId);
+
+        timer = Stopwatch.createStarted();
+        Set<Long> fromDao =
+            expandWithDao(
+                namedParameterJdbcTemplate, domain, type, standard, rank1, parentConceptId, icd9);
+        daoNanos += timer.elapsed(TimeUnit.NANOSECONDS);
+
+        timer = Stopwatch.createStarted();
+        Set<Long> fromIndex =
+            icd9
+                ? index.findChildConceptIds(parentConceptId, type, standard, requested)
+                : index.findDescendantConceptIds(parentConceptId, type, standard, requested);
+        indexNanos += timer.elapsed(TimeUnit.NANOSECONDS);
+
+        if (!fromDao.equals(fromIndex)) {
+          mismatches++;
+          logger.info(
+              String.format(
+                  "Concept %d: %d from MySQL, %d from index",
+                  parentConceptId, fromDao.size(), fromIndex.size()));
+        }
+      }
+      int samples = Math.max(1, sample.size());
+      logger.info(
+          String.format(
+              "%d %s groups: MySQL %.3f ms/group, index %.3f ms/group, %d expanded differently",
+              sample.size(),
+              type,
+              daoNanos / 1e6 / samples,
+              indexNanos / 1e6 / samples,
+              mismatches));
+    };
+  }
+
+  /** The two MySQL round trips CriteriaLookupUtil makes per tree type without the index. */
+  private static Set<Long> expandWithDao(
+      NamedParameterJdbcTemplate jdbcTemplate,
+      String domain,
+      String type,
+      boolean standard,
+      String rank1,
+      long parentConceptId,
+      boolean icd9) {
+    List<Long> ids =
+        jdbcTemplate.queryForList(
+            PARENT_IDS_SQL,
+            ImmutableMap.of(
+                "parentConceptIds", String.valueOf(parentConceptId),
+                "domain", domain,
+                "type", type,
+                "standard", standard,
+                "rank1", rank1),
+            Long.class);
+    if (ids.isEmpty()) {
+      return ImmutableSet.of();
+    }
+    List<String> conceptIds =
+        icd9
+            ? jdbcTemplate.queryForList(
+                ICD9_LEAVES_SQL,
+                ImmutableMap.of("ids", ids, "domain", domain, "type", type),
+                String.class)
+            : jdbcTemplate.queryForList(
+                LEAVES_BY_PATH_SQL,
+                ImmutableMap.of(
+                    "ids",
+                    ids,
+                    "path",
+                    ids.stream().map(String::valueOf).collect(Collectors.joining(","))),
+                String.class);
+    return conceptIds.stream()
+        .filter(c -> c != null && !c.isEmpty())
+        .map(Long::valueOf)
+        .filter(c -> c != parentConceptId)
+        .collect(Collectors.toSet());
+  }
+
+  public static void main(String[] args) throws Exception {
+    CommandLineToolConfig.runCommandLine(BenchmarkCriteriaHierarchyIndex.class, args);
+  }
+}
@@ -0,0 +1,164 @@
+package org.pmiops.workbench.tools;
+
+import com.google.common.base.Stopwatch;
+import com.google.common.collect.ImmutableList;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+import org.pmiops.workbench.db.dao.ParticipantCohortStatusDao;
+import org.pmiops.workbench.db.model.DbParticipantCohortStatus;
+import org.pmiops.workbench.db.model.DbParticipantCohortStatusKey;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+/**
+ * Benchmarks bulk inserts into participant_cohort_status, comparing the original path (multi-row
+ * INSERT strings built by concatenation and sent in batches of 50 through a plain Statement) with
+ * the PreparedStatement batches used by
+ * ParticipantCohortStatusDao.saveParticipantCohortStatusesCustom.
+ *
+ * <p>Meant to be run against a local database. Rows are written under the given cohort review,
+ * which must have no participants, and are deleted after each run.
+ */
+@Configuration
+public class BenchmarkParticipantCohortStatusInsert {
+
+  private static final Logger logger =
+      Logger.getLogger(BenchmarkParticipantCohortStatusInsert.class.getName());
+
+  private static final List<Integer> ROW_COUNTS = ImmutableList.of(1000, 10000, 100000);
+  private static final List<Integer> BATCH_SIZES = ImmutableList.of(50, 500, 2000);
+
+  private static final String LEGACY_INSERT_SQL_TEMPLATE =
+      "insert into participant_cohort_status("
+          + "birth_date, ethnicity_concept_id, gender_concept_id, race_concept_id, sex_at_birth_concept_id,"
+          + "status, cohort_review_id, participant_id, deceased) "
+          + "values";
+  private static final String LEGACY_NEXT_INSERT = " (%s, %d, %d, %d, %d, %d, %d, %d, %s)";
+  private static final int LEGACY_BATCH_SIZE = 50;
+
+  @Bean
+  public CommandLineRunner run(
+      ParticipantCohortStatusDao participantCohortStatusDao, JdbcTemplate jdbcTemplate) {
+    return (args) -> {
+      if (args.length != 1) {
+        throw new IllegalArgumentException(
+            "Expected 1 arg (cohort_review_id). Got " + Arrays.asList(args));
+      }
+      long cohortReviewId = Long.parseLong(args[0]);
+      if (countRows(jdbcTemplate, cohortReviewId) != 0) {
+        throw new IllegalArgumentException(
+            String.format(
+                "Cohort review %d already has participants, use an empty cohort review",
+                cohortReviewId));
+      }
+
+      for (int rowCount : ROW_COUNTS) {
+        Stopwatch timer = Stopwatch.createStarted();
+        legacyInsert(
+            jdbcTemplate, statuses(cohortReviewId, rowCount).collect(Collectors.toList()));
+        report("legacy statement", rowCount, timer, jdbcTemplate, cohortReviewId);
+
+        for (int batchSize : BATCH_SIZES) {
+          timer = Stopwatch.createStarted();
+          participantCohortStatusDao.saveParticipantCohortStatusesCustom(
+              () -> statuses(cohortReviewId, rowCount).iterator(), batchSize);
+          report(
+              String.format("prepared statement, batch size %d", batchSize),
+              rowCount,
+              timer,
+              jdbcTemplate,
+              cohortReviewId);
+        }
+      }
+    };
+  }
+
+  private static Stream<DbParticipantCohortStatus> statuses(long cohortReviewId, int rowCount) {
+    Date birthDate = new Date(System.currentTimeMillis());
+    return LongStream.range(0, rowCount)
+        .mapToObj(
+            participantId ->
+                new DbParticipantCohortStatus()
+                    .participantKey(new DbParticipantCohortStatusKey(cohortReviewId, participantId))
+                    .birthDate(birthDate)
+                    .ethnicityConceptId(38003564L)
+                    .genderConceptId(8507L)
+                    .raceConceptId(8515L)
+                    .sexAtBirthConceptId(8507L)
+                    .deceased(false));
+  }
+
+  private static void report(
+      String path, int rowCount, Stopwatch timer, JdbcTemplate jdbcTemplate, long cohortReviewId) {
+    long elapsedMillis = timer.elapsed(TimeUnit.MILLISECONDS);
+    long insertedRows = countRows(jdbcTemplate, cohortReviewId);
+    logger.info(
+        String.format(
+            "%s: inserted %d of %d rows in %d ms", path, insertedRows, rowCount, elapsedMillis));
+    jdbcTemplate.update(
+        "delete from participant_cohort_status where cohort_review_id = ?", cohortReviewId);
+  }
+
+  private static long countRows(JdbcTemplate jdbcTemplate, long cohortReviewId) {
+    return jdbcTemplate.queryForObject(
+        "select count(*) from participant_cohort_status where cohort_review_id = ?",
+        new Object[] {cohortReviewId},
+        Long.class);
+  }
+
+  /** The insert path used before PreparedStatement batching, kept here as the baseline. */
+  private static void legacyInsert(
+      JdbcTemplate jdbcTemplate, List<DbParticipantCohortStatus> participantCohortStatuses)
+      throws Exception {
+    try (Connection connection = jdbcTemplate.getDataSource().getConnection();
+        Statement statement = connection.createStatement()) {
+      connection.setAutoCommit(false);
+      int index = 0;
+      String sqlStatement = LEGACY_INSERT_SQL_TEMPLATE;
+      for (DbParticipantCohortStatus pcs : participantCohortStatuses) {
+        String birthDate =
+            pcs.getBirthDate() == null ? "NULL" : "'" + pcs.getBirthDate().toString() + "'";
+        String nextSql =
+            String.format(
+                LEGACY_NEXT_INSERT,
+                birthDate,
+                pcs.getEthnicityConceptId(),
+                pcs.getGenderConceptId(),
+                pcs.getRaceConceptId(),
+                pcs.getSexAtBirthConceptId(),
+                3,
+                pcs.getParticipantKey().getCohortReviewId(),
+                pcs.getParticipantKey().getParticipantId(),
+                pcs.getDeceased());
+        sqlStatement =
+            sqlStatement.equals(LEGACY_INSERT_SQL_TEMPLATE)
+                ? sqlStatement + nextSql
+                : sqlStatement + ", " + nextSql;
+
+        if (++index % LEGACY_BATCH_SIZE == 0) {
+          statement.execute(sqlStatement);
+          sqlStatement = LEGACY_INSERT_SQL_TEMPLATE;
+        }
+      }
+      if (!sqlStatement.equals(LEGACY_INSERT_SQL_TEMPLATE)) {
+        statement.execute(sqlStatement);
+      }
+      connection.commit();
+      connection.setAutoCommit(true);
+    }
+  }
+
+  public static void main(String[] args) throws Exception {
+    CommandLineToolConfig.runCommandLine(BenchmarkParticipantCohortStatusInsert.class, args);
+  }
+}
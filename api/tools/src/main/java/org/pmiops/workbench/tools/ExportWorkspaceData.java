@@ -59,6 +59,7 @@ import org.pmiops.workbench.model.GenderIdentity;
 import org.pmiops.workbench.model.Race;
 import org.pmiops.workbench.model.SexAtBirth;
 import org.pmiops.workbench.monitoring.LogsBasedMetricServiceImpl;
+import org.pmiops.workbench.monitoring.MetricsLogWriter;
 import org.pmiops.workbench.monitoring.MonitoringServiceImpl;
 import org.pmiops.workbench.monitoring.MonitoringSpringConfiguration;
 import org.pmiops.workbench.monitoring.StackdriverStatsExporterService;
@@ -86,6 +87,7 @@ import org.springframework.transaction.support.TransactionSynchronizationManager
   ActionAuditSpringConfiguration.class,
   AppEngineMetadataSpringConfiguration.class,
   LogsBasedMetricServiceImpl.class,
+  MetricsLogWriter.class,
   MonitoringServiceImpl.class,
   MonitoringSpringConfiguration.class,
   NotebooksServiceImpl.class,
@@ -60,7 +60,7 @@ public class CloudStorageShardedLineIterator implements Iterator<String> {
     }
   }
 
-  private BufferedReader openBlob(Blob b) {
+  static BufferedReader openBlob(Blob b) {
     // Call to GCS are slow, so use a big 64MiB buffer to minimize total requests.
     return new BufferedReader(
         Channels.newReader(b.reader(), Charset.forName("UTF-8").newDecoder(), 64 << 20));
@@ -8,22 +8,35 @@ import com.google.cloud.bigquery.Job;
 import com.google.cloud.bigquery.QueryJobConfiguration;
 import com.google.cloud.bigquery.TableId;
 import com.google.cloud.bigquery.TableResult;
+import com.google.cloud.storage.Blob;
+import com.google.cloud.storage.BlobId;
+import com.google.cloud.storage.BlobInfo;
 import com.google.cloud.storage.Storage;
 import com.google.cloud.storage.Storage.BlobListOption;
 import com.google.cloud.storage.StorageOptions;
 import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableMap;
 import com.google.common.io.Resources;
 import com.google.gson.JsonObject;
 import com.google.gson.JsonParser;
+import java.io.BufferedReader;
 import java.io.IOException;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.time.Instant;
 import java.util.Arrays;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Spliterators;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Logger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 import java.util.stream.StreamSupport;
 import javax.annotation.Nullable;
 import org.apache.commons.cli.CommandLine;
@@ -45,6 +58,8 @@ import org.elasticsearch.common.Strings;
 import org.elasticsearch.common.settings.Settings;
 import org.pmiops.workbench.elasticsearch.ElasticDocument;
 import org.pmiops.workbench.elasticsearch.ElasticUtils;
+import org.pmiops.workbench.elasticsearch.IngestCheckpoint;
+import org.pmiops.workbench.elasticsearch.ParallelDocumentIngester;
 import org.springframework.boot.CommandLineRunner;
 import org.springframework.boot.WebApplicationType;
 import org.springframework.boot.builder.SpringApplicationBuilder;
@@ -73,8 +88,8 @@ public final class ElasticSearchIndexer {
           .longOpt("query-project-id")
           .desc(
               "GCP Cloud Project ID to run the extraction query in. Does not necessarily need "
-                  + "to be the same as the CDR dataset's BigQuery project.")
-          .required()
+                  + "to be the same as the CDR dataset's BigQuery project. Required unless "
+                  + "--local-json-dir is given.")
           .hasArg()
           .build();
   private static Option esBaseUrlOpt =
@@ -106,8 +121,8 @@ public final class ElasticSearchIndexer {
           .longOpt("cdr-big-query-dataset")
           .desc(
               "CDR BigQuery dataset ID (including the project), e.g. "
-                  + "'all-of-us-ehr-dev.synthetic_cdr20180606'")
-          .required()
+                  + "'all-of-us-ehr-dev.synthetic_cdr20180606'. Required unless "
+                  + "--local-json-dir is given.")
           .hasArg()
           .build();
   private static Option scratchBigQueryDatasetOpt =
@@ -141,6 +156,54 @@ public final class ElasticSearchIndexer {
           .longOpt("delete-indices")
           .desc("If specified, deletes existing indices of the same name before re-importing")
           .build();
+  private static Option parallelIngestOpt =
+      Option.builder()
+          .longOpt("parallel-ingest")
+          .desc(
+              "If specified, reads the exported GCS shards concurrently and sends several bulk "
+                  + "requests at once; requires the scratch BigQuery and GCS locations")
+          .build();
+  private static Option ingestReaderThreadsOpt =
+      Option.builder()
+          .longOpt("ingest-reader-threads")
+          .desc("Number of shards to read and convert at once in a parallel ingest. Defaults to 4.")
+          .type(Integer.class)
+          .hasArg()
+          .build();
+  private static Option bulkConcurrencyOpt =
+      Option.builder()
+          .longOpt("bulk-concurrency")
+          .desc("Number of bulk requests in flight at once in a parallel ingest. Defaults to 3.")
+          .type(Integer.class)
+          .hasArg()
+          .build();
+  private static Option localJsonDirOpt =
+      Option.builder()
+          .longOpt("local-json-dir")
+          .desc(
+              "If specified, skips the BigQuery export and ingests the newline-delimited JSON "
+                  + "files (*.json) in this local directory in parallel, e.g. a copy of a previous "
+                  + "GCS export")
+          .hasArg()
+          .build();
+  private static Option checkpointOpt =
+      Option.builder()
+          .longOpt("checkpoint")
+          .desc(
+              "Local path or gs:// URL of a checkpoint for a parallel ingest. Progress is saved "
+                  + "there as documents are indexed, and a run given the checkpoint of a failed "
+                  + "run reuses its export and skips the documents it already indexed, as long "
+                  + "as it ingests the same source and sample into the same index. Deleted once "
+                  + "an ingest completes without failures.")
+          .hasArg()
+          .build();
+  private static Option incrementalOpt =
+      Option.builder()
+          .longOpt("incremental")
+          .desc(
+              "If specified, updates an existing index, only re-sending the persons whose "
+                  + "documents have changed; requires a parallel ingest")
+          .build();
   private static Options createOptions =
       new Options()
           .addOption(queryProjectIdOpt)
@@ -151,10 +214,20 @@ public final class ElasticSearchIndexer {
           .addOption(scratchBigQueryDatasetOpt)
           .addOption(scratchGcsOpt)
           .addOption(inverseProbOpt)
-          .addOption(deleteIndicesOpt);
+          .addOption(deleteIndicesOpt)
+          .addOption(parallelIngestOpt)
+          .addOption(ingestReaderThreadsOpt)
+          .addOption(bulkConcurrencyOpt)
+          .addOption(localJsonDirOpt)
+          .addOption(checkpointOpt)
+          .addOption(incrementalOpt);
 
   private static final Logger log = Logger.getLogger(ElasticSearchIndexer.class.getName());
 
+  // How long the scratch table of a failed run is kept for it to be resumed. Matches the scratch
+  // bucket's lifecycle rule, in api/config/elastic_scratch_bucket_lifecycle.json.
+  private static final int SCRATCH_TTL_DAYS = 7;
+
   private RestHighLevelClient client;
 
   private void createIndex(CommandLine opts) throws IOException, InterruptedException {
@@ -162,21 +235,64 @@ public final class ElasticSearchIndexer {
         !(opts.hasOption(scratchGcsOpt.getLongOpt())
             ^ opts.hasOption(scratchBigQueryDatasetOpt.getLongOpt())),
         "Must provide both or provide neither of scratch BigQuery and scratch GCS locations");
+    boolean localIngest = opts.hasOption(localJsonDirOpt.getLongOpt());
+    boolean parallelIngest = localIngest || opts.hasOption(parallelIngestOpt.getLongOpt());
+    Preconditions.checkArgument(
+        localIngest
+            || (opts.hasOption(queryProjectIdOpt.getLongOpt())
+                && opts.hasOption(cdrBigQueryDatasetOpt.getLongOpt())),
+        "Must provide the query project and CDR BigQuery dataset unless ingesting local files");
+    Preconditions.checkArgument(
+        !parallelIngest || localIngest || opts.hasOption(scratchGcsOpt.getLongOpt()),
+        "Parallel ingest reads the GCS export, so needs the scratch BigQuery and GCS locations");
+    Preconditions.checkArgument(
+        parallelIngest
+            || !(opts.hasOption(checkpointOpt.getLongOpt())
+                || opts.hasOption(incrementalOpt.getLongOpt())),
+        "Checkpoints and incremental updates require a parallel ingest");
+    Preconditions.checkArgument(
+        !(opts.hasOption(incrementalOpt.getLongOpt())
+            && opts.hasOption(deleteIndicesOpt.getLongOpt())),
+        "An incremental update cannot delete the existing index");
     int inverseProb = 1;
     if (opts.hasOption(inverseProbOpt.getLongOpt())) {
       inverseProb = Integer.parseInt(opts.getOptionValue(inverseProbOpt.getLongOpt()));
     }
 
+    IngestCheckpoint checkpoint = null;
+    if (opts.hasOption(checkpointOpt.getLongOpt())) {
+      checkpoint =
+          IngestCheckpoint.load(checkpointStore(opts.getOptionValue(checkpointOpt.getLongOpt())));
+    }
     String personIndex = ElasticUtils.personIndexName(opts.getOptionValue("cdr-version"));
+    if (checkpoint != null) {
+      checkpoint.checkParameters(
+          ImmutableMap.of(
+              "source",
+              localIngest
+                  ? opts.getOptionValue(localJsonDirOpt.getLongOpt())
+                  : opts.getOptionValue(cdrBigQueryDatasetOpt.getLongOpt()),
+              "personIndex",
+              personIndex,
+              "inverseProb",
+              String.valueOf(inverseProb)));
+    }
+    boolean resuming = checkpoint != null && !checkpoint.isEmpty();
+
+    if (resuming && opts.hasOption(deleteIndicesOpt.getLongOpt())) {
+      log.info("Resuming from a checkpoint, so keeping the existing index");
+    }
     try {
       ElasticUtils.createPersonIndex(
-          client, personIndex, opts.hasOption(deleteIndicesOpt.getLongOpt()));
+          client, personIndex, !resuming && opts.hasOption(deleteIndicesOpt.getLongOpt()));
     } catch (ElasticsearchStatusException e) {
       if (e.status().getStatus() != 400) {
         throw e;
       }
       log.warning(
           "400 status on index creation, assuming conflict and ignoring: " + e.getMessage());
+      // The existing index may predate the content hash field.
+      ElasticUtils.putContentHashMapping(client, personIndex);
     }
 
     // Temporarily disable index refreshes and replication to speed up the ingestion process, per
@@ -197,6 +313,25 @@ public final class ElasticSearchIndexer {
                         .put("index.number_of_replicas", 0)),
             ElasticUtils.REQ_OPTS);
 
+    if (localIngest) {
+      List<ParallelDocumentIngester.Shard> shards;
+      Path dir = Paths.get(opts.getOptionValue(localJsonDirOpt.getLongOpt()));
+      try (Stream<Path> files = Files.list(dir)) {
+        shards =
+            files
+                .filter(f -> f.getFileName().toString().endsWith(".json"))
+                .sorted()
+                .map(ParallelDocumentIngester::localShard)
+                .collect(Collectors.toList());
+      }
+      boolean succeeded = ingestInParallel(opts, personIndex, shards, -1, checkpoint);
+      restoreIndexSettings(personIndex, originalSettings);
+      if (succeeded && checkpoint != null) {
+        checkpoint.delete();
+      }
+      return;
+    }
+
     // Generate JSON documents from the CDR for Elasticsearch.
     // Note: Here, BigQuery uses default credentials for the given environment.
     BigQuery bq =
@@ -208,71 +343,71 @@ public final class ElasticSearchIndexer {
     String personSQL = getPersonBigQuerySQL(cdrDataset, inverseProb);
 
     int totalSampleSize;
-    Iterator<ElasticDocument> docs;
+    Iterator<ElasticDocument> docs = null;
+    List<ParallelDocumentIngester.Shard> shards = null;
+    TableId scratchTableId = null;
+    String bucket = null;
+    String gcsDir = null;
     if (opts.hasOption(scratchGcsOpt.getLongOpt())) {
       // Export to BigQuery -> GCS newline-delimited JSON before ingest. Slower, but more reliable.
       // Required for bigger data, e.g. 100K/1m participant datasets.
       String[] parts = opts.getOptionValue(scratchBigQueryDatasetOpt.getLongOpt()).split("\\.");
       String scratchProject = parts[0];
       String scratchDataset = parts[1];
-      String scratchTable = String.format("%s_%d", personIndex, Instant.now().toEpochMilli());
-      TableId scratchTableId = TableId.of(scratchProject, scratchDataset, scratchTable);
-
-      log.info(
-          String.format(
-              "Exporting from CDR '%s' -> intermediate table '%s'", cdrDataset, scratchTableId));
-      Job job =
-          bq.create(
-                  Job.of(
-                      QueryJobConfiguration.newBuilder(personSQL)
-                          .setDestinationTable(scratchTableId)
-                          .build()))
-              .waitFor(RetryOption.totalTimeout(Duration.ofHours(1)));
-      if (job.getStatus().getError() != null) {
-        throw new IOException("BigQuery job failed: " + job.getStatus().getError().getMessage());
-      }
-      totalSampleSize = (int) job.getQueryResults().getTotalRows();
-
-      // TODO: Ensure expiry and delete after successful ingest.
-      String bucket = opts.getOptionValue(scratchGcsOpt.getLongOpt());
-      String gcsDir = scratchTable;
-
-      // * is substituted with a numeric shard value; this only matters if the results are large
-      // enough to be sharded by BigQuery on export.
-      String gcsExportPath = String.format("gs://%s/%s/person-*.json", bucket, gcsDir);
-      log.info(
-          String.format(
-              "Exporting from intermediate table '%s' -> intermediate GCS file(s) '%s'",
-              scratchTableId, gcsExportPath));
-      job =
-          bq.create(
-                  Job.of(
-                      ExtractJobConfiguration.of(
-                          scratchTableId, gcsExportPath, "NEWLINE_DELIMITED_JSON")))
-              .waitFor(RetryOption.totalTimeout(Duration.ofHours(1)));
-      if (job.getStatus().getError() != null) {
-        throw new IOException("BigQuery job failed: " + job.getStatus().getError().getMessage());
+      bucket = opts.getOptionValue(scratchGcsOpt.getLongOpt());
+      if (resuming && checkpoint.getExportLocation() != null) {
+        // The GCS export directory is named after the scratch table.
+        gcsDir = checkpoint.getExportLocation();
+        scratchTableId = TableId.of(scratchProject, scratchDataset, gcsDir);
+        totalSampleSize = (int) checkpoint.getExpectedDocs();
+        log.info(
+            String.format(
+                "Resuming the ingest of the export in 'gs://%s/%s' from a checkpoint",
+                bucket, gcsDir));
+      } else {
+        String scratchTable = String.format("%s_%d", personIndex, Instant.now().toEpochMilli());
+        scratchTableId = TableId.of(scratchProject, scratchDataset, scratchTable);
+        gcsDir = scratchTable;
+        totalSampleSize = exportToGcs(bq, cdrDataset, personSQL, scratchTableId, bucket, gcsDir);
+        if (checkpoint != null) {
+          checkpoint.setExport(gcsDir, totalSampleSize);
+          checkpoint.save();
+        }
       }
 
       log.info(
           String.format(
-              "Converting intermediate GCS JSON file(s) '%s' -> Elasticsearch documents",
-              gcsExportPath));
+              "Converting intermediate GCS JSON file(s) in 'gs://%s/%s' -> Elasticsearch documents",
+              bucket,
+              gcsDir));
       Storage storage = StorageOptions.getDefaultInstance().getService();
-      Iterator<String> lineIter =
-          new CloudStorageShardedLineIterator(
-              storage.list(bucket, BlobListOption.prefix(gcsDir + "/")).iterateAll());
-      docs =
-          StreamSupport.stream(Spliterators.spliteratorUnknownSize(lineIter, 0), false)
-              .map(
-                  line -> {
-                    try {
-                      return ElasticDocument.fromBigQueryJson(line);
-                    } catch (IOException e) {
-                      throw new RuntimeException("Error reading JSON line from BigQuery export", e);
-                    }
-                  })
-              .iterator();
+      Iterable<Blob> blobs = storage.list(bucket, BlobListOption.prefix(gcsDir + "/")).iterateAll();
+      if (resuming && !blobs.iterator().hasNext()) {
+        throw new IllegalStateException(
+            String.format(
+                "The export in 'gs://%s/%s' has expired; delete the checkpoint to start over",
+                bucket, gcsDir));
+      }
+      if (parallelIngest) {
+        shards =
+            StreamSupport.stream(blobs.spliterator(), false)
+                .map(ElasticSearchIndexer::gcsShard)
+                .collect(Collectors.toList());
+      } else {
+        Iterator<String> lineIter = new CloudStorageShardedLineIterator(blobs);
+        docs =
+            StreamSupport.stream(Spliterators.spliteratorUnknownSize(lineIter, 0), false)
+                .map(
+                    line -> {
+                      try {
+                        return ElasticDocument.fromBigQueryJson(line);
+                      } catch (IOException e) {
+                        throw new RuntimeException(
+                            "Error reading JSON line from BigQuery export", e);
+                      }
+                    })
+                .iterator();
+      }
     } else {
       log.info(
           String.format("SELECTing from CDR '%s' -> Elasticsearch JSON documents", cdrDataset));
@@ -284,13 +419,179 @@ public final class ElasticSearchIndexer {
               .iterator();
     }
 
+    boolean succeeded = true;
+    if (shards != null) {
+      succeeded = ingestInParallel(opts, personIndex, shards, totalSampleSize, checkpoint);
+    } else {
+      log.info(
+          String.format(
+              "Starting bulk ingest of Elasticsearch documents to '%s'",
+              opts.getOptionValue(esBaseUrlOpt.getLongOpt())));
+      ElasticUtils.ingestDocuments(client, personIndex, docs, totalSampleSize);
+    }
+    restoreIndexSettings(personIndex, originalSettings);
+
+    if (!succeeded) {
+      // Keep the export and the checkpoint, for a rerun to resume from.
+      log.warning(
+          String.format(
+              "Some documents were not indexed; rerun with the same --checkpoint to resume, or "
+                  + "delete '%s' and 'gs://%s/%s' when no longer needed",
+              scratchTableId, bucket, gcsDir));
+      return;
+    }
+    if (checkpoint != null) {
+      checkpoint.delete();
+    }
+    if (scratchTableId != null) {
+      log.info(String.format("Deleting '%s' and 'gs://%s/%s'", scratchTableId, bucket, gcsDir));
+      bq.delete(scratchTableId);
+      Storage storage = StorageOptions.getDefaultInstance().getService();
+      for (Blob blob : storage.list(bucket, BlobListOption.prefix(gcsDir + "/")).iterateAll()) {
+        blob.delete();
+      }
+    }
+  }
+
+  /**
+   * Runs the person query into the scratch table, and exports that as newline-delimited JSON to
+   * gs://bucket/gcsDir. Returns the number of documents exported.
+   */
+  private int exportToGcs(
+      BigQuery bq,
+      String cdrDataset,
+      String personSQL,
+      TableId scratchTableId,
+      String bucket,
+      String gcsDir)
+      throws IOException, InterruptedException {
+    log.info(
+        String.format(
+            "Exporting from CDR '%s' -> intermediate table '%s'", cdrDataset, scratchTableId));
+    Job job =
+        bq.create(
+                Job.of(
+                    QueryJobConfiguration.newBuilder(personSQL)
+                        .setDestinationTable(scratchTableId)
+                        .build()))
+            .waitFor(RetryOption.totalTimeout(Duration.ofHours(1)));
+    if (job.getStatus().getError() != null) {
+      throw new IOException("BigQuery job failed: " + job.getStatus().getError().getMessage());
+    }
+    int totalSampleSize = (int) job.getQueryResults().getTotalRows();
+
+    // The table and export are deleted after a successful ingest; this expiry, and the scratch
+    // bucket's lifecycle rule (see set-es-scratch-bucket-lifecycle), clean up after failed runs
+    // which are never resumed.
+    bq.getTable(scratchTableId)
+        .toBuilder()
+        .setExpirationTime(Instant.now().toEpochMilli() + TimeUnit.DAYS.toMillis(SCRATCH_TTL_DAYS))
+        .build()
+        .update();
+
+    // * is substituted with a numeric shard value; this only matters if the results are large
+    // enough to be sharded by BigQuery on export.
+    String gcsExportPath = String.format("gs://%s/%s/person-*.json", bucket, gcsDir);
     log.info(
         String.format(
-            "Starting bulk ingest of Elasticsearch documents to '%s'",
-            opts.getOptionValue(esBaseUrlOpt.getLongOpt())));
-    ElasticUtils.ingestDocuments(client, personIndex, docs, totalSampleSize);
+            "Exporting from intermediate table '%s' -> intermediate GCS file(s) '%s'",
+            scratchTableId, gcsExportPath));
+    job =
+        bq.create(
+                Job.of(
+                    ExtractJobConfiguration.of(
+                        scratchTableId, gcsExportPath, "NEWLINE_DELIMITED_JSON")))
+            .waitFor(RetryOption.totalTimeout(Duration.ofHours(1)));
+    if (job.getStatus().getError() != null) {
+      throw new IOException("BigQuery job failed: " + job.getStatus().getError().getMessage());
+    }
+    return totalSampleSize;
+  }
+
+  private static IngestCheckpoint.Store checkpointStore(String location) {
+    if (!location.startsWith("gs://")) {
+      return IngestCheckpoint.localFile(Paths.get(location));
+    }
+    String[] parts = location.substring("gs://".length()).split("/", 2);
+    BlobId blobId = BlobId.of(parts[0], parts[1]);
+    Storage storage = StorageOptions.getDefaultInstance().getService();
+    return new IngestCheckpoint.Store() {
+      @Override
+      public String read() {
+        Blob blob = storage.get(blobId);
+        return blob == null ? null : new String(blob.getContent(), StandardCharsets.UTF_8);
+      }
+
+      @Override
+      public void write(String checkpoint) {
+        storage.create(
+            BlobInfo.newBuilder(blobId).setContentType("application/json").build(),
+            checkpoint.getBytes(StandardCharsets.UTF_8));
+      }
+
+      @Override
+      public void delete() {
+        storage.delete(blobId);
+      }
+    };
+  }
+
+  /** Returns whether every document was indexed. */
+  private boolean ingestInParallel(
+      CommandLine opts,
+      String personIndex,
+      List<ParallelDocumentIngester.Shard> shards,
+      long totalSampleSize,
+      @Nullable IngestCheckpoint checkpoint)
+      throws IOException, InterruptedException {
+    int readerThreads = 4;
+    if (opts.hasOption(ingestReaderThreadsOpt.getLongOpt())) {
+      readerThreads = Integer.parseInt(opts.getOptionValue(ingestReaderThreadsOpt.getLongOpt()));
+    }
+    int bulkThreads = 3;
+    if (opts.hasOption(bulkConcurrencyOpt.getLongOpt())) {
+      bulkThreads = Integer.parseInt(opts.getOptionValue(bulkConcurrencyOpt.getLongOpt()));
+    }
+    log.info(
+        String.format(
+            "Starting parallel bulk ingest of %d shard(s) to '%s' (%d readers, %d bulk senders)",
+            shards.size(),
+            opts.getOptionValue(esBaseUrlOpt.getLongOpt()),
+            readerThreads,
+            bulkThreads));
+    ParallelDocumentIngester ingester =
+        ParallelDocumentIngester.forClient(client, personIndex, readerThreads, bulkThreads);
+    if (opts.hasOption(incrementalOpt.getLongOpt())) {
+      ingester.withIncrementalUpdates();
+    }
+    ParallelDocumentIngester.IngestResult result =
+        ingester.ingest(shards, totalSampleSize, checkpoint);
+    if (result.failedShards > 0) {
+      log.severe(
+          String.format(
+              "%d of %d shard(s) could not be read; %d documents were indexed",
+              result.failedShards, shards.size(), result.indexed));
+    }
+    return result.failedShards == 0 && result.failed == 0;
+  }
+
+  private static ParallelDocumentIngester.Shard gcsShard(Blob blob) {
+    return new ParallelDocumentIngester.Shard() {
+      @Override
+      public String getName() {
+        return blob.getName();
+      }
+
+      @Override
+      public BufferedReader open() {
+        return CloudStorageShardedLineIterator.openBlob(blob);
+      }
+    };
+  }
 
-    // Restore the original index settings.
+  /** Restores the index settings changed to speed up the ingest. */
+  private void restoreIndexSettings(String personIndex, Settings originalSettings)
+      throws IOException {
     client
         .indices()
         .putSettings(
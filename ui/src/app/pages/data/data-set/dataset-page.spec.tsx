@@ -2,7 +2,11 @@ import {mount} from 'enzyme';
 import * as React from 'react';
 
 import {Button, Clickable} from 'app/components/buttons';
-import {COMPARE_DOMAINS_FOR_DISPLAY, DatasetPage} from 'app/pages/data/data-set/dataset-page';
+import {
+  COMPARE_DOMAINS_FOR_DISPLAY,
+  DatasetPage,
+  PREVIEW_MAX_POLL_ATTEMPTS
+} from 'app/pages/data/data-set/dataset-page';
 import {ExportDatasetModal} from 'app/pages/data/data-set/export-dataset-modal';
 import {GenomicExtractionModal} from 'app/pages/data/data-set/genomic-extraction-modal';
 import {dataSetApi, registerApiClient} from 'app/services/swagger-fetch-clients';
@@ -13,10 +17,10 @@ import {
   CohortsApi,
   ConceptSetsApi,
   DataSetApi,
-  Domain, PrePackagedConceptSetEnum,
+  Domain, PrePackagedConceptSetEnum, QueryJobStatus,
   WorkspaceAccessLevel, WorkspacesApi
 } from 'generated/fetch';
-import {waitOneTickAndUpdate} from 'testing/react-test-helpers';
+import {waitForFakeTimersAndUpdate, waitOneTickAndUpdate} from 'testing/react-test-helpers';
 import {CdrVersionsApiStub, cdrVersionTiersResponse} from 'testing/stubs/cdr-versions-api-stub';
 import {CohortsApiStub, exampleCohortStubs} from 'testing/stubs/cohorts-api-stub';
 import {ConceptSetsApiStub} from 'testing/stubs/concept-sets-api-stub';
@@ -43,10 +47,30 @@ describe('DataSetPage', () => {
     cdrVersionStore.set(cdrVersionTiersResponse);
   });
 
+  afterEach(() => {
+    jest.useRealTimers();
+  });
+
   const component = () => {
     return mount(<DatasetPage hideSpinner={() => {}} showSpinner={() => {}} />);
   }
 
+  // Previews a cohort and concept set, leaving every domain's query running on the server.
+  const startRunningPreview = async(wrapper) => {
+    jest.spyOn(dataSetApi(), 'previewDataSetDomains').mockImplementation(
+      (workspaceNamespace, workspaceId, request) => Promise.resolve({
+        items: request.items.map(item => ({domain: item.domain, jobId: 'job', status: QueryJobStatus.RUNNING}))
+      }));
+    wrapper.find('[data-test-id="cohort-list-item"]').first()
+      .find('input').first().simulate('change');
+    wrapper.update();
+    wrapper.find('[data-test-id="concept-set-list-item"]').first()
+      .find('input').first().simulate('change');
+    await waitOneTickAndUpdate(wrapper);
+    wrapper.find({'data-test-id': 'preview-button'}).first().simulate('click');
+    await waitOneTickAndUpdate(wrapper);
+  };
+
   it('should render', async() => {
     const wrapper = component();
     await waitOneTickAndUpdate(wrapper);
@@ -201,7 +225,7 @@ describe('DataSetPage', () => {
     });
 
   it('should display preview data table once preview button is clicked', async() => {
-    const spy = jest.spyOn(dataSetApi(), 'previewDataSetByDomain');
+    const spy = jest.spyOn(dataSetApi(), 'previewDataSetDomains');
     const wrapper = component();
     await waitOneTickAndUpdate(wrapper);
 
@@ -231,7 +255,7 @@ describe('DataSetPage', () => {
   });
 
   it('should display preview data for current domains only', async() => {
-    const spy = jest.spyOn(dataSetApi(), 'previewDataSetByDomain');
+    const spy = jest.spyOn(dataSetApi(), 'previewDataSetDomains');
     const wrapper = component();
     await waitOneTickAndUpdate(wrapper);
 
@@ -256,7 +280,38 @@ describe('DataSetPage', () => {
     await waitOneTickAndUpdate(wrapper);
     await waitOneTickAndUpdate(wrapper);
 
+    // Only the selected domain is previewed.
     expect(spy).toHaveBeenCalledTimes(1);
+    expect(spy.mock.calls[0][2].items.length).toBe(1);
+  });
+
+  it('should give up on a preview which takes too long', async() => {
+    jest.useFakeTimers();
+    const pollSpy = jest.spyOn(dataSetApi(), 'getDataSetPreviewJob');
+    const wrapper = component();
+    await waitOneTickAndUpdate(wrapper);
+    await startRunningPreview(wrapper);
+
+    for (let i = 0; i < PREVIEW_MAX_POLL_ATTEMPTS + 1; i++) {
+      await waitForFakeTimersAndUpdate(wrapper);
+    }
+
+    expect(pollSpy).toHaveBeenCalledTimes(PREVIEW_MAX_POLL_ATTEMPTS);
+    expect(wrapper.text()).toContain('the query took too long to run');
+  });
+
+  it('should stop polling for a preview once the page is gone', async() => {
+    jest.useFakeTimers();
+    const pollSpy = jest.spyOn(dataSetApi(), 'getDataSetPreviewJob');
+    const wrapper = component();
+    await waitOneTickAndUpdate(wrapper);
+    await startRunningPreview(wrapper);
+
+    wrapper.unmount();
+    jest.runOnlyPendingTimers();
+    await new Promise(resolve => setImmediate(resolve));
+
+    expect(pollSpy).not.toHaveBeenCalled();
   });
 
   it('should check that the Cohorts and Concept Sets "+" links go to their pages.', async() => {
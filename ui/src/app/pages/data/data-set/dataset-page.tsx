@@ -30,6 +30,7 @@ import {
 } from 'app/utils';
 import {AnalyticsTracker} from 'app/utils/analytics';
 import {getCdrVersion} from 'app/utils/cdr-versions';
+import {isAbortError} from 'app/utils/errors';
 import {
   currentWorkspaceStore,
   navigateAndPreventDefaultIfNoKeysPressed
@@ -52,7 +53,7 @@ import {
   DomainValuePair,
   ErrorResponse,
   PrePackagedConceptSetEnum,
-  Profile, ResourceType,
+  Profile, QueryJobStatus, ResourceType,
   ValueSet,
 } from 'generated/fetch';
 
@@ -224,6 +225,11 @@ const stylesFunction = {
   }
 };
 
+// How often to check on a domain preview which the server did not finish waiting for, and how many
+// times to check before giving up on it, about five minutes in all.
+export const PREVIEW_POLL_INTERVAL_MS = 2000;
+export const PREVIEW_MAX_POLL_ATTEMPTS = 150;
+
 const DOMAIN_DISPLAY_ORDER = {
   // Person domain is always first as the canonical primary table. Everything
   // else is alphabetized. To add further ordering constraints, add more
@@ -486,6 +492,8 @@ interface State {
 export const DatasetPage = fp.flow(withUserProfile(), withCurrentWorkspace(), withUrlParams(), withCdrVersions(), withErrorModal())(
   class extends React.Component<Props, State> {
     dt: any;
+    // Cancels the preview in progress, including any polling for its domains.
+    private previewAborter = new AbortController();
     constructor(props) {
       super(props);
       this.state = {
@@ -564,6 +572,10 @@ export const DatasetPage = fp.flow(withUserProfile(), withCurrentWorkspace(), wi
       });
     }
 
+    componentWillUnmount() {
+      this.previewAborter.abort();
+    }
+
     async componentDidUpdate({}, prevState: State) {
       // If any domains were dropped, we want to drop any domain/value pair selections.
       const droppedDomains = Array.from(prevState.selectedDomains)
@@ -923,22 +935,84 @@ export const DatasetPage = fp.flow(withUserProfile(), withCurrentWorkspace(), wi
         previewList: newPreviewList,
         selectedPreviewDomain: domains[0]
       });
-      domains.forEach(async domain => {
-        this.getPreviewByDomain(domain);
-      });
+      // Whole genome variant data is not previewed.
+      if (domains.includes(Domain.WHOLEGENOMEVARIANT)) {
+        this.setPreview(Domain.WHOLEGENOMEVARIANT, {isLoading: false, errorText: null, values: []});
+      }
+      const queriedDomains = domains.filter(domain => domain !== Domain.WHOLEGENOMEVARIANT);
+      if (queriedDomains.length === 0) {
+        return;
+      }
+
+      // All domains are previewed in one request, so the server can share their cohort query and
+      // wait for them together. Domains which are not done in time are polled for separately.
+      const {namespace, id} = this.props.workspace;
+      // This preview replaces any earlier one still loading.
+      this.previewAborter.abort();
+      this.previewAborter = new AbortController();
+      const {signal} = this.previewAborter;
+      try {
+        const domainsPreviewResponse = await apiCallWithGatewayTimeoutRetries(
+          () => dataSetApi().previewDataSetDomains(namespace, id, {
+            items: queriedDomains.map(domain => this.createPreviewRequest(domain))
+          }, {signal}));
+        if (signal.aborted) {
+          return;
+        }
+        domainsPreviewResponse.items.forEach(domainPreview => {
+          if (domainPreview.preview) {
+            this.setPreview(domainPreview.domain, {
+              isLoading: false,
+              errorText: null,
+              values: domainPreview.preview.values
+            });
+          } else {
+            this.pollPreviewJob(domainPreview.domain, domainPreview.jobId, signal);
+          }
+        });
+      } catch (ex) {
+        if (isAbortError(ex)) {
+          return;
+        }
+        const errorText = await this.getPreviewErrorText(ex);
+        queriedDomains.forEach(domain => this.setPreview(domain, {isLoading: false, errorText: errorText, values: []}));
+      }
     }
 
-    async getPreviewByDomain(domain: Domain) {
-      if (domain === Domain.WHOLEGENOMEVARIANT) {
-        this.setState(state => ({previewList: state.previewList.set(domain, {
+    // Stops without a word once the signal aborts, as the page has moved on from this preview.
+    async pollPreviewJob(domain: Domain, jobId: string, signal: AbortSignal) {
+      const {namespace, id} = this.props.workspace;
+      try {
+        for (let attempt = 0; attempt < PREVIEW_MAX_POLL_ATTEMPTS; attempt++) {
+          await new Promise(resolve => setTimeout(resolve, PREVIEW_POLL_INTERVAL_MS));
+          if (signal.aborted) {
+            return;
+          }
+          const jobResponse = await dataSetApi().getDataSetPreviewJob(namespace, id, jobId, {signal});
+          if (signal.aborted) {
+            return;
+          }
+          if (jobResponse.status === QueryJobStatus.DONE) {
+            this.setPreview(domain, {isLoading: false, errorText: null, values: jobResponse.preview.values});
+            return;
+          }
+        }
+        this.setPreview(domain, {
           isLoading: false,
-          errorText: null,
+          errorText: this.generateErrorTextFromPreviewException({statusCode: 504} as ErrorResponse),
           values: []
-        })}));
-        return;
+        });
+      } catch (ex) {
+        if (isAbortError(ex)) {
+          return;
+        }
+        const errorText = await this.getPreviewErrorText(ex);
+        this.setPreview(domain, {isLoading: false, errorText: errorText, values: []});
       }
-      const {namespace, id} = this.props.workspace;
-      const domainRequest: DataSetPreviewRequest = {
+    }
+
+    createPreviewRequest(domain: Domain): DataSetPreviewRequest {
+      return {
         domain: domain,
         conceptSetIds: this.state.selectedConceptSetIds,
         includesAllParticipants: this.state.includesAllParticipants,
@@ -948,25 +1022,15 @@ export const DatasetPage = fp.flow(withUserProfile(), withCurrentWorkspace(), wi
             .filter(values => values.domain === domain)
             .map( domainValue => domainValue.value)
       };
-      let newPreviewInformation;
-      try {
-        const domainPreviewResponse = await apiCallWithGatewayTimeoutRetries(
-          () => dataSetApi().previewDataSetByDomain(namespace, id, domainRequest));
-        newPreviewInformation = {
-          isLoading: false,
-          errorText: null,
-          values: domainPreviewResponse.values
-        };
-      } catch (ex) {
-        const exceptionResponse = await ex.json() as unknown as ErrorResponse;
-        const errorText = this.generateErrorTextFromPreviewException(exceptionResponse);
-        newPreviewInformation = {
-          isLoading: false,
-          errorText: errorText,
-          values: []
-        };
-      }
-      this.setState(state => ({previewList: state.previewList.set(domain, newPreviewInformation)}));
+    }
+
+    async getPreviewErrorText(ex) {
+      const exceptionResponse = await ex.json() as unknown as ErrorResponse;
+      return this.generateErrorTextFromPreviewException(exceptionResponse);
+    }
+
+    setPreview(domain: Domain, previewInformation: DataSetPreviewInfo) {
+      this.setState(state => ({previewList: state.previewList.set(domain, previewInformation)}));
     }
 
     async createDataset(name, desc) {
@@ -3,14 +3,17 @@ import {
   DataSet,
   DataSetApi,
   DataSetCodeResponse,
+  DataSetDomainsPreviewRequest,
+  DataSetDomainsPreviewResponse,
   DataSetExportRequest,
+  DataSetPreviewJobResponse,
   DataSetPreviewRequest,
   DataSetPreviewResponse,
   DataSetRequest,
   DomainValuesResponse,
   EmptyResponse, GenomicExtractionJobListResponse,
   KernelTypeEnum,
-  MarkDataSetRequest, ReadOnlyNotebookResponse
+  MarkDataSetRequest, QueryJobStatus, ReadOnlyNotebookResponse
 } from 'generated/fetch';
 import {stubNotImplementedError} from 'testing/stubs/stub-utils';
 
@@ -87,6 +90,25 @@ export class DataSetApiStub extends DataSetApi {
     });
   }
 
+  previewDataSetDomains(workspaceNamespace: string,
+    workspaceId: string, dataSetDomainsPreviewRequest: DataSetDomainsPreviewRequest): Promise<DataSetDomainsPreviewResponse> {
+    return Promise.all(dataSetDomainsPreviewRequest.items.map(dataSetPreviewRequest =>
+      this.previewDataSetByDomain(workspaceNamespace, workspaceId, dataSetPreviewRequest)))
+      .then(previews => ({
+        items: previews.map(preview => ({
+          domain: preview.domain,
+          jobId: 'job-' + preview.domain,
+          status: QueryJobStatus.DONE,
+          preview
+        }))
+      }));
+  }
+
+  getDataSetPreviewJob(workspaceNamespace: string,
+    workspaceId: string, jobId: string, options?: any): Promise<DataSetPreviewJobResponse> {
+    return Promise.resolve({status: QueryJobStatus.RUNNING});
+  }
+
   getDataDictionaryEntry(cdrVersionId: number, domain: string, domainValue: string): Promise<DataDictionaryEntry> {
     return Promise.resolve({
       description: 'datadictionary description',